@@ -0,0 +1,27 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents {@link PersistentListProvider}'s that can read the items of every list in a single pass.
+ */
+public interface BulkListProvider extends PersistentListProvider {
+	/**
+	 * Reads the items of every list, passing each item to the specified handler.  The items are ordered by list id and
+	 * then in list order.
+	 * @param handler The handler that the items are passed to.
+	 */
+	void getAllItems(ListItemModelHandler handler);
+}
@@ -0,0 +1,27 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents {@link PersistentListProvider}'s that can store a group of list operations in a single transaction.
+ */
+public interface GroupCommitListProvider extends PersistentListProvider {
+	/**
+	 * Applies the operations in order and commits them together.  Either every operation is stored or, if any operation
+	 * fails, none of them are.
+	 * @param operations The operations to commit.
+	 */
+	void commit(ListItemOperation[] operations);
+}
@@ -0,0 +1,29 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openhmis.commons.Initializable;
+
+/**
+ * Represents classes that initialize themselves the first time they are accessed.  Callers only need to call
+ * {@link #initialize()} when the object should be initialized ahead of its first use.
+ */
+public interface LazyInitializable extends Initializable {
+	/**
+	 * Gets whether the object has been initialized.
+	 * @return {@code true} if the object has been initialized; otherwise, {@code false}.
+	 */
+	boolean getIsInitialized();
+}
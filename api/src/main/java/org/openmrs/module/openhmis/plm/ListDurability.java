@@ -0,0 +1,35 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * How a list stores its changes.
+ */
+public enum ListDurability {
+	/**
+	 * Each change is stored by the list provider before the list operation returns.
+	 */
+	SYNCHRONOUS,
+	/**
+	 * Each change is queued and stored with other changes shortly after the list operation returns.  Changes made in the
+	 * last few milliseconds before a crash can be lost.
+	 */
+	GROUP_COMMIT,
+	/**
+	 * The list items are only kept in memory and are never stored by the list provider, so the list is empty after a
+	 * restart.  The list itself is still stored.
+	 */
+	MEMORY_ONLY
+}
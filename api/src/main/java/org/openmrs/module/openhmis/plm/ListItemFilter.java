@@ -0,0 +1,27 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents classes that select the items in a {@link PersistentList} that a query applies to.
+ */
+public interface ListItemFilter {
+	/**
+	 * Gets whether the item is selected by the filter.
+	 * @param item The item.
+	 * @return {@code true} if the item is selected; otherwise, {@code false}.
+	 */
+	boolean matches(PersistentListItem item);
+}
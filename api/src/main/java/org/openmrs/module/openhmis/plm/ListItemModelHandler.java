@@ -0,0 +1,28 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+/**
+ * Represents classes that process list items as they are read from a {@link PersistentListProvider}.
+ */
+public interface ListItemModelHandler {
+	/**
+	 * Called for each item that is read.
+	 * @param item The item.
+	 */
+	void handle(PersistentListItemModel item);
+}
@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+/**
+ * A list change that has been made in memory and has not yet been stored by the list provider.
+ */
+public class ListItemOperation {
+	public enum Type {
+		ADD,
+		REMOVE,
+		CLEAR
+	}
+
+	private final Type type;
+	private final PersistentList list;
+	private final PersistentListItemModel item;
+
+	private ListItemOperation(Type type, PersistentList list, PersistentListItemModel item) {
+		this.type = type;
+		this.list = list;
+		this.item = item;
+	}
+
+	public static ListItemOperation add(PersistentListItemModel item) {
+		return new ListItemOperation(Type.ADD, null, item);
+	}
+
+	public static ListItemOperation remove(PersistentListItemModel item) {
+		return new ListItemOperation(Type.REMOVE, null, item);
+	}
+
+	public static ListItemOperation clear(PersistentList list) {
+		return new ListItemOperation(Type.CLEAR, list, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the list to clear.
+	 * @return The list or {@code null} if this is not a {@link Type#CLEAR} operation.
+	 */
+	public PersistentList getList() {
+		return list;
+	}
+
+	/**
+	 * Gets the item to add or remove.
+	 * @return The item or {@code null} if this is a {@link Type#CLEAR} operation.
+	 */
+	public PersistentListItemModel getItem() {
+		return item;
+	}
+
+	/**
+	 * Applies this operation with a provider that stores each operation on its own.
+	 * @param provider The provider to apply the operation with.
+	 */
+	public void applyTo(PersistentListProvider provider) {
+		switch (type) {
+			case ADD:
+				provider.add(item);
+				break;
+			case REMOVE:
+				provider.remove(item);
+				break;
+			case CLEAR:
+				provider.clear(list);
+				break;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents classes that are called for each item when the items in a {@link PersistentList} are traversed.
+ */
+public interface ListItemVisitor {
+	/**
+	 * Called for each item in list order.
+	 * @param item The item.
+	 * @return {@code true} to continue to the next item; {@code false} to stop the traversal.
+	 */
+	boolean visit(PersistentListItem item);
+}
@@ -0,0 +1,108 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads list items from any {@link PersistentListProvider}, using the optional provider interfaces when the provider
+ * implements them and falling back to {@link PersistentListProvider#getItems(PersistentList)} when it does not.
+ */
+public final class ListProviders {
+	private ListProviders() {
+	}
+
+	/**
+	 * Reads all the items from the list in order, passing each item to the specified handler.
+	 * @param provider The provider to read from.
+	 * @param list The list to read.
+	 * @param handler The handler that the items are passed to.
+	 * @should stream the items when the provider is a StreamingListProvider
+	 * @should pass the items from getItems to the handler when the provider cannot stream
+	 */
+	public static void getItems(PersistentListProvider provider, PersistentList list, ListItemModelHandler handler) {
+		StreamingListProvider streamingProvider = Utility.as(StreamingListProvider.class, provider);
+		if (streamingProvider != null) {
+			streamingProvider.getItems(list, handler);
+			return;
+		}
+
+		for (PersistentListItemModel item : provider.getItems(list)) {
+			handler.handle(item);
+		}
+	}
+
+	/**
+	 * Gets a range of the items from the list in order.  Providers that are not a {@link PagedListProvider} read the
+	 * whole list and copy the range.
+	 * @param provider The provider to read from.
+	 * @param list The list to read.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The items in the range.
+	 * @should copy the range from getItems when the provider cannot page
+	 */
+	public static PersistentListItemModel[] getItems(PersistentListProvider provider, PersistentList list, int offset,
+	                                                 int limit) {
+		PagedListProvider pagedProvider = Utility.as(PagedListProvider.class, provider);
+		if (pagedProvider != null) {
+			return pagedProvider.getItems(list, offset, limit);
+		}
+
+		PersistentListItemModel[] items = provider.getItems(list);
+		int start = Math.min(offset, items.length);
+
+		return Arrays.copyOfRange(items, start, start + Math.min(limit, items.length - start));
+	}
+
+	/**
+	 * Gets the items from the list that follow the specified item, in order.  Providers that are not a
+	 * {@link PagedListProvider} read the whole list and skip the items that come before the specified item in the item id
+	 * order.
+	 * @param provider The provider to read from.
+	 * @param list The list to read.
+	 * @param itemId The id of the item to start after or {@code null} to start from the first item.
+	 * @param isLastInFirstOut {@code true} if the list order is the descending item id order; otherwise, {@code false}.
+	 * @param limit The maximum number of items to return.
+	 * @return The items following the specified item.
+	 * @should return the items after the specified item from getItems when the provider cannot page
+	 * @should return the items before the specified item id when the list is last in first out
+	 */
+	public static PersistentListItemModel[] getItemsAfter(PersistentListProvider provider, PersistentList list,
+	                                                      Integer itemId, boolean isLastInFirstOut, int limit) {
+		PagedListProvider pagedProvider = Utility.as(PagedListProvider.class, provider);
+		if (pagedProvider != null) {
+			return pagedProvider.getItemsAfter(list, itemId, isLastInFirstOut, limit);
+		}
+
+		List<PersistentListItemModel> result = new ArrayList<PersistentListItemModel>();
+		for (PersistentListItemModel item : provider.getItems(list)) {
+			if (result.size() == limit) {
+				break;
+			}
+
+			if (itemId == null || (isLastInFirstOut ? item.getItemId() < itemId : item.getItemId() > itemId)) {
+				result.add(item);
+			}
+		}
+
+		return result.toArray(new PersistentListItemModel[result.size()]);
+	}
+}
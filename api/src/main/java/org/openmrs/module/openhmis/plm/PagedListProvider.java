@@ -0,0 +1,45 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+/**
+ * Represents {@link PersistentListProvider}'s that can read a page of the items of a list without reading the whole
+ * list.  Use {@link ListProviders} to read pages from a provider that may not implement this interface.
+ */
+public interface PagedListProvider extends PersistentListProvider {
+	/**
+	 * Gets a range of the items from the list in order.
+	 * @param list The @see PersistentList to get.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The items in the range.
+	 */
+	PersistentListItemModel[] getItems(PersistentList list, int offset, int limit);
+
+	/**
+	 * Gets the items from the list that follow the specified item, in order.  Items are only added to one end of a list,
+	 * so the list order is the item id order: ascending for first in, first out lists and descending for last in, first
+	 * out lists.  The items are found by their id, which does not change when other items are added or removed, so the
+	 * specified item does not need to still be in the list.
+	 * @param list The @see PersistentList to get.
+	 * @param itemId The id of the item to start after or {@code null} to start from the first item.
+	 * @param isLastInFirstOut {@code true} if the list order is the descending item id order; otherwise, {@code false}.
+	 * @param limit The maximum number of items to return.
+	 * @return The items following the specified item.
+	 */
+	PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut, int limit);
+}
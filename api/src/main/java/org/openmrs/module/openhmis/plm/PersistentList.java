@@ -120,6 +120,8 @@ public interface PersistentList {
 	 * @return The next {@link PersistentListItem}.
 	 * @should Return and remove item
 	 * @should Return null when list is empty
+	 * @should Remove the item from the provider
+	 * @should Allow an item with the same key to be added after it is removed
 	 */
 	PersistentListItem getNextAndRemove();
 
@@ -20,17 +20,35 @@ import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 
 import java.util.Date;
 
+/**
+ * An item in a persistent list.  The creator is stored by its user id and the creation date as the number of
+ * milliseconds since the epoch, so that the cached items do not hold a user or date object each.  When UUID key encoding
+ * is enabled, keys that are UUIDs are stored as two longs by the {@link UuidKeyCodec} and converted back to a string
+ * when they are read.
+ */
 public class PersistentListItem {
+	/**
+	 * The creator id of an item without a creator.
+	 */
+	public static final int NO_CREATOR = Integer.MIN_VALUE;
+	/**
+	 * The creation time of an item without a creation date.
+	 */
+	public static final long NO_DATE = Long.MIN_VALUE;
+
 	private Integer id;
 	private String key;
-	private User creator;
-	private Date createdOn;
+	private long keyMostSignificantBits;
+	private long keyLeastSignificantBits;
+	private boolean isKeyEncoded;
+	private int creatorId = NO_CREATOR;
+	private long createdOn = NO_DATE;
 
 	PersistentListItem() {
 	}
 
 	public PersistentListItem(PersistentListItemModel model) {
-		this(model.getItemId(), model.getItemKey(), model.getCreator(), model.getDateCreated());
+		this(model.getItemId(), model.getItemKey(), model.getCreatorId(), model.getDateCreatedMillis());
 	}
 
 	public PersistentListItem(String key) {
@@ -46,26 +64,56 @@ public class PersistentListItem {
 	}
 
 	public PersistentListItem(Integer id, String key, User creator, Date createdOn) {
+		this(id, key, getUserId(creator), createdOn == null ? NO_DATE : createdOn.getTime());
+	}
+
+	public PersistentListItem(Integer id, String key, int creatorId, long createdOn) {
 		this.id = id;
-		this.key = key;
-		this.creator = creator;
+		this.creatorId = creatorId;
 		this.createdOn = createdOn;
+
+		setKey(key);
 	}
 
+	/**
+	 * Gets the item key.  A new string is returned by each call for keys that are encoded UUIDs.
+	 * @return The item key.
+	 * @should return the key that was set
+	 */
 	public String getKey() {
-		return key;
+		return isKeyEncoded ? UuidKeyCodec.toString(keyMostSignificantBits, keyLeastSignificantBits) : key;
 	}
 
 	public void setKey(String key) {
-		this.key = key;
+		isKeyEncoded = UuidKeyCodec.shouldEncode(key);
+		if (isKeyEncoded) {
+			this.key = null;
+			this.keyMostSignificantBits = UuidKeyCodec.getMostSignificantBits(key);
+			this.keyLeastSignificantBits = UuidKeyCodec.getLeastSignificantBits(key);
+		} else {
+			this.key = key;
+		}
 	}
 
+	/**
+	 * Gets the date the item was created.  A new date is returned by each call.
+	 * @return The creation date or {@code null} if the item has no creation date.
+	 * @should return null when the item has no creation date
+	 */
 	public Date getCreatedOn() {
-		return createdOn;
+		return createdOn == NO_DATE ? null : new Date(createdOn);
 	}
 
 	void setCreatedOn(Date createdAt) {
-		this.createdOn = createdAt;
+		this.createdOn = createdAt == null ? NO_DATE : createdAt.getTime();
+	}
+
+	/**
+	 * Gets the time the item was created, in milliseconds since the epoch.
+	 * @return The creation time or {@link #NO_DATE} if the item has no creation date.
+	 */
+	public long getCreatedOnMillis() {
+		return createdOn;
 	}
 
 	public Integer getId() {
@@ -76,12 +124,45 @@ public class PersistentListItem {
 		this.id = id;
 	}
 
+	/**
+	 * Gets the user that created the item.  The user is loaded by the user service each time this is called, which
+	 * needs an open OpenMRS session and usually a database query, so callers that only need the user id should use
+	 * {@link #getCreatorId()} instead.
+	 * @return The creator or {@code null} if the item has no creator.
+	 * @should return null when the item has no creator
+	 */
 	public User getCreator() {
-		return creator;
+		return creatorId == NO_CREATOR ? null : Context.getUserService().getUser(creatorId);
 	}
 
+	/**
+	 * Sets the user that created the item.  Only the user id is kept, so a user that has not been saved is stored as
+	 * no creator.
+	 * @param creator The creator.
+	 * @should keep only the user id
+	 */
 	public void setCreator(User creator) {
-		this.creator = creator;
+		this.creatorId = getUserId(creator);
+	}
+
+	/**
+	 * Gets the user id of the user that created the item.
+	 * @return The creator user id or {@link #NO_CREATOR} if the item has no creator.
+	 */
+	public int getCreatorId() {
+		return creatorId;
 	}
-}
 
+	public void setCreatorId(int creatorId) {
+		this.creatorId = creatorId;
+	}
+
+	/**
+	 * Gets the user id of the specified user.
+	 * @param user The user.
+	 * @return The user id or {@link #NO_CREATOR} if the user is {@code null} or has not been saved.
+	 */
+	public static int getUserId(User user) {
+		return user == null || user.getUserId() == null ? NO_CREATOR : user.getUserId();
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * A page of {@link PersistentListItem}'s returned by {@link PersistentList#getPage(String, int)}.
+ */
+public class PersistentListPage {
+	private final PersistentListItem[] items;
+	private final String nextCursor;
+
+	public PersistentListPage(PersistentListItem[] items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Gets the items in the page in list order.
+	 * @return The page items.
+	 */
+	public PersistentListItem[] getItems() {
+		return items;
+	}
+
+	/**
+	 * Gets the cursor used to request the page after this one or {@code null} if there were no more items when this page
+	 * was read.  The cursor value is opaque and should only be passed back to the list that returned it.
+	 * @return The next page cursor.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
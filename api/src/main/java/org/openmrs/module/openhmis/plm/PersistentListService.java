@@ -15,6 +15,7 @@
 package org.openmrs.module.openhmis.plm;
 
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
 
 import java.util.Collection;
 
@@ -42,6 +43,18 @@ public interface PersistentListService extends OpenmrsService {
 	 */
 	<T extends PersistentList> PersistentList createList(Class<T> listClass, String key, String description);
 
+	/**
+	 * Creates a new list of the specified type with the specified key and durability.
+	 * @param listClass The list type to create.
+	 * @param key The list key.
+	 * @param description An optional description of the list purpose.
+	 * @param durability How the list stores its changes.
+	 * @param <T> A type that implements the {@link PersistentList} interface.
+	 * @return The newly created {@link PersistentList}.
+	 */
+	<T extends PersistentList> PersistentList createList(Class<T> listClass, String key, String description,
+	                                                     ListDurability durability);
+
 	/**
 	 * Removes the list and associated items.
 	 * @param key The key of the list to remove.
@@ -64,5 +77,11 @@ public interface PersistentListService extends OpenmrsService {
 	void addEventListener(ListServiceEventListener listener);
 
 	void removeEventListener(ListServiceEventListener listener);
+
+	/**
+	 * Gets the registry that the lists and the list provider record their metrics in.
+	 * @return The metrics registry.
+	 */
+	MetricsRegistry getMetricsRegistry();
 }
 
@@ -0,0 +1,244 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.openhmis.commons.Utility;
+
+import java.util.Arrays;
+
+/**
+ * Reads list items from any {@link PersistentList}, using the {@link QueryablePersistentList} methods when the list
+ * implements them and falling back to {@link PersistentList#getItems()} when it does not.
+ */
+public final class PersistentLists {
+	private static final char KEY_CURSOR = 'k';
+
+	private PersistentLists() {
+	}
+
+	/**
+	 * Gets a range of the items in the list in the proper list order.  Lists that are not a
+	 * {@link QueryablePersistentList} copy every item and then copy the range.
+	 * @param list The list to read.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The items in the range.
+	 * @should copy the range from getItems when the list is not queryable
+	 * @should throw IllegalArgumentException when the offset or limit is negative
+	 */
+	public static PersistentListItem[] getItems(PersistentList list, int offset, int limit) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.getItems(offset, limit);
+		}
+
+		if (offset < 0) {
+			throw new IllegalArgumentException("The offset must be zero or greater.");
+		}
+		if (limit < 0) {
+			throw new IllegalArgumentException("The limit must be zero or greater.");
+		}
+
+		return copyRange(list.getItems(), offset, limit);
+	}
+
+	/**
+	 * Gets the page of items that follows the specified cursor, in the proper list order.  Lists that are not a
+	 * {@link QueryablePersistentList} copy every item and then find the cursor position as described in
+	 * {@link #getCursorStart(Iterable, int, String)}.
+	 * @param list The list to read.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should continue after the cursor item when the list is not queryable
+	 * @should continue at the cursor position when the cursor item has been removed
+	 */
+	public static PersistentListPage getPage(PersistentList list, String cursor, int limit) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.getPage(cursor, limit);
+		}
+
+		if (limit < 1) {
+			throw new IllegalArgumentException("The limit must be one or greater.");
+		}
+
+		PersistentListItem[] all = list.getItems();
+		int start = 0;
+		if (cursor != null) {
+			start = getCursorStart(Arrays.asList(all), all.length, cursor);
+		}
+
+		PersistentListItem[] items = copyRange(all, start, limit);
+		int end = start + items.length;
+		String nextCursor = null;
+		if (end < all.length) {
+			nextCursor = createCursor(end - 1, items[items.length - 1]);
+		}
+
+		return new PersistentListPage(items, nextCursor);
+	}
+
+	/**
+	 * Calls the visitor for each item in the list in the proper list order until the visitor returns {@code false}.
+	 * Lists that are not a {@link QueryablePersistentList} copy every item first.
+	 * @param list The list to read.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 * @should stop visiting the items from getItems when the visitor returns false
+	 */
+	public static boolean forEach(PersistentList list, ListItemVisitor visitor) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.forEach(visitor);
+		}
+
+		if (visitor == null) {
+			throw new IllegalArgumentException("The visitor must be defined.");
+		}
+
+		for (PersistentListItem item : list.getItems()) {
+			if (!visitor.visit(item)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets whether any item in the list is selected by the filter.
+	 * @param list The list to read.
+	 * @param filter The filter.
+	 * @return {@code true} if an item is selected by the filter; otherwise, {@code false}.
+	 */
+	public static boolean anyMatch(PersistentList list, ListItemFilter filter) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.anyMatch(filter);
+		}
+
+		return findFirst(list, filter) != null;
+	}
+
+	/**
+	 * Gets the first item in the list order that is selected by the filter.
+	 * @param list The list to read.
+	 * @param filter The filter.
+	 * @return The first selected item or {@code null} if no item is selected.
+	 * @should return the first matching item from getItems when the list is not queryable
+	 */
+	public static PersistentListItem findFirst(PersistentList list, ListItemFilter filter) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.findFirst(filter);
+		}
+
+		if (filter == null) {
+			throw new IllegalArgumentException("The filter must be defined.");
+		}
+
+		for (PersistentListItem item : list.getItems()) {
+			if (filter.matches(item)) {
+				return item;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the number of items in the list that are selected by the filter.
+	 * @param list The list to read.
+	 * @param filter The filter.
+	 * @return The number of selected items.
+	 * @should count the matching items from getItems when the list is not queryable
+	 */
+	public static int count(PersistentList list, ListItemFilter filter) {
+		QueryablePersistentList queryableList = Utility.as(QueryablePersistentList.class, list);
+		if (queryableList != null) {
+			return queryableList.count(filter);
+		}
+
+		if (filter == null) {
+			throw new IllegalArgumentException("The filter must be defined.");
+		}
+
+		int count = 0;
+		for (PersistentListItem item : list.getItems()) {
+			if (filter.matches(item)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Creates a cursor for the item at the specified index.  The cursor holds the index and the hash of the item key, but
+	 * not the key itself.
+	 * @param index The index of the last item in the page.
+	 * @param item The last item in the page.
+	 * @return The cursor.
+	 */
+	public static String createCursor(int index, PersistentListItem item) {
+		return KEY_CURSOR + Integer.toString(index) + ":" + Integer.toString(item.getKey().hashCode(), Character.MAX_RADIX);
+	}
+
+	/**
+	 * Gets the index of the item that follows a cursor created by {@link #createCursor(int, PersistentListItem)}.  The
+	 * cursor item is the item whose key has the hash held in the cursor that is closest to the index of that item; if the
+	 * item has since been removed the page continues at the index in the cursor.
+	 * @param items The items in list order.
+	 * @param size The number of items.
+	 * @param cursor The cursor.
+	 * @return The index of the first item in the page.
+	 * @throws IllegalArgumentException The cursor is not valid.
+	 */
+	public static int getCursorStart(Iterable<PersistentListItem> items, int size, String cursor) {
+		int separator = cursor.indexOf(':');
+		if (cursor.length() < 2 || cursor.charAt(0) != KEY_CURSOR || separator < 0) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.");
+		}
+
+		int index;
+		int keyHash;
+		try {
+			index = Integer.parseInt(cursor.substring(1, separator));
+			keyHash = Integer.parseInt(cursor.substring(separator + 1), Character.MAX_RADIX);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.", ex);
+		}
+
+		int start = Math.min(index, size);
+		int distance = Integer.MAX_VALUE;
+		int i = 0;
+		for (PersistentListItem item : items) {
+			if (item.getKey().hashCode() == keyHash && Math.abs(i - index) < distance) {
+				start = i + 1;
+				distance = Math.abs(i - index);
+			}
+			i++;
+		}
+
+		return start;
+	}
+
+	private static PersistentListItem[] copyRange(PersistentListItem[] items, int offset, int limit) {
+		int start = Math.min(offset, items.length);
+
+		return Arrays.copyOfRange(items, start, start + Math.min(limit, items.length - start));
+	}
+}
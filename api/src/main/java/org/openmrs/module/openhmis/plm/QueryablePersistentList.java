@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents {@link PersistentList}'s that can read a range or a page of their items and visit their items without
+ * copying the whole list.  Use {@link PersistentLists} to read from a list that may not implement this interface.
+ */
+public interface QueryablePersistentList extends PersistentList {
+	/**
+	 * Gets a range of the {@link PersistentListItem}'s in the list in the proper list order.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The list {@link PersistentListItem}'s in the range or an empty array if the offset is past the end of the
+	 * list.
+	 * @should Return the items in the range in list order
+	 * @should Return the remaining items when the range extends past the end of the list
+	 * @should Return an empty array when the offset is past the end of the list
+	 * @should Throw IllegalArgumentException when the offset or limit is negative
+	 */
+	PersistentListItem[] getItems(int offset, int limit);
+
+	/**
+	 * Gets the page of {@link PersistentListItem}'s that follows the specified cursor, in the proper list order.  Unlike
+	 * an offset, the cursor continues from the last item returned even if items are added to or removed from the list
+	 * between requests.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should Return the first page when the cursor is null
+	 * @should Return the items following the cursor
+	 * @should Return a null next cursor on the last page
+	 * @should Not skip or repeat items when items before the cursor are removed
+	 * @should Throw IllegalArgumentException when the cursor is not valid
+	 */
+	PersistentListPage getPage(String cursor, int limit);
+
+	/**
+	 * Calls the visitor for each {@link PersistentListItem} in the list in the proper list order without copying the
+	 * items into an array.  The traversal stops as soon as the visitor returns {@code false}.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 * @should Visit the items in list order
+	 * @should Stop visiting items when the visitor returns false
+	 * @should Return true when the list is empty
+	 */
+	boolean forEach(ListItemVisitor visitor);
+
+	/**
+	 * Gets whether any {@link PersistentListItem} in the list is selected by the filter.  The items after the first
+	 * selected item are not checked.
+	 * @param filter The filter.
+	 * @return {@code true} if an item is selected by the filter; otherwise, {@code false}.
+	 * @should Return true when an item matches
+	 * @should Stop checking items after the first match
+	 * @should Return false when no item matches
+	 */
+	boolean anyMatch(ListItemFilter filter);
+
+	/**
+	 * Gets the first {@link PersistentListItem} in the list order that is selected by the filter.
+	 * @param filter The filter.
+	 * @return The first selected item or {@code null} if no item is selected.
+	 * @should Return the first matching item
+	 * @should Return null when no item matches
+	 */
+	PersistentListItem findFirst(ListItemFilter filter);
+
+	/**
+	 * Gets the number of {@link PersistentListItem}'s in the list that are selected by the filter.
+	 * @param filter The filter.
+	 * @return The number of selected items.
+	 * @should Return the number of matching items
+	 */
+	int count(ListItemFilter filter);
+}
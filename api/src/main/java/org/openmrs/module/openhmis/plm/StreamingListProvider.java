@@ -0,0 +1,30 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Represents {@link PersistentListProvider}'s that can pass the items of a list to a handler as they are read, rather
+ * than reading every item into an array first.  Use {@link ListProviders#getItems(PersistentListProvider,
+ * PersistentList, ListItemModelHandler)} to read from a provider that may not implement this interface.
+ */
+public interface StreamingListProvider extends PersistentListProvider {
+	/**
+	 * Reads all the items from the list in order, passing each item to the specified handler as it is read.  Unlike
+	 * {@link #getItems(PersistentList)} the items do not all need to be held in memory at the same time.
+	 * @param list The @see PersistentList to read.
+	 * @param handler The handler that the items are passed to.
+	 */
+	void getItems(PersistentList list, ListItemModelHandler handler);
+}
@@ -0,0 +1,210 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+/**
+ * Encodes item keys that are UUIDs as two longs or 16 bytes rather than as 36 character strings.  Only keys in the
+ * canonical lower case form produced by {@link java.util.UUID#toString()} are encoded so that decoding a key always
+ * returns the original string.
+ * <p/>
+ * The items and key sets only hold keys as two longs while {@link #setIsEncodingEnabled(boolean) encoding is enabled},
+ * which is off by default.  Encoding saves memory on lists of UUID keys at the cost of building a new string each time
+ * a key is read.  It is a module setting that the
+ * {@link org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl} applies once when it starts, before any list is
+ * loaded.
+ */
+public final class UuidKeyCodec {
+	/**
+	 * The length of an encoded key in bytes.
+	 */
+	public static final int ENCODED_LENGTH = 16;
+
+	private static final int KEY_LENGTH = 36;
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	private static volatile boolean isEncodingEnabled;
+
+	private UuidKeyCodec() {
+	}
+
+	/**
+	 * Gets whether the items and key sets hold UUID keys as two longs.
+	 * @return {@code true} if UUID keys are encoded in memory; otherwise, {@code false}.
+	 */
+	public static boolean getIsEncodingEnabled() {
+		return isEncodingEnabled;
+	}
+
+	/**
+	 * Sets whether the items and key sets hold UUID keys as two longs.  This only affects the items and lists that are
+	 * created afterwards, so it is only set by the service when it starts, before the lists are loaded.
+	 * @param isEncodingEnabled {@code true} to encode UUID keys in memory; otherwise, {@code false}.
+	 */
+	public static void setIsEncodingEnabled(boolean isEncodingEnabled) {
+		UuidKeyCodec.isEncodingEnabled = isEncodingEnabled;
+	}
+
+	/**
+	 * Gets whether the specified key should be held as two longs.
+	 * @param key The item key.
+	 * @return {@code true} if encoding is enabled and the key is a UUID in canonical lower case form; otherwise,
+	 * {@code false}.
+	 * @should return false when encoding is disabled
+	 */
+	public static boolean shouldEncode(String key) {
+		return isEncodingEnabled && isUuid(key);
+	}
+
+	/**
+	 * Gets whether the specified key can be encoded.
+	 * @param key The item key.
+	 * @return {@code true} if the key is a UUID in canonical lower case form; otherwise, {@code false}.
+	 * @should return true for a lower case uuid
+	 * @should return false for other keys
+	 */
+	public static boolean isUuid(String key) {
+		if (key == null || key.length() != KEY_LENGTH) {
+			return false;
+		}
+
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			char c = key.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return false;
+				}
+			} else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the most significant 64 bits of the specified UUID key.  The key must be one that {@link #isUuid(String)}
+	 * accepts.
+	 * @param key The item key.
+	 * @return The most significant bits.
+	 */
+	public static long getMostSignificantBits(String key) {
+		return parse(key, 0, 8) << 32 | parse(key, 9, 13) << 16 | parse(key, 14, 18);
+	}
+
+	/**
+	 * Gets the least significant 64 bits of the specified UUID key.  The key must be one that {@link #isUuid(String)}
+	 * accepts.
+	 * @param key The item key.
+	 * @return The least significant bits.
+	 */
+	public static long getLeastSignificantBits(String key) {
+		return parse(key, 19, 23) << 48 | parse(key, 24, 36);
+	}
+
+	/**
+	 * Decodes the key with the specified bits.
+	 * @param mostSignificantBits The most significant bits.
+	 * @param leastSignificantBits The least significant bits.
+	 * @return The item key.
+	 * @should return the key that was encoded
+	 */
+	public static String toString(long mostSignificantBits, long leastSignificantBits) {
+		char[] chars = new char[KEY_LENGTH];
+		format(mostSignificantBits >>> 32, chars, 0, 8);
+		chars[8] = '-';
+		format(mostSignificantBits >>> 16, chars, 9, 13);
+		chars[13] = '-';
+		format(mostSignificantBits, chars, 14, 18);
+		chars[18] = '-';
+		format(leastSignificantBits >>> 48, chars, 19, 23);
+		chars[23] = '-';
+		format(leastSignificantBits, chars, 24, 36);
+
+		return new String(chars);
+	}
+
+	/**
+	 * Encodes the specified UUID key as bytes, most significant byte first.  The key must be one that
+	 * {@link #isUuid(String)} accepts.
+	 * @param key The item key.
+	 * @return The encoded key.
+	 */
+	public static byte[] toBytes(String key) {
+		return toBytes(getMostSignificantBits(key), getLeastSignificantBits(key));
+	}
+
+	/**
+	 * Encodes the key with the specified bits as bytes, most significant byte first.
+	 * @param mostSignificantBits The most significant bits.
+	 * @param leastSignificantBits The least significant bits.
+	 * @return The encoded key.
+	 */
+	public static byte[] toBytes(long mostSignificantBits, long leastSignificantBits) {
+		byte[] bytes = new byte[ENCODED_LENGTH];
+		for (int i = 0; i < 8; i++) {
+			bytes[i] = (byte)(mostSignificantBits >>> (56 - i * 8));
+			bytes[i + 8] = (byte)(leastSignificantBits >>> (56 - i * 8));
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Decodes the key stored in the specified bytes.
+	 * @param bytes The encoded key.
+	 * @return The item key.
+	 * @should return the key that was encoded
+	 * @should throw IllegalArgumentException if the bytes are not an encoded key
+	 */
+	public static String fromBytes(byte[] bytes) {
+		if (bytes == null || bytes.length != ENCODED_LENGTH) {
+			throw new IllegalArgumentException("An encoded key must be " + ENCODED_LENGTH + " bytes.");
+		}
+
+		return toString(getLong(bytes, 0), getLong(bytes, 8));
+	}
+
+	/**
+	 * Gets the bits stored in the specified bytes, most significant byte first.
+	 * @param bytes The encoded key.
+	 * @param offset The offset of the first byte.
+	 * @return The bits.
+	 */
+	public static long getLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = offset; i < offset + 8; i++) {
+			value = value << 8 | (bytes[i] & 0xFF);
+		}
+
+		return value;
+	}
+
+	private static long parse(String key, int start, int end) {
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			char c = key.charAt(i);
+			value = value << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+		}
+
+		return value;
+	}
+
+	private static void format(long value, char[] chars, int start, int end) {
+		for (int i = end - 1; i >= start; i--) {
+			chars[i] = DIGITS[(int)(value & 0xF)];
+			value >>>= 4;
+		}
+	}
+}
@@ -20,34 +20,53 @@ import org.hibernate.*;
 
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
-import org.hibernate.jdbc.Work;
 import org.openmrs.module.openhmis.plm.*;
 import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.NullMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.ProviderMetrics;
 import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A {@link PersistentListProvider} which stores items in a database.
+ * A {@link PersistentListProvider} which stores items in a database.  Each operation uses its own session so that the
+ * provider can be used from threads that do not have a session bound to them, such as the list startup threads.
+ * <p/>
+ * The latency of each operation, including opening the session and committing the transaction, is recorded in the
+ * {@link ProviderMetrics} from the {@link MetricsRegistry} the provider is given.
+ * <p/>
+ * Groups of operations can be committed in a single transaction with {@link #commit(ListItemOperation[])}, which saves
+ * a database round trip per operation when list changes are written behind.
  */
 @Component
-public class DatabaseListProvider implements PersistentListProvider {
-	private static final String ADD_SQL =
-		"UPDATE plm_list_items SET primary_order = primary_order + 1 WHERE list_id = ? AND primary_order >= ?";
-	private static final String REMOVE_SQL =
-		"UPDATE plm_list_items SET primary_order = primary_order - 1 WHERE list_id = ? AND primary_order >= ?";
-	private static final String CLEAR_SQL = "DELETE FROM plm_list_items WHERE list_id = ?";
+public class DatabaseListProvider implements BulkListProvider, GroupCommitListProvider, PagedListProvider,
+		StreamingListProvider, MetricsAware {
+	private static final String ADD_HQL = "update PersistentListItemModel set itemOrder = itemOrder + 1 " +
+			"where listId = :listId and itemOrder >= :itemOrder";
+	private static final String FIND_ORDER_HQL = "select itemOrder from PersistentListItemModel " +
+			"where listId = :listId and itemKeyText = :itemKey";
+	private static final String FIND_UUID_ORDER_HQL = "select itemOrder from PersistentListItemModel " +
+			"where listId = :listId and (itemKeyText = :itemKey or itemKeyBytes = :itemKeyBytes)";
+	private static final String DELETE_HQL = "delete from PersistentListItemModel " +
+			"where listId = :listId and itemKeyText = :itemKey";
+	private static final String DELETE_UUID_HQL = "delete from PersistentListItemModel " +
+			"where listId = :listId and (itemKeyText = :itemKey or itemKeyBytes = :itemKeyBytes)";
+	private static final String REMOVE_HQL = "update PersistentListItemModel set itemOrder = itemOrder - 1 " +
+			"where listId = :listId and itemOrder > :itemOrder";
+	private static final String CLEAR_HQL = "delete from PersistentListItemModel where listId = :listId";
+	private static final int PAGE_SIZE = 1000;
 
 	private final Log log = LogFactory.getLog(PersistentListServiceImpl.class);
 	private final Object syncLock = new Object();
 
 	private SessionFactory sessionFactory;
+	private ProviderMetrics metrics = NullMetricsRegistry.PROVIDER_METRICS;
+	private boolean isUuidKeyEncodingEnabled;
 
 	/**
 	 * Creates a new DatabaseListProvider instance with the specified hibernate {@link SessionFactory}.
@@ -76,6 +95,30 @@ public class DatabaseListProvider implements PersistentListProvider {
 		return "A persistent list serviceProvider that stores items in an OpenMRS database.";
 	}
 
+	@Override
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		metrics = registry.getProviderMetrics(getName());
+	}
+
+	/**
+	 * Gets whether item keys that are UUIDs are stored as 16 bytes rather than as text.
+	 * @return {@code true} if UUID keys are stored as bytes; otherwise, {@code false}.
+	 */
+	public boolean getIsUuidKeyEncodingEnabled() {
+		return isUuidKeyEncodingEnabled;
+	}
+
+	/**
+	 * Sets whether item keys that are UUIDs are stored as 16 bytes rather than as text.  This only affects the items
+	 * that are added afterwards; items are read and removed whichever way they were stored.  This does not change how
+	 * the keys are held in memory, which is set for the module by
+	 * {@link org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl#setIsUuidKeyEncodingEnabled(boolean)}.
+	 * @param isUuidKeyEncodingEnabled {@code true} to store UUID keys as bytes; otherwise, {@code false}.
+	 */
+	public void setIsUuidKeyEncodingEnabled(boolean isUuidKeyEncodingEnabled) {
+		this.isUuidKeyEncodingEnabled = isUuidKeyEncodingEnabled;
+	}
+
 	/**
 	 * Adds a new item to the list.
 	 * @param item The item to add.
@@ -87,7 +130,8 @@ public class DatabaseListProvider implements PersistentListProvider {
 	 */
 	@Override
 	public void add(final PersistentListItemModel item) {
-		Session session = sessionFactory.getCurrentSession();
+		long start = System.nanoTime();
+		Session session = openSession();
 		Transaction trans = null;
 
 		try
@@ -95,47 +139,34 @@ public class DatabaseListProvider implements PersistentListProvider {
 			// Start transaction
 			trans = session.beginTransaction();
 
-			// Update all items >= index to be their current index + 1
-			// TODO: Can this type of query be handled by Hibernate without needing to use hardcoded SQL?
-			session.doWork(new Work() {
-				public void execute(Connection connection) {
-					try {
-						PreparedStatement cmd = connection.prepareStatement(ADD_SQL);
-						cmd.setInt(1, item.getListId());
-						cmd.setInt(2, item.getItemOrder());
-
-						cmd.executeUpdate();
-					} catch (SQLException sex) {
-						throw new PersistentListException(sex);
-					}
-				}
-			});
-
-			// Insert item with index
-			session.save(item);
-			session.flush();
+			addItem(session, item);
 
 			// Commit transaction
 			trans.commit();
 		} catch (Exception ex) {
 			log.debug("The list add operation failed.  Rolling back transaction...");
-			trans.rollback();
+			if (trans != null) {
+				trans.rollback();
+			}
 			log.debug("Transaction rolled back.");
 
 			throw new PersistentListException("An exception occurred while attempting to add the item to the list.", ex);
 		} finally {
 			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.ADD, System.nanoTime() - start);
 		}
 	}
 
 	/**
-	 * Removes the specified item from the list.
+	 * Removes the specified item from the list.  The item is found by its key, which is unique within the list, because
+	 * items that were added since the list was loaded do not have their id.
 	 * @param item The item to remove.
 	 * @return {@code true} if the item was removed; otherwise, {@code false}.
 	 */
 	@Override
 	public boolean remove(final PersistentListItemModel item) {
-		Session session = sessionFactory.getCurrentSession();
+		long start = System.nanoTime();
+		Session session = openSession();
 		Transaction trans = null;
 
 		try
@@ -143,39 +174,24 @@ public class DatabaseListProvider implements PersistentListProvider {
 			// Start transaction
 			trans = session.beginTransaction();
 
-			// Delete item with index
-			session.delete(item);
-			session.flush();
-
-			// Update all items >= index to be their current index - 1
-			// TODO: Can this type of query be handled by Hibernate without needing to use hardcoded SQL?
-			session.doWork(new Work() {
-				public void execute(Connection connection) {
-					try {
-						PreparedStatement cmd = connection.prepareStatement(REMOVE_SQL);
-						cmd.setInt(1, item.getListId());
-						cmd.setInt(2, item.getItemOrder());
-
-						cmd.executeUpdate();
-					} catch (SQLException sex) {
-						throw new PersistentListException(sex);
-					}
-				}
-			});
+			boolean wasRemoved = removeItem(session, item);
 
 			// Commit transaction
 			trans.commit();
+
+			return wasRemoved;
 		} catch (Exception ex) {
 			log.error("The list item delete operation failed.  Rolling back transaction...", ex);
-			trans.rollback();
+			if (trans != null) {
+				trans.rollback();
+			}
 			log.debug("Transaction rolled back.");
 
 			throw new PersistentListException("An exception occurred while attempting to delete the item from the list.", ex);
 		} finally {
 			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.REMOVE, System.nanoTime() - start);
 		}
-
-		return true;
 	}
 
 	/**
@@ -184,26 +200,67 @@ public class DatabaseListProvider implements PersistentListProvider {
 	 */
 	@Override
 	public void clear(final PersistentList list) {
-		Session session = sessionFactory.getCurrentSession();
+		long start = System.nanoTime();
+		Session session = openSession();
+		Transaction trans = null;
+
+		try {
+			trans = session.beginTransaction();
+
+			clearItems(session, list);
+
+			trans.commit();
+		} catch (Exception ex) {
+			if (trans != null) {
+				trans.rollback();
+			}
+
+			throw new PersistentListException("An exception occurred while attempting to clear the list items.", ex);
+		} finally {
+			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.CLEAR, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Applies the operations in order in a single transaction.
+	 * @param operations The operations to commit.
+	 * @should store every operation in order
+	 * @should roll back every operation when an operation fails
+	 */
+	@Override
+	public void commit(ListItemOperation[] operations) {
+		long start = System.nanoTime();
+		Session session = openSession();
+		Transaction trans = null;
 
 		try {
-			// Delete all items with list key
-			session.doWork(new Work() {
-				public void execute(Connection connection) {
-					try {
-						PreparedStatement cmd = connection.prepareStatement(CLEAR_SQL);
-						cmd.setInt(1, list.getId());
-
-						cmd.executeUpdate();
-					} catch (SQLException sex) {
-						throw new PersistentListException(sex);
-					}
+			trans = session.beginTransaction();
+
+			for (ListItemOperation operation : operations) {
+				switch (operation.getType()) {
+					case ADD:
+						addItem(session, operation.getItem());
+						break;
+					case REMOVE:
+						removeItem(session, operation.getItem());
+						break;
+					case CLEAR:
+						clearItems(session, operation.getList());
+						break;
 				}
-			});
+			}
+
+			trans.commit();
 		} catch (Exception ex) {
-			throw new PersistentListException("An exception occurred while attempting to get the list items.", ex);
+			if (trans != null) {
+				trans.rollback();
+			}
+
+			throw new PersistentListException("An exception occurred while attempting to commit the list operations.", ex);
 		} finally {
 			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.COMMIT, System.nanoTime() - start);
 		}
 	}
 
@@ -214,29 +271,274 @@ public class DatabaseListProvider implements PersistentListProvider {
 	 */
 	@Override
 	public PersistentListItemModel[] getItems(PersistentList list) {
-		List<PersistentListItemModel> result = null;
+		final List<PersistentListItemModel> result = new ArrayList<PersistentListItemModel>();
+
+		getItems(list, new ListItemModelHandler() {
+			@Override
+			public void handle(PersistentListItemModel item) {
+				result.add(item);
+			}
+		});
+
+		return result.toArray(new PersistentListItemModel[result.size()]);
+	}
+
+	/**
+	 * Reads all the items from the list in order, passing each item to the specified handler as it is read.  The items
+	 * are read in pages using the item order of the last item read, and the session is cleared after each page so that
+	 * only a single page of items is held in memory by the provider at a time.
+	 * @param list The @see PersistentList to read.
+	 * @param handler The handler that the items are passed to.
+	 * @should pass every item in the list to the handler in list order
+	 * @should read lists that are larger than a single page
+	 */
+	@Override
+	public void getItems(PersistentList list, ListItemModelHandler handler) {
+		long start = System.nanoTime();
+		Session session = openSession();
+		try {
+			PersistentListItemModel lastItem = null;
+			int count;
+			do {
+				// Return the next page of items in the specified list, starting after the last item read
+				Criteria search;
+				if (lastItem == null) {
+					search = createPageCriteria(session, list, null, null, PAGE_SIZE);
+				} else {
+					search = createPageCriteria(session, list, lastItem.getItemOrder(), lastItem.getItemId(), PAGE_SIZE);
+				}
+
+				count = 0;
+				for (Object result : search.list()) {
+					lastItem = (PersistentListItemModel)result;
+					count++;
+
+					handler.handle(lastItem);
+				}
+
+				// Release the page of items from the session before reading the next page
+				session.clear();
+			} while (count == PAGE_SIZE);
+		} catch (Exception ex) {
+			throw new PersistentListException("An exception occurred while attempting to get the list items.", ex);
+		} finally {
+			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
 
-		Session session = sessionFactory.getCurrentSession();
+	/**
+	 * Gets a range of the items from the list in order.
+	 * @param list The @see PersistentList to get.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The items in the range.
+	 * @should return the items in the range in list order
+	 */
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+		long start = System.nanoTime();
+		Session session = openSession();
+		try {
+			Criteria search = createPageCriteria(session, list, null, null, limit)
+					.setFirstResult(offset);
+
+			return toArray(search.list());
+		} catch (Exception ex) {
+			throw new PersistentListException("An exception occurred while attempting to get the list items.", ex);
+		} finally {
+			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Gets the items from the list that follow the specified item, in order.  The items are found using the id of the
+	 * specified item rather than an offset so that the query does not need to read the preceding rows.  The item order
+	 * is not used as it is renumbered when items are added and removed; the item ids are in the same order as the items
+	 * are only added to one end of the list.
+	 * @param list The @see PersistentList to get.
+	 * @param itemId The id of the item to start after or {@code null} to start from the first item.
+	 * @param isLastInFirstOut {@code true} if the list order is the descending item id order; otherwise, {@code false}.
+	 * @param limit The maximum number of items to return.
+	 * @return The items following the specified item.
+	 * @should return the items following the specified item in list order
+	 * @should return the first items when the item is not specified
+	 */
+	@Override
+	public PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut,
+	                                               int limit) {
+		long start = System.nanoTime();
+		Session session = openSession();
 		try {
-			// Return the items in the specified list ordered by the primary order
 			Criteria search = session.createCriteria(PersistentListItemModel.class)
-					.add(Restrictions.eq("list_id", list.getId()))
-					.addOrder(Order.asc("primary_order"))
-					.addOrder(Order.asc("secondary_order"))
-					.addOrder(Order.asc("tertiary_order"));
+					.setCacheMode(CacheMode.IGNORE)
+					.add(Restrictions.eq("listId", list.getId()))
+					.addOrder(isLastInFirstOut ? Order.desc("itemId") : Order.asc("itemId"))
+					.setMaxResults(limit);
+			if (itemId != null) {
+				search.add(isLastInFirstOut ? Restrictions.lt("itemId", itemId) : Restrictions.gt("itemId", itemId));
+			}
+
+			return toArray(search.list());
+		} catch (Exception ex) {
+			throw new PersistentListException("An exception occurred while attempting to get the list items.", ex);
+		} finally {
+			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Reads the items of every list, passing each item to the specified handler.  The items are ordered by list id and
+	 * then in list order.  As with {@link #getItems(PersistentList, ListItemModelHandler)} the items are read in keyset
+	 * pages, here keyed on the list id, item order and item id of the last item read, and the session is cleared after
+	 * each page so that only a single page of items is held in memory at a time.
+	 * @param handler The handler that the items are passed to.
+	 * @should pass every item to the handler ordered by list id and item order
+	 */
+	@Override
+	public void getAllItems(ListItemModelHandler handler) {
+		long start = System.nanoTime();
+		Session session = openSession();
+		try {
+			PersistentListItemModel lastItem = null;
+			int count;
+			do {
+				Criteria search = session.createCriteria(PersistentListItemModel.class)
+						.setCacheMode(CacheMode.IGNORE)
+						.addOrder(Order.asc("listId"))
+						.addOrder(Order.asc("itemOrder"))
+						.addOrder(Order.asc("itemId"))
+						.setMaxResults(PAGE_SIZE);
+				if (lastItem != null) {
+					search.add(Restrictions.or(
+							Restrictions.gt("listId", lastItem.getListId()),
+							Restrictions.and(
+									Restrictions.eq("listId", lastItem.getListId()),
+									Restrictions.or(
+											Restrictions.gt("itemOrder", lastItem.getItemOrder()),
+											Restrictions.and(
+													Restrictions.eq("itemOrder", lastItem.getItemOrder()),
+													Restrictions.gt("itemId", lastItem.getItemId()))))));
+				}
+
+				count = 0;
+				for (Object result : search.list()) {
+					lastItem = (PersistentListItemModel)result;
+					count++;
 
-			result = new ArrayList<PersistentListItemModel>(search.list());
+					handler.handle(lastItem);
+				}
+
+				// Release the page of items from the session before reading the next page
+				session.clear();
+			} while (count == PAGE_SIZE);
 		} catch (Exception ex) {
 			throw new PersistentListException("An exception occurred while attempting to get the list items.", ex);
 		} finally {
 			session.close();
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
 		}
+	}
+
+	private void addItem(Session session, PersistentListItemModel item) {
+		// Update all items >= index to be their current index + 1
+		session.createQuery(ADD_HQL)
+				.setInteger("listId", item.getListId())
+				.setInteger("itemOrder", item.getItemOrder())
+				.executeUpdate();
+
+		// Insert item with index
+		item.setIsItemKeyBinary(isUuidKeyEncodingEnabled);
+		session.save(item);
+		session.flush();
+	}
 
-		if (result == null) {
-			return new PersistentListItemModel[0];
-		} else {
-			return result.toArray(new PersistentListItemModel[0]);
+	private boolean removeItem(Session session, PersistentListItemModel item) {
+		// Find the current order of the item so that the items after it can be moved up.  UUID keys are matched in both
+		// key columns as the items may have been stored before UUID key encoding was enabled.
+		String itemKey = item.getItemKey();
+		boolean isUuid = UuidKeyCodec.isUuid(itemKey);
+		Object itemOrder = setItemKey(session.createQuery(isUuid ? FIND_UUID_ORDER_HQL : FIND_ORDER_HQL), itemKey, isUuid)
+				.setInteger("listId", item.getListId())
+				.uniqueResult();
+		if (itemOrder == null) {
+			return false;
 		}
+
+		// Delete item with index
+		setItemKey(session.createQuery(isUuid ? DELETE_UUID_HQL : DELETE_HQL), itemKey, isUuid)
+				.setInteger("listId", item.getListId())
+				.executeUpdate();
+
+		// Update all items > index to be their current index - 1
+		session.createQuery(REMOVE_HQL)
+				.setInteger("listId", item.getListId())
+				.setInteger("itemOrder", (Integer)itemOrder)
+				.executeUpdate();
+
+		return true;
+	}
+
+	private static Query setItemKey(Query query, String itemKey, boolean isUuid) {
+		query.setString("itemKey", itemKey);
+		if (isUuid) {
+			query.setBinary("itemKeyBytes", UuidKeyCodec.toBytes(itemKey));
+		}
+
+		return query;
+	}
+
+	private void clearItems(Session session, PersistentList list) {
+		// Delete all items with list key
+		session.createQuery(CLEAR_HQL)
+				.setInteger("listId", list.getId())
+				.executeUpdate();
+	}
+
+	/**
+	 * Creates the criteria that selects a page of items from the specified list in list order.
+	 * @param session The session to create the criteria with.
+	 * @param list The list to select the items from.
+	 * @param itemOrder The order of the item to start after or {@code null} to start from the first item.
+	 * @param itemId The id of the item to start after or {@code null} to start from the first item.
+	 * @param limit The maximum number of items to select.
+	 * @return The page criteria.
+	 */
+	private Criteria createPageCriteria(Session session, PersistentList list, Integer itemOrder, Integer itemId,
+	                                    int limit) {
+		Criteria search = session.createCriteria(PersistentListItemModel.class)
+				.setCacheMode(CacheMode.IGNORE)
+				.add(Restrictions.eq("listId", list.getId()))
+				.addOrder(Order.asc("itemOrder"))
+				.addOrder(Order.asc("itemId"))
+				.setMaxResults(limit);
+		if (itemOrder != null && itemId != null) {
+			search.add(Restrictions.or(
+					Restrictions.gt("itemOrder", itemOrder),
+					Restrictions.and(
+							Restrictions.eq("itemOrder", itemOrder),
+							Restrictions.gt("itemId", itemId))));
+		}
+
+		return search;
 	}
-}
 
+	private PersistentListItemModel[] toArray(List<?> results) {
+		PersistentListItemModel[] items = new PersistentListItemModel[results.size()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = (PersistentListItemModel)results.get(i);
+		}
+
+		return items;
+	}
+
+	/**
+	 * Opens a new session for a single provider operation.  The caller is responsible for closing the session.
+	 * @return The new session.
+	 */
+	protected Session openSession() {
+		return sessionFactory.openSession();
+	}
+}
@@ -41,7 +41,7 @@ public class DatabaseServiceProvider implements PersistentListServiceProvider {
 
 	@Override
 	public PersistentListModel[] getLists() {
-		Session session = sessionFactory.getCurrentSession();
+		Session session = getSession();
 
 		try {
 			Criteria search = session.createCriteria(PersistentListModel.class);
@@ -56,7 +56,7 @@ public class DatabaseServiceProvider implements PersistentListServiceProvider {
 
 	@Override
 	public void addList(PersistentListModel list) {
-		Session session = sessionFactory.getCurrentSession();
+		Session session = getSession();
 
 		try {
 			session.save(list);
@@ -69,7 +69,7 @@ public class DatabaseServiceProvider implements PersistentListServiceProvider {
 
 	@Override
 	public void removeList(String key) {
-		Session session = sessionFactory.getCurrentSession();
+		Session session = getSession();
 
 		try {
 			// Find the lists with the specified key (should only be one)
@@ -87,4 +87,12 @@ public class DatabaseServiceProvider implements PersistentListServiceProvider {
 			session.close();
 		}
 	}
+
+	/**
+	 * Gets the session for a single provider operation.  The caller is responsible for closing the session.
+	 * @return The session.
+	 */
+	protected Session getSession() {
+		return sessionFactory.getCurrentSession();
+	}
 }
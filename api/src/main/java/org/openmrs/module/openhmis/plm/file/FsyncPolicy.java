@@ -0,0 +1,35 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+/**
+ * When the log file providers force their writes to the disk.
+ */
+public enum FsyncPolicy {
+	/**
+	 * Every write is forced to the disk before the operation returns.  No acknowledged change is lost when the server or
+	 * the operating system crashes.
+	 */
+	ALWAYS,
+	/**
+	 * A write is forced to the disk when the last forced write is older than the fsync interval.  Changes made within
+	 * the interval before an operating system crash can be lost; a server crash does not lose any changes.
+	 */
+	INTERVAL,
+	/**
+	 * Writes are only forced to the disk when the file is closed and otherwise left to the operating system.
+	 */
+	NEVER
+}
@@ -0,0 +1,290 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of checksummed records.  Each record is written as its length, its CRC-32 and its content in a
+ * single write, so a record is either read back whole or, when the write was interrupted by a crash, is detected as
+ * incomplete and removed when the file is next opened.  This class is not thread-safe.
+ */
+class LogFile implements Closeable {
+	private static final int HEADER_SIZE = 8;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Reads the records of a log file as the file is opened.
+	 */
+	interface RecordReader {
+		/**
+		 * Reads a single record.
+		 * @param record The record content, positioned at its start.
+		 * @throws IOException The record could not be read.
+		 */
+		void read(ByteBuffer record) throws IOException;
+	}
+
+	private final File file;
+	private final FsyncPolicy fsyncPolicy;
+	private final long fsyncInterval;
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+	private final CRC32 crc = new CRC32();
+
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private long size;
+	private long lastForcedAt;
+	private boolean isDirty;
+	private boolean isBroken;
+
+	private LogFile(File file, FsyncPolicy fsyncPolicy, long fsyncInterval) {
+		this.file = file;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncInterval = fsyncInterval;
+	}
+
+	/**
+	 * Opens the specified log file, creating it if it does not exist, and passes each complete record to the reader.  The
+	 * file is truncated after the last complete record.
+	 * @param file The log file.
+	 * @param reader The reader for the existing records or {@code null} to skip them.
+	 * @param fsyncPolicy When the appended records are forced to the disk.
+	 * @param fsyncInterval The minimum time between forced writes, in milliseconds, for the {@link FsyncPolicy#INTERVAL}
+	 *                      policy.
+	 * @return The open log file.
+	 * @throws IOException The file could not be opened or a record could not be read.
+	 * @should pass each complete record to the reader
+	 * @should truncate a partly written record at the end of the file
+	 * @should truncate a record with an invalid checksum and the records after it
+	 */
+	static LogFile open(File file, RecordReader reader, FsyncPolicy fsyncPolicy, long fsyncInterval)
+			throws IOException {
+		LogFile logFile = new LogFile(file, fsyncPolicy, fsyncInterval);
+
+		long validSize = file.exists() ? read(file, reader) : 0;
+
+		logFile.randomAccessFile = new RandomAccessFile(file, "rw");
+		logFile.channel = logFile.randomAccessFile.getChannel();
+		if (logFile.channel.size() > validSize) {
+			logFile.channel.truncate(validSize);
+			logFile.channel.force(true);
+		}
+		logFile.channel.position(validSize);
+		logFile.size = validSize;
+		logFile.lastForcedAt = System.currentTimeMillis();
+
+		return logFile;
+	}
+
+	/**
+	 * Reads the records of the specified file.
+	 * @param file The file to read.
+	 * @param reader The reader that the records are passed to or {@code null} to only find the end of the last record.
+	 * @return The length of the complete records at the start of the file.
+	 * @throws IOException The file could not be read.
+	 */
+	static long read(File file, RecordReader reader) throws IOException {
+		InputStream stream = new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE);
+		try {
+			DataInputStream input = new DataInputStream(stream);
+			CRC32 checksum = new CRC32();
+			byte[] content = new byte[256];
+			long position = 0;
+			long fileSize = file.length();
+
+			while (position + HEADER_SIZE <= fileSize) {
+				int length;
+				int expectedCrc;
+				try {
+					length = input.readInt();
+					expectedCrc = input.readInt();
+					if (length < 0 || position + HEADER_SIZE + length > fileSize) {
+						break;
+					}
+
+					if (content.length < length) {
+						content = new byte[Math.max(length, content.length * 2)];
+					}
+					input.readFully(content, 0, length);
+				} catch (EOFException ex) {
+					break;
+				}
+
+				checksum.reset();
+				checksum.update(content, 0, length);
+				if ((int)checksum.getValue() != expectedCrc) {
+					break;
+				}
+
+				if (reader != null) {
+					reader.read(ByteBuffer.wrap(content, 0, length));
+				}
+				position += HEADER_SIZE + length;
+			}
+
+			return position;
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Appends a record to the file.  The record is forced to the disk according to the fsync policy.  When the record
+	 * cannot be written or forced the file is truncated back to the end of the previous record, so that a failed append
+	 * is not read back when the file is opened and the records appended after it are not lost behind it.
+	 * @param record The record content, from its position to its limit.
+	 * @throws IOException The record could not be written.
+	 * @should append a record that is read when the file is opened
+	 */
+	void append(ByteBuffer record) throws IOException {
+		if (isBroken) {
+			throw new IOException("The log file " + file.getPath() + " could not be truncated after a failed write.");
+		}
+
+		int length = record.remaining();
+
+		crc.reset();
+		if (record.hasArray()) {
+			crc.update(record.array(), record.arrayOffset() + record.position(), length);
+		} else {
+			byte[] content = new byte[length];
+			record.duplicate().get(content);
+			crc.update(content);
+		}
+
+		header.clear();
+		header.putInt(length);
+		header.putInt((int)crc.getValue());
+		header.flip();
+
+		long previousSize = size;
+		try {
+			ByteBuffer[] buffers = new ByteBuffer[] { header, record };
+			while (header.hasRemaining() || record.hasRemaining()) {
+				channel.write(buffers);
+			}
+			size += HEADER_SIZE + length;
+			isDirty = true;
+
+			switch (fsyncPolicy) {
+				case ALWAYS:
+					force();
+					break;
+				case INTERVAL:
+					if (System.currentTimeMillis() - lastForcedAt >= fsyncInterval) {
+						force();
+					}
+					break;
+				case NEVER:
+					break;
+			}
+		} catch (IOException ex) {
+			truncate(previousSize);
+			throw ex;
+		}
+	}
+
+	private void truncate(long length) {
+		try {
+			channel.truncate(length);
+			channel.position(length);
+			size = length;
+		} catch (IOException ex) {
+			// The partial record would hide every record appended after it, so refuse any further appends
+			isBroken = true;
+		}
+	}
+
+	/**
+	 * Forces the appended records to the disk.
+	 * @throws IOException The records could not be forced.
+	 */
+	void force() throws IOException {
+		if (isDirty) {
+			channel.force(false);
+			isDirty = false;
+		}
+		lastForcedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets whether records have been appended since the file was last forced to the disk.
+	 * @return {@code true} if there are records that have not been forced; otherwise, {@code false}.
+	 */
+	boolean isDirty() {
+		return isDirty;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the length of the records in the file.
+	 * @return The file size in bytes.
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Forces the appended records to the disk and closes the file.
+	 * @throws IOException The file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			force();
+		} finally {
+			randomAccessFile.close();
+			channel = null;
+		}
+	}
+
+	/**
+	 * Gets a buffer with room for the specified number of bytes after its position, copying the buffer into a larger one
+	 * when it is too small.  Used to build records whose length is not known in advance.
+	 * @param buffer The buffer being written.
+	 * @param length The number of bytes that will be written next.
+	 * @return The buffer or a larger copy of it.
+	 */
+	static ByteBuffer ensureCapacity(ByteBuffer buffer, int length) {
+		if (buffer.remaining() >= length) {
+			return buffer;
+		}
+
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+		buffer.flip();
+		larger.put(buffer);
+
+		return larger;
+	}
+}
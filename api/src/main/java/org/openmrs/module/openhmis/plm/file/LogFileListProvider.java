@@ -0,0 +1,774 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.openhmis.plm.BulkListProvider;
+import org.openmrs.module.openhmis.plm.GroupCommitListProvider;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.ListItemOperation;
+import org.openmrs.module.openhmis.plm.PagedListProvider;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListException;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.StreamingListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.NullMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.ProviderMetrics;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link PersistentListProvider} which appends each list change to a log file on the local disk and keeps the list
+ * items in memory.  It is intended for single server deployments where the lists do not need to be shared through the
+ * database: changes cost a single file append rather than a database transaction, and reads never touch the disk.
+ * <p/>
+ * A background thread checks the log each compaction interval.  When the log has grown past the compaction threshold,
+ * and past the size of the last snapshot, a new, empty log is started and the items of every list are written to a new
+ * snapshot.  Only the switch to the new log and the in-memory copy of the items hold the provider lock; the snapshot is
+ * written while the lists keep changing.  The snapshot and log files are numbered by generation and the files of the
+ * previous generations are only deleted once the new snapshot is complete, so a crash during compaction leaves the
+ * previous snapshot to recover from.  At startup the latest complete snapshot is read and the logs from the same
+ * generation on are replayed, all sequentially.
+ * <p/>
+ * With the {@link FsyncPolicy#INTERVAL} policy the background thread also forces the log to the disk each fsync
+ * interval, so the last changes before the list goes idle are not left unforced.
+ * <p/>
+ * Item ids are assigned when the items are read so they are not kept across restarts.  The creator of each item is
+ * stored by its user id.
+ */
+public class LogFileListProvider implements BulkListProvider, GroupCommitListProvider, PagedListProvider,
+		StreamingListProvider, MetricsAware, Closeable {
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 16 * 1024 * 1024;
+	public static final long DEFAULT_FSYNC_INTERVAL = 1000;
+	public static final long DEFAULT_COMPACTION_INTERVAL = 1000;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Pattern FILE_NAME = Pattern.compile("items-(\\d+)\\.(log|snapshot)");
+	private static final byte END = 0;
+	private static final byte ADD = 1;
+	private static final byte REMOVE = 2;
+	private static final byte CLEAR = 3;
+	private static final int SNAPSHOT_RECORD_ITEMS = 1000;
+
+	private final Log log = LogFactory.getLog(LogFileListProvider.class);
+	private final Object syncLock = new Object();
+	private final Object compactionLock = new Object();
+	private final File directory;
+
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+	private long fsyncInterval = DEFAULT_FSYNC_INTERVAL;
+	private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+	private long compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+	private ProviderMetrics metrics = NullMetricsRegistry.PROVIDER_METRICS;
+
+	private volatile MemoryListProvider items;
+	private LogFile logFile;
+	private long generation;
+	private long snapshotSize;
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Creates a new LogFileListProvider that stores its files in the specified directory.  The files are read the first
+	 * time the provider is used.
+	 * @param directory The directory for the log and snapshot files.
+	 */
+	public LogFileListProvider(File directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("The log directory must be defined.");
+		}
+
+		this.directory = directory;
+	}
+
+	@Override
+	public String getName() {
+		return "Log File List Provider";
+	}
+
+	@Override
+	public String getDescription() {
+		return "A persistent list provider that appends list changes to a log file in " + directory.getPath() + ".";
+	}
+
+	@Override
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		metrics = registry.getProviderMetrics(getName());
+	}
+
+	/**
+	 * Adds a new item to the list.
+	 * @param item The item to add.
+	 * @should store the item in the log
+	 * @should store the item with each fsync policy
+	 * @should force an idle log to the disk with the interval policy
+	 * @should compact the log in the background when it exceeds the compaction threshold
+	 */
+	@Override
+	public void add(PersistentListItemModel item) {
+		long start = System.nanoTime();
+		try {
+			MemoryListProvider memory = ensureOpen();
+			synchronized (syncLock) {
+				buffer.clear();
+				buffer = writeAdd(buffer, item);
+				append();
+
+				memory.add(item);
+			}
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.ADD, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Removes the specified item from the list.
+	 * @param item The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should store the removal in the log
+	 */
+	@Override
+	public boolean remove(PersistentListItemModel item) {
+		long start = System.nanoTime();
+		try {
+			MemoryListProvider memory = ensureOpen();
+			synchronized (syncLock) {
+				buffer.clear();
+				buffer = writeRemove(buffer, item);
+				append();
+
+				return memory.remove(item);
+			}
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.REMOVE, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void clear(PersistentList list) {
+		long start = System.nanoTime();
+		try {
+			MemoryListProvider memory = ensureOpen();
+			synchronized (syncLock) {
+				buffer.clear();
+				buffer = writeClear(buffer, list.getId());
+				append();
+
+				memory.clear(list);
+			}
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.CLEAR, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Appends the operations to the log as a single record, so that after a crash either all or none of them are read
+	 * back, and then applies them.
+	 * @param operations The operations to commit.
+	 * @should store every operation in a single record
+	 */
+	@Override
+	public void commit(ListItemOperation[] operations) {
+		long start = System.nanoTime();
+		try {
+			MemoryListProvider memory = ensureOpen();
+			synchronized (syncLock) {
+				buffer.clear();
+				for (ListItemOperation operation : operations) {
+					switch (operation.getType()) {
+						case ADD:
+							buffer = writeAdd(buffer, operation.getItem());
+							break;
+						case REMOVE:
+							buffer = writeRemove(buffer, operation.getItem());
+							break;
+						case CLEAR:
+							buffer = writeClear(buffer, operation.getList().getId());
+							break;
+					}
+				}
+				append();
+
+				for (ListItemOperation operation : operations) {
+					operation.applyTo(memory);
+				}
+			}
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.COMMIT, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Gets the items in the list.  The log is read the first time the provider is used.
+	 * @param list The list.
+	 * @return The items in the list.
+	 * @should ignore a partly written record at the end of the log
+	 * @should replay the changes made while an incomplete snapshot was being written
+	 */
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list) {
+		long start = System.nanoTime();
+		try {
+			return ensureOpen().getItems(list);
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+		long start = System.nanoTime();
+		try {
+			return ensureOpen().getItems(list, offset, limit);
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut,
+	                                               int limit) {
+		long start = System.nanoTime();
+		try {
+			return ensureOpen().getItemsAfter(list, itemId, isLastInFirstOut, limit);
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void getItems(PersistentList list, ListItemModelHandler handler) {
+		long start = System.nanoTime();
+		try {
+			ensureOpen().getItems(list, handler);
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void getAllItems(ListItemModelHandler handler) {
+		long start = System.nanoTime();
+		try {
+			ensureOpen().getAllItems(handler);
+		} finally {
+			metrics.recordLatency(ProviderMetrics.Operation.GET_ITEMS, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Starts a new log and writes the items of every list to a new snapshot.  The lists can be changed while the
+	 * snapshot is written.
+	 * @should keep the items when the provider is reopened
+	 * @should delete the files of the previous generation
+	 */
+	public void compact() {
+		MemoryListProvider memory = ensureOpen();
+		synchronized (compactionLock) {
+			try {
+				compact(memory);
+			} catch (IOException ex) {
+				throw new PersistentListException("An exception occurred while attempting to compact the list log.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Forces the log to the disk and closes it.  The provider reads its files again if it is used after being closed.
+	 * @throws IOException The log could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		// Wait for a running compaction so that it does not write to the closed log
+		synchronized (compactionLock) {
+			synchronized (syncLock) {
+				if (scheduler != null) {
+					scheduler.shutdown();
+					scheduler = null;
+				}
+
+				if (logFile != null) {
+					try {
+						logFile.close();
+					} finally {
+						logFile = null;
+						items = null;
+					}
+				}
+			}
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public FsyncPolicy getFsyncPolicy() {
+		return fsyncPolicy;
+	}
+
+	/**
+	 * Sets when the log is forced to the disk.  This must be set before the provider is first used.
+	 * @param fsyncPolicy The fsync policy.
+	 */
+	public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+		if (fsyncPolicy == null) {
+			throw new IllegalArgumentException("The fsync policy must be defined.");
+		}
+
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	public long getFsyncInterval() {
+		return fsyncInterval;
+	}
+
+	/**
+	 * Sets the minimum time between forced writes when the fsync policy is {@link FsyncPolicy#INTERVAL}.  This must be
+	 * set before the provider is first used.
+	 * @param fsyncInterval The fsync interval in milliseconds.
+	 */
+	public void setFsyncInterval(long fsyncInterval) {
+		this.fsyncInterval = fsyncInterval;
+	}
+
+	public long getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 * Sets the log size at which the items are written to a new snapshot.
+	 * @param compactionThreshold The compaction threshold in bytes.
+	 */
+	public void setCompactionThreshold(long compactionThreshold) {
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	public long getCompactionInterval() {
+		return compactionInterval;
+	}
+
+	/**
+	 * Sets how often the log size is checked against the compaction threshold.  This must be set before the provider is
+	 * first used.
+	 * @param compactionInterval The compaction interval in milliseconds.
+	 */
+	public void setCompactionInterval(long compactionInterval) {
+		if (compactionInterval <= 0) {
+			throw new IllegalArgumentException("The compaction interval must be greater than zero.");
+		}
+
+		this.compactionInterval = compactionInterval;
+	}
+
+	/**
+	 * Gets the size of the current log.
+	 * @return The log size in bytes or 0 if the log has not been opened.
+	 */
+	public long getLogSize() {
+		synchronized (syncLock) {
+			return logFile == null ? 0 : logFile.getSize();
+		}
+	}
+
+	/**
+	 * Gets whether the current log has changes that have not been forced to the disk.
+	 * @return {@code true} if the log has unforced changes; otherwise, {@code false}.
+	 */
+	boolean isLogDirty() {
+		synchronized (syncLock) {
+			return logFile != null && logFile.isDirty();
+		}
+	}
+
+	private MemoryListProvider ensureOpen() {
+		MemoryListProvider memory = items;
+		if (memory != null) {
+			return memory;
+		}
+
+		synchronized (syncLock) {
+			if (items == null) {
+				try {
+					open();
+				} catch (IOException ex) {
+					throw new PersistentListException("An exception occurred while attempting to read the list log in " +
+							directory.getPath() + ".", ex);
+				}
+			}
+
+			return items;
+		}
+	}
+
+	private void open() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the list log directory " + directory.getPath() + ".");
+		}
+
+		long start = System.currentTimeMillis();
+
+		// Find the latest complete snapshot, ignoring any snapshot that was being written when the server stopped
+		long latestGeneration = -1;
+		for (File file : listFiles()) {
+			Matcher matcher = FILE_NAME.matcher(file.getName());
+			matcher.matches();
+			latestGeneration = Math.max(latestGeneration, Long.parseLong(matcher.group(1)));
+		}
+
+		MemoryListProvider memory = null;
+		long snapshotGeneration = 0;
+		snapshotSize = 0;
+		for (long gen = latestGeneration; gen > 0 && memory == null; gen--) {
+			File snapshot = getSnapshotFile(gen);
+			if (snapshot.exists()) {
+				MemoryListProvider snapshotItems = new MemoryListProvider();
+				SnapshotReader reader = new SnapshotReader(snapshotItems);
+				LogFile.read(snapshot, reader);
+				if (reader.isComplete) {
+					memory = snapshotItems;
+					snapshotGeneration = gen;
+					snapshotSize = snapshot.length();
+				} else {
+					log.warn("Ignoring the incomplete list snapshot " + snapshot.getPath() + ".");
+				}
+			}
+		}
+		if (memory == null) {
+			memory = new MemoryListProvider();
+		}
+
+		// A new log is started before the snapshot of its generation is written, so the logs of every generation since
+		// the last complete snapshot hold changes that are not in it
+		OperationReader reader = new OperationReader(memory);
+		generation = Math.max(latestGeneration, 0);
+		for (long gen = snapshotGeneration; gen < generation; gen++) {
+			File previousLog = getLogFile(gen);
+			if (previousLog.exists()) {
+				LogFile.read(previousLog, reader);
+			}
+		}
+
+		logFile = LogFile.open(getLogFile(generation), reader, fsyncPolicy, fsyncInterval);
+		deleteGenerationsBefore(snapshotGeneration);
+		startScheduler();
+
+		items = memory;
+
+		log.info("Read the list log in " + directory.getPath() + " in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private void startScheduler() {
+		// Use a second thread so that a long compaction does not hold up the forced writes
+		scheduler = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "plm-log-file");
+				thread.setDaemon(true);
+
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				compactIfNeeded();
+			}
+		}, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+
+		if (fsyncPolicy == FsyncPolicy.INTERVAL && fsyncInterval > 0) {
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					forceIdleLog();
+				}
+			}, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void forceIdleLog() {
+		synchronized (syncLock) {
+			if (logFile == null || !logFile.isDirty()) {
+				return;
+			}
+
+			try {
+				logFile.force();
+			} catch (IOException ex) {
+				log.warn("Could not force the list log in " + directory.getPath() + " to the disk.", ex);
+			}
+		}
+	}
+
+	private void append() {
+		buffer.flip();
+		try {
+			logFile.append(buffer);
+		} catch (IOException ex) {
+			throw new PersistentListException("An exception occurred while attempting to write to the list log.", ex);
+		}
+	}
+
+	private void compactIfNeeded() {
+		synchronized (compactionLock) {
+			MemoryListProvider memory;
+			synchronized (syncLock) {
+				memory = items;
+				if (memory == null || logFile.getSize() <= Math.max(compactionThreshold, snapshotSize)) {
+					return;
+				}
+			}
+
+			try {
+				compact(memory);
+			} catch (Exception ex) {
+				// The scheduler stops running a task that throws, so only log the failure and try again later
+				log.error("An exception occurred while attempting to compact the list log in " + directory.getPath() +
+						".", ex);
+			}
+		}
+	}
+
+	private void compact(MemoryListProvider memory) throws IOException {
+		long start = System.currentTimeMillis();
+		long nextGeneration;
+		final List<PersistentListItemModel> snapshotItems = new ArrayList<PersistentListItemModel>();
+
+		// Start the log of the next generation and copy the items that the snapshot is taken from; the changes made from
+		// here on go to the new log, which is replayed over the snapshot
+		synchronized (syncLock) {
+			if (items != memory) {
+				return;
+			}
+
+			nextGeneration = generation + 1;
+			LogFile nextLog = LogFile.open(getLogFile(nextGeneration), null, fsyncPolicy, fsyncInterval);
+			try {
+				logFile.close();
+			} finally {
+				logFile = nextLog;
+				generation = nextGeneration;
+			}
+
+			memory.getAllItems(new ListItemModelHandler() {
+				@Override
+				public void handle(PersistentListItemModel item) {
+					snapshotItems.add(item);
+				}
+			});
+		}
+
+		long size = writeSnapshot(getSnapshotFile(nextGeneration), snapshotItems);
+		synchronized (syncLock) {
+			snapshotSize = size;
+		}
+		deleteGenerationsBefore(nextGeneration);
+
+		log.debug("Compacted the list log into a " + size + " byte snapshot in " +
+				(System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private static long writeSnapshot(File file, List<PersistentListItemModel> snapshotItems) throws IOException {
+		// The snapshot is only used once the end record has been written
+		LogFile snapshot = LogFile.open(file, null, FsyncPolicy.NEVER, 0);
+		try {
+			ByteBuffer snapshotBuffer = ByteBuffer.allocate(4096);
+			int count = 0;
+			for (PersistentListItemModel item : snapshotItems) {
+				snapshotBuffer = writeAdd(snapshotBuffer, item);
+				if (++count % SNAPSHOT_RECORD_ITEMS == 0) {
+					snapshotBuffer.flip();
+					snapshot.append(snapshotBuffer);
+					snapshotBuffer.clear();
+				}
+			}
+			if (snapshotBuffer.position() > 0) {
+				snapshotBuffer.flip();
+				snapshot.append(snapshotBuffer);
+				snapshotBuffer.clear();
+			}
+
+			snapshotBuffer = LogFile.ensureCapacity(snapshotBuffer, 1);
+			snapshotBuffer.put(END);
+			snapshotBuffer.flip();
+			snapshot.append(snapshotBuffer);
+			snapshot.force();
+
+			return snapshot.getSize();
+		} finally {
+			snapshot.close();
+		}
+	}
+
+	private void deleteGenerationsBefore(long gen) {
+		for (File file : listFiles()) {
+			Matcher matcher = FILE_NAME.matcher(file.getName());
+			matcher.matches();
+			if (Long.parseLong(matcher.group(1)) < gen && !file.delete()) {
+				log.warn("Could not delete the old list log file " + file.getPath() + ".");
+			}
+		}
+	}
+
+	private File[] listFiles() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+
+		int count = 0;
+		for (File file : files) {
+			if (FILE_NAME.matcher(file.getName()).matches()) {
+				files[count++] = file;
+			}
+		}
+
+		File[] result = new File[count];
+		System.arraycopy(files, 0, result, 0, count);
+
+		return result;
+	}
+
+	private File getLogFile(long gen) {
+		return new File(directory, "items-" + gen + ".log");
+	}
+
+	private File getSnapshotFile(long gen) {
+		return new File(directory, "items-" + gen + ".snapshot");
+	}
+
+	private static ByteBuffer writeAdd(ByteBuffer buffer, PersistentListItemModel item) {
+		byte[] key = item.getItemKey().getBytes(UTF8);
+		buffer = LogFile.ensureCapacity(buffer, 25 + key.length);
+
+		buffer.put(ADD);
+		buffer.putInt(item.getListId());
+		buffer.putInt(item.getItemOrder());
+		buffer.putInt(key.length);
+		buffer.put(key);
+		buffer.putInt(item.getCreatorId() == PersistentListItem.NO_CREATOR ? -1 : item.getCreatorId());
+		buffer.putLong(item.getDateCreatedMillis());
+
+		return buffer;
+	}
+
+	private static ByteBuffer writeRemove(ByteBuffer buffer, PersistentListItemModel item) {
+		byte[] key = item.getItemKey().getBytes(UTF8);
+		buffer = LogFile.ensureCapacity(buffer, 13 + key.length);
+
+		buffer.put(REMOVE);
+		buffer.putInt(item.getListId());
+		buffer.putInt(item.getItemOrder());
+		buffer.putInt(key.length);
+		buffer.put(key);
+
+		return buffer;
+	}
+
+	private static ByteBuffer writeClear(ByteBuffer buffer, Integer listId) {
+		buffer = LogFile.ensureCapacity(buffer, 5);
+
+		buffer.put(CLEAR);
+		buffer.putInt(listId);
+
+		return buffer;
+	}
+
+	private static String readKey(ByteBuffer record) {
+		byte[] key = new byte[record.getInt()];
+		record.get(key);
+
+		return new String(key, UTF8);
+	}
+
+	/**
+	 * Applies the operations in the log records.
+	 */
+	private static class OperationReader implements LogFile.RecordReader {
+		private final MemoryListProvider memory;
+
+		OperationReader(MemoryListProvider memory) {
+			this.memory = memory;
+		}
+
+		@Override
+		public void read(ByteBuffer record) throws IOException {
+			while (record.hasRemaining()) {
+				byte type = record.get();
+				int listId = record.getInt();
+				switch (type) {
+					case ADD:
+						int itemOrder = record.getInt();
+						String key = readKey(record);
+						int creatorId = record.getInt();
+						long dateCreated = record.getLong();
+
+						memory.add(new PersistentListItemModel(listId, key, itemOrder,
+								creatorId < 0 ? PersistentListItem.NO_CREATOR : creatorId, dateCreated));
+						break;
+					case REMOVE:
+						itemOrder = record.getInt();
+						key = readKey(record);
+
+						memory.remove(new PersistentListItemModel(listId, key, itemOrder, null, null));
+						break;
+					case CLEAR:
+						memory.clear(listId);
+						break;
+					default:
+						throw new IOException("The list log contains an unknown record type (" + type + ").");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the items in a snapshot and whether the snapshot was completely written.
+	 */
+	private static class SnapshotReader extends OperationReader {
+		private boolean isComplete;
+
+		SnapshotReader(MemoryListProvider memory) {
+			super(memory);
+		}
+
+		@Override
+		public void read(ByteBuffer record) throws IOException {
+			if (record.remaining() == 1 && record.get(record.position()) == END) {
+				isComplete = true;
+			} else {
+				super.read(record);
+			}
+		}
+	}
+}
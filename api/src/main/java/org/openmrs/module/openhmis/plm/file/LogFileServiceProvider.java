@@ -0,0 +1,229 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import org.openmrs.module.openhmis.plm.ListDurability;
+import org.openmrs.module.openhmis.plm.PersistentListException;
+import org.openmrs.module.openhmis.plm.PersistentListServiceProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link PersistentListServiceProvider} which appends each list definition change to a log file on the local disk.
+ * It is used with the {@link LogFileListProvider} when the lists are not stored in the database.
+ * <p/>
+ * Lists are rarely added or removed so every change is forced to the disk and the log is never compacted.  List ids are
+ * not reused, even after a list has been removed, so that the items of a removed list cannot be read into a new list.
+ * The items themselves are cleared from the list provider by the service when it removes the list, which writes a clear
+ * record to the item log so that compaction does not keep them.
+ */
+public class LogFileServiceProvider implements PersistentListServiceProvider, Closeable {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte ADD_LIST = 1;
+	private static final byte REMOVE_LIST = 2;
+
+	private final Object syncLock = new Object();
+	private final File file;
+
+	private Map<String, PersistentListModel> lists;
+	private int nextListId;
+	private LogFile logFile;
+
+	/**
+	 * Creates a new LogFileServiceProvider that stores the lists in a {@code lists.log} file in the specified directory.
+	 * @param directory The directory for the log file.
+	 */
+	public LogFileServiceProvider(File directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("The log directory must be defined.");
+		}
+
+		this.file = new File(directory, "lists.log");
+	}
+
+	/**
+	 * Gets all the lists that are currently defined.
+	 * @return The lists, in the order they were added.
+	 * @should return the lists added before the provider was reopened
+	 * @should not return removed lists
+	 */
+	@Override
+	public PersistentListModel[] getLists() {
+		synchronized (syncLock) {
+			ensureOpen();
+
+			return lists.values().toArray(new PersistentListModel[lists.size()]);
+		}
+	}
+
+	/**
+	 * Adds a list, assigning the list id when the list does not have one.
+	 * @param list The list to add.
+	 * @should assign a list id that has not been used
+	 */
+	@Override
+	public void addList(PersistentListModel list) {
+		synchronized (syncLock) {
+			ensureOpen();
+
+			if (list.getListId() == null) {
+				list.setListId(nextListId);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(512);
+			buffer.put(ADD_LIST);
+			buffer.putInt(list.getListId());
+			buffer = putString(buffer, list.getKey());
+			buffer = putString(buffer, list.getListProvider());
+			buffer = putString(buffer, list.getDescription());
+			buffer = putString(buffer, list.getDurability().name());
+			buffer = LogFile.ensureCapacity(buffer, 8);
+			buffer.putLong(list.getDateCreated() == null ? Long.MIN_VALUE : list.getDateCreated().getTime());
+			append(buffer);
+
+			nextListId = Math.max(nextListId, list.getListId() + 1);
+			lists.put(list.getKey(), list);
+		}
+	}
+
+	@Override
+	public void removeList(String key) {
+		synchronized (syncLock) {
+			ensureOpen();
+
+			if (lists.containsKey(key)) {
+				ByteBuffer buffer = ByteBuffer.allocate(64);
+				buffer.put(REMOVE_LIST);
+				buffer = putString(buffer, key);
+				append(buffer);
+
+				lists.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Closes the log.  The provider reads the log again if it is used after being closed.
+	 * @throws IOException The log could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (syncLock) {
+			if (logFile != null) {
+				try {
+					logFile.close();
+				} finally {
+					logFile = null;
+					lists = null;
+				}
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	private void ensureOpen() {
+		if (lists != null) {
+			return;
+		}
+
+		File directory = file.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new PersistentListException("Could not create the list log directory " + directory.getPath() + ".");
+		}
+
+		final Map<String, PersistentListModel> loaded = new LinkedHashMap<String, PersistentListModel>();
+		final int[] maxListId = new int[1];
+		try {
+			logFile = LogFile.open(file, new LogFile.RecordReader() {
+				@Override
+				public void read(ByteBuffer record) throws IOException {
+					byte type = record.get();
+					switch (type) {
+						case ADD_LIST:
+							int listId = record.getInt();
+							String key = getString(record);
+							String listProvider = getString(record);
+							String description = getString(record);
+							String durability = getString(record);
+							long dateCreated = record.getLong();
+
+							loaded.put(key, new PersistentListModel(listId, key, listProvider, description,
+									dateCreated == Long.MIN_VALUE ? null : new Date(dateCreated),
+									ListDurability.valueOf(durability)));
+							maxListId[0] = Math.max(maxListId[0], listId);
+							break;
+						case REMOVE_LIST:
+							loaded.remove(getString(record));
+							break;
+						default:
+							throw new IOException("The list log contains an unknown record type (" + type + ").");
+					}
+				}
+			}, FsyncPolicy.ALWAYS, 0);
+		} catch (IOException ex) {
+			throw new PersistentListException("An exception occurred while attempting to read the list log " +
+					file.getPath() + ".", ex);
+		}
+
+		nextListId = maxListId[0] + 1;
+		lists = loaded;
+	}
+
+	private void append(ByteBuffer buffer) {
+		buffer.flip();
+		try {
+			logFile.append(buffer);
+		} catch (IOException ex) {
+			throw new PersistentListException("An exception occurred while attempting to write to the list log.", ex);
+		}
+	}
+
+	private static ByteBuffer putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer = LogFile.ensureCapacity(buffer, 4);
+			buffer.putInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF8);
+			buffer = LogFile.ensureCapacity(buffer, 4 + bytes.length);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+
+		return buffer;
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, UTF8);
+	}
+}
@@ -0,0 +1,406 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A resizable circular array of {@link PersistentListItem}'s which supports constant time access by index and to both
+ * ends of the buffer.  Each item is assigned an increasing sequence number when it is added so that a position in the
+ * buffer can be found again with a binary search, even after items before it have been removed.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access to it.
+ */
+public class IndexedItemBuffer extends ItemBuffer {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private PersistentListItem[] items;
+	private long[] sequences;
+	private int head;
+	private int size;
+	private long nextSequence = 1;
+	private int modCount;
+
+	public IndexedItemBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public IndexedItemBuffer(int capacity) {
+		int length = DEFAULT_CAPACITY;
+		while (length < capacity) {
+			length <<= 1;
+		}
+
+		items = new PersistentListItem[length];
+		sequences = new long[length];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the item to the end of the buffer.
+	 * @param item The item to add.
+	 * @return {@code true}
+	 * @should add the item to the end of the buffer
+	 * @should grow the buffer when it is full
+	 */
+	@Override
+	public boolean add(PersistentListItem item) {
+		if (item == null) {
+			throw new NullPointerException("The item must be defined.");
+		}
+
+		if (size == items.length) {
+			grow();
+		}
+
+		int slot = slot(size);
+		items[slot] = item;
+		sequences[slot] = nextSequence++;
+		size++;
+		modCount++;
+
+		return true;
+	}
+
+	/**
+	 * Gets the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item.
+	 * @should return the item at the index
+	 * @should throw IndexOutOfBoundsException when the index is out of range
+	 */
+	@Override
+	public PersistentListItem get(int index) {
+		checkIndex(index);
+
+		return items[slot(index)];
+	}
+
+	/**
+	 * Gets the sequence number that was assigned to the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item sequence number.
+	 */
+	@Override
+	public long getSequence(int index) {
+		checkIndex(index);
+
+		return sequences[slot(index)];
+	}
+
+	/**
+	 * Gets the index of the first item which was added after the item with the specified sequence number.
+	 * @param sequence The item sequence number.
+	 * @return The index of the first item with a greater sequence number or the buffer size if there is no such item.
+	 * @should return the index of the item following the sequence
+	 * @should return the index of the following item when the sequence item has been removed
+	 * @should return the size when no items follow the sequence
+	 */
+	@Override
+	public int indexAfter(long sequence) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sequences[slot(mid)] <= sequence) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the first item in the buffer without removing it.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 */
+	@Override
+	public PersistentListItem peekFirst() {
+		return size == 0 ? null : items[head];
+	}
+
+	/**
+	 * Gets the last item in the buffer without removing it.
+	 * @return The last item or {@code null} if the buffer is empty.
+	 */
+	@Override
+	public PersistentListItem peekLast() {
+		return size == 0 ? null : items[slot(size - 1)];
+	}
+
+	/**
+	 * Removes and returns the first item in the buffer.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 * @should remove the first item
+	 */
+	@Override
+	public PersistentListItem pollFirst() {
+		return size == 0 ? null : removeAt(0);
+	}
+
+	/**
+	 * Removes and returns the last item in the buffer.
+	 * @return The last item or {@code null} if the buffer is empty.
+	 * @should remove the last item
+	 */
+	@Override
+	public PersistentListItem pollLast() {
+		return size == 0 ? null : removeAt(size - 1);
+	}
+
+	/**
+	 * Gets the index of the specified item.
+	 * @param o The item to find.
+	 * @return The index of the item or -1 if the item is not in the buffer.
+	 */
+	@Override
+	public int indexOf(Object o) {
+		if (o != null) {
+			for (int i = 0; i < size; i++) {
+				if (o.equals(items[slot(i)])) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	/**
+	 * Removes the specified item from the buffer.
+	 * @param o The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should remove the item and keep the order of the remaining items
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Removes the item at the specified index.  The items on the shorter side of the index are shifted to fill the gap.
+	 * @param index The index of the item to remove.
+	 * @return The removed item.
+	 */
+	@Override
+	public PersistentListItem removeAt(int index) {
+		checkIndex(index);
+
+		int mask = items.length - 1;
+		PersistentListItem item = items[slot(index)];
+		if (index < (size >> 1)) {
+			// Shift the preceding items towards the end and move the head forward
+			for (int i = index; i > 0; i--) {
+				int to = (head + i) & mask;
+				int from = (head + i - 1) & mask;
+				items[to] = items[from];
+				sequences[to] = sequences[from];
+			}
+			items[head] = null;
+			head = (head + 1) & mask;
+		} else {
+			// Shift the following items towards the head
+			for (int i = index; i < size - 1; i++) {
+				int to = (head + i) & mask;
+				int from = (head + i + 1) & mask;
+				items[to] = items[from];
+				sequences[to] = sequences[from];
+			}
+			items[slot(size - 1)] = null;
+		}
+
+		size--;
+		modCount++;
+
+		return item;
+	}
+
+	/**
+	 * Removes all items from the buffer.  Sequence numbers continue from where they were so that a sequence obtained
+	 * before the buffer was cleared refers to a position before any item added afterwards.
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(items, null);
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Object[size]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E> E[] toArray(E[] a) {
+		if (a.length < size) {
+			a = (E[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		}
+
+		copyTo(0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Copies a range of items into the specified array.
+	 * @param index The index of the first item to copy.
+	 * @param dest The destination array.
+	 * @param destIndex The index in the destination array to copy the first item to.
+	 * @param length The number of items to copy.
+	 */
+	@Override
+	public void copyTo(int index, Object[] dest, int destIndex, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+		}
+
+		// The range may wrap around the end of the array, in which case it is copied in two parts
+		int start = slot(index);
+		int firstLength = Math.min(length, items.length - start);
+		System.arraycopy(items, start, dest, destIndex, firstLength);
+		System.arraycopy(items, 0, dest, destIndex + firstLength, length - firstLength);
+	}
+
+	/**
+	 * Gets a view of the items in reverse order, where index 0 is the last item in the buffer.  The view reads the
+	 * buffer directly rather than copying the items and cannot be modified.
+	 * @return The reversed items.
+	 * @should return the items from the last item to the first
+	 * @should reflect changes to the buffer
+	 */
+	public List<PersistentListItem> reversed() {
+		return new ReversedItems();
+	}
+
+	@Override
+	public Iterator<PersistentListItem> iterator() {
+		return new Iterator<PersistentListItem>() {
+			private int index = 0;
+			private int lastIndex = -1;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public PersistentListItem next() {
+				checkForModification();
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				lastIndex = index++;
+				return items[slot(lastIndex)];
+			}
+
+			@Override
+			public void remove() {
+				if (lastIndex < 0) {
+					throw new IllegalStateException();
+				}
+				checkForModification();
+
+				removeAt(lastIndex);
+				index = lastIndex;
+				lastIndex = -1;
+				expectedModCount = modCount;
+			}
+
+			private void checkForModification() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	private class ReversedItems extends AbstractList<PersistentListItem> implements RandomAccess {
+		@Override
+		public PersistentListItem get(int index) {
+			checkIndex(index);
+
+			return items[slot(size - 1 - index)];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private int slot(int index) {
+		return (head + index) & (items.length - 1);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void grow() {
+		int length = items.length << 1;
+		if (length < 0) {
+			throw new IllegalStateException("The buffer is too large.");
+		}
+
+		PersistentListItem[] newItems = new PersistentListItem[length];
+		long[] newSequences = new long[length];
+
+		// Unwrap the items so that the head is at the start of the new arrays
+		copyTo(0, newItems, 0, size);
+		int start = head;
+		int firstLength = Math.min(size, sequences.length - start);
+		System.arraycopy(sequences, start, newSequences, 0, firstLength);
+		System.arraycopy(sequences, 0, newSequences, firstLength, size - firstLength);
+
+		items = newItems;
+		sequences = newSequences;
+		head = 0;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.AbstractCollection;
+
+/**
+ * Base type for the {@link PersistentQueue} item caches.  The items are kept in list order and can be accessed by
+ * index.  Each item is assigned an increasing sequence number when it is added so that a position in the buffer can be
+ * found again after items before it have been removed.
+ */
+public abstract class ItemBuffer extends AbstractCollection<PersistentListItem> {
+	/**
+	 * Gets the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item.
+	 */
+	public abstract PersistentListItem get(int index);
+
+	/**
+	 * Gets the sequence number that was assigned to the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item sequence number.
+	 */
+	public abstract long getSequence(int index);
+
+	/**
+	 * Gets the index of the first item which was added after the item with the specified sequence number.
+	 * @param sequence The item sequence number.
+	 * @return The index of the first item with a greater sequence number or the buffer size if there is no such item.
+	 */
+	public abstract int indexAfter(long sequence);
+
+	/**
+	 * Gets the index of the specified item.
+	 * @param o The item to find.
+	 * @return The index of the item or -1 if the item is not in the buffer.
+	 */
+	public abstract int indexOf(Object o);
+
+	/**
+	 * Gets the first item in the buffer without removing it.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 */
+	public abstract PersistentListItem peekFirst();
+
+	/**
+	 * Gets the last item in the buffer without removing it.
+	 * @return The last item or {@code null} if the buffer is empty.
+	 */
+	public abstract PersistentListItem peekLast();
+
+	/**
+	 * Removes and returns the first item in the buffer.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 */
+	public abstract PersistentListItem pollFirst();
+
+	/**
+	 * Removes and returns the last item in the buffer.
+	 * @return The last item or {@code null} if the buffer is empty.
+	 */
+	public abstract PersistentListItem pollLast();
+
+	/**
+	 * Removes the item at the specified index.
+	 * @param index The index of the item to remove.
+	 * @return The removed item.
+	 */
+	public abstract PersistentListItem removeAt(int index);
+
+	/**
+	 * Copies a range of items into the specified array.
+	 * @param index The index of the first item to copy.
+	 * @param dest The destination array.
+	 * @param destIndex The index in the destination array to copy the first item to.
+	 * @param length The number of items to copy.
+	 */
+	public abstract void copyTo(int index, Object[] dest, int destIndex, int length);
+}
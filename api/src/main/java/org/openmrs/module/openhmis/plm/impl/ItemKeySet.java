@@ -0,0 +1,235 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.UuidKeyCodec;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of item keys which, when UUID key encoding is enabled as the set is created, stores the keys that are UUIDs as
+ * two longs in an open addressing hash table, using 16 bytes per key rather than a string and a hash set entry.  Other
+ * keys, and every key when encoding is disabled, are stored in a {@link HashSet}.  Encoded keys are returned by the
+ * iterator as new strings.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access to it.
+ */
+public class ItemKeySet extends AbstractSet<String> {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Set<String> otherKeys = new HashSet<String>();
+	private final boolean isEncodingEnabled = UuidKeyCodec.getIsEncodingEnabled();
+	private long[] mostSignificantBits;
+	private long[] leastSignificantBits;
+	private boolean[] used;
+	private int mask;
+	private int uuidCount;
+
+	public ItemKeySet() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	@Override
+	public int size() {
+		return uuidCount + otherKeys.size();
+	}
+
+	/**
+	 * @should find uuid keys and other keys
+	 * @should find uuid keys when encoding is disabled
+	 */
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+
+		String key = (String)o;
+		if (!isEncoded(key)) {
+			return otherKeys.contains(key);
+		}
+
+		return find(UuidKeyCodec.getMostSignificantBits(key), UuidKeyCodec.getLeastSignificantBits(key)) >= 0;
+	}
+
+	/**
+	 * @should not add a key that is already in the set
+	 */
+	@Override
+	public boolean add(String key) {
+		if (!isEncoded(key)) {
+			return otherKeys.add(key);
+		}
+
+		long most = UuidKeyCodec.getMostSignificantBits(key);
+		long least = UuidKeyCodec.getLeastSignificantBits(key);
+		if (find(most, least) >= 0) {
+			return false;
+		}
+
+		if ((uuidCount + 1) << 1 > mask + 1) {
+			resize((mask + 1) << 1);
+		}
+		insert(most, least);
+		uuidCount++;
+
+		return true;
+	}
+
+	/**
+	 * @should remove the key and keep the other keys
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+
+		String key = (String)o;
+		if (!isEncoded(key)) {
+			return otherKeys.remove(key);
+		}
+
+		int hole = find(UuidKeyCodec.getMostSignificantBits(key), UuidKeyCodec.getLeastSignificantBits(key));
+		if (hole < 0) {
+			return false;
+		}
+
+		// Move back the following entries that would not be found once the hole is emptied
+		for (int i = (hole + 1) & mask; used[i]; i = (i + 1) & mask) {
+			int home = hash(mostSignificantBits[i], leastSignificantBits[i]) & mask;
+			boolean isBetween = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+			if (!isBetween) {
+				mostSignificantBits[hole] = mostSignificantBits[i];
+				leastSignificantBits[hole] = leastSignificantBits[i];
+				hole = i;
+			}
+		}
+
+		used[hole] = false;
+		uuidCount--;
+
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		otherKeys.clear();
+		allocate(INITIAL_CAPACITY);
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		final Iterator<String> others = otherKeys.iterator();
+
+		return new Iterator<String>() {
+			private int slot = nextSlot(0);
+
+			@Override
+			public boolean hasNext() {
+				return slot < used.length || others.hasNext();
+			}
+
+			@Override
+			public String next() {
+				if (slot < used.length) {
+					String key = UuidKeyCodec.toString(mostSignificantBits[slot], leastSignificantBits[slot]);
+					slot = nextSlot(slot + 1);
+
+					return key;
+				}
+				if (!others.hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return others.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private boolean isEncoded(String key) {
+		return isEncodingEnabled && UuidKeyCodec.isUuid(key);
+	}
+
+	private int nextSlot(int start) {
+		int slot = start;
+		while (slot < used.length && !used[slot]) {
+			slot++;
+		}
+
+		return slot;
+	}
+
+	private int find(long most, long least) {
+		for (int i = hash(most, least) & mask; used[i]; i = (i + 1) & mask) {
+			if (mostSignificantBits[i] == most && leastSignificantBits[i] == least) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private void insert(long most, long least) {
+		int i = hash(most, least) & mask;
+		while (used[i]) {
+			i = (i + 1) & mask;
+		}
+
+		mostSignificantBits[i] = most;
+		leastSignificantBits[i] = least;
+		used[i] = true;
+	}
+
+	private void resize(int capacity) {
+		long[] oldMost = mostSignificantBits;
+		long[] oldLeast = leastSignificantBits;
+		boolean[] oldUsed = used;
+		int count = uuidCount;
+
+		allocate(capacity);
+		for (int i = 0; i < oldUsed.length; i++) {
+			if (oldUsed[i]) {
+				insert(oldMost[i], oldLeast[i]);
+			}
+		}
+		uuidCount = count;
+	}
+
+	private void allocate(int capacity) {
+		mostSignificantBits = new long[capacity];
+		leastSignificantBits = new long[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		uuidCount = 0;
+	}
+
+	private static int hash(long most, long least) {
+		long hash = most ^ least;
+		hash ^= hash >>> 32;
+
+		// Spread the bits so that sequential keys do not cluster
+		return (int)hash * 0x9E3779B9;
+	}
+}
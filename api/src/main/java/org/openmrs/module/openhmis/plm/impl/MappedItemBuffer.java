@@ -0,0 +1,704 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListException;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link ItemBuffer} which stores the items outside of the Java heap so that very large lists do not use heap space
+ * in proportion to their size.  The items are kept as fixed-width records in a circular array in a memory-mapped file
+ * and an open addressing hash table of the item keys is kept in a direct buffer.  {@link PersistentListItem} objects are
+ * only created for the items that are read, so each read returns new objects and items are found by their key rather
+ * than by identity.
+ * <p/>
+ * Each record holds the item sequence number, id, creator id, creation date and key.  Keys which are longer than the
+ * key width, once encoded, are kept in a map on the heap instead.  The creator is stored by its user id, as it is on
+ * the items themselves.
+ * <p/>
+ * The file is deleted as soon as it is mapped and the mapping is released when the buffer is garbage collected; the
+ * items are a cache of the items stored by the list provider so they do not need to outlive the buffer.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access to it.
+ */
+public class MappedItemBuffer extends ItemBuffer {
+	public static final int DEFAULT_KEY_WIDTH = 36;
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int SEQUENCE = 0;
+	private static final int ID = 8;
+	private static final int CREATOR = 12;
+	private static final int CREATED_ON = 16;
+	private static final int KEY_LENGTH = 24;
+	private static final int KEY = 26;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+	private static final short OVERFLOW_KEY = -1;
+
+	private final File directory;
+	private final int keyWidth;
+	private final int recordWidth;
+	private final byte[] record;
+	private final KeyIndex keyIndex;
+	private final Map<Long, String> overflowKeys = new HashMap<Long, String>();
+
+	private MappedByteBuffer records;
+	private ByteBuffer view;
+	private int capacity;
+	private int head;
+	private int size;
+	private long nextSequence = 1;
+	private int modCount;
+
+	/**
+	 * Creates a new MappedItemBuffer with the default key width and initial capacity.
+	 * @param directory The directory to create the file in or {@code null} to use the default temporary directory.
+	 */
+	public MappedItemBuffer(File directory) {
+		this(directory, DEFAULT_KEY_WIDTH, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new MappedItemBuffer.
+	 * @param directory The directory to create the file in or {@code null} to use the default temporary directory.
+	 * @param keyWidth The number of bytes stored in each record for the encoded item key.
+	 * @param capacity The initial number of records.
+	 */
+	public MappedItemBuffer(File directory, int keyWidth, int capacity) {
+		if (keyWidth < 0 || keyWidth > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("The key width must be between 0 and " + Short.MAX_VALUE + ".");
+		}
+
+		this.directory = directory;
+		this.keyWidth = keyWidth;
+
+		// Round the records up to a multiple of 8 bytes so that the sequence numbers are aligned
+		this.recordWidth = (KEY + keyWidth + 7) & ~7;
+		this.record = new byte[recordWidth];
+
+		int length = 16;
+		while (length < capacity) {
+			length <<= 1;
+		}
+		this.capacity = length;
+		this.records = map(length);
+		this.view = records.duplicate();
+		this.keyIndex = new KeyIndex(length << 1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of records that the file can hold before it is grown.
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getKeyWidth() {
+		return keyWidth;
+	}
+
+	/**
+	 * Adds the item to the end of the buffer.
+	 * @param item The item to add.
+	 * @return {@code true}
+	 * @should add the item to the end of the buffer
+	 * @should grow the file when it is full
+	 * @should keep keys that are longer than the key width
+	 */
+	@Override
+	public boolean add(PersistentListItem item) {
+		if (item == null) {
+			throw new NullPointerException("The item must be defined.");
+		}
+
+		if (size == capacity) {
+			grow();
+		}
+
+		long sequence = nextSequence++;
+		write(slot(size), sequence, item);
+		keyIndex.add(hash(item.getKey()), sequence);
+		size++;
+		modCount++;
+
+		return true;
+	}
+
+	/**
+	 * Gets the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return A new item with the stored item values.
+	 * @should return an item with the stored values
+	 * @should throw IndexOutOfBoundsException when the index is out of range
+	 */
+	@Override
+	public PersistentListItem get(int index) {
+		checkIndex(index);
+
+		return read(slot(index));
+	}
+
+	@Override
+	public long getSequence(int index) {
+		checkIndex(index);
+
+		return records.getLong(slot(index) * recordWidth + SEQUENCE);
+	}
+
+	/**
+	 * Gets the index of the first item which was added after the item with the specified sequence number.
+	 * @param sequence The item sequence number.
+	 * @return The index of the first item with a greater sequence number or the buffer size if there is no such item.
+	 * @should return the index of the following item when the sequence item has been removed
+	 */
+	@Override
+	public int indexAfter(long sequence) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getSequence(mid) <= sequence) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the index of the item with the same key as the specified item.
+	 * @param o The item to find.
+	 * @return The index of the item or -1 if the item is not in the buffer.
+	 * @should find the item by its key
+	 */
+	@Override
+	public int indexOf(Object o) {
+		if (!(o instanceof PersistentListItem)) {
+			return -1;
+		}
+
+		return indexOfKey(((PersistentListItem)o).getKey());
+	}
+
+	/**
+	 * Gets the index of the item with the specified key.
+	 * @param key The item key.
+	 * @return The index of the item or -1 if there is no item with the key.
+	 */
+	public int indexOfKey(String key) {
+		if (key == null) {
+			return -1;
+		}
+
+		return keyIndex.find(key, key.getBytes(UTF8), hash(key));
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public PersistentListItem peekFirst() {
+		return size == 0 ? null : read(head);
+	}
+
+	@Override
+	public PersistentListItem peekLast() {
+		return size == 0 ? null : read(slot(size - 1));
+	}
+
+	@Override
+	public PersistentListItem pollFirst() {
+		return size == 0 ? null : removeAt(0);
+	}
+
+	@Override
+	public PersistentListItem pollLast() {
+		return size == 0 ? null : removeAt(size - 1);
+	}
+
+	/**
+	 * Removes the item with the same key as the specified item.
+	 * @param o The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should remove the item and keep the order of the remaining items
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Removes the item at the specified index.  The records on the shorter side of the index are moved to fill the gap.
+	 * @param index The index of the item to remove.
+	 * @return The removed item.
+	 */
+	@Override
+	public PersistentListItem removeAt(int index) {
+		checkIndex(index);
+
+		int removedSlot = slot(index);
+		PersistentListItem item = read(removedSlot);
+		long sequence = records.getLong(removedSlot * recordWidth + SEQUENCE);
+		keyIndex.remove(hash(item.getKey()), sequence);
+		overflowKeys.remove(sequence);
+
+		int mask = capacity - 1;
+		if (index < (size >> 1)) {
+			// Move the preceding records towards the end and move the head forward
+			for (int i = index; i > 0; i--) {
+				move((head + i - 1) & mask, (head + i) & mask);
+			}
+			head = (head + 1) & mask;
+		} else {
+			// Move the following records towards the head
+			for (int i = index; i < size - 1; i++) {
+				move((head + i + 1) & mask, (head + i) & mask);
+			}
+		}
+
+		size--;
+		modCount++;
+
+		return item;
+	}
+
+	/**
+	 * Removes all items from the buffer.  The file keeps its capacity and sequence numbers continue from where they were.
+	 */
+	@Override
+	public void clear() {
+		head = 0;
+		size = 0;
+		keyIndex.clear();
+		overflowKeys.clear();
+		modCount++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Object[size]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E> E[] toArray(E[] a) {
+		if (a.length < size) {
+			a = (E[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		}
+
+		copyTo(0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Creates items for a range of records and copies them into the specified array.
+	 * @param index The index of the first item to copy.
+	 * @param dest The destination array.
+	 * @param destIndex The index in the destination array to copy the first item to.
+	 * @param length The number of items to copy.
+	 */
+	@Override
+	public void copyTo(int index, Object[] dest, int destIndex, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+		}
+
+		for (int i = 0; i < length; i++) {
+			dest[destIndex + i] = read(slot(index + i));
+		}
+	}
+
+	/**
+	 * Gets a view of the item keys which is backed by the key index.  The keys are added and removed along with the
+	 * items, so adding or removing keys through the view has no effect.
+	 * @return The item keys.
+	 * @should contain the keys of the items in the buffer
+	 */
+	public Collection<String> keys() {
+		return new AbstractCollection<String>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && indexOfKey((String)o) >= 0;
+			}
+
+			@Override
+			public boolean add(String key) {
+				return false;
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				return false;
+			}
+
+			@Override
+			public void clear() {
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				final Iterator<PersistentListItem> items = MappedItemBuffer.this.iterator();
+
+				return new Iterator<String>() {
+					@Override
+					public boolean hasNext() {
+						return items.hasNext();
+					}
+
+					@Override
+					public String next() {
+						return items.next().getKey();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterator<PersistentListItem> iterator() {
+		return new Iterator<PersistentListItem>() {
+			private int index = 0;
+			private int lastIndex = -1;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public PersistentListItem next() {
+				checkForModification();
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				lastIndex = index++;
+				return read(slot(lastIndex));
+			}
+
+			@Override
+			public void remove() {
+				if (lastIndex < 0) {
+					throw new IllegalStateException();
+				}
+				checkForModification();
+
+				removeAt(lastIndex);
+				index = lastIndex;
+				lastIndex = -1;
+				expectedModCount = modCount;
+			}
+
+			private void checkForModification() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	private int slot(int index) {
+		return (head + index) & (capacity - 1);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void write(int slot, long sequence, PersistentListItem item) {
+		int position = slot * recordWidth;
+
+		records.putLong(position + SEQUENCE, sequence);
+		records.putInt(position + ID, item.getId() == null ? NULL_INT : item.getId());
+		records.putInt(position + CREATOR, item.getCreatorId());
+		records.putLong(position + CREATED_ON, item.getCreatedOnMillis());
+
+		byte[] key = item.getKey().getBytes(UTF8);
+		if (key.length <= keyWidth) {
+			records.putShort(position + KEY_LENGTH, (short)key.length);
+			view.clear();
+			view.position(position + KEY);
+			view.put(key);
+		} else {
+			records.putShort(position + KEY_LENGTH, OVERFLOW_KEY);
+			overflowKeys.put(sequence, item.getKey());
+		}
+	}
+
+	private PersistentListItem read(int slot) {
+		int position = slot * recordWidth;
+		int id = records.getInt(position + ID);
+		int creatorId = records.getInt(position + CREATOR);
+		long createdOn = records.getLong(position + CREATED_ON);
+
+		return new PersistentListItem(id == NULL_INT ? null : id, readKey(slot), creatorId, createdOn);
+	}
+
+	private String readKey(int slot) {
+		int position = slot * recordWidth;
+		short length = records.getShort(position + KEY_LENGTH);
+		if (length == OVERFLOW_KEY) {
+			return overflowKeys.get(records.getLong(position + SEQUENCE));
+		}
+
+		byte[] key = new byte[length];
+		view.clear();
+		view.position(position + KEY);
+		view.get(key);
+
+		return new String(key, UTF8);
+	}
+
+	private boolean keyEquals(int slot, String key, byte[] encodedKey) {
+		int position = slot * recordWidth;
+		short length = records.getShort(position + KEY_LENGTH);
+		if (length == OVERFLOW_KEY) {
+			return key.equals(overflowKeys.get(records.getLong(position + SEQUENCE)));
+		}
+		if (length != encodedKey.length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (records.get(position + KEY + i) != encodedKey[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private int indexOfSequence(long sequence) {
+		int index = indexAfter(sequence - 1);
+
+		return index < size && getSequence(index) == sequence ? index : -1;
+	}
+
+	private void move(int fromSlot, int toSlot) {
+		view.clear();
+		view.position(fromSlot * recordWidth);
+		view.get(record);
+		view.position(toSlot * recordWidth);
+		view.put(record);
+	}
+
+	private void grow() {
+		if (capacity << 1 < 0) {
+			throw new IllegalStateException("The buffer is too large.");
+		}
+
+		int newCapacity = capacity << 1;
+		MappedByteBuffer newRecords = map(newCapacity);
+
+		// Unwrap the records so that the head is at the start of the new file
+		int firstLength = Math.min(size, capacity - head);
+		view.clear();
+		view.position(head * recordWidth);
+		view.limit((head + firstLength) * recordWidth);
+		newRecords.put(view);
+		view.clear();
+		view.limit((size - firstLength) * recordWidth);
+		newRecords.put(view);
+		newRecords.clear();
+
+		records = newRecords;
+		view = newRecords.duplicate();
+		capacity = newCapacity;
+		head = 0;
+	}
+
+	private MappedByteBuffer map(int capacity) {
+		long length = (long)capacity * recordWidth;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The buffer is too large.");
+		}
+
+		try {
+			File file = File.createTempFile("plm-", ".items", directory);
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				randomAccessFile.setLength(length);
+
+				return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+			} finally {
+				randomAccessFile.close();
+
+				// The mapping remains valid once the file is closed and deleted
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		} catch (IOException ex) {
+			throw new PersistentListException("An exception occurred while attempting to map the list item file.", ex);
+		}
+	}
+
+	private static int hash(String key) {
+		int h = key.hashCode();
+
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * An open addressing hash table in a direct buffer which maps the item key hashes to the item sequence numbers.
+	 * Each entry holds the sequence number, which is 0 for an empty entry, and the key hash.  Collisions are resolved by
+	 * linear probing and entries are removed by moving the following entries back, so there are no deleted markers.
+	 */
+	private class KeyIndex {
+		private static final int ENTRY_WIDTH = 16;
+		private static final int HASH = 8;
+
+		private final int initialCapacity;
+		private ByteBuffer entries;
+		private int mask;
+		private int count;
+
+		KeyIndex(int capacity) {
+			initialCapacity = capacity;
+			allocate(capacity);
+		}
+
+		void add(int hash, long sequence) {
+			if ((count + 1) << 1 > mask + 1) {
+				resize((mask + 1) << 1);
+			}
+
+			insert(hash, sequence);
+			count++;
+		}
+
+		int find(String key, byte[] encodedKey, int hash) {
+			for (int i = hash & mask; ; i = (i + 1) & mask) {
+				long sequence = entries.getLong(i * ENTRY_WIDTH);
+				if (sequence == 0) {
+					return -1;
+				}
+
+				if (entries.getInt(i * ENTRY_WIDTH + HASH) == hash) {
+					int index = indexOfSequence(sequence);
+					if (index >= 0 && keyEquals(slot(index), key, encodedKey)) {
+						return index;
+					}
+				}
+			}
+		}
+
+		void remove(int hash, long sequence) {
+			int hole = hash & mask;
+			while (entries.getLong(hole * ENTRY_WIDTH) != sequence) {
+				if (entries.getLong(hole * ENTRY_WIDTH) == 0) {
+					return;
+				}
+				hole = (hole + 1) & mask;
+			}
+
+			// Move back the following entries that would not be found once the hole is emptied
+			for (int i = (hole + 1) & mask; entries.getLong(i * ENTRY_WIDTH) != 0; i = (i + 1) & mask) {
+				int home = entries.getInt(i * ENTRY_WIDTH + HASH) & mask;
+				boolean isBetween = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+				if (!isBetween) {
+					entries.putLong(hole * ENTRY_WIDTH, entries.getLong(i * ENTRY_WIDTH));
+					entries.putInt(hole * ENTRY_WIDTH + HASH, entries.getInt(i * ENTRY_WIDTH + HASH));
+					hole = i;
+				}
+			}
+
+			entries.putLong(hole * ENTRY_WIDTH, 0);
+			count--;
+		}
+
+		void clear() {
+			allocate(initialCapacity);
+		}
+
+		private void insert(int hash, long sequence) {
+			int i = hash & mask;
+			while (entries.getLong(i * ENTRY_WIDTH) != 0) {
+				i = (i + 1) & mask;
+			}
+
+			entries.putLong(i * ENTRY_WIDTH, sequence);
+			entries.putInt(i * ENTRY_WIDTH + HASH, hash);
+		}
+
+		private void resize(int capacity) {
+			ByteBuffer oldEntries = entries;
+			int oldCapacity = mask + 1;
+
+			allocate(capacity);
+			for (int i = 0; i < oldCapacity; i++) {
+				long sequence = oldEntries.getLong(i * ENTRY_WIDTH);
+				if (sequence != 0) {
+					insert(oldEntries.getInt(i * ENTRY_WIDTH + HASH), sequence);
+				}
+			}
+		}
+
+		private void allocate(int capacity) {
+			// Direct buffers are allocated outside of the heap and are zeroed, so every entry starts empty
+			entries = ByteBuffer.allocateDirect(capacity * ENTRY_WIDTH);
+			mask = capacity - 1;
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * A {@link PersistentQueue} which caches its items in a {@link MappedItemBuffer} rather than on the heap.  This is
+ * intended for very large lists, such as outreach call lists, where holding every item as an object would use a lot of
+ * heap space; only the items that are read are created as objects.
+ * <p/>
+ * The items that are read are new objects each time, so items are matched by their key rather than by identity when
+ * they are removed.
+ */
+public class MappedPersistentQueue extends PersistentQueue {
+	private File directory;
+	private int keyWidth = MappedItemBuffer.DEFAULT_KEY_WIDTH;
+
+	public MappedPersistentQueue() {
+	}
+
+	public MappedPersistentQueue(String key, PersistentListProvider provider) {
+		super(key, provider);
+	}
+
+	public MappedPersistentQueue(int id, String key, PersistentListProvider provider) {
+		super(id, key, provider);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the directory that the item files are mapped from.  This must be set before the list is initialized.
+	 * @param directory The directory or {@code null} to use the default temporary directory.
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	public int getKeyWidth() {
+		return keyWidth;
+	}
+
+	/**
+	 * Sets the number of bytes stored in each record for the item key.  Longer keys are kept on the heap.  This must be
+	 * set before the list is initialized.
+	 * @param keyWidth The key width in bytes.
+	 */
+	public void setKeyWidth(int keyWidth) {
+		this.keyWidth = keyWidth;
+	}
+
+	/**
+	 * Creates a new {@link MappedItemBuffer} for the list items.
+	 * @return The mapped item buffer.
+	 * @should return the items in first in first out order
+	 * @should remove the item with the same key
+	 * @should read the pages from the mapped items
+	 * @should load the stored items when the list is initialized
+	 */
+	@Override
+	protected ItemBuffer initializeCache() {
+		return new MappedItemBuffer(directory, keyWidth, MappedItemBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Gets the key view of the mapped items so that duplicate keys are found with the off-heap key index rather than a
+	 * list of keys on the heap.
+	 * @param items The cached items.
+	 * @return The key collection.
+	 * @should find duplicate keys with the key index
+	 */
+	@Override
+	protected Collection<String> initializeKeys(ItemBuffer items) {
+		if (items instanceof MappedItemBuffer) {
+			return ((MappedItemBuffer)items).keys();
+		}
+
+		return super.initializeKeys(items);
+	}
+}
@@ -0,0 +1,664 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link ItemBuffer} which keeps the items in parallel primitive arrays rather than as objects.  The arrays form a
+ * ring buffer in list order holding the sequence number, id, key id, creator id and creation time of each item, and
+ * the item keys are kept once each in a key dictionary that maps them to their key id.  {@link PersistentListItem}
+ * objects are only created for the items that are read, so each read returns new objects and items are found by their
+ * key rather than by identity.  The {@link #getKey(int)}, {@link #getCreatorId(int)} and
+ * {@link #getCreatedOnMillis(int)} methods read a single field without creating an item.
+ * <p/>
+ * Item keys must be unique within the buffer, which the lists already ensure.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access to it.
+ */
+public class PackedItemBuffer extends ItemBuffer {
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int NULL_ID = Integer.MIN_VALUE;
+
+	private final KeyDictionary dictionary;
+
+	private long[] sequences;
+	private int[] ids;
+	private int[] keyIds;
+	private int[] creatorIds;
+	private long[] createdOn;
+	private int head;
+	private int size;
+	private long nextSequence = 1;
+	private int modCount;
+
+	public PackedItemBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new PackedItemBuffer.
+	 * @param capacity The initial number of items the arrays can hold.
+	 */
+	public PackedItemBuffer(int capacity) {
+		int length = 16;
+		while (length < capacity) {
+			length <<= 1;
+		}
+
+		allocate(length);
+		dictionary = new KeyDictionary(length);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of items that the arrays can hold before they are grown.
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return sequences.length;
+	}
+
+	/**
+	 * Adds the item to the end of the buffer.
+	 * @param item The item to add.
+	 * @return {@code true}
+	 * @should add the item to the end of the buffer
+	 * @should grow the arrays when they are full
+	 * @should throw IllegalArgumentException when an item with the same key is in the buffer
+	 */
+	@Override
+	public boolean add(PersistentListItem item) {
+		if (item == null) {
+			throw new NullPointerException("The item must be defined.");
+		}
+
+		String key = item.getKey();
+		if (dictionary.find(key) >= 0) {
+			throw new IllegalArgumentException("An item with the key '" + key + "' is already in the buffer.");
+		}
+
+		if (size == sequences.length) {
+			grow();
+		}
+
+		long sequence = nextSequence++;
+		int slot = slot(size);
+		sequences[slot] = sequence;
+		ids[slot] = item.getId() == null ? NULL_ID : item.getId();
+		keyIds[slot] = dictionary.add(key, sequence);
+		creatorIds[slot] = item.getCreatorId();
+		createdOn[slot] = item.getCreatedOnMillis();
+		size++;
+		modCount++;
+
+		return true;
+	}
+
+	/**
+	 * Gets the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return A new item with the stored item values.
+	 * @should return an item with the stored values
+	 * @should throw IndexOutOfBoundsException when the index is out of range
+	 */
+	@Override
+	public PersistentListItem get(int index) {
+		checkIndex(index);
+
+		return read(slot(index));
+	}
+
+	/**
+	 * Gets the key of the item at the specified index without creating the item.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item key.
+	 */
+	public String getKey(int index) {
+		checkIndex(index);
+
+		return dictionary.keys[keyIds[slot(index)]];
+	}
+
+	/**
+	 * Gets the creator id of the item at the specified index without creating the item.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The creator user id or {@link PersistentListItem#NO_CREATOR} if the item has no creator.
+	 */
+	public int getCreatorId(int index) {
+		checkIndex(index);
+
+		return creatorIds[slot(index)];
+	}
+
+	/**
+	 * Gets the creation time of the item at the specified index without creating the item.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The creation time or {@link PersistentListItem#NO_DATE} if the item has no creation date.
+	 */
+	public long getCreatedOnMillis(int index) {
+		checkIndex(index);
+
+		return createdOn[slot(index)];
+	}
+
+	@Override
+	public long getSequence(int index) {
+		checkIndex(index);
+
+		return sequences[slot(index)];
+	}
+
+	/**
+	 * Gets the index of the first item which was added after the item with the specified sequence number.
+	 * @param sequence The item sequence number.
+	 * @return The index of the first item with a greater sequence number or the buffer size if there is no such item.
+	 * @should return the index of the following item when the sequence item has been removed
+	 */
+	@Override
+	public int indexAfter(long sequence) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sequences[slot(mid)] <= sequence) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the index of the item with the same key as the specified item.
+	 * @param o The item to find.
+	 * @return The index of the item or -1 if the item is not in the buffer.
+	 * @should find the item by its key
+	 */
+	@Override
+	public int indexOf(Object o) {
+		if (!(o instanceof PersistentListItem)) {
+			return -1;
+		}
+
+		return indexOfKey(((PersistentListItem)o).getKey());
+	}
+
+	/**
+	 * Gets the index of the item with the specified key.
+	 * @param key The item key.
+	 * @return The index of the item or -1 if there is no item with the key.
+	 */
+	public int indexOfKey(String key) {
+		int keyId = dictionary.find(key);
+		if (keyId < 0) {
+			return -1;
+		}
+
+		long sequence = dictionary.sequences[keyId];
+		int index = indexAfter(sequence - 1);
+
+		return index < size && sequences[slot(index)] == sequence ? index : -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public PersistentListItem peekFirst() {
+		return size == 0 ? null : read(head);
+	}
+
+	@Override
+	public PersistentListItem peekLast() {
+		return size == 0 ? null : read(slot(size - 1));
+	}
+
+	@Override
+	public PersistentListItem pollFirst() {
+		return size == 0 ? null : removeAt(0);
+	}
+
+	@Override
+	public PersistentListItem pollLast() {
+		return size == 0 ? null : removeAt(size - 1);
+	}
+
+	/**
+	 * Removes the item with the same key as the specified item.
+	 * @param o The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should remove the item and keep the order of the remaining items
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Removes the item at the specified index.  The items on the shorter side of the index are moved to fill the gap.
+	 * @param index The index of the item to remove.
+	 * @return The removed item.
+	 */
+	@Override
+	public PersistentListItem removeAt(int index) {
+		checkIndex(index);
+
+		int removedSlot = slot(index);
+		PersistentListItem item = read(removedSlot);
+		dictionary.remove(keyIds[removedSlot]);
+
+		int mask = sequences.length - 1;
+		if (index < (size >> 1)) {
+			// Move the preceding items towards the end and move the head forward
+			for (int i = index; i > 0; i--) {
+				move((head + i - 1) & mask, (head + i) & mask);
+			}
+			head = (head + 1) & mask;
+		} else {
+			// Move the following items towards the head
+			for (int i = index; i < size - 1; i++) {
+				move((head + i + 1) & mask, (head + i) & mask);
+			}
+		}
+
+		size--;
+		modCount++;
+
+		return item;
+	}
+
+	/**
+	 * Removes all items from the buffer.  The arrays keep their capacity and sequence numbers continue from where they
+	 * were.
+	 */
+	@Override
+	public void clear() {
+		head = 0;
+		size = 0;
+		dictionary.clear();
+		modCount++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Object[size]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E> E[] toArray(E[] a) {
+		if (a.length < size) {
+			a = (E[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		}
+
+		copyTo(0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Creates items for a range of the buffer and copies them into the specified array.
+	 * @param index The index of the first item to copy.
+	 * @param dest The destination array.
+	 * @param destIndex The index in the destination array to copy the first item to.
+	 * @param length The number of items to copy.
+	 * @should copy the items in list order when the ring wraps
+	 */
+	@Override
+	public void copyTo(int index, Object[] dest, int destIndex, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+		}
+
+		for (int i = 0; i < length; i++) {
+			dest[destIndex + i] = read(slot(index + i));
+		}
+	}
+
+	/**
+	 * Gets a view of the item keys which is backed by the key dictionary.  The keys are added and removed along with the
+	 * items, so adding or removing keys through the view has no effect.
+	 * @return The item keys.
+	 * @should contain the keys of the items in the buffer
+	 */
+	public Collection<String> keys() {
+		return new AbstractCollection<String>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && dictionary.find((String)o) >= 0;
+			}
+
+			@Override
+			public boolean add(String key) {
+				return false;
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				return false;
+			}
+
+			@Override
+			public void clear() {
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					private int index = 0;
+					private int expectedModCount = modCount;
+
+					@Override
+					public boolean hasNext() {
+						return index < size;
+					}
+
+					@Override
+					public String next() {
+						if (modCount != expectedModCount) {
+							throw new ConcurrentModificationException();
+						}
+						if (index >= size) {
+							throw new NoSuchElementException();
+						}
+
+						return dictionary.keys[keyIds[slot(index++)]];
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterator<PersistentListItem> iterator() {
+		return new Iterator<PersistentListItem>() {
+			private int index = 0;
+			private int lastIndex = -1;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public PersistentListItem next() {
+				checkForModification();
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				lastIndex = index++;
+				return read(slot(lastIndex));
+			}
+
+			@Override
+			public void remove() {
+				if (lastIndex < 0) {
+					throw new IllegalStateException();
+				}
+				checkForModification();
+
+				removeAt(lastIndex);
+				index = lastIndex;
+				lastIndex = -1;
+				expectedModCount = modCount;
+			}
+
+			private void checkForModification() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	private int slot(int index) {
+		return (head + index) & (sequences.length - 1);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private PersistentListItem read(int slot) {
+		int id = ids[slot];
+
+		return new PersistentListItem(id == NULL_ID ? null : id, dictionary.keys[keyIds[slot]], creatorIds[slot],
+				createdOn[slot]);
+	}
+
+	private void move(int fromSlot, int toSlot) {
+		sequences[toSlot] = sequences[fromSlot];
+		ids[toSlot] = ids[fromSlot];
+		keyIds[toSlot] = keyIds[fromSlot];
+		creatorIds[toSlot] = creatorIds[fromSlot];
+		createdOn[toSlot] = createdOn[fromSlot];
+	}
+
+	private void grow() {
+		int capacity = sequences.length;
+		if (capacity << 1 < 0) {
+			throw new IllegalStateException("The buffer is too large.");
+		}
+
+		long[] oldSequences = sequences;
+		int[] oldIds = ids;
+		int[] oldKeyIds = keyIds;
+		int[] oldCreatorIds = creatorIds;
+		long[] oldCreatedOn = createdOn;
+		allocate(capacity << 1);
+
+		// Unwrap the items so that the head is at the start of the new arrays
+		int firstLength = Math.min(size, capacity - head);
+		int secondLength = size - firstLength;
+		System.arraycopy(oldSequences, head, sequences, 0, firstLength);
+		System.arraycopy(oldSequences, 0, sequences, firstLength, secondLength);
+		System.arraycopy(oldIds, head, ids, 0, firstLength);
+		System.arraycopy(oldIds, 0, ids, firstLength, secondLength);
+		System.arraycopy(oldKeyIds, head, keyIds, 0, firstLength);
+		System.arraycopy(oldKeyIds, 0, keyIds, firstLength, secondLength);
+		System.arraycopy(oldCreatorIds, head, creatorIds, 0, firstLength);
+		System.arraycopy(oldCreatorIds, 0, creatorIds, firstLength, secondLength);
+		System.arraycopy(oldCreatedOn, head, createdOn, 0, firstLength);
+		System.arraycopy(oldCreatedOn, 0, createdOn, firstLength, secondLength);
+		head = 0;
+	}
+
+	private void allocate(int capacity) {
+		sequences = new long[capacity];
+		ids = new int[capacity];
+		keyIds = new int[capacity];
+		creatorIds = new int[capacity];
+		createdOn = new long[capacity];
+	}
+
+	private static int hash(String key) {
+		int h = key.hashCode();
+
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Maps the item keys to key ids.  The keys and the sequence number of the item with each key are stored in arrays
+	 * indexed by key id, and an open addressing hash table maps the keys to their id.  Each table entry holds the key id
+	 * plus one, so that 0 is an empty entry.  Collisions are resolved by linear probing and entries are removed by moving
+	 * the following entries back, so there are no deleted markers.  The ids of removed keys are reused.
+	 */
+	private static class KeyDictionary {
+		private String[] keys;
+		private long[] sequences;
+		private int[] freeIds;
+		private int freeCount;
+		private int nextId;
+		private int[] table;
+		private int mask;
+		private int count;
+
+		KeyDictionary(int capacity) {
+			keys = new String[capacity];
+			sequences = new long[capacity];
+			freeIds = new int[capacity];
+			allocateTable(capacity << 1);
+		}
+
+		int find(String key) {
+			if (key == null) {
+				return -1;
+			}
+
+			for (int i = hash(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+				int id = table[i] - 1;
+				if (key.equals(keys[id])) {
+					return id;
+				}
+			}
+
+			return -1;
+		}
+
+		int add(String key, long sequence) {
+			if ((count + 1) << 1 > mask + 1) {
+				resizeTable((mask + 1) << 1);
+			}
+
+			int id;
+			if (freeCount > 0) {
+				id = freeIds[--freeCount];
+			} else {
+				if (nextId == keys.length) {
+					growIds();
+				}
+				id = nextId++;
+			}
+
+			keys[id] = key;
+			sequences[id] = sequence;
+			insert(id);
+			count++;
+
+			return id;
+		}
+
+		void remove(int id) {
+			int hole = hash(keys[id]) & mask;
+			while (table[hole] != id + 1) {
+				hole = (hole + 1) & mask;
+			}
+
+			// Move back the following entries that would not be found once the hole is emptied
+			for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+				int home = hash(keys[table[i] - 1]) & mask;
+				boolean isBetween = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+				if (!isBetween) {
+					table[hole] = table[i];
+					hole = i;
+				}
+			}
+
+			table[hole] = 0;
+			keys[id] = null;
+			freeIds[freeCount++] = id;
+			count--;
+		}
+
+		void clear() {
+			Arrays.fill(keys, 0, nextId, null);
+			Arrays.fill(table, 0);
+			freeCount = 0;
+			nextId = 0;
+			count = 0;
+		}
+
+		private void insert(int id) {
+			int i = hash(keys[id]) & mask;
+			while (table[i] != 0) {
+				i = (i + 1) & mask;
+			}
+
+			table[i] = id + 1;
+		}
+
+		private void resizeTable(int capacity) {
+			int[] oldTable = table;
+
+			allocateTable(capacity);
+			for (int entry : oldTable) {
+				if (entry != 0) {
+					insert(entry - 1);
+				}
+			}
+		}
+
+		private void allocateTable(int capacity) {
+			table = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		private void growIds() {
+			int capacity = keys.length << 1;
+
+			String[] newKeys = new String[capacity];
+			System.arraycopy(keys, 0, newKeys, 0, keys.length);
+			keys = newKeys;
+
+			long[] newSequences = new long[capacity];
+			System.arraycopy(sequences, 0, newSequences, 0, sequences.length);
+			sequences = newSequences;
+
+			int[] newFreeIds = new int[capacity];
+			System.arraycopy(freeIds, 0, newFreeIds, 0, freeIds.length);
+			freeIds = newFreeIds;
+		}
+	}
+}
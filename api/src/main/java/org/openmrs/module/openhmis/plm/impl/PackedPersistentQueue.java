@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+
+import java.util.Collection;
+
+/**
+ * A {@link PersistentQueue} which caches its items in a {@link PackedItemBuffer}, as parallel primitive arrays and a
+ * key dictionary rather than as an object per item.  This is intended for high volume lists, where the per item object
+ * overhead and the scattered objects make the cache large and slow to scan.
+ * <p/>
+ * The items that are read are new objects each time, so items are matched by their key rather than by identity when
+ * they are removed.
+ */
+public class PackedPersistentQueue extends PersistentQueue {
+	private int initialCapacity = PackedItemBuffer.DEFAULT_CAPACITY;
+
+	public PackedPersistentQueue() {
+	}
+
+	public PackedPersistentQueue(String key, PersistentListProvider provider) {
+		super(key, provider);
+	}
+
+	public PackedPersistentQueue(int id, String key, PersistentListProvider provider) {
+		super(id, key, provider);
+	}
+
+	public int getInitialCapacity() {
+		return initialCapacity;
+	}
+
+	/**
+	 * Sets the number of items that the arrays are first allocated for.  This must be set before the list is
+	 * initialized.
+	 * @param initialCapacity The initial capacity.
+	 */
+	public void setInitialCapacity(int initialCapacity) {
+		this.initialCapacity = initialCapacity;
+	}
+
+	/**
+	 * Creates a new {@link PackedItemBuffer} for the list items.
+	 * @return The packed item buffer.
+	 * @should return the items in first in first out order
+	 * @should remove the item with the same key
+	 * @should load the stored items when the list is initialized
+	 */
+	@Override
+	protected ItemBuffer initializeCache() {
+		return new PackedItemBuffer(initialCapacity);
+	}
+
+	/**
+	 * Gets the key view of the packed items so that duplicate keys are found with the key dictionary rather than a
+	 * separate set of keys.
+	 * @param items The cached items.
+	 * @return The key collection.
+	 * @should find duplicate keys with the key dictionary
+	 */
+	@Override
+	protected Collection<String> initializeKeys(ItemBuffer items) {
+		if (items instanceof PackedItemBuffer) {
+			return ((PackedItemBuffer)items).keys();
+		}
+
+		return super.initializeKeys(items);
+	}
+}
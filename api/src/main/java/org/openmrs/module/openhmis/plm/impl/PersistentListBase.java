@@ -18,36 +18,52 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openhmis.commons.EventRaiser;
 import org.openhmis.commons.FireableEventListenerList;
-import org.openhmis.commons.Initializable;
 import org.openmrs.module.openhmis.plm.*;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.NullMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.ProfiledLock;
 import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 import org.openmrs.module.openhmis.plm.model.PersistentListModel;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * Base type for Persistent List Manager lists.  Provides a thread-safe list implementation base that caches the items
- * in the defined Collection<PersistentListItem> subtype.
+ * in the defined Collection<PersistentListItem> subtype.  The items are not loaded from the provider until the list is
+ * first accessed or {@link #initialize()} is called.
+ * <p/>
+ * The list operations record the list size, the number of items added and removed, and their latency in the
+ * {@link ListMetrics} from the {@link MetricsRegistry} the list is given.
+ * <p/>
+ * Lists with the {@link ListDurability#MEMORY_ONLY} durability never call the provider; they start empty and their
+ * changes are only made to the cached items.
  *
  * @param <T> The collection type for the list implementation.
  */
-public abstract class PersistentListBase<T extends Collection<PersistentListItem>> implements PersistentList, Initializable {
+public abstract class PersistentListBase<T extends Collection<PersistentListItem>> implements QueryablePersistentList,
+		LazyInitializable, MetricsAware {
 	public final static int MAX_ITEM_KEY_LENGTH = 250;
 
+	private static final char SEQUENCE_CURSOR = 's';
+	private static final char PROVIDER_CURSOR = 'p';
+
 	private Log log = LogFactory.getLog(PersistentListBase.class);
 
-	protected final Object syncLock = new Object();
+	protected final ProfiledLock syncLock = new ProfiledLock();
 
 	protected Integer id;
 	protected String key;
 	protected String description;
 	protected PersistentListProvider provider;
 	protected T cachedItems;
-	protected List<String> itemKeys = new ArrayList<String>();
+	protected Collection<String> itemKeys = new ItemKeySet();
+	protected ListMetrics metrics = NullMetricsRegistry.LIST_METRICS;
+	protected ListDurability durability = ListDurability.SYNCHRONOUS;
 	private FireableEventListenerList listenerList = new FireableEventListenerList();
+	private volatile boolean isInitialized = false;
 
 	protected PersistentListBase() {
 	}
@@ -76,33 +92,125 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 	public abstract PersistentListItem getNextAndRemove();
 
 	protected abstract T initializeCache();
+
+	/**
+	 * Creates the collection that the keys of the specified cached items are tracked in, which is used to reject
+	 * duplicate keys.  The default implementation creates a new {@link ItemKeySet} that the keys are added to and
+	 * removed from along with the items.  Caches that index the item keys themselves can return a view of that index
+	 * instead.
+	 * @param items The cached items.
+	 * @return The key collection.
+	 */
+	protected Collection<String> initializeKeys(T items) {
+		return new ItemKeySet();
+	}
 	protected abstract int getItemIndex(PersistentListItem item);
 
+	/**
+	 * Gets the item that {@link #getNext()} would return from the cached items.  This is only called while the list lock
+	 * is held and the cache is not empty.
+	 * @return The next item.
+	 */
+	protected abstract PersistentListItem peekNext();
+
+	/**
+	 * Loads the list items from the provider.  Calling this method more than once has no effect; when called
+	 * concurrently only the first caller loads the items while the others wait for it to complete.
+	 * @should load the items from the provider
+	 * @should only load the items once
+	 * @should not load the items from the provider when the list is memory only
+	 */
 	@Override
 	public void initialize() {
-		log.debug("Initializing the '" + key + "' list...");
+		if (isInitialized) {
+			return;
+		}
 
-		synchronized (syncLock) {
-			// Initialize the cache object, as determined by the subtype.
-			cachedItems = initializeCache();
+		syncLock.lock();
+		try {
+			// Another thread may have initialized the list while this one was waiting for the lock
+			if (isInitialized) {
+				return;
+			}
 
-			// Load the items into the cache
-			Collections.addAll(cachedItems, loadList());
+			log.debug("Initializing the '" + key + "' list...");
 
-			// Load the item keys into the key cache
-			for (PersistentListItem item : cachedItems) {
-				itemKeys.add(item.getKey());
+			// Stream the items directly into a new cache
+			ItemLoader loader = createLoader();
+			if (getIsStored()) {
+				long start = System.nanoTime();
+				ListProviders.getItems(provider, this, loader);
+				recordProviderTime(start);
 			}
+
+			loader.complete();
+		} finally {
+			syncLock.unlock();
 		}
 
 		log.debug("The '" + key + "' has been initialized.");
 	}
 
+	/**
+	 * Replaces the cached items with the items currently stored by the provider.  This is intended for recovering from
+	 * changes made to the stored items outside of the list; no list events are fired for the reloaded items.  Memory
+	 * only lists keep their items.
+	 * @should replace the cached items with the items from the provider
+	 */
+	public void reload() {
+		if (!getIsStored()) {
+			return;
+		}
+
+		log.debug("Reloading the '" + key + "' list...");
+
+		syncLock.lock();
+		try {
+			ItemLoader loader = createLoader();
+			long start = System.nanoTime();
+			ListProviders.getItems(provider, this, loader);
+			recordProviderTime(start);
+
+			cachedItems = loader.items;
+			itemKeys = loader.keys;
+			isInitialized = true;
+
+			recordState();
+		} finally {
+			syncLock.unlock();
+		}
+
+		log.debug("The '" + key + "' list has been reloaded.");
+	}
+
+	@Override
+	public boolean getIsInitialized() {
+		return isInitialized;
+	}
+
 	@Override
 	public void load(PersistentListModel model) {
 		this.id = model.getListId();
 		this.key = model.getKey();
 		this.description = model.getDescription();
+		this.durability = model.getDurability() == null ? ListDurability.SYNCHRONOUS : model.getDurability();
+	}
+
+	public ListDurability getDurability() {
+		return durability;
+	}
+
+	/**
+	 * Sets how the list stores its changes.  This should be set before the list is initialized; a list that stops being
+	 * memory only does not store the items it already has.
+	 * @param durability The list durability.
+	 */
+	public void setDurability(ListDurability durability) {
+		if (durability == null) {
+			throw new IllegalArgumentException("The durability must be defined.");
+		}
+
+		this.durability = durability;
 	}
 
 	@Override
@@ -139,67 +247,154 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 		this.provider = provider;
 	}
 
+	/**
+	 * Sets the registry that the list metrics are recorded in.  This must be called after the list key is set.
+	 * @param registry The metrics registry.
+	 * @should record the list metrics in the registry
+	 */
+	@Override
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		syncLock.lock();
+		try {
+			metrics = registry.getListMetrics(key);
+			if (isInitialized) {
+				recordState();
+			}
+		} finally {
+			syncLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of items currently in the list.
+	 * @return The number of items currently in the list.
+	 * @should load the items when the list has not been initialized
+	 */
 	@Override
 	public int getSize() {
-		return cachedItems.size();
+		ensureInitialized();
+
+		syncLock.lock();
+		try {
+			return cachedItems.size();
+		} finally {
+			syncLock.unlock();
+		}
 	}
 
+	/**
+	 * Adds the items to the end of the list.
+	 * @param items The items to add.
+	 * @should record the added items, list size and latency
+	 * @should record the creation date of the next item
+	 * @should not add the items to the provider when the list is memory only
+	 */
 	@Override
 	public void add(PersistentListItem... items) {
-		PersistentListItem item = null;
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		syncLock.lock();
 		try {
-			synchronized (syncLock) {
+			PersistentListItem item = null;
+			boolean isCached = false;
+			try {
 				for (PersistentListItem listItem : items) {
 					// Store the reference to the current item (in case of an exception)
 					item = listItem;
+					isCached = false;
 
-					if (item.getKey().length() > MAX_ITEM_KEY_LENGTH) {
+					// Keys that are UUIDs are converted to a string by each call so get the key once
+					String itemKey = item.getKey();
+					if (itemKey.length() > MAX_ITEM_KEY_LENGTH) {
 						throw new IllegalArgumentException("The item key must be " + MAX_ITEM_KEY_LENGTH + " characters or less.");
 					}
-					if (itemKeys.contains(item.getKey())) {
-						throw new IllegalArgumentException("An item with the key '" + item.getKey() + "' has already been added to this persistent list.");
+					if (itemKeys.contains(itemKey)) {
+						throw new IllegalArgumentException("An item with the key '" + itemKey + "' has already been added to this persistent list.");
 					}
 
 					// Add the item to the cached items
-					itemKeys.add(item.getKey());
+					itemKeys.add(itemKey);
 					cachedItems.add(item);
+					isCached = true;
 
 					// Add the item to the serviceProvider at the specified index
-					PersistentListItemModel modelItem = createItemModel(item);
-					provider.add(modelItem);
+					if (getIsStored()) {
+						PersistentListItemModel modelItem = createItemModel(item);
+						long providerStart = System.nanoTime();
+						provider.add(modelItem);
+						recordProviderTime(providerStart);
+					}
+				}
+			} catch (Exception ex) {
+				// If there was an exception while trying to add an item ensure that it is no longer in the cache.  This is
+				// done while the lock is still held so that other threads never see the item.  Items that were rejected
+				// before they were cached are not removed, as caches that match items by key would remove the existing item.
+				if (isCached && cachedItems.remove(item)) {
+					itemKeys.remove(item.getKey());
 				}
-			}
 
-			// Fire the add events outside of the synchronized block
-			for (PersistentListItem listItem : items) {
-				fireListEvent(new ListEvent(this, listItem, ListEvent.ListOperation.ADDED));
-			}
-		} catch (Exception ex) {
-			// If there was an exception while trying to add an item ensure that it is no longer in the cache.
-			cachedItems.remove(item);
+				/*
+				TODO: Should the item be removed from the serviceProvider as well, or it is safe to assume that exceptions
+					can only occur before the item is added to the serviceProvider?
+				*/
+
+				/*
+				 TODO: Given that a serviceProvider could throw pretty much any exception type (DB, file system, network, etc),
+				    is it ok to just rethrow it as an Exception?
+				*/
 
-			/*
-			TODO: Should the item be removed from the serviceProvider as well, or it is safe to assume that exceptions
-				can only occur before the item is added to the serviceProvider?
-			*/
+				throw new PersistentListException(ex);
+			}
 
-			/*
-			 TODO: Given that a serviceProvider could throw pretty much any exception type (DB, file system, network, etc),
-			    is it ok to just rethrow it as an Exception?
-			*/
+			recordState();
+		} finally {
+			syncLock.unlock();
+		}
+		metrics.recordAdded(items.length);
+		recordLatency(ListMetrics.Operation.ADD, start);
 
-			throw new PersistentListException(ex);
+		// Fire the add events outside of the synchronized block
+		for (PersistentListItem listItem : items) {
+			fireListEvent(new ListEvent(this, listItem, ListEvent.ListOperation.ADDED));
 		}
 	}
 
+	/**
+	 * Removes the item from the list.
+	 * @param item The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should record the removed item, list size and latency
+	 * @should record how long the removed item was in the list
+	 * @should not report the removal of an absent item when the provider writes changes behind
+	 */
 	@Override
 	public boolean remove(PersistentListItem item) {
+		ensureInitialized();
+
+		long start = System.nanoTime();
 		Boolean wasRemovedFromProvider, wasRemovedFromCache;
-		synchronized (syncLock) {
-			wasRemovedFromProvider = provider.remove(createItemModel(item));
-			wasRemovedFromCache = cachedItems.remove(item);
+		syncLock.lock();
+		try {
+			wasRemovedFromProvider = false;
+			if (getIsStored()) {
+				long providerStart = System.nanoTime();
+				wasRemovedFromProvider = removeStoredItem(item);
+				recordProviderTime(providerStart);
+			}
+
+			wasRemovedFromCache = removeCachedItem(item, wasRemovedFromProvider);
 			itemKeys.remove(item.getKey());
+
+			recordState();
+		} finally {
+			syncLock.unlock();
 		}
+		if (wasRemovedFromCache) {
+			metrics.recordRemoved(1);
+			recordDwellTime(item);
+		}
+		recordLatency(ListMetrics.Operation.REMOVE, start);
 
 		// Fire the remove event outside of the synchronized block
 		if (wasRemovedFromProvider || wasRemovedFromCache) {
@@ -211,12 +406,33 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 		}
 	}
 
+	/**
+	 * Clears all items from the list.
+	 * @should not load the items when the list has not been initialized
+	 */
 	@Override
 	public void clear() {
-		synchronized (syncLock) {
-			provider.clear(this);
-			cachedItems.clear();
-			itemKeys.clear();
+		syncLock.lock();
+		try {
+			if (getIsStored()) {
+				long start = System.nanoTime();
+				provider.clear(this);
+				recordProviderTime(start);
+			}
+
+			// There is no need to load the items just to throw them away
+			if (isInitialized) {
+				cachedItems.clear();
+				itemKeys.clear();
+			} else {
+				cachedItems = initializeCache();
+				itemKeys = initializeKeys(cachedItems);
+				isInitialized = true;
+			}
+
+			recordState();
+		} finally {
+			syncLock.unlock();
 		}
 
 		fireListEvent(new ListEvent(this, null, ListEvent.ListOperation.CLEARED));
@@ -224,7 +440,178 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 
 	@Override
 	public PersistentListItem[] getItems() {
-		return cachedItems.toArray(new PersistentListItem[cachedItems.size()]);
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		try {
+			syncLock.lock();
+			try {
+				return cachedItems.toArray(new PersistentListItem[cachedItems.size()]);
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	/**
+	 * Gets a range of the {@link PersistentListItem}'s in the list in the proper list order.  The range is read from the
+	 * provider if the list has not been initialized rather than loading every item.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The list {@link PersistentListItem}'s in the range.
+	 * @should read the range from the provider when the list has not been initialized
+	 */
+	@Override
+	public PersistentListItem[] getItems(int offset, int limit) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("The offset must be zero or greater.");
+		}
+		if (limit < 0) {
+			throw new IllegalArgumentException("The limit must be zero or greater.");
+		}
+
+		long start = System.nanoTime();
+		try {
+			if (!isInitialized && getIsStored()) {
+				PersistentListItemModel[] models = ListProviders.getItems(provider, this, offset, limit);
+				recordProviderTime(start);
+
+				return createItems(models);
+			}
+
+			ensureInitialized();
+
+			syncLock.lock();
+			try {
+				return readItems(offset, limit);
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	/**
+	 * Gets the page of {@link PersistentListItem}'s that follows the specified cursor, in the proper list order.  Pages
+	 * are read from the provider, using the order of the last item returned, if the list had not been initialized when
+	 * the first page was requested.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should read the pages from the provider when the list has not been initialized
+	 * @should not skip or repeat provider items when items are removed from the head between pages
+	 * @should throw IllegalArgumentException when the limit is less than one
+	 */
+	@Override
+	public PersistentListPage getPage(String cursor, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("The limit must be one or greater.");
+		}
+		if (cursor != null && cursor.length() < 2) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.");
+		}
+
+		if (cursor == null ? !isInitialized && getIsStored() : cursor.charAt(0) == PROVIDER_CURSOR) {
+			long start = System.nanoTime();
+			try {
+				return readProviderPage(cursor, limit);
+			} finally {
+				recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+			}
+		}
+
+		ensureInitialized();
+		long start = System.nanoTime();
+		try {
+			syncLock.lock();
+			try {
+				return readPage(cursor, limit);
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	/**
+	 * Calls the visitor for each item in the list in the proper list order.  The visitor is called while the list lock is
+	 * held so that the cached items can be read without copying them, which means that it should return quickly and must
+	 * not change the list.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 * @should throw IllegalArgumentException when the visitor is null
+	 */
+	@Override
+	public boolean forEach(ListItemVisitor visitor) {
+		if (visitor == null) {
+			throw new IllegalArgumentException("The visitor must be defined.");
+		}
+
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		try {
+			syncLock.lock();
+			try {
+				return visitItems(visitor);
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	@Override
+	public boolean anyMatch(ListItemFilter filter) {
+		return findFirst(filter) != null;
+	}
+
+	@Override
+	public PersistentListItem findFirst(final ListItemFilter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("The filter must be defined.");
+		}
+
+		final PersistentListItem[] match = new PersistentListItem[1];
+		forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				if (filter.matches(item)) {
+					match[0] = item;
+					return false;
+				}
+
+				return true;
+			}
+		});
+
+		return match[0];
+	}
+
+	@Override
+	public int count(final ListItemFilter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("The filter must be defined.");
+		}
+
+		final int[] count = new int[1];
+		forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				if (filter.matches(item)) {
+					count[0]++;
+				}
+
+				return true;
+			}
+		});
+
+		return count[0];
 	}
 
 	@Override
@@ -237,13 +624,245 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 		listenerList.remove(ListEventListener.class, listener);
 	}
 
-	protected PersistentListItem[] loadList() {
-		PersistentListItemModel[] modelItems = provider.getItems(this);
+	/**
+	 * Gets whether the list lock counts its acquisitions and measures its wait and hold times.
+	 * @return {@code true} if the lock is being profiled; otherwise, {@code false}.
+	 */
+	public boolean getIsLockProfilingEnabled() {
+		return syncLock.getIsProfilingEnabled();
+	}
+
+	/**
+	 * Turns the list lock profiling on or off.  This can be changed while the list is in use.
+	 * @param isLockProfilingEnabled {@code true} to profile the lock; otherwise, {@code false}.
+	 */
+	public void setIsLockProfilingEnabled(boolean isLockProfilingEnabled) {
+		syncLock.setIsProfilingEnabled(isLockProfilingEnabled);
+	}
+
+	/**
+	 * Gets the list lock acquisition count and wait and hold times, with the hold time split into the time spent in
+	 * memory and the time spent waiting for the provider.
+	 * @return The lock counters.
+	 * @should split the lock hold time into the memory and provider time
+	 * @should not record the lock when profiling is disabled
+	 */
+	public LockSnapshot getLockSnapshot() {
+		return syncLock.getSnapshot();
+	}
+
+	/**
+	 * Gets the number of event listeners that have been added to the list.
+	 * @return The listener count.
+	 */
+	public int getListenerCount() {
+		return listenerList.getListenerCount(ListEventListener.class);
+	}
+
+	/**
+	 * Creates a new {@link ItemLoader} which can be used to initialize the list from items that have been read by the
+	 * caller, such as when the items for many lists are read from the provider at the same time.
+	 * @return The new {@link ItemLoader}.
+	 */
+	public ItemLoader createLoader() {
+		return new ItemLoader();
+	}
+
+	/**
+	 * Gets whether the list changes are stored by the provider.
+	 * @return {@code false} if the list is memory only; otherwise, {@code true}.
+	 */
+	protected boolean getIsStored() {
+		return durability != ListDurability.MEMORY_ONLY;
+	}
+
+	/**
+	 * Initializes the list if it has not yet been initialized.  This must be called before the cached items are accessed.
+	 */
+	protected void ensureInitialized() {
+		if (!isInitialized) {
+			initialize();
+		}
+	}
+
+	/**
+	 * Gets whether items are added to the front of the list rather than the end, which makes the list order the reverse
+	 * of the order that the items were added in.
+	 * @return {@code true} if the list is last in, first out; otherwise, {@code false}.
+	 */
+	protected boolean getIsLastInFirstOut() {
+		return false;
+	}
+
+	/**
+	 * Records the latency of an operation in the list metrics.
+	 * @param operation The operation.
+	 * @param start The {@link System#nanoTime()} when the operation started.
+	 */
+	protected void recordLatency(ListMetrics.Operation operation, long start) {
+		metrics.recordLatency(operation, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the time spent in a provider call in the list metrics and, when the call was made while holding the list
+	 * lock, in the lock hold time.
+	 * @param start The {@link System#nanoTime()} when the provider call started.
+	 */
+	protected void recordProviderTime(long start) {
+		long nanos = System.nanoTime() - start;
+		metrics.recordLatency(ListMetrics.Operation.PROVIDER, nanos);
+		syncLock.recordProviderTime(nanos);
+	}
+
+	/**
+	 * Records the list size and the creation date of the next item in the list metrics.  This must be called while the
+	 * list lock is held.
+	 */
+	protected void recordState() {
+		int size = cachedItems.size();
+		metrics.recordSize(size);
+
+		PersistentListItem next = size == 0 ? null : peekNext();
+		metrics.recordHead(next == null ? PersistentListItem.NO_DATE : next.getCreatedOnMillis());
+	}
+
+	/**
+	 * Records how long the specified item was in the list before it was removed.
+	 * @param item The removed item.
+	 */
+	protected void recordDwellTime(PersistentListItem item) {
+		long createdOn = item.getCreatedOnMillis();
+		if (createdOn != PersistentListItem.NO_DATE) {
+			metrics.recordDwellTime(System.currentTimeMillis() - createdOn);
+		}
+	}
+
+	/**
+	 * Removes the specified item from the provider.  This is called while the list lock is held, before the item is
+	 * removed from the cached items.  Providers that write changes behind do not know whether they found the item and
+	 * return {@code false}, in which case only the cached items decide whether the item was in the list.
+	 * @param item The item to remove.
+	 * @return {@code true} if the provider removed the item; otherwise, {@code false}.
+	 */
+	protected boolean removeStoredItem(PersistentListItem item) {
+		return provider.remove(createItemModel(item));
+	}
+
+	/**
+	 * Removes the specified item from the cached items.  This is called while the list lock is held, after the item has
+	 * been removed from the provider.  Caches that do not hold every item can use the provider result to account for
+	 * items that are only stored by the provider.
+	 * @param item The item to remove.
+	 * @param wasRemovedFromProvider Whether the provider removed the item.
+	 * @return {@code true} if the item was removed from the list; otherwise, {@code false}.
+	 */
+	protected boolean removeCachedItem(PersistentListItem item, boolean wasRemovedFromProvider) {
+		return cachedItems.remove(item);
+	}
+
+	/**
+	 * Gets a range of the cached items in list order.  This is called while the list lock is held.  The default
+	 * implementation walks the cached items up to the end of the range; lists with an indexed cache should override this
+	 * to copy only the range.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The cached items in the range.
+	 */
+	protected PersistentListItem[] readItems(int offset, int limit) {
+		int start = Math.min(offset, cachedItems.size());
+		PersistentListItem[] items = new PersistentListItem[Math.min(limit, cachedItems.size() - start)];
+
+		int index = 0;
+		for (PersistentListItem item : cachedItems) {
+			if (index >= start + items.length) {
+				break;
+			}
+			if (index >= start) {
+				items[index - start] = item;
+			}
+			index++;
+		}
+
+		return items;
+	}
+
+	/**
+	 * Calls the visitor for each cached item in list order.  This is called while the list lock is held.  Lists whose
+	 * cache is not in list order, or does not hold every item, should override this.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 */
+	protected boolean visitItems(ListItemVisitor visitor) {
+		for (PersistentListItem item : cachedItems) {
+			if (!visitor.visit(item)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
 
-		PersistentListItem[] items = new PersistentListItem[modelItems.length];
-		int i = 0;
-		for (PersistentListItemModel model : modelItems) {
-			items[i++] = createItem(model);
+	/**
+	 * Gets the page of cached items that follows the specified cursor.  This is called while the list lock is held.  The
+	 * default implementation finds the position of the cursor with
+	 * {@link PersistentLists#getCursorStart(Iterable, int, String)}, which searches for the item whose key has the hash
+	 * held in the cursor, closest to the index of that item, and falls back to the index if the item has since been
+	 * removed.  The cursor does not hold the key itself.  Lists with an indexed cache should override this to use
+	 * {@link #createSequenceCursor(long)} based cursors.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should not put the item keys in the cursor
+	 */
+	protected PersistentListPage readPage(String cursor, int limit) {
+		int size = cachedItems.size();
+
+		int start = 0;
+		if (cursor != null) {
+			start = PersistentLists.getCursorStart(cachedItems, size, cursor);
+		}
+
+		PersistentListItem[] items = readItems(start, limit);
+		int end = start + items.length;
+		String nextCursor = null;
+		if (end < size) {
+			nextCursor = PersistentLists.createCursor(end - 1, items[items.length - 1]);
+		}
+
+		return new PersistentListPage(items, nextCursor);
+	}
+
+	/**
+	 * Creates a cursor for the item with the specified sequence number.
+	 * @param sequence The sequence number of the last item in the page.
+	 * @return The cursor.
+	 */
+	protected static String createSequenceCursor(long sequence) {
+		return SEQUENCE_CURSOR + Long.toString(sequence, Character.MAX_RADIX);
+	}
+
+	/**
+	 * Gets the item sequence number from a cursor created by {@link #createSequenceCursor(long)}.
+	 * @param cursor The cursor.
+	 * @return The item sequence number.
+	 * @throws IllegalArgumentException The cursor is not a sequence cursor.
+	 */
+	protected static long parseSequenceCursor(String cursor) {
+		if (cursor.charAt(0) != SEQUENCE_CURSOR) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.");
+		}
+
+		try {
+			return Long.parseLong(cursor.substring(1), Character.MAX_RADIX);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.", ex);
+		}
+	}
+
+	protected PersistentListItem[] createItems(PersistentListItemModel[] models) {
+		PersistentListItem[] items = new PersistentListItem[models.length];
+		for (int i = 0; i < models.length; i++) {
+			items[i] = createItem(models[i]);
 		}
 
 		return items;
@@ -251,15 +870,21 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 
 	protected PersistentListItem createItem(PersistentListItemModel model) {
 		return new PersistentListItem(model.getItemId(), model.getItemKey(),
-				model.getCreator(), model.getDateCreated());
+				model.getCreatorId(), model.getDateCreatedMillis());
 	}
 
 	protected PersistentListItemModel createItemModel(PersistentListItem item) {
-		return new PersistentListItemModel(this, item.getKey(), getItemIndex(item), item.getCreator(),
-				item.getCreatedOn());
+		return new PersistentListItemModel(this, item.getKey(), getItemIndex(item), item.getCreatorId(),
+				item.getCreatedOnMillis());
 	}
 
+	/**
+	 * Notifies the list event listeners of the specified event and records how long the listeners took.
+	 * @param event The event.
+	 * @should record the event dispatch time
+	 */
 	protected void fireListEvent(final ListEvent event) {
+		long start = System.nanoTime();
 		listenerList.fire(ListEventListener.class, new EventRaiser<ListEventListener>() {
 			@Override
 			public void fire(ListEventListener listener) {
@@ -276,6 +901,93 @@ public abstract class PersistentListBase<T extends Collection<PersistentListItem
 				}
 			}
 		});
+		recordLatency(ListMetrics.Operation.EVENTS, start);
 	}
-}
 
+	/**
+	 * Reads the page of items that follows the specified provider cursor from the provider.  The cursor holds the id of
+	 * the last item returned, which unlike the item order does not change when items are added or removed, and the next
+	 * cursor is always a provider cursor.
+	 * @param cursor The provider cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 */
+	protected PersistentListPage readProviderPage(String cursor, int limit) {
+		Integer itemId = null;
+		if (cursor != null) {
+			itemId = parseCursorNumber(cursor, 1, cursor.length());
+		}
+
+		long start = System.nanoTime();
+		PersistentListItemModel[] models =
+				ListProviders.getItemsAfter(provider, this, itemId, getIsLastInFirstOut(), limit);
+		recordProviderTime(start);
+
+		// The provider does not report whether there are more items so assume there are when the page is full
+		String nextCursor = null;
+		if (models.length == limit) {
+			nextCursor = PROVIDER_CURSOR + Integer.toString(models[models.length - 1].getItemId());
+		}
+
+		return new PersistentListPage(createItems(models), nextCursor);
+	}
+
+	private static int parseCursorNumber(String cursor, int start, int end) {
+		try {
+			return Integer.parseInt(cursor.substring(start, end));
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.", ex);
+		}
+	}
+
+	/**
+	 * Builds a new item cache from items that are passed to it in list order.  The list is initialized with the cached
+	 * items once {@link #complete()} is called unless it has already been initialized by some other means.
+	 */
+	public class ItemLoader implements ListItemModelHandler {
+		private final T items;
+		private final Collection<String> keys;
+
+		protected ItemLoader() {
+			// Initialize the cache object, as determined by the subtype.
+			items = initializeCache();
+			keys = initializeKeys(items);
+		}
+
+		/**
+		 * Adds the specified item to the end of the cache.
+		 * @param model The item to add.
+		 */
+		@Override
+		public void handle(PersistentListItemModel model) {
+			add(createItem(model));
+		}
+
+		/**
+		 * Adds the specified item to the end of the cache.
+		 * @param item The item to add.
+		 */
+		public void add(PersistentListItem item) {
+			items.add(item);
+			keys.add(item.getKey());
+		}
+
+		/**
+		 * Initializes the list with the loaded items.
+		 */
+		public void complete() {
+			syncLock.lock();
+			try {
+				if (!isInitialized) {
+					cachedItems = items;
+					itemKeys = keys;
+					isInitialized = true;
+
+					recordState();
+				}
+			} finally {
+				syncLock.unlock();
+			}
+		}
+	}
+}
@@ -22,27 +22,81 @@ import org.openhmis.commons.FireableEventListenerList;
 import org.openhmis.commons.Initializable;
 import org.openhmis.commons.Utility;
 import org.openmrs.module.openhmis.plm.*;
+import org.openmrs.module.openhmis.plm.jmx.PersistentListMXBeanImpl;
+import org.openmrs.module.openhmis.plm.jmx.PersistentListServiceMXBeanImpl;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.ProfiledLock;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 import org.openmrs.module.openhmis.plm.model.PersistentListModel;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
 	This type is a synchronized list manager.  Read operations are not synchronized so that they operate as fast as
 	possible while ensureList may acquire a lock if the list is new and removeList will always acquire a lock if the
-	list is found.
+	list is found.  The lists are stored in a concurrent map so that the unsynchronized reads are safe.
+
+	Only the list definitions are loaded at startup; lists that support lazy initialization load their items the first
+	time they are accessed unless their key has been added to the preloaded list keys or all lists are preloaded.
+	Preloaded lists can be initialized in parallel by setting the startup thread count; the service is not marked as
+	loaded until every preloaded list has been initialized.  When all lists are preloaded and the list provider is a
+	{@link BulkListProvider} the items for every list are read in a single pass instead.
+
+	Each list and the list provider record their metrics in the service {@link MetricsRegistry}, which defaults to a
+	{@link MemoryMetricsRegistry}.
+
+	When an {@link MBeanServer} is set the service registers an MBean for itself and one for each list, which are
+	unregistered when the list is removed or the service is shut down.
+
+	Each list stores its changes according to its {@link ListDurability}: synchronous lists use the list provider,
+	group commit lists use a {@link WriteBehindListProvider} that wraps the list provider, and memory only lists do not
+	store their items at all.  The queued list changes are stored when the service is shut down.
+
+	The service and list locks can be profiled at runtime to count their acquisitions and measure how long they are
+	waited for and held; the hold time of the service lock counts the service provider calls and the loading of list
+	items at startup as provider time.
  */
 public class PersistentListServiceImpl implements PersistentListService {
 	public final static int MAX_LIST_KEY_LENGTH = 250;
 
 	private final Log log = LogFactory.getLog(PersistentListServiceImpl.class);
-	private final Object syncLock = new Object();
+	private final ProfiledLock syncLock = new ProfiledLock();
 
-	private Map<String, PersistentList> lists = new HashMap<String, PersistentList>();
+	private Map<String, PersistentList> lists = new ConcurrentHashMap<String, PersistentList>();
 	private FireableEventListenerList listenerList = new FireableEventListenerList();
-	private boolean isLoaded = false;
+	private Set<String> preloadListKeys = new HashSet<String>();
+	private boolean preloadAllLists = false;
+	private int startupThreadCount = 1;
+	private boolean bulkLoadLists = true;
+	private boolean isUuidKeyEncodingEnabled = false;
+	private volatile boolean isLoaded = false;
+	private MetricsRegistry metricsRegistry = new MemoryMetricsRegistry();
+	private MBeanServer mbeanServer;
+	private volatile WriteBehindListProvider writeBehindProvider;
 
 	protected PersistentListServiceProvider serviceProvider;
 	protected PersistentListProvider listProvider;
@@ -52,6 +106,8 @@ public class PersistentListServiceImpl implements PersistentListService {
 		this.serviceProvider = serviceProvider;
 		this.listProvider = listProvider;
 		this.isLoaded = false;
+
+		applyMetricsRegistry(listProvider);
 	}
 
 	/**
@@ -59,15 +115,70 @@ public class PersistentListServiceImpl implements PersistentListService {
 	 * @should set isLoaded to true when complete
 	 * @should attempt to load lists
 	 * @should add any existing lists to the lists map
+	 * @should not load the items of lazy lists
+	 * @should load the items of preloaded lists
+	 * @should load the items of all lists when preloading all lists
+	 * @should load the items of all lists when using multiple startup threads
+	 * @should throw PersistentListException when a list cannot be initialized in parallel
+	 * @should load the items of all lists in a single pass when the provider supports bulk loading
+	 * @should not bulk load when only some lists are preloaded
+	 * @should apply the uuid key encoding setting before loading lists
 	 */
 	@Override
 	public void onStartup() {
+		// The key encoding is read once, before any item or key set is created, so that every list holds its keys the
+		// same way
+		UuidKeyCodec.setIsEncodingEnabled(isUuidKeyEncodingEnabled);
+
 		// Load lists from the database
 		loadLists();
+
+		registerMBean(PersistentListServiceMXBeanImpl.OBJECT_NAME, new PersistentListServiceMXBeanImpl(this));
+		for (PersistentList list : lists.values()) {
+			registerListMBean(list);
+		}
 	}
 
+	/**
+	 * Shuts down the {@link PersistentListService}.
+	 * @should unregister the service and list MBeans
+	 * @should store the queued changes when the list provider writes behind
+	 * @should store the queued changes of group commit lists
+	 * @should close the providers that are closeable
+	 */
 	@Override
 	public void onShutdown() {
+		WriteBehindListProvider provider = Utility.as(WriteBehindListProvider.class, listProvider);
+		if (provider != null) {
+			provider.shutdown();
+			close(provider.getProvider());
+		} else {
+			close(listProvider);
+		}
+		if (writeBehindProvider != null && writeBehindProvider != provider) {
+			writeBehindProvider.shutdown();
+			if (writeBehindProvider.getProvider() != listProvider) {
+				close(writeBehindProvider.getProvider());
+			}
+		}
+		close(serviceProvider);
+
+		for (String key : lists.keySet()) {
+			unregisterMBean(PersistentListMXBeanImpl.createObjectName(key));
+		}
+		unregisterMBean(PersistentListServiceMXBeanImpl.OBJECT_NAME);
+	}
+
+	private void close(Object provider) {
+		// Providers that keep files open, such as the log file providers, are closed so that their changes are forced
+		Closeable closeable = Utility.as(Closeable.class, provider);
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException ex) {
+				log.error("An exception occurred while attempting to close the provider.", ex);
+			}
+		}
 	}
 
 	/**
@@ -80,6 +191,7 @@ public class PersistentListServiceImpl implements PersistentListService {
 	 * @should add new list when not existing
 	 * @should not add or update new list when existing key
 	 * @should return list by key
+	 * @should return the new list when the list is created
 	 * @should return null for undefined keys
 	 * @should allow a key that is less than 251 characters
 	 * @should throw IllegalArgumentException with empty key
@@ -109,15 +221,18 @@ public class PersistentListServiceImpl implements PersistentListService {
 
         //If not defined, synchronize and check again (double-check locking)
         if (list == null) {
-	        synchronized (syncLock){
+	        syncLock.lock();
+	        try {
 		        list = lists.get(key);
 		        if (list == null) {
 			        log.debug("Could not find the '" + key + "' list.  Creating a new list...");
 
-			        createList(listClass, key, description);
+			        list = createList(listClass, key, description);
 
 			        log.debug("The '" + key + "' list was created.");
 		        }
+	        } finally {
+		        syncLock.unlock();
 	        }
         }
 
@@ -137,9 +252,30 @@ public class PersistentListServiceImpl implements PersistentListService {
 	 * @should allow a key that is less than 251 characters
 	 * @should throw IllegalStateException when called before service is loaded
 	 * @should throw IllegalArgumentException if key is longer than 250 characters
+	 * @should record the list metrics in the service registry
+	 * @should register an MBean for the list
 	 */
 	@Override
 	public <T extends PersistentList> PersistentList createList(Class<T> listClass, String key, String description) {
+		return createList(listClass, key, description, ListDurability.SYNCHRONOUS);
+	}
+
+	/**
+	 * Creates a new list of the specified type with the specified key and durability.
+	 * @param listClass The list type to create.
+	 * @param key The list key.
+	 * @param description An optional description of the list purpose.
+	 * @param durability How the list stores its changes.
+	 * @param <T> A type that implements the {@link PersistentList} interface.
+	 * @return The newly created {@link PersistentList}.
+	 * @should store the list durability
+	 * @should not store the items of memory only lists
+	 * @should queue the changes of group commit lists
+	 * @should throw IllegalArgumentException when the durability is null
+	 */
+	@Override
+	public <T extends PersistentList> PersistentList createList(Class<T> listClass, String key, String description,
+	                                                            ListDurability durability) {
 		if (!isLoaded) {
 			throw new IllegalStateException("The service must be loaded via onStartup() before being used.");
 		}
@@ -153,11 +289,15 @@ public class PersistentListServiceImpl implements PersistentListService {
 		if (key.length() > MAX_LIST_KEY_LENGTH) {
 			throw new IllegalArgumentException("The list key must be " + MAX_LIST_KEY_LENGTH + " characters or less.");
 		}
+		if (durability == null) {
+			throw new IllegalArgumentException("The list durability must be defined.");
+		}
 
 		log.debug("Creating the '" + key + "' list...");
 
 		PersistentList list = null;
-		synchronized (syncLock) {
+		syncLock.lock();
+		try {
 			// Make sure no other list with the specified key exists
 			if (lists.containsKey(key)) {
 				throw new IllegalArgumentException("A list with the key '" + key + "'" +
@@ -166,19 +306,26 @@ public class PersistentListServiceImpl implements PersistentListService {
 
 			// Create list model
 			PersistentListModel model = new PersistentListModel(null, key, listClass.getName(), description,
-					new Date());
+					new Date(), durability);
 
 			// Persist the list model
+			long start = System.nanoTime();
 			serviceProvider.addList(model);
+			syncLock.recordProviderTime(System.nanoTime() - start);
 
 			// Create list instance and load properties from model
 			list = createList(model);
+			initializeList(list, false);
 
 			// Add the list to the service list and key caches
 			lists.put(list.getKey(), list);
 			lists.put(key, list);
+		} finally {
+			syncLock.unlock();
 		}
 
+		registerListMBean(list);
+
 		fireServiceEvent(new ListServiceEvent(this, list, ListServiceEvent.ServiceOperation.ADDED));
 
 		log.debug("The '" + key + "' was created.");
@@ -195,6 +342,10 @@ public class PersistentListServiceImpl implements PersistentListService {
 	 * @should not fire listRemoved event when list not found
 	 * @should reference correct service and list in listRemoved event
 	 * @should throw IllegalStateException when called before service is loaded
+	 * @should remove the list metrics from the service registry
+	 * @should unregister the list MBean
+	 * @should clear the stored items of the list
+	 * @should not clear the items of a memory only list
 	 */
 	@Override
     public void removeList(String key) {
@@ -206,11 +357,23 @@ public class PersistentListServiceImpl implements PersistentListService {
 	    if (list != null) {
 		    log.debug("Deleting the " + key + "list...");
 
-		    synchronized (syncLock) {
+		    syncLock.lock();
+		    try {
+			    long start = System.nanoTime();
+			    // List ids are not reused so the stored items of the list would otherwise never be removed
+			    if (isStored(list)) {
+				    list.getProvider().clear(list);
+			    }
 			    serviceProvider.removeList(key);
+			    syncLock.recordProviderTime(System.nanoTime() - start);
 			    lists.remove(key);
+			    metricsRegistry.removeListMetrics(key);
+		    } finally {
+			    syncLock.unlock();
 		    }
 
+		    unregisterMBean(PersistentListMXBeanImpl.createObjectName(key));
+
 		    fireServiceEvent(new ListServiceEvent(this, list, ListServiceEvent.ServiceOperation.REMOVED));
 
 		    log.debug("The '" + key + "' list was deleted.");
@@ -270,16 +433,285 @@ public class PersistentListServiceImpl implements PersistentListService {
 		listenerList.remove(ListServiceEventListener.class, listener);
 	}
 
+	/**
+	 * Replaces the cached items of the specified list with the items currently stored by the list provider.
+	 * @param key The list key.
+	 * @should reload the list items from the provider
+	 * @should throw IllegalArgumentException when the list is not found
+	 */
+	public void reloadList(String key) {
+		PersistentList list = getList(key);
+		if (list == null) {
+			throw new IllegalArgumentException("The '" + key + "' list could not be found.");
+		}
+
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+		if (listBase == null) {
+			throw new UnsupportedOperationException("The '" + key + "' list does not support being reloaded.");
+		}
+
+		listBase.reload();
+	}
+
+	/**
+	 * Gets the number of service event listeners.
+	 * @return The listener count.
+	 */
+	public int getListenerCount() {
+		return listenerList.getListenerCount(ListServiceEventListener.class);
+	}
+
 	public Boolean getIsLoaded() {
 		return isLoaded;
 	}
 
+	/**
+	 * Gets the keys of the lists whose items are loaded during startup rather than when the list is first accessed.
+	 * @return The preloaded list keys.
+	 */
+	public Set<String> getPreloadListKeys() {
+		return preloadListKeys;
+	}
+
+	/**
+	 * Sets the keys of the lists whose items are loaded during startup rather than when the list is first accessed.
+	 * This is intended for frequently used lists where the first request should not have to wait for the items to load.
+	 * @param preloadListKeys The preloaded list keys.
+	 */
+	public void setPreloadListKeys(Collection<String> preloadListKeys) {
+		this.preloadListKeys = new HashSet<String>();
+		if (preloadListKeys != null) {
+			this.preloadListKeys.addAll(preloadListKeys);
+		}
+	}
+
+	/**
+	 * Gets whether the items of every list are loaded during startup.
+	 * @return {@code true} if all lists are preloaded; otherwise, {@code false}.
+	 */
+	public boolean getPreloadAllLists() {
+		return preloadAllLists;
+	}
+
+	/**
+	 * Sets whether the items of every list are loaded during startup.
+	 * @param preloadAllLists {@code true} to preload all lists; otherwise, {@code false}.
+	 */
+	public void setPreloadAllLists(boolean preloadAllLists) {
+		this.preloadAllLists = preloadAllLists;
+	}
+
+	/**
+	 * Gets the maximum number of lists that are initialized concurrently during startup.
+	 * @return The startup thread count.
+	 */
+	public int getStartupThreadCount() {
+		return startupThreadCount;
+	}
+
+	/**
+	 * Sets the maximum number of lists that are initialized concurrently during startup.  Each thread holds a
+	 * database connection while it loads a list so this should be kept below the size of the connection pool; a good
+	 * starting point is the smaller of the number of processors and half of the connection pool size.
+	 * @param startupThreadCount The startup thread count.  Values less than 1 initialize the lists on the calling thread.
+	 */
+	public void setStartupThreadCount(int startupThreadCount) {
+		this.startupThreadCount = startupThreadCount;
+	}
+
+	/**
+	 * Gets whether the items for all lists are read in a single pass when all lists are preloaded and the list provider
+	 * is a {@link BulkListProvider}.
+	 * @return {@code true} if the lists are bulk loaded; otherwise, {@code false}.
+	 */
+	public boolean getBulkLoadLists() {
+		return bulkLoadLists;
+	}
+
+	/**
+	 * Sets whether the items for all lists are read in a single pass when all lists are preloaded and the list provider
+	 * is a {@link BulkListProvider}.
+	 * @param bulkLoadLists {@code true} to bulk load the lists; otherwise, {@code false}.
+	 */
+	public void setBulkLoadLists(boolean bulkLoadLists) {
+		this.bulkLoadLists = bulkLoadLists;
+	}
+
+	/**
+	 * Gets whether the items and key sets of every list hold keys that are UUIDs as two longs rather than as strings.
+	 * @return {@code true} if UUID keys are encoded in memory; otherwise, {@code false}.
+	 */
+	public boolean getIsUuidKeyEncodingEnabled() {
+		return isUuidKeyEncodingEnabled;
+	}
+
+	/**
+	 * Sets whether the items and key sets of every list hold keys that are UUIDs as two longs rather than as strings.
+	 * This is a module setting that is read once when the service starts; changing it afterwards has no effect until the
+	 * service is restarted.
+	 * @param isUuidKeyEncodingEnabled {@code true} to encode UUID keys in memory; otherwise, {@code false}.
+	 */
+	public void setIsUuidKeyEncodingEnabled(boolean isUuidKeyEncodingEnabled) {
+		this.isUuidKeyEncodingEnabled = isUuidKeyEncodingEnabled;
+	}
+
 	public void setServiceProvider(PersistentListServiceProvider serviceProvider) {
 		this.serviceProvider = serviceProvider;
 	}
 
+	public PersistentListProvider getListProvider() {
+		return listProvider;
+	}
+
 	public void setListProvider(PersistentListProvider listProvider) {
 		this.listProvider = listProvider;
+		this.writeBehindProvider = null;
+
+		applyMetricsRegistry(listProvider);
+	}
+
+	/**
+	 * Gets the provider that queues the changes of group commit lists.  When the list provider already writes changes
+	 * behind it is used for every list.
+	 * @return The write behind provider or {@code null} if no list writes its changes behind.
+	 */
+	public WriteBehindListProvider getWriteBehindProvider() {
+		WriteBehindListProvider provider = Utility.as(WriteBehindListProvider.class, listProvider);
+
+		return provider != null ? provider : writeBehindProvider;
+	}
+
+	/**
+	 * Sets the provider that queues the changes of group commit lists, which is used to change its flush settings.  The
+	 * provider should write the changes to the list provider.  This must be set before the service is started.
+	 * @param writeBehindProvider The write behind provider.
+	 */
+	public void setWriteBehindProvider(WriteBehindListProvider writeBehindProvider) {
+		this.writeBehindProvider = writeBehindProvider;
+	}
+
+	/**
+	 * Gets the registry that the lists and the list provider record their metrics in.
+	 * @return The metrics registry.
+	 */
+	@Override
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Sets the registry that the lists and the list provider record their metrics in.  This should be set before the
+	 * service is started; lists that are already loaded keep recording their metrics in the previous registry.
+	 * @param metricsRegistry The metrics registry.
+	 */
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		if (metricsRegistry == null) {
+			throw new IllegalArgumentException("The metrics registry must be defined.");
+		}
+
+		this.metricsRegistry = metricsRegistry;
+
+		applyMetricsRegistry(listProvider);
+	}
+
+	/**
+	 * Gets whether the service and list locks count their acquisitions and measure their wait and hold times.
+	 * @return {@code true} if the locks are being profiled; otherwise, {@code false}.
+	 */
+	public boolean getIsLockProfilingEnabled() {
+		return syncLock.getIsProfilingEnabled();
+	}
+
+	/**
+	 * Turns the service and list lock profiling on or off.  This can be changed while the service is in use and also
+	 * applies to the lists that are created later.
+	 * @param isLockProfilingEnabled {@code true} to profile the locks; otherwise, {@code false}.
+	 * @should turn the lock profiling of every list on or off
+	 * @should apply the lock profiling setting to new lists
+	 */
+	public void setIsLockProfilingEnabled(boolean isLockProfilingEnabled) {
+		syncLock.setIsProfilingEnabled(isLockProfilingEnabled);
+
+		for (PersistentList list : lists.values()) {
+			applyLockProfiling(list);
+		}
+	}
+
+	/**
+	 * Gets the service lock acquisition count and wait and hold times.
+	 * @return The service lock counters.
+	 */
+	public LockSnapshot getLockSnapshot() {
+		return syncLock.getSnapshot();
+	}
+
+	/**
+	 * Gets the server that the service and list MBeans are registered with.
+	 * @return The MBean server or {@code null} if the MBeans are not registered.
+	 */
+	public MBeanServer getMbeanServer() {
+		return mbeanServer;
+	}
+
+	/**
+	 * Sets the server that the service and list MBeans are registered with.  This must be set before the service is
+	 * started.
+	 * @param mbeanServer The MBean server or {@code null} to not register the MBeans.
+	 */
+	public void setMbeanServer(MBeanServer mbeanServer) {
+		this.mbeanServer = mbeanServer;
+	}
+
+	private void registerListMBean(PersistentList list) {
+		registerMBean(PersistentListMXBeanImpl.createObjectName(list.getKey()), new PersistentListMXBeanImpl(this, list));
+	}
+
+	/**
+	 * Registers the MBean, replacing any MBean that is already registered with the same name.  Failures are logged rather
+	 * than thrown so that monitoring problems do not affect the lists.
+	 */
+	private void registerMBean(ObjectName name, Object mbean) {
+		if (mbeanServer == null) {
+			return;
+		}
+
+		try {
+			if (mbeanServer.isRegistered(name)) {
+				mbeanServer.unregisterMBean(name);
+			}
+
+			mbeanServer.registerMBean(mbean, name);
+		} catch (Exception ex) {
+			log.warn("Could not register the '" + name + "' MBean.", ex);
+		}
+	}
+
+	private void unregisterMBean(ObjectName name) {
+		if (mbeanServer == null) {
+			return;
+		}
+
+		try {
+			mbeanServer.unregisterMBean(name);
+		} catch (InstanceNotFoundException ex) {
+			// The MBean was not registered or has already been removed
+		} catch (Exception ex) {
+			log.warn("Could not unregister the '" + name + "' MBean.", ex);
+		}
+	}
+
+	private void applyLockProfiling(PersistentList list) {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+		if (listBase != null) {
+			listBase.setIsLockProfilingEnabled(syncLock.getIsProfilingEnabled());
+		}
+	}
+
+	private void applyMetricsRegistry(Object target) {
+		MetricsAware metricsAware = Utility.as(MetricsAware.class, target);
+		if (metricsAware != null) {
+			metricsAware.setMetricsRegistry(metricsRegistry);
+		}
 	}
 
 	private void fireServiceEvent(final ListServiceEvent event) {
@@ -302,32 +734,46 @@ public class PersistentListServiceImpl implements PersistentListService {
 		log.debug("Loading the configured lists from the serviceProvider...");
 
 		// Lock access so that list requests will not proceed until loaded
-		synchronized (syncLock) {
+		syncLock.lock();
+		try {
+			List<PersistentList> preloadLists = new ArrayList<PersistentList>();
+
+			long start = System.nanoTime();
 			PersistentListModel[] listModels = serviceProvider.getLists();
+			syncLock.recordProviderTime(System.nanoTime() - start);
 			for (PersistentListModel listModel : listModels) {
 				PersistentList list = createList(listModel);
 
 				if (list != null) {
+					if (preloadAllLists || preloadListKeys.contains(list.getKey())) {
+						preloadLists.add(list);
+					} else {
+						initializeList(list, false);
+					}
+
 					lists.put(list.getKey(), list);
 				}
 			}
 
+			start = System.nanoTime();
+			BulkListProvider bulkProvider = Utility.as(BulkListProvider.class, listProvider);
+			if (preloadAllLists && bulkLoadLists && bulkProvider != null) {
+				bulkInitializeLists(bulkProvider, preloadLists);
+			} else {
+				initializeLists(preloadLists);
+			}
+			syncLock.recordProviderTime(System.nanoTime() - start);
+
 			isLoaded = true;
+		} finally {
+			syncLock.unlock();
 		}
 
 		log.debug("Loaded " + lists.size() + " lists.");
 	}
 
 	protected PersistentList createList(PersistentListModel model) {
-		Class listClass = null;
-
-		// Load the list class
-		try {
-			listClass = Class.forName(model.getListProvider());
-		} catch (Exception ex) {
-			log.error("Could not load the '" + model.getListProvider() + "' list type.", ex);
-		}
-
+		Class<?> listClass = loadListClass(model);
 		if (listClass == null) {
 			// The list class could not be loaded so just return null
 			return null;
@@ -337,12 +783,9 @@ public class PersistentListServiceImpl implements PersistentListService {
 		try {
 			list = (PersistentList)listClass.newInstance();
 			list.load(model);
-			list.setProvider(listProvider);
-
-			Initializable init = Utility.as(Initializable.class, list);
-			if (init != null) {
-				init.initialize();
-			}
+			list.setProvider(getListProvider(model.getDurability()));
+			applyMetricsRegistry(list);
+			applyLockProfiling(list);
 		} catch (InstantiationException e) {
 			log.error("Could not create new instance of " + listClass.getName() +
 					" because the class could not be instantiated", e);
@@ -356,7 +799,197 @@ public class PersistentListServiceImpl implements PersistentListService {
 		}
 
 		return list;
+	}
+
+	/**
+	 * Gets the provider that stores the changes of lists with the specified durability.  Memory only lists are given the
+	 * list provider even though they do not use it.
+	 * @param durability The list durability.
+	 * @return The list provider.
+	 */
+	protected PersistentListProvider getListProvider(ListDurability durability) {
+		if (durability != ListDurability.GROUP_COMMIT) {
+			return listProvider;
+		}
 
+		WriteBehindListProvider provider = getWriteBehindProvider();
+		if (provider == null) {
+			syncLock.lock();
+			try {
+				provider = writeBehindProvider;
+				if (provider == null) {
+					provider = new WriteBehindListProvider(listProvider);
+					writeBehindProvider = provider;
+				}
+			} finally {
+				syncLock.unlock();
+			}
+		}
+
+		return provider;
 	}
-}
 
+	/**
+	 * Loads the list type of the specified list.
+	 * @param model The list model.
+	 * @return The list type or {@code null} if the type could not be loaded.
+	 */
+	protected Class<?> loadListClass(PersistentListModel model) {
+		try {
+			return Class.forName(model.getListProvider());
+		} catch (Exception ex) {
+			log.error("Could not load the '" + model.getListProvider() + "' list type.", ex);
+
+			return null;
+		}
+	}
+
+	/**
+	 * Initializes the specified list.  Lists that support lazy initialization are left to load their items when they are
+	 * first accessed unless {@code preload} is {@code true}.
+	 * @param list The list to initialize.
+	 * @param preload {@code true} to load the list items now; otherwise, {@code false}.
+	 */
+	protected void initializeList(PersistentList list, boolean preload) {
+		Initializable init = Utility.as(Initializable.class, list);
+		if (init == null) {
+			return;
+		}
+
+		if (preload || Utility.as(LazyInitializable.class, list) == null) {
+			init.initialize();
+		}
+	}
+
+	/**
+	 * Loads the items of the specified lists, using up to the startup thread count threads.  This method does not return
+	 * until all the lists have been initialized.
+	 * @param preloadLists The lists to initialize.
+	 */
+	protected void initializeLists(List<PersistentList> preloadLists) {
+		int threadCount = Math.min(startupThreadCount, preloadLists.size());
+		if (threadCount <= 1) {
+			for (PersistentList list : preloadLists) {
+				initializeList(list, true);
+			}
+
+			return;
+		}
+
+		log.debug("Initializing " + preloadLists.size() + " lists using " + threadCount + " threads...");
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new StartupThreadFactory());
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(preloadLists.size());
+			for (final PersistentList list : preloadLists) {
+				tasks.add(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						initializeList(list, true);
+
+						return null;
+					}
+				});
+			}
+
+			// Wait for all the lists to finish so that the service is only marked as loaded once they are all ready
+			PersistentListException failure = null;
+			List<Future<Object>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					results.get(i).get();
+				} catch (ExecutionException ex) {
+					log.error("Could not initialize the '" + preloadLists.get(i).getKey() + "' list.", ex.getCause());
+
+					if (failure == null) {
+						failure = new PersistentListException("An exception occurred while attempting to initialize the '" +
+								preloadLists.get(i).getKey() + "' list.", ex.getCause());
+					}
+				}
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+
+			throw new PersistentListException("The list initialization was interrupted.", ex);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		log.debug("Initialized " + preloadLists.size() + " lists.");
+	}
+
+	/**
+	 * Loads the items of the specified lists by reading the items of every list from the provider in a single pass and
+	 * routing each item to its list.  Lists that cannot be loaded this way are initialized individually.
+	 * @param bulkProvider The provider to read the items from.
+	 * @param preloadLists The lists to initialize.
+	 */
+	protected void bulkInitializeLists(BulkListProvider bulkProvider, List<PersistentList> preloadLists) {
+		log.debug("Bulk loading the items for " + preloadLists.size() + " lists...");
+
+		final Map<Integer, PersistentListBase<?>.ItemLoader> loaders =
+				new HashMap<Integer, PersistentListBase<?>.ItemLoader>(preloadLists.size());
+		List<PersistentList> otherLists = new ArrayList<PersistentList>();
+		for (PersistentList list : preloadLists) {
+			PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+			if (listBase != null && list.getId() != null && listBase.getDurability() != ListDurability.MEMORY_ONLY &&
+					(list.getProvider() == bulkProvider || isWrittenBehindTo(list.getProvider(), bulkProvider))) {
+				loaders.put(list.getId(), listBase.createLoader());
+			} else {
+				otherLists.add(list);
+			}
+		}
+
+		bulkProvider.getAllItems(new ListItemModelHandler() {
+			@Override
+			public void handle(PersistentListItemModel item) {
+				PersistentListBase<?>.ItemLoader loader = loaders.get(item.getListId());
+				if (loader != null) {
+					loader.handle(item);
+				}
+			}
+		});
+
+		// Lists without any items are completed here as well
+		for (PersistentListBase<?>.ItemLoader loader : loaders.values()) {
+			loader.complete();
+		}
+
+		initializeLists(otherLists);
+
+		log.debug("Bulk loaded the items for " + loaders.size() + " lists.");
+	}
+
+	private static boolean isStored(PersistentList list) {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		return list.getId() != null && list.getProvider() != null &&
+				(listBase == null || listBase.getDurability() != ListDurability.MEMORY_ONLY);
+	}
+
+	private boolean isWrittenBehindTo(PersistentListProvider listProvider, PersistentListProvider provider) {
+		// Nothing has been queued during startup so the items can be read from the wrapped provider
+		WriteBehindListProvider writeBehind = Utility.as(WriteBehindListProvider.class, listProvider);
+
+		return writeBehind != null && writeBehind.getProvider() == provider && writeBehind.getQueueDepth() == 0;
+	}
+
+	/**
+	 * Creates the daemon threads used to initialize the lists during startup.
+	 */
+	private static class StartupThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "plm-startup-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
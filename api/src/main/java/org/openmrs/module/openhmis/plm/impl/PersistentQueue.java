@@ -14,15 +14,22 @@
 
 package org.openmrs.module.openhmis.plm.impl;
 
+import org.openmrs.module.openhmis.plm.ListEvent;
 import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
 import org.openmrs.module.openhmis.plm.PersistentListProvider;
-
-import java.util.LinkedList;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
 
 /**
- * A persistent list which is implemented as a queue (first in, first out) data structure.
+ * A persistent list which is implemented as a queue (first in, first out) data structure.  The items are cached in an
+ * {@link ItemBuffer} so that ranges and pages of the queue can be read without walking the preceding items.  The
+ * default cache is an {@link IndexedItemBuffer}; subclasses can store the items elsewhere by overriding
+ * {@link #initializeCache()}.
  */
-public class PersistentQueue extends PersistentListBase<LinkedList<PersistentListItem>> {
+public class PersistentQueue extends PersistentListBase<ItemBuffer> {
+	public PersistentQueue() {
+	}
+
 	public PersistentQueue(String key, PersistentListProvider provider) {
 		super(key, provider);
 	}
@@ -38,7 +45,14 @@ public class PersistentQueue extends PersistentListBase<LinkedList<PersistentLis
 	 */
 	@Override
 	public PersistentListItem getNext() {
-		return cachedItems.peek();
+		ensureInitialized();
+
+		syncLock.lock();
+		try {
+			return cachedItems.peekFirst();
+		} finally {
+			syncLock.unlock();
+		}
 	}
 
 	/**
@@ -48,16 +62,85 @@ public class PersistentQueue extends PersistentListBase<LinkedList<PersistentLis
 	 */
 	@Override
 	public PersistentListItem getNextAndRemove() {
-		if (cachedItems.size() == 0) {
-			return null;
-		} else {
-			return cachedItems.pop();
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		PersistentListItem item;
+		syncLock.lock();
+		try {
+			item = cachedItems.peekFirst();
+			if (item == null) {
+				return null;
+			}
+
+			if (getIsStored()) {
+				long providerStart = System.nanoTime();
+				provider.remove(createItemModel(item));
+				recordProviderTime(providerStart);
+			}
+
+			cachedItems.pollFirst();
+			itemKeys.remove(item.getKey());
+
+			recordState();
+		} finally {
+			syncLock.unlock();
 		}
+		metrics.recordRemoved(1);
+		recordDwellTime(item);
+		recordLatency(ListMetrics.Operation.REMOVE, start);
+
+		// Fire the remove event outside of the synchronized block
+		fireListEvent(new ListEvent(this, item, ListEvent.ListOperation.REMOVED));
+
+		return item;
 	}
 
 	@Override
-	protected LinkedList<PersistentListItem> initializeCache() {
-		return new LinkedList<PersistentListItem>();
+	protected PersistentListItem peekNext() {
+		return cachedItems.peekFirst();
+	}
+
+	@Override
+	protected ItemBuffer initializeCache() {
+		return new IndexedItemBuffer();
+	}
+
+	@Override
+	protected PersistentListItem[] readItems(int offset, int limit) {
+		int start = Math.min(offset, cachedItems.size());
+
+		PersistentListItem[] items = new PersistentListItem[Math.min(limit, cachedItems.size() - start)];
+		cachedItems.copyTo(start, items, 0, items.length);
+
+		return items;
+	}
+
+	/**
+	 * Gets the page of cached items that follows the specified cursor.  The cursor holds the sequence number of the last
+	 * item returned so the next page is found with a binary search, whether or not that item is still in the queue.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should continue after the cursor item when it has been removed
+	 */
+	@Override
+	protected PersistentListPage readPage(String cursor, int limit) {
+		int start = 0;
+		if (cursor != null) {
+			start = cachedItems.indexAfter(parseSequenceCursor(cursor));
+		}
+
+		PersistentListItem[] items = new PersistentListItem[Math.min(limit, cachedItems.size() - start)];
+		cachedItems.copyTo(start, items, 0, items.length);
+
+		int end = start + items.length;
+		String nextCursor = null;
+		if (end < cachedItems.size()) {
+			nextCursor = createSequenceCursor(cachedItems.getSequence(end - 1));
+		}
+
+		return new PersistentListPage(items, nextCursor);
 	}
 
 	@Override
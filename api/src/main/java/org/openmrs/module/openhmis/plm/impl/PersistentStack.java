@@ -14,18 +14,24 @@
 
 package org.openmrs.module.openhmis.plm.impl;
 
+import org.openmrs.module.openhmis.plm.ListEvent;
+import org.openmrs.module.openhmis.plm.ListItemVisitor;
 import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
 import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 /**
- * A persistent list which is implemented as a stack (first in, last out) data structure.
+ * A persistent list which is implemented as a stack (first in, last out) data structure.  The items are cached in an
+ * {@link IndexedItemBuffer} with the top of the stack at the end of the buffer, so pushing, popping and peeking do not
+ * take any lock other than the list lock.
  */
-public class PersistentStack extends PersistentListBase<Stack<PersistentListItem>> {
+public class PersistentStack extends PersistentListBase<IndexedItemBuffer> {
+	public PersistentStack() {
+	}
+
 	public PersistentStack(String key, PersistentListProvider provider) {
 		super(key, provider);
 	}
@@ -41,10 +47,13 @@ public class PersistentStack extends PersistentListBase<Stack<PersistentListItem
 	 */
 	@Override
 	public PersistentListItem getNext() {
-		if (cachedItems.size() == 0) {
-			return null;
-		} else {
-			return cachedItems.peek();
+		ensureInitialized();
+
+		syncLock.lock();
+		try {
+			return cachedItems.peekLast();
+		} finally {
+			syncLock.unlock();
 		}
 	}
 
@@ -55,11 +64,38 @@ public class PersistentStack extends PersistentListBase<Stack<PersistentListItem
 	 */
 	@Override
 	public PersistentListItem getNextAndRemove() {
-		if (cachedItems.size() == 0) {
-			return null;
-		} else {
-			return cachedItems.pop();
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		PersistentListItem item;
+		syncLock.lock();
+		try {
+			if (cachedItems.size() == 0) {
+				return null;
+			}
+
+			item = cachedItems.peekLast();
+			if (getIsStored()) {
+				long providerStart = System.nanoTime();
+				provider.remove(createItemModel(item));
+				recordProviderTime(providerStart);
+			}
+
+			cachedItems.pollLast();
+			itemKeys.remove(item.getKey());
+
+			recordState();
+		} finally {
+			syncLock.unlock();
 		}
+		metrics.recordRemoved(1);
+		recordDwellTime(item);
+		recordLatency(ListMetrics.Operation.REMOVE, start);
+
+		// Fire the remove event outside of the synchronized block
+		fireListEvent(new ListEvent(this, item, ListEvent.ListOperation.REMOVED));
+
+		return item;
 	}
 
 	/**
@@ -69,18 +105,108 @@ public class PersistentStack extends PersistentListBase<Stack<PersistentListItem
 	 */
 	@Override
 	public PersistentListItem[] getItems() {
-		//The items must be reversed so that the first item is at index 0
-		List<PersistentListItem> list = Arrays.asList(super.getItems());
-		Collections.reverse(list);
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		try {
+			syncLock.lock();
+			try {
+				// The reversed view puts the top of the stack at index 0 without copying the items first
+				return cachedItems.reversed().toArray(new PersistentListItem[cachedItems.size()]);
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	@Override
+	protected boolean getIsLastInFirstOut() {
+		return true;
+	}
+
+	@Override
+	protected PersistentListItem peekNext() {
+		return cachedItems.peekLast();
+	}
+
+	@Override
+	protected IndexedItemBuffer initializeCache() {
+		return new IndexedItemBuffer();
+	}
+
+	/**
+	 * Copies only the requested range of the items, from the top of the stack down.
+	 * @param offset The index of the first item to return.
+	 * @param limit The maximum number of items to return.
+	 * @return The cached items in the range.
+	 * @should return the range in last in first out order
+	 */
+	@Override
+	protected PersistentListItem[] readItems(int offset, int limit) {
+		List<PersistentListItem> items = cachedItems.reversed();
+		int start = Math.min(offset, items.size());
+		int end = start + Math.min(limit, items.size() - start);
+
+		return items.subList(start, end).toArray(new PersistentListItem[end - start]);
+	}
+
+	/**
+	 * Gets the page of cached items that follows the specified cursor, from the top of the stack down.  The cursor holds
+	 * the sequence number of the last item returned, and the items below it are the ones that were pushed before it, so
+	 * the next page is found with a binary search whether or not that item is still in the stack.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should continue below the cursor item when it has been removed
+	 * @should not include items pushed after the first page was read
+	 */
+	@Override
+	protected PersistentListPage readPage(String cursor, int limit) {
+		int size = cachedItems.size();
 
-		return list.toArray(new PersistentListItem[list.size()]);
+		int start = 0;
+		if (cursor != null) {
+			start = size - cachedItems.indexAfter(parseSequenceCursor(cursor) - 1);
+		}
+
+		PersistentListItem[] items = readItems(start, limit);
+		int end = start + items.length;
+		String nextCursor = null;
+		if (end < size) {
+			nextCursor = createSequenceCursor(cachedItems.getSequence(size - end));
+		}
+
+		return new PersistentListPage(items, nextCursor);
 	}
 
+	/**
+	 * Visits the items from the top of the stack down.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 * @should visit the items in last in first out order
+	 */
 	@Override
-	protected Stack<PersistentListItem> initializeCache() {
-		return new Stack<PersistentListItem>();
+	protected boolean visitItems(ListItemVisitor visitor) {
+		for (PersistentListItem item : cachedItems.reversed()) {
+			if (!visitor.visit(item)) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
+	/**
+	 * Gets the item order that the item is stored with.  Pushed items are stored after they are added to the cached
+	 * items and popped items before they are removed, so both are the top of the stack and their index is found without
+	 * searching the items.
+	 * @param item The item.
+	 * @return The item order.
+	 * @should store new items with the negated stack size as the item order
+	 * @should not search the cached items for the top of the stack
+	 */
 	@Override
 	protected int getItemIndex(PersistentListItem item) {
 		/*
@@ -91,10 +217,15 @@ public class PersistentStack extends PersistentListBase<Stack<PersistentListItem
 				Item 2: -1
 				Item 3: -2
 		*/
-		int index = cachedItems.indexOf(item);
-		if (index < 0) {
-			// New items go to the end of the queue
-			index = cachedItems.size();
+		int index;
+		if (cachedItems.peekLast() == item) {
+			index = cachedItems.size() - 1;
+		} else {
+			index = cachedItems.indexOf(item);
+			if (index < 0) {
+				// New items go to the end of the queue
+				index = cachedItems.size();
+			}
 		}
 
 		return index * -1;
@@ -0,0 +1,500 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An {@link ItemBuffer} which only keeps a window of items at the head and at the tail of a queue in memory.  The items
+ * between the two windows, the cold items, are only stored by the list provider and are counted rather than held.
+ * Items are removed from the head and added to the tail, so neither operation needs the cold items: when the head is
+ * empty the first cold items are read with the {@link ColdItemReader}, and when the tail is full its first item becomes
+ * a cold item.
+ * <p/>
+ * The cold items cannot be accessed by index; callers must read ranges that include cold items from the provider.  The
+ * cold version is changed whenever the first cold items change other than by items being added to the end of the cold
+ * items, so that items which were read from the provider without holding the list lock can be checked before they are
+ * added to the head.
+ * <p/>
+ * This class is not thread-safe; callers must synchronize access to it.
+ */
+public class TieredItemBuffer extends ItemBuffer {
+	/**
+	 * Represents classes that read the cold items from the list provider.
+	 */
+	public interface ColdItemReader {
+		/**
+		 * Reads a range of the items from the list provider.
+		 * @param offset The index of the first item to read.
+		 * @param limit The maximum number of items to read.
+		 * @return The items in the range.
+		 */
+		PersistentListItem[] read(int offset, int limit);
+	}
+
+	private final IndexedItemBuffer head = new IndexedItemBuffer();
+	private final IndexedItemBuffer tail = new IndexedItemBuffer();
+	private final Set<String> keys = new HashSet<String>();
+	private final int headWindow;
+	private final int tailWindow;
+	private final ColdItemReader reader;
+	private int coldCount;
+	private int coldVersion;
+
+	/**
+	 * Creates a new TieredItemBuffer.
+	 * @param headWindow The maximum number of head items kept in memory.
+	 * @param tailWindow The maximum number of tail items kept in memory.
+	 * @param reader The reader for the cold items.
+	 */
+	public TieredItemBuffer(int headWindow, int tailWindow, ColdItemReader reader) {
+		if (headWindow < 1) {
+			throw new IllegalArgumentException("The head window must be one or greater.");
+		}
+		if (tailWindow < 0) {
+			throw new IllegalArgumentException("The tail window must be zero or greater.");
+		}
+		if (reader == null) {
+			throw new IllegalArgumentException("The cold item reader must be defined.");
+		}
+
+		this.headWindow = headWindow;
+		this.tailWindow = tailWindow;
+		this.reader = reader;
+	}
+
+	@Override
+	public int size() {
+		return head.size() + coldCount + tail.size();
+	}
+
+	public int getHeadSize() {
+		return head.size();
+	}
+
+	public int getColdCount() {
+		return coldCount;
+	}
+
+	public int getTailSize() {
+		return tail.size();
+	}
+
+	public int getHeadWindow() {
+		return headWindow;
+	}
+
+	public int getTailWindow() {
+		return tailWindow;
+	}
+
+	public int getColdVersion() {
+		return coldVersion;
+	}
+
+	/**
+	 * Gets whether the head has drained to half of the head window while there are cold items to refill it with.
+	 * @return {@code true} if the next cold items should be read; otherwise, {@code false}.
+	 */
+	public boolean getIsPrefetchNeeded() {
+		return coldCount > 0 && head.size() <= headWindow / 2;
+	}
+
+	/**
+	 * Gets the last item in the head.
+	 * @return The last head item or {@code null} if the head is empty.
+	 */
+	public PersistentListItem peekLastHead() {
+		return head.peekLast();
+	}
+
+	/**
+	 * Adds the item to the end of the buffer.  The item is added to the head while there are no cold or tail items and
+	 * the head is not full; otherwise it is added to the tail, and the first tail item becomes a cold item if the tail is
+	 * full.
+	 * @param item The item to add.
+	 * @return {@code true}
+	 * @should add the item to the head until the head window is full
+	 * @should move the first tail item to the cold items when the tail window is full
+	 */
+	@Override
+	public boolean add(PersistentListItem item) {
+		if (coldCount == 0 && tail.size() == 0 && head.size() < headWindow) {
+			head.add(item);
+		} else {
+			tail.add(item);
+			if (tail.size() > tailWindow) {
+				keys.remove(tail.pollFirst().getKey());
+				coldCount++;
+			}
+		}
+		keys.add(item.getKey());
+
+		return true;
+	}
+
+	/**
+	 * Adds items which were read from the provider to the end of the head, in place of the same number of cold items.
+	 * @param items The first cold items.
+	 * @should replace the first cold items with the items
+	 */
+	public void addPrefetched(PersistentListItem[] items) {
+		int count = Math.min(items.length, coldCount);
+		for (int i = 0; i < count; i++) {
+			head.add(items[i]);
+			keys.add(items[i].getKey());
+		}
+
+		coldCount -= count;
+		coldVersion++;
+	}
+
+	/**
+	 * Removes one of the cold items, when an item that is not in memory has been removed from the provider.
+	 */
+	public void removeCold() {
+		if (coldCount > 0) {
+			coldCount--;
+			coldVersion++;
+		}
+	}
+
+	/**
+	 * Gets whether an item with the specified key is in one of the memory windows.
+	 * @param key The item key.
+	 * @return {@code true} if an item in memory has the key; otherwise, {@code false}.
+	 */
+	public boolean containsKey(String key) {
+		return keys.contains(key);
+	}
+
+	/**
+	 * Gets a view of the keys of the items in the memory windows.  The keys are added and removed along with the items,
+	 * so adding or removing keys through the view has no effect.
+	 * @return The item keys.
+	 */
+	public Collection<String> keys() {
+		return new AbstractCollection<String>() {
+			@Override
+			public int size() {
+				return keys.size();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return keys.contains(o);
+			}
+
+			@Override
+			public boolean add(String key) {
+				return false;
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				return false;
+			}
+
+			@Override
+			public void clear() {
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return Collections.unmodifiableSet(keys).iterator();
+			}
+		};
+	}
+
+	/**
+	 * Gets the item at the specified index.
+	 * @param index The index of the item, where 0 is the first item.
+	 * @return The item.
+	 * @throws IllegalStateException The item is a cold item.
+	 */
+	@Override
+	public PersistentListItem get(int index) {
+		checkIndex(index);
+
+		if (index < head.size()) {
+			return head.get(index);
+		}
+
+		checkNotCold(index, 1);
+		return tail.get(index - head.size() - coldCount);
+	}
+
+	/**
+	 * Sequence numbers are not kept for the cold items so pages of a tiered queue are read from the provider.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public long getSequence(int index) {
+		throw new UnsupportedOperationException("The items in a tiered buffer do not have sequence numbers.");
+	}
+
+	/**
+	 * Sequence numbers are not kept for the cold items so pages of a tiered queue are read from the provider.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public int indexAfter(long sequence) {
+		throw new UnsupportedOperationException("The items in a tiered buffer do not have sequence numbers.");
+	}
+
+	/**
+	 * Gets the index of the specified item if it is in one of the memory windows.
+	 * @param o The item to find.
+	 * @return The index of the item or -1 if the item is not in memory.
+	 */
+	@Override
+	public int indexOf(Object o) {
+		int index = head.indexOf(o);
+		if (index >= 0) {
+			return index;
+		}
+
+		index = tail.indexOf(o);
+		return index < 0 ? -1 : head.size() + coldCount + index;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	/**
+	 * Gets the first item, reading the first cold items into the head when the head is empty.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 * @should read the cold items when the head is empty
+	 */
+	@Override
+	public PersistentListItem peekFirst() {
+		loadHead();
+
+		return head.size() > 0 ? head.peekFirst() : tail.peekFirst();
+	}
+
+	/**
+	 * Gets the last item.  The item is read from the provider when the tail is empty and there are cold items.
+	 * @return The last item or {@code null} if the buffer is empty.
+	 */
+	@Override
+	public PersistentListItem peekLast() {
+		if (tail.size() > 0) {
+			return tail.peekLast();
+		}
+		if (coldCount == 0) {
+			return head.peekLast();
+		}
+
+		PersistentListItem[] items = reader.read(head.size() + coldCount - 1, 1);
+		return items.length == 0 ? null : items[0];
+	}
+
+	/**
+	 * Removes and returns the first item, reading the first cold items into the head when the head is empty.
+	 * @return The first item or {@code null} if the buffer is empty.
+	 * @should read the cold items when the head is empty
+	 */
+	@Override
+	public PersistentListItem pollFirst() {
+		loadHead();
+
+		PersistentListItem item = head.size() > 0 ? head.pollFirst() : tail.pollFirst();
+		if (item != null) {
+			keys.remove(item.getKey());
+		}
+
+		return item;
+	}
+
+	@Override
+	public PersistentListItem pollLast() {
+		return size() == 0 ? null : removeAt(size() - 1);
+	}
+
+	/**
+	 * Removes the specified item if it is in one of the memory windows.
+	 * @param o The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 */
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Removes the item at the specified index.
+	 * @param index The index of the item to remove.
+	 * @return The removed item.
+	 * @throws IllegalStateException The item is a cold item.
+	 */
+	@Override
+	public PersistentListItem removeAt(int index) {
+		checkIndex(index);
+
+		PersistentListItem item;
+		if (index < head.size()) {
+			item = head.removeAt(index);
+
+			// Removing an item other than the first changes which head item precedes the cold items
+			if (index > 0) {
+				coldVersion++;
+			}
+		} else {
+			checkNotCold(index, 1);
+			item = tail.removeAt(index - head.size() - coldCount);
+		}
+		keys.remove(item.getKey());
+
+		return item;
+	}
+
+	@Override
+	public void clear() {
+		head.clear();
+		tail.clear();
+		keys.clear();
+		coldCount = 0;
+		coldVersion++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Object[size()]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E> E[] toArray(E[] a) {
+		int size = size();
+		if (a.length < size) {
+			a = (E[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		}
+
+		copyTo(0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Copies a range of items into the specified array.
+	 * @param index The index of the first item to copy.
+	 * @param dest The destination array.
+	 * @param destIndex The index in the destination array to copy the first item to.
+	 * @param length The number of items to copy.
+	 * @throws IllegalStateException The range includes cold items.
+	 */
+	@Override
+	public void copyTo(int index, Object[] dest, int destIndex, int length) {
+		if (index < 0 || length < 0 || index + length > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size());
+		}
+		checkNotCold(index, length);
+
+		int headLength = Math.max(0, Math.min(length, head.size() - index));
+		if (headLength > 0) {
+			head.copyTo(index, dest, destIndex, headLength);
+		}
+		if (length > headLength) {
+			tail.copyTo(index + headLength - head.size() - coldCount, dest, destIndex + headLength, length - headLength);
+		}
+	}
+
+	/**
+	 * Iterates over the items.
+	 * @return The item iterator.
+	 * @throws IllegalStateException There are cold items.
+	 */
+	@Override
+	public Iterator<PersistentListItem> iterator() {
+		if (coldCount > 0) {
+			throw new IllegalStateException("The cold items must be read from the provider.");
+		}
+
+		return new Iterator<PersistentListItem>() {
+			private final Iterator<PersistentListItem> headItems = head.iterator();
+			private final Iterator<PersistentListItem> tailItems = tail.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return headItems.hasNext() || tailItems.hasNext();
+			}
+
+			@Override
+			public PersistentListItem next() {
+				if (headItems.hasNext()) {
+					return headItems.next();
+				}
+				if (tailItems.hasNext()) {
+					return tailItems.next();
+				}
+
+				throw new NoSuchElementException();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void loadHead() {
+		if (head.size() > 0 || coldCount == 0) {
+			return;
+		}
+
+		// The head is empty so the first cold item is the first item in the provider
+		PersistentListItem[] items = reader.read(0, Math.min(headWindow, coldCount));
+		if (items.length == 0) {
+			// The provider no longer has the cold items
+			coldCount = 0;
+			coldVersion++;
+		} else {
+			addPrefetched(items);
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+	}
+
+	private void checkNotCold(int index, int length) {
+		if (coldCount > 0 && length > 0 && index < head.size() + coldCount && index + length > head.size()) {
+			throw new IllegalStateException("The cold items must be read from the provider.");
+		}
+	}
+}
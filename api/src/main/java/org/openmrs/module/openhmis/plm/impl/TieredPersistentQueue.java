@@ -0,0 +1,472 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.ListItemVisitor;
+import org.openmrs.module.openhmis.plm.ListProviders;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link PersistentQueue} which only keeps a window of items at the head and at the tail of the queue in memory, using
+ * a {@link TieredItemBuffer}.  Consumers only touch the head and producers only touch the tail, so both stay in memory
+ * while the items in between stay in the provider.  When the head drains to half of its window the next items are read
+ * from the provider on a background thread, so {@link #getNext()} only waits for the provider when the head has been
+ * emptied before the read completes.  Memory use is bounded by the two windows rather than by the list size.
+ * <p/>
+ * Duplicate keys are only detected among the items in memory.  Ranges and pages that include the items in between are
+ * read from the provider.  Memory only lists are not tiered, as the provider does not store their items.
+ */
+public class TieredPersistentQueue extends PersistentQueue {
+	public static final int DEFAULT_HEAD_WINDOW = 1000;
+	public static final int DEFAULT_TAIL_WINDOW = 1000;
+
+	private static ExecutorService defaultPrefetchExecutor;
+
+	private Log log = LogFactory.getLog(TieredPersistentQueue.class);
+
+	private int headWindow = DEFAULT_HEAD_WINDOW;
+	private int tailWindow = DEFAULT_TAIL_WINDOW;
+	private Executor prefetchExecutor;
+	private boolean isPrefetchPending;
+
+	public TieredPersistentQueue() {
+	}
+
+	public TieredPersistentQueue(String key, PersistentListProvider provider) {
+		super(key, provider);
+	}
+
+	public TieredPersistentQueue(int id, String key, PersistentListProvider provider) {
+		super(id, key, provider);
+	}
+
+	public int getHeadWindow() {
+		return headWindow;
+	}
+
+	/**
+	 * Sets the maximum number of items at the head of the queue that are kept in memory.  This must be set before the
+	 * list is initialized.
+	 * @param headWindow The head window size.
+	 */
+	public void setHeadWindow(int headWindow) {
+		this.headWindow = headWindow;
+	}
+
+	public int getTailWindow() {
+		return tailWindow;
+	}
+
+	/**
+	 * Sets the maximum number of items at the tail of the queue that are kept in memory.  This must be set before the
+	 * list is initialized.
+	 * @param tailWindow The tail window size.
+	 */
+	public void setTailWindow(int tailWindow) {
+		this.tailWindow = tailWindow;
+	}
+
+	/**
+	 * Gets the executor that the items are prefetched with.  Unless one has been set, the queues share a single daemon
+	 * thread.
+	 * @return The prefetch executor.
+	 */
+	public Executor getPrefetchExecutor() {
+		if (prefetchExecutor == null) {
+			prefetchExecutor = getDefaultPrefetchExecutor();
+		}
+
+		return prefetchExecutor;
+	}
+
+	public void setPrefetchExecutor(Executor prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
+	/**
+	 * Gets the number of items that are only stored by the provider.
+	 * @return The cold item count.
+	 */
+	public int getColdCount() {
+		syncLock.lock();
+		try {
+			TieredItemBuffer buffer = getTieredItems();
+			return buffer == null ? 0 : buffer.getColdCount();
+		} finally {
+			syncLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the next item and removes it from the list, and starts reading the next items from the provider when the head
+	 * has drained to half of its window.
+	 * @return The next item or {@code null} if no items are defined.
+	 * @should return the items in first in first out order
+	 * @should prefetch the next items when the head drains
+	 */
+	@Override
+	public PersistentListItem getNextAndRemove() {
+		PersistentListItem item = super.getNextAndRemove();
+		schedulePrefetch();
+
+		return item;
+	}
+
+	@Override
+	public boolean remove(PersistentListItem item) {
+		boolean result = super.remove(item);
+		schedulePrefetch();
+
+		return result;
+	}
+
+	/**
+	 * Gets all the items in the list, reading the items in between the head and tail from the provider.
+	 * @return The list items.
+	 * @should return the items in memory and in the provider in list order
+	 */
+	@Override
+	public PersistentListItem[] getItems() {
+		ensureInitialized();
+
+		long start = System.nanoTime();
+		try {
+			syncLock.lock();
+			try {
+				return readItems(0, cachedItems.size());
+			} finally {
+				syncLock.unlock();
+			}
+		} finally {
+			recordLatency(ListMetrics.Operation.GET_ITEMS, start);
+		}
+	}
+
+	/**
+	 * Creates a {@link TieredItemBuffer} for the list items, or an {@link IndexedItemBuffer} when the list is memory only.
+	 * @return The item buffer.
+	 * @should keep only the head and tail windows in memory
+	 */
+	@Override
+	protected ItemBuffer initializeCache() {
+		if (!getIsStored()) {
+			return new IndexedItemBuffer();
+		}
+
+		return new TieredItemBuffer(headWindow, tailWindow, new TieredItemBuffer.ColdItemReader() {
+			@Override
+			public PersistentListItem[] read(int offset, int limit) {
+				long start = System.nanoTime();
+				PersistentListItemModel[] models =
+						ListProviders.getItems(provider, TieredPersistentQueue.this, offset, limit);
+				recordProviderTime(start);
+
+				return createItems(models);
+			}
+		});
+	}
+
+	@Override
+	protected Collection<String> initializeKeys(ItemBuffer items) {
+		if (items instanceof TieredItemBuffer) {
+			return ((TieredItemBuffer)items).keys();
+		}
+
+		return super.initializeKeys(items);
+	}
+
+	/**
+	 * Removes the item from the provider.  Items that are not in memory are only counted as cold items, so when the
+	 * provider writes changes behind those items are removed on the calling thread to find out whether the provider has
+	 * the item before the cold item count is changed.
+	 * @param item The item to remove.
+	 * @return {@code true} if the provider removed the item; otherwise, {@code false}.
+	 * @should confirm the removal of a cold item with a write behind provider
+	 */
+	@Override
+	protected boolean removeStoredItem(PersistentListItem item) {
+		WriteBehindListProvider writeBehindProvider = Utility.as(WriteBehindListProvider.class, provider);
+		TieredItemBuffer buffer = getTieredItems();
+		if (writeBehindProvider != null && buffer != null && buffer.getColdCount() > 0 &&
+				!itemKeys.contains(item.getKey())) {
+			return writeBehindProvider.removeNow(createItemModel(item));
+		}
+
+		return super.removeStoredItem(item);
+	}
+
+	/**
+	 * Removes the item from the cached items, or from the cold item count when the provider removed an item that is not
+	 * in memory.
+	 * @param item The item to remove.
+	 * @param wasRemovedFromProvider Whether the provider removed the item.
+	 * @return {@code true} if the item was removed from the list; otherwise, {@code false}.
+	 * @should remove an item that is only stored by the provider
+	 */
+	@Override
+	protected boolean removeCachedItem(PersistentListItem item, boolean wasRemovedFromProvider) {
+		if (cachedItems.remove(item)) {
+			return true;
+		}
+
+		TieredItemBuffer buffer = getTieredItems();
+		if (wasRemovedFromProvider && buffer != null && buffer.getColdCount() > 0) {
+			buffer.removeCold();
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	protected PersistentListItem[] readItems(int offset, int limit) {
+		TieredItemBuffer buffer = getTieredItems();
+		if (buffer == null || buffer.getColdCount() == 0) {
+			return super.readItems(offset, limit);
+		}
+
+		int start = Math.min(offset, buffer.size());
+		int length = Math.min(limit, buffer.size() - start);
+		int coldStart = buffer.getHeadSize();
+		int coldEnd = coldStart + buffer.getColdCount();
+		if (start >= coldEnd || start + length <= coldStart) {
+			return super.readItems(offset, limit);
+		}
+
+		// Copy the head and tail items that are in the range from memory and read the cold items from the provider
+		PersistentListItem[] items = new PersistentListItem[length];
+		int headLength = Math.max(0, coldStart - start);
+		buffer.copyTo(start, items, 0, headLength);
+
+		int coldOffset = Math.max(start, coldStart);
+		int coldLength = Math.min(start + length, coldEnd) - coldOffset;
+		long providerStart = System.nanoTime();
+		PersistentListItemModel[] models = ListProviders.getItems(provider, this, coldOffset, coldLength);
+		recordProviderTime(providerStart);
+		PersistentListItem[] coldItems = createItems(models);
+		System.arraycopy(coldItems, 0, items, headLength, Math.min(coldItems.length, coldLength));
+
+		int tailLength = length - headLength - coldLength;
+		buffer.copyTo(coldEnd, items, headLength + coldLength, tailLength);
+
+		return items;
+	}
+
+	/**
+	 * Visits the head items, then the cold items as they are read from the provider one head window at a time, and then
+	 * the tail items.  No more cold items are read once the visitor stops the traversal.
+	 * @param visitor The visitor to call for each item.
+	 * @return {@code true} if every item was visited; {@code false} if the visitor stopped the traversal.
+	 * @should visit the items in memory and in the provider in list order
+	 * @should not read the cold items when the visitor stops in the head
+	 */
+	@Override
+	protected boolean visitItems(ListItemVisitor visitor) {
+		TieredItemBuffer buffer = getTieredItems();
+		if (buffer == null || buffer.getColdCount() == 0) {
+			return super.visitItems(visitor);
+		}
+
+		int coldStart = buffer.getHeadSize();
+		int coldEnd = coldStart + buffer.getColdCount();
+		for (int i = 0; i < coldStart; i++) {
+			if (!visitor.visit(buffer.get(i))) {
+				return false;
+			}
+		}
+
+		int pageSize = Math.max(1, buffer.getHeadWindow());
+		for (int offset = coldStart; offset < coldEnd; offset += pageSize) {
+			long providerStart = System.nanoTime();
+			PersistentListItemModel[] models =
+					ListProviders.getItems(provider, this, offset, Math.min(pageSize, coldEnd - offset));
+			recordProviderTime(providerStart);
+
+			for (PersistentListItemModel model : models) {
+				if (!visitor.visit(createItem(model))) {
+					return false;
+				}
+			}
+		}
+
+		for (int i = coldEnd; i < buffer.size(); i++) {
+			if (!visitor.visit(buffer.get(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the first page of items from the provider.  The cold items have no sequence numbers, so the pages of a tiered
+	 * queue are always read from the provider.
+	 * @param cursor The cursor returned with the previous page or {@code null} to get the first page.
+	 * @param limit The maximum number of items to return.
+	 * @return The page of items.
+	 * @should read the pages from the provider
+	 */
+	@Override
+	protected PersistentListPage readPage(String cursor, int limit) {
+		if (getTieredItems() == null) {
+			return super.readPage(cursor, limit);
+		}
+		if (cursor != null) {
+			throw new IllegalArgumentException("The cursor '" + cursor + "' is not valid.");
+		}
+
+		return readProviderPage(null, limit);
+	}
+
+	private TieredItemBuffer getTieredItems() {
+		return cachedItems instanceof TieredItemBuffer ? (TieredItemBuffer)cachedItems : null;
+	}
+
+	private void schedulePrefetch() {
+		syncLock.lock();
+		try {
+			TieredItemBuffer buffer = getTieredItems();
+			if (isPrefetchPending || buffer == null || !buffer.getIsPrefetchNeeded()) {
+				return;
+			}
+
+			isPrefetchPending = true;
+		} finally {
+			syncLock.unlock();
+		}
+
+		try {
+			getPrefetchExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					prefetch();
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			// The head will be read when it is needed instead
+			syncLock.lock();
+			try {
+				isPrefetchPending = false;
+			} finally {
+				syncLock.unlock();
+			}
+		}
+	}
+
+	private void prefetch() {
+		TieredItemBuffer buffer;
+		int headSize;
+		int limit;
+		int coldVersion;
+		String lastHeadKey;
+		syncLock.lock();
+		try {
+			buffer = getTieredItems();
+			if (buffer == null || buffer.getColdCount() == 0) {
+				isPrefetchPending = false;
+				return;
+			}
+
+			headSize = buffer.getHeadSize();
+			limit = Math.min(buffer.getHeadWindow() - headSize, buffer.getColdCount());
+			coldVersion = buffer.getColdVersion();
+			PersistentListItem lastHead = buffer.peekLastHead();
+			lastHeadKey = lastHead == null ? null : lastHead.getKey();
+		} finally {
+			syncLock.unlock();
+		}
+
+		// Read the remaining head items along with the cold items, without holding the lock, as head items may be
+		// removed while the items are being read
+		PersistentListItemModel[] models;
+		long start = System.nanoTime();
+		try {
+			models = ListProviders.getItems(provider, this, 0, headSize + limit);
+		} catch (RuntimeException ex) {
+			log.warn("An exception occurred while attempting to prefetch the '" + key + "' list items.", ex);
+
+			syncLock.lock();
+			try {
+				isPrefetchPending = false;
+			} finally {
+				syncLock.unlock();
+			}
+			return;
+		}
+		metrics.recordLatency(ListMetrics.Operation.PROVIDER, System.nanoTime() - start);
+
+		boolean isStale;
+		syncLock.lock();
+		try {
+			isPrefetchPending = false;
+
+			// Only head items can have been removed unless the cold version has changed, so the cold items follow the
+			// last head item, or are first if it has been removed
+			isStale = buffer != cachedItems || buffer.getColdVersion() != coldVersion;
+			if (!isStale) {
+				int coldStart = 0;
+				if (lastHeadKey != null) {
+					for (int i = 0; i < models.length; i++) {
+						if (models[i].getItemKey().equals(lastHeadKey)) {
+							coldStart = i + 1;
+							break;
+						}
+					}
+				}
+
+				int length = Math.max(0, Math.min(limit, models.length - coldStart));
+				PersistentListItemModel[] coldModels = new PersistentListItemModel[length];
+				System.arraycopy(models, coldStart, coldModels, 0, length);
+				buffer.addPrefetched(createItems(coldModels));
+			}
+		} finally {
+			syncLock.unlock();
+		}
+
+		if (isStale) {
+			schedulePrefetch();
+		}
+	}
+
+	private static synchronized ExecutorService getDefaultPrefetchExecutor() {
+		if (defaultPrefetchExecutor == null) {
+			defaultPrefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "plm-prefetch");
+					thread.setDaemon(true);
+
+					return thread;
+				}
+			});
+		}
+
+		return defaultPrefetchExecutor;
+	}
+}
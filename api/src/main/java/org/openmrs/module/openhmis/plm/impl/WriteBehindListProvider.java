@@ -0,0 +1,436 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.BulkListProvider;
+import org.openmrs.module.openhmis.plm.GroupCommitListProvider;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.ListItemOperation;
+import org.openmrs.module.openhmis.plm.ListProviders;
+import org.openmrs.module.openhmis.plm.PagedListProvider;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.StreamingListProvider;
+import org.openmrs.module.openhmis.plm.metrics.LatencyHistogram;
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.metrics.MetricsRegistry;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link PersistentListProvider} which returns as soon as a change has been queued and stores the queued changes
+ * with another provider on a background thread.  Lists that use this provider apply their changes in memory at
+ * in-memory speed; the cost is that changes made in the last few milliseconds before a crash can be lost.
+ * <p/>
+ * The flusher thread waits for the flush delay after the first change is queued so that the changes made in the
+ * meantime are stored together.  When the provider is a {@link GroupCommitListProvider} each group of changes is
+ * committed in a single transaction; if that fails the changes are retried one at a time so that a single bad change
+ * does not lose the others.  Changes that still fail are logged and counted.
+ * <p/>
+ * Reads flush the queued changes first so that they always see the changes made through this provider.  When the
+ * queue reaches its maximum size the thread making the change flushes the queue itself, which slows writers down to
+ * the speed of the provider rather than letting the queue grow without bound.  {@link #shutdown()} stores every queued
+ * change before it returns; changes made after shutdown are stored immediately.
+ */
+public class WriteBehindListProvider implements BulkListProvider, PagedListProvider, StreamingListProvider,
+		MetricsAware {
+	public static final long DEFAULT_FLUSH_DELAY = 5;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
+	private final Log log = LogFactory.getLog(WriteBehindListProvider.class);
+	private final PersistentListProvider provider;
+	private final LinkedBlockingQueue<QueuedOperation> queue;
+	private final Object flushLock = new Object();
+	private final Object signal = new Object();
+	private final AtomicLong flushedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final LatencyHistogram flushLag = new LatencyHistogram();
+
+	private long flushDelay = DEFAULT_FLUSH_DELAY;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+	private volatile Thread flusher;
+	private volatile boolean isShutdown;
+
+	public WriteBehindListProvider(PersistentListProvider provider) {
+		this(provider, new LinkedBlockingQueue<QueuedOperation>());
+	}
+
+	WriteBehindListProvider(PersistentListProvider provider, LinkedBlockingQueue<QueuedOperation> queue) {
+		if (provider == null) {
+			throw new IllegalArgumentException("The provider to write to must be defined.");
+		}
+
+		this.provider = provider;
+		this.queue = queue;
+	}
+
+	public PersistentListProvider getProvider() {
+		return provider;
+	}
+
+	/**
+	 * Gets the name of the provider that the changes are stored with so that the provider metrics are recorded together.
+	 * @return The provider name.
+	 */
+	@Override
+	public String getName() {
+		return provider.getName();
+	}
+
+	@Override
+	public String getDescription() {
+		return "Writes list changes behind to: " + provider.getDescription();
+	}
+
+	@Override
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		MetricsAware metricsAware = Utility.as(MetricsAware.class, provider);
+		if (metricsAware != null) {
+			metricsAware.setMetricsRegistry(registry);
+		}
+	}
+
+	/**
+	 * Queues the item to be added by the provider.
+	 * @param item The item to add.
+	 * @should store the item on the flusher thread
+	 * @should flush the queue on the calling thread when the queue is full
+	 */
+	@Override
+	public void add(PersistentListItemModel item) {
+		enqueue(ListItemOperation.add(item));
+	}
+
+	/**
+	 * Queues the item to be removed by the provider.  Whether the provider finds the item is not known until the change
+	 * is stored so this always returns {@code false} rather than report a removal that may not happen; lists report the
+	 * removal of the items they have in memory and use {@link #removeNow(PersistentListItemModel)} for the others.
+	 * @param item The item to remove.
+	 * @return {@code false}.
+	 */
+	@Override
+	public boolean remove(PersistentListItemModel item) {
+		enqueue(ListItemOperation.remove(item));
+
+		return false;
+	}
+
+	/**
+	 * Stores the queued changes and then removes the item with the provider on the calling thread, so that the caller
+	 * knows whether the item was found.
+	 * @param item The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should return whether the provider removed the item
+	 */
+	public boolean removeNow(PersistentListItemModel item) {
+		synchronized (flushLock) {
+			flush();
+
+			return provider.remove(item);
+		}
+	}
+
+	@Override
+	public void clear(PersistentList list) {
+		enqueue(ListItemOperation.clear(list));
+	}
+
+	/**
+	 * Gets all the items from the list in order, after the queued changes have been stored.
+	 * @param list The @see PersistentList to get.
+	 * @return The items in the list.
+	 * @should return the queued changes
+	 */
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list) {
+		flush();
+
+		return provider.getItems(list);
+	}
+
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+		flush();
+
+		return ListProviders.getItems(provider, list, offset, limit);
+	}
+
+	@Override
+	public PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut,
+	                                               int limit) {
+		flush();
+
+		return ListProviders.getItemsAfter(provider, list, itemId, isLastInFirstOut, limit);
+	}
+
+	@Override
+	public void getItems(PersistentList list, ListItemModelHandler handler) {
+		flush();
+
+		ListProviders.getItems(provider, list, handler);
+	}
+
+	/**
+	 * Reads the items of every list after the queued changes have been stored.
+	 * @param handler The handler that the items are passed to.
+	 * @throws UnsupportedOperationException when the provider is not a {@link BulkListProvider}.
+	 */
+	@Override
+	public void getAllItems(ListItemModelHandler handler) {
+		BulkListProvider bulkProvider = Utility.as(BulkListProvider.class, provider);
+		if (bulkProvider == null) {
+			throw new UnsupportedOperationException("The '" + provider.getName() + "' provider cannot read every list.");
+		}
+
+		flush();
+
+		bulkProvider.getAllItems(handler);
+	}
+
+	/**
+	 * Stores every queued change before returning.
+	 * @should store the changes in the order that they were queued
+	 * @should retry each change when the group commit fails
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			List<QueuedOperation> batch = new ArrayList<QueuedOperation>(Math.min(maxBatchSize, queue.size()));
+			while (queue.drainTo(batch, maxBatchSize) > 0) {
+				store(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Stops the flusher thread and stores every queued change.  Changes made after the provider is shut down are stored
+	 * before the change returns.
+	 * @should store the queued changes
+	 * @should store later changes immediately
+	 * @should store a change that is queued while the provider shuts down
+	 */
+	public void shutdown() {
+		isShutdown = true;
+
+		Thread thread = flusher;
+		if (thread != null) {
+			synchronized (signal) {
+				signal.notifyAll();
+			}
+
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		flush();
+	}
+
+	/**
+	 * Gets the number of changes waiting to be stored.
+	 * @return The queue depth.
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of changes that have been stored, including the changes that failed.
+	 * @return The number of stored changes.
+	 */
+	public long getFlushedCount() {
+		return flushedCount.get();
+	}
+
+	/**
+	 * Gets the number of changes that the provider could not store.
+	 * @return The number of failed changes.
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * Gets how long the stored changes waited between being queued and being stored, in nanoseconds.
+	 * @return The flush lag.
+	 */
+	public LatencySnapshot getFlushLag() {
+		return flushLag.getSnapshot();
+	}
+
+	public long getFlushDelay() {
+		return flushDelay;
+	}
+
+	/**
+	 * Sets how long the flusher thread waits for more changes after the first change is queued.
+	 * @param flushDelay The flush delay in milliseconds.  A delay of 0 stores the changes as soon as possible.
+	 */
+	public void setFlushDelay(long flushDelay) {
+		this.flushDelay = flushDelay;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of changes that are committed together.
+	 * @param maxBatchSize The maximum batch size.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("The maximum batch size must be at least 1.");
+		}
+
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * Sets the number of queued changes at which the thread making a change flushes the queue itself.
+	 * @param maxQueueSize The maximum queue size.
+	 */
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	private void enqueue(ListItemOperation operation) {
+		if (isShutdown) {
+			operation.applyTo(provider);
+			return;
+		}
+
+		queue.add(new QueuedOperation(operation, System.nanoTime()));
+
+		// Shutdown may have stored the queue between the check above and the add, so store the change here
+		if (isShutdown || queue.size() >= maxQueueSize) {
+			flush();
+			return;
+		}
+
+		ensureFlusherStarted();
+		synchronized (signal) {
+			signal.notifyAll();
+		}
+	}
+
+	private void ensureFlusherStarted() {
+		if (flusher == null) {
+			synchronized (signal) {
+				if (flusher == null && !isShutdown) {
+					Thread thread = new Thread(new Flusher(), "plm-write-behind");
+					thread.setDaemon(true);
+					thread.start();
+
+					flusher = thread;
+				}
+			}
+		}
+	}
+
+	private void store(List<QueuedOperation> batch) {
+		GroupCommitListProvider groupProvider = Utility.as(GroupCommitListProvider.class, provider);
+		boolean isCommitted = false;
+		if (groupProvider != null && batch.size() > 1) {
+			ListItemOperation[] operations = new ListItemOperation[batch.size()];
+			for (int i = 0; i < operations.length; i++) {
+				operations[i] = batch.get(i).operation;
+			}
+
+			try {
+				groupProvider.commit(operations);
+				isCommitted = true;
+			} catch (Exception ex) {
+				log.warn("Could not commit " + operations.length + " list changes together.  Storing them one at a time...",
+						ex);
+			}
+		}
+
+		if (!isCommitted) {
+			for (QueuedOperation queued : batch) {
+				try {
+					queued.operation.applyTo(provider);
+				} catch (Exception ex) {
+					failedCount.incrementAndGet();
+					log.error("Could not store the list " + queued.operation.getType().name().toLowerCase() + " change.",
+							ex);
+				}
+			}
+		}
+
+		long now = System.nanoTime();
+		for (QueuedOperation queued : batch) {
+			flushLag.record(now - queued.queuedAt);
+		}
+		flushedCount.addAndGet(batch.size());
+	}
+
+	static class QueuedOperation {
+		private final ListItemOperation operation;
+		private final long queuedAt;
+
+		public QueuedOperation(ListItemOperation operation, long queuedAt) {
+			this.operation = operation;
+			this.queuedAt = queuedAt;
+		}
+	}
+
+	private class Flusher implements Runnable {
+		@Override
+		public void run() {
+			while (!isShutdown) {
+				try {
+					synchronized (signal) {
+						while (queue.isEmpty() && !isShutdown) {
+							signal.wait();
+						}
+					}
+
+					// Give the threads making changes time to add to the group
+					long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushDelay);
+					synchronized (signal) {
+						long remaining;
+						while (!isShutdown && (remaining = deadline - System.nanoTime()) > 0) {
+							TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+						}
+					}
+
+					flush();
+				} catch (InterruptedException ex) {
+					break;
+				} catch (Exception ex) {
+					log.error("An exception occurred while storing the queued list changes.", ex);
+				}
+			}
+		}
+	}
+}
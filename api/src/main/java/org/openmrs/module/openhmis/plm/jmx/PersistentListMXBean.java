@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+
+/**
+ * The management interface of a single persistent list.  Operation latencies are in nanoseconds and item ages are in
+ * milliseconds.  The latency attributes are {@code null} when the list service does not keep its metrics in memory.
+ */
+public interface PersistentListMXBean {
+	String getKey();
+
+	String getDescription();
+
+	String getListType();
+
+	/**
+	 * Gets how the list stores its changes.
+	 * @return The name of the list durability.
+	 */
+	String getDurability();
+
+	/**
+	 * Gets whether the list items have been loaded from the provider.
+	 * @return {@code true} if the items have been loaded; otherwise, {@code false}.
+	 */
+	boolean getIsInitialized();
+
+	/**
+	 * Gets the number of items in the list.  This does not load the items of a lazy list.
+	 * @return The list size or -1 if the list items have not been loaded.
+	 */
+	int getSize();
+
+	/**
+	 * Gets the number of event listeners that have been added to the list.
+	 * @return The listener count or -1 if the list does not report its listeners.
+	 */
+	int getListenerCount();
+
+	double getAddedRate();
+
+	double getRemovedRate();
+
+	/**
+	 * Gets how long the item that the list will return next has been in the list.
+	 * @return The age of the next item in milliseconds.
+	 */
+	long getHeadAge();
+
+	/**
+	 * Gets how long the items removed over the last hour had been in the list.
+	 * @return The item dwell times in milliseconds.
+	 */
+	LatencySnapshot getDwellTime();
+
+	LatencySnapshot getProviderLatency();
+
+	LatencySnapshot getEventDispatchTime();
+
+	/**
+	 * Gets how long each acquisition of the list lock waited while lock profiling was enabled.
+	 * @return The lock wait times or {@code null} if the list does not profile its lock.
+	 */
+	LatencySnapshot getLockWaitTime();
+
+	/**
+	 * Gets the list lock acquisition count and wait and hold times.
+	 * @return The lock counters or {@code null} if the list does not profile its lock.
+	 */
+	LockSnapshot getLockStatistics();
+
+	boolean getIsLockProfilingEnabled();
+
+	void setIsLockProfilingEnabled(boolean isLockProfilingEnabled);
+
+	/**
+	 * Replaces the cached list items with the items currently stored by the list provider.
+	 */
+	void reload();
+}
@@ -0,0 +1,193 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.LazyInitializable;
+import org.openmrs.module.openhmis.plm.ListDurability;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.impl.PersistentListBase;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
+import org.openmrs.module.openhmis.plm.metrics.ListMetricsSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes a {@link PersistentList} and its metrics over JMX.  The metrics are read from the list service registry when it
+ * is a {@link MemoryMetricsRegistry}.
+ */
+public class PersistentListMXBeanImpl implements PersistentListMXBean {
+	private final PersistentListServiceImpl service;
+	private final PersistentList list;
+
+	public PersistentListMXBeanImpl(PersistentListServiceImpl service, PersistentList list) {
+		this.service = service;
+		this.list = list;
+	}
+
+	/**
+	 * Creates the name that the MBean for the specified list is registered with.
+	 * @param key The list key.
+	 * @return The object name.
+	 * @should quote the list key
+	 */
+	public static ObjectName createObjectName(String key) {
+		try {
+			return new ObjectName(PersistentListServiceMXBeanImpl.DOMAIN + ":type=PersistentList,key=" +
+					ObjectName.quote(key));
+		} catch (MalformedObjectNameException ex) {
+			throw new IllegalArgumentException("Could not create the MBean name for the '" + key + "' list.", ex);
+		}
+	}
+
+	@Override
+	public String getKey() {
+		return list.getKey();
+	}
+
+	@Override
+	public String getDescription() {
+		return list.getDescription();
+	}
+
+	@Override
+	public String getListType() {
+		return list.getClass().getName();
+	}
+
+	@Override
+	public boolean getIsInitialized() {
+		LazyInitializable lazyList = Utility.as(LazyInitializable.class, list);
+
+		return lazyList == null || lazyList.getIsInitialized();
+	}
+
+	/**
+	 * Gets the number of items in the list.  This does not load the items of a lazy list.
+	 * @return The list size or -1 if the list items have not been loaded.
+	 * @should not load the items of a lazy list
+	 */
+	@Override
+	public int getSize() {
+		return getIsInitialized() ? list.getSize() : -1;
+	}
+
+	@Override
+	public int getListenerCount() {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		return listBase == null ? -1 : listBase.getListenerCount();
+	}
+
+	@Override
+	public double getAddedRate() {
+		ListMetricsSnapshot snapshot = getSnapshot();
+
+		return snapshot == null ? 0 : snapshot.getAddedRate();
+	}
+
+	@Override
+	public double getRemovedRate() {
+		ListMetricsSnapshot snapshot = getSnapshot();
+
+		return snapshot == null ? 0 : snapshot.getRemovedRate();
+	}
+
+	@Override
+	public long getHeadAge() {
+		ListMetricsSnapshot snapshot = getSnapshot();
+
+		return snapshot == null ? 0 : snapshot.getHeadAge();
+	}
+
+	@Override
+	public LatencySnapshot getDwellTime() {
+		ListMetricsSnapshot snapshot = getSnapshot();
+
+		return snapshot == null ? null : snapshot.getDwellTime();
+	}
+
+	@Override
+	public LatencySnapshot getProviderLatency() {
+		return getLatency(ListMetrics.Operation.PROVIDER);
+	}
+
+	@Override
+	public LatencySnapshot getEventDispatchTime() {
+		return getLatency(ListMetrics.Operation.EVENTS);
+	}
+
+	/**
+	 * @see PersistentListMXBean#getLockWaitTime()
+	 * @should return the lock wait times of the list
+	 */
+	@Override
+	public LatencySnapshot getLockWaitTime() {
+		LockSnapshot snapshot = getLockStatistics();
+
+		return snapshot == null ? null : snapshot.getWaitTimes();
+	}
+
+	@Override
+	public String getDurability() {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		return listBase == null ? ListDurability.SYNCHRONOUS.name() : listBase.getDurability().name();
+	}
+
+	@Override
+	public LockSnapshot getLockStatistics() {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		return listBase == null ? null : listBase.getLockSnapshot();
+	}
+
+	@Override
+	public boolean getIsLockProfilingEnabled() {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		return listBase != null && listBase.getIsLockProfilingEnabled();
+	}
+
+	@Override
+	public void setIsLockProfilingEnabled(boolean isLockProfilingEnabled) {
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+		if (listBase != null) {
+			listBase.setIsLockProfilingEnabled(isLockProfilingEnabled);
+		}
+	}
+
+	@Override
+	public void reload() {
+		service.reloadList(list.getKey());
+	}
+
+	private LatencySnapshot getLatency(ListMetrics.Operation operation) {
+		ListMetricsSnapshot snapshot = getSnapshot();
+
+		return snapshot == null ? null : snapshot.getLatency(operation);
+	}
+
+	private ListMetricsSnapshot getSnapshot() {
+		MemoryMetricsRegistry registry = Utility.as(MemoryMetricsRegistry.class, service.getMetricsRegistry());
+
+		return registry == null ? null : registry.getListSnapshot(list.getKey());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+
+import java.util.Map;
+
+/**
+ * The management interface of the persistent list service.  Latencies are in nanoseconds.
+ */
+public interface PersistentListServiceMXBean {
+	boolean getIsLoaded();
+
+	int getListCount();
+
+	String[] getListKeys();
+
+	/**
+	 * Gets the number of service event listeners.
+	 * @return The listener count.
+	 */
+	int getListenerCount();
+
+	String getListProvider();
+
+	/**
+	 * Gets the latency of the list provider operations, by operation name.
+	 * @return The provider latencies or {@code null} if the service does not keep its metrics in memory.
+	 */
+	Map<String, LatencySnapshot> getProviderLatencies();
+
+	/**
+	 * Gets the number of list changes waiting to be stored by the group commit lists.
+	 * @return The queue depth or -1 if no list writes its changes behind.
+	 */
+	int getWriteBehindQueueDepth();
+
+	/**
+	 * Gets how long the changes of the group commit lists waited to be stored.
+	 * @return The flush lag or {@code null} if no list writes its changes behind.
+	 */
+	LatencySnapshot getWriteBehindFlushLag();
+
+	/**
+	 * Gets the service lock acquisition count and wait and hold times.
+	 * @return The service lock counters.
+	 */
+	LockSnapshot getLockStatistics();
+
+	boolean getIsLockProfilingEnabled();
+
+	/**
+	 * Turns the profiling of the service lock and every list lock on or off.
+	 * @param isLockProfilingEnabled {@code true} to profile the locks; otherwise, {@code false}.
+	 */
+	void setIsLockProfilingEnabled(boolean isLockProfilingEnabled);
+
+	/**
+	 * Replaces the cached items of the specified list with the items currently stored by the list provider.
+	 * @param key The list key.
+	 */
+	void reloadList(String key);
+}
@@ -0,0 +1,148 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.impl.WriteBehindListProvider;
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.ProviderMetrics;
+import org.openmrs.module.openhmis.plm.metrics.ProviderMetricsSnapshot;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exposes the {@link PersistentListServiceImpl} and the metrics of its list provider over JMX.
+ */
+public class PersistentListServiceMXBeanImpl implements PersistentListServiceMXBean {
+	public static final String DOMAIN = "org.openmrs.module.openhmis.plm";
+	public static final ObjectName OBJECT_NAME = createObjectName();
+
+	private final PersistentListServiceImpl service;
+
+	public PersistentListServiceMXBeanImpl(PersistentListServiceImpl service) {
+		this.service = service;
+	}
+
+	@Override
+	public boolean getIsLoaded() {
+		return service.getIsLoaded();
+	}
+
+	@Override
+	public int getListCount() {
+		return getIsLoaded() ? service.getLists().length : 0;
+	}
+
+	@Override
+	public String[] getListKeys() {
+		if (!getIsLoaded()) {
+			return new String[0];
+		}
+
+		PersistentList[] lists = service.getLists();
+		String[] keys = new String[lists.length];
+		for (int i = 0; i < lists.length; i++) {
+			keys[i] = lists[i].getKey();
+		}
+
+		return keys;
+	}
+
+	@Override
+	public int getListenerCount() {
+		return service.getListenerCount();
+	}
+
+	@Override
+	public String getListProvider() {
+		return service.getListProvider() == null ? null : service.getListProvider().getName();
+	}
+
+	/**
+	 * Gets the latency of the list provider operations, by operation name.
+	 * @return The provider latencies or {@code null} if the service does not keep its metrics in memory.
+	 * @should return the latency of each provider operation
+	 */
+	@Override
+	public Map<String, LatencySnapshot> getProviderLatencies() {
+		MemoryMetricsRegistry registry = Utility.as(MemoryMetricsRegistry.class, service.getMetricsRegistry());
+		String providerName = getListProvider();
+		if (registry == null || providerName == null) {
+			return null;
+		}
+
+		Map<String, LatencySnapshot> latencies = new HashMap<String, LatencySnapshot>();
+		ProviderMetricsSnapshot snapshot = registry.getProviderMetrics(providerName).getSnapshot();
+		for (ProviderMetrics.Operation operation : ProviderMetrics.Operation.values()) {
+			latencies.put(operation.name(), snapshot.getLatency(operation));
+		}
+
+		return latencies;
+	}
+
+	/**
+	 * @see PersistentListServiceMXBean#getWriteBehindQueueDepth()
+	 * @should return the queue depth of a write behind list provider
+	 * @should return -1 when the list provider does not write behind
+	 */
+	@Override
+	public int getWriteBehindQueueDepth() {
+		WriteBehindListProvider provider = service.getWriteBehindProvider();
+
+		return provider == null ? -1 : provider.getQueueDepth();
+	}
+
+	@Override
+	public LatencySnapshot getWriteBehindFlushLag() {
+		WriteBehindListProvider provider = service.getWriteBehindProvider();
+
+		return provider == null ? null : provider.getFlushLag();
+	}
+
+	@Override
+	public LockSnapshot getLockStatistics() {
+		return service.getLockSnapshot();
+	}
+
+	@Override
+	public boolean getIsLockProfilingEnabled() {
+		return service.getIsLockProfilingEnabled();
+	}
+
+	@Override
+	public void setIsLockProfilingEnabled(boolean isLockProfilingEnabled) {
+		service.setIsLockProfilingEnabled(isLockProfilingEnabled);
+	}
+
+	@Override
+	public void reloadList(String key) {
+		service.reloadList(key);
+	}
+
+	private static ObjectName createObjectName() {
+		try {
+			return new ObjectName(DOMAIN + ":type=PersistentListService");
+		} catch (MalformedObjectNameException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
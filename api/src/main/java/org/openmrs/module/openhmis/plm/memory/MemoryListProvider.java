@@ -0,0 +1,360 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.memory;
+
+import org.openmrs.module.openhmis.plm.BulkListProvider;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.PagedListProvider;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.StreamingListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link PersistentListProvider} which keeps the list items in memory.  The items are not persisted so this provider
+ * is only intended for tests, benchmarks and lists that do not need to survive a restart.
+ * <p/>
+ * Item orders are updated the same way as the {@link org.openmrs.module.openhmis.plm.db.DatabaseListProvider} updates
+ * them: adding an item increments the order of the items at or after it, and removing an item decrements the order of
+ * the items after it.  Adding or removing items at either end of a list takes constant time.
+ */
+public class MemoryListProvider implements BulkListProvider, PagedListProvider, StreamingListProvider {
+	private final ConcurrentMap<Integer, ListItems> lists = new ConcurrentHashMap<Integer, ListItems>();
+	private final AtomicInteger nextItemId = new AtomicInteger(1);
+
+	@Override
+	public String getName() {
+		return "Memory List Provider";
+	}
+
+	@Override
+	public String getDescription() {
+		return "A persistent list provider that stores items in memory.  Items are lost when the server is restarted.";
+	}
+
+	/**
+	 * Adds a new item to the list.
+	 * @param item The item to add.
+	 * @should add the item at the item order
+	 * @should increment the order of the items at or after the item order
+	 */
+	@Override
+	public void add(PersistentListItemModel item) {
+		ListItems items = getListItems(item.getListId(), true);
+
+		// Assign the item id to the new item, as the database would
+		item.setItemId(nextItemId.getAndIncrement());
+		PersistentListItemModel stored = copy(item, item.getItemOrder());
+
+		synchronized (items) {
+			items.insert(stored);
+		}
+	}
+
+	/**
+	 * Removes the specified item from the list.
+	 * @param item The item to remove.
+	 * @return {@code true} if the item was removed; otherwise, {@code false}.
+	 * @should remove the item with the same key
+	 * @should decrement the order of the items after the item
+	 * @should return false when the item is not in the list
+	 */
+	@Override
+	public boolean remove(PersistentListItemModel item) {
+		ListItems items = getListItems(item.getListId(), false);
+		if (items == null) {
+			return false;
+		}
+
+		synchronized (items) {
+			int index = items.indexOf(item.getItemKey(), item.getItemOrder());
+			if (index < 0) {
+				return false;
+			}
+
+			items.removeAt(index);
+			return true;
+		}
+	}
+
+	@Override
+	public void clear(PersistentList list) {
+		if (list.getId() != null) {
+			clear(list.getId());
+		}
+	}
+
+	/**
+	 * Removes all the items from the list with the specified id.
+	 * @param listId The list id.
+	 */
+	public void clear(int listId) {
+		lists.remove(listId);
+	}
+
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list) {
+		return getItems(list, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void getItems(PersistentList list, ListItemModelHandler handler) {
+		// Copy the items so that the handler is not called while the list is locked
+		for (PersistentListItemModel item : getItems(list)) {
+			handler.handle(item);
+		}
+	}
+
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+		ListItems items = getListItems(list.getId(), false);
+		if (items == null) {
+			return new PersistentListItemModel[0];
+		}
+
+		synchronized (items) {
+			return items.copy(offset, limit);
+		}
+	}
+
+	/**
+	 * Gets the items from the list that follow the specified item, in order.  The items are found with a binary search
+	 * on the item ids, which are in list order as items are only added to one end of a list.
+	 * @param list The @see PersistentList to get.
+	 * @param itemId The id of the item to start after or {@code null} to start from the first item.
+	 * @param isLastInFirstOut {@code true} if the list order is the descending item id order; otherwise, {@code false}.
+	 * @param limit The maximum number of items to return.
+	 * @return The items following the specified item.
+	 * @should return the items following the specified item in list order
+	 * @should not skip items when items before the specified item are removed
+	 * @should return the items with lower ids when the list is last in first out
+	 */
+	@Override
+	public PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut,
+	                                               int limit) {
+		ListItems items = getListItems(list.getId(), false);
+		if (items == null) {
+			return new PersistentListItemModel[0];
+		}
+
+		synchronized (items) {
+			int offset = 0;
+			if (itemId != null) {
+				offset = items.indexAfter(itemId, isLastInFirstOut);
+			}
+
+			return items.copy(offset, limit);
+		}
+	}
+
+	/**
+	 * Reads the items of every list, passing each item to the specified handler.  The items are ordered by list id and
+	 * then in list order.  Each list is copied before its items are handled.
+	 * @param handler The handler that the items are passed to.
+	 * @should pass every item to the handler ordered by list id and item order
+	 */
+	@Override
+	public void getAllItems(ListItemModelHandler handler) {
+		Integer[] listIds = lists.keySet().toArray(new Integer[0]);
+		Arrays.sort(listIds);
+
+		for (Integer listId : listIds) {
+			ListItems items = lists.get(listId);
+			if (items == null) {
+				continue;
+			}
+
+			PersistentListItemModel[] copy;
+			synchronized (items) {
+				copy = items.copy(0, Integer.MAX_VALUE);
+			}
+			for (PersistentListItemModel item : copy) {
+				handler.handle(item);
+			}
+		}
+	}
+
+	private ListItems getListItems(Integer listId, boolean create) {
+		if (listId == null) {
+			return null;
+		}
+
+		ListItems items = lists.get(listId);
+		if (items == null && create) {
+			items = new ListItems();
+			ListItems existing = lists.putIfAbsent(listId, items);
+			if (existing != null) {
+				items = existing;
+			}
+		}
+
+		return items;
+	}
+
+	private static PersistentListItemModel copy(PersistentListItemModel item, int itemOrder) {
+		PersistentListItemModel copy = new PersistentListItemModel(item.getListId(), item.getItemKey(), itemOrder,
+				item.getCreatorId(), item.getDateCreatedMillis());
+		copy.setItemId(item.getItemId());
+
+		return copy;
+	}
+
+	/**
+	 * The items of a single list, sorted by item order, in a circular array.  Rather than updating the order of every
+	 * item when the items at the front of the list are shifted, the stored orders are relative to an offset which is
+	 * updated instead.  This class is not thread-safe.
+	 */
+	private static class ListItems {
+		private PersistentListItemModel[] items = new PersistentListItemModel[16];
+		private int head;
+		private int size;
+		private int orderOffset;
+
+		public PersistentListItemModel[] copy(int offset, int limit) {
+			int start = Math.min(offset, size);
+			PersistentListItemModel[] result = new PersistentListItemModel[Math.min(limit, size - start)];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = MemoryListProvider.copy(get(start + i), getOrder(start + i));
+			}
+
+			return result;
+		}
+
+		public int indexOf(String itemKey, int itemOrder) {
+			// Look for the item at its order first and then check every item in case the order is out of date
+			for (int i = indexAtOrAfter(itemOrder); i < size && getOrder(i) == itemOrder; i++) {
+				if (get(i).getItemKey().equals(itemKey)) {
+					return i;
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				if (get(i).getItemKey().equals(itemKey)) {
+					return i;
+				}
+			}
+
+			return -1;
+		}
+
+		public int indexAfter(int itemId, boolean isDescending) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int id = get(mid).getItemId();
+				if (isDescending ? id >= itemId : id <= itemId) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		public void insert(PersistentListItemModel item) {
+			if (size == items.length) {
+				grow();
+			}
+
+			int order = item.getItemOrder();
+			int index = indexAtOrAfter(order);
+			int mask = items.length - 1;
+			if (index < size - index) {
+				// Incrementing every item and then decrementing the preceding items is the same as incrementing the
+				// items at or after the index, but only touches the preceding items
+				orderOffset++;
+				head = (head - 1) & mask;
+				for (int i = 0; i < index; i++) {
+					PersistentListItemModel moved = items[(head + i + 1) & mask];
+					moved.setItemOrder(moved.getItemOrder() - 1);
+					items[(head + i) & mask] = moved;
+				}
+			} else {
+				for (int i = size; i > index; i--) {
+					PersistentListItemModel moved = items[(head + i - 1) & mask];
+					moved.setItemOrder(moved.getItemOrder() + 1);
+					items[(head + i) & mask] = moved;
+				}
+			}
+
+			item.setItemOrder(order - orderOffset);
+			items[(head + index) & mask] = item;
+			size++;
+		}
+
+		public void removeAt(int index) {
+			int mask = items.length - 1;
+			if (index < size - index - 1) {
+				// Decrement every item and then increment the preceding items
+				orderOffset--;
+				for (int i = index; i > 0; i--) {
+					PersistentListItemModel moved = items[(head + i - 1) & mask];
+					moved.setItemOrder(moved.getItemOrder() + 1);
+					items[(head + i) & mask] = moved;
+				}
+				items[head] = null;
+				head = (head + 1) & mask;
+			} else {
+				for (int i = index; i < size - 1; i++) {
+					PersistentListItemModel moved = items[(head + i + 1) & mask];
+					moved.setItemOrder(moved.getItemOrder() - 1);
+					items[(head + i) & mask] = moved;
+				}
+				items[(head + size - 1) & mask] = null;
+			}
+
+			size--;
+		}
+
+		private PersistentListItemModel get(int index) {
+			return items[(head + index) & (items.length - 1)];
+		}
+
+		private int getOrder(int index) {
+			return get(index).getItemOrder() + orderOffset;
+		}
+
+		private int indexAtOrAfter(int itemOrder) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (getOrder(mid) < itemOrder) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		private void grow() {
+			PersistentListItemModel[] newItems = new PersistentListItemModel[items.length << 1];
+			for (int i = 0; i < size; i++) {
+				newItems[i] = get(i);
+			}
+
+			items = newItems;
+			head = 0;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.memory;
+
+import org.openmrs.module.openhmis.plm.PersistentListServiceProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link PersistentListServiceProvider} which keeps the list definitions in memory.  Like the
+ * {@link MemoryListProvider} it is only intended for tests, benchmarks and lists that do not need to survive a restart.
+ */
+public class MemoryServiceProvider implements PersistentListServiceProvider {
+	private final Map<String, PersistentListModel> lists = new ConcurrentHashMap<String, PersistentListModel>();
+	private final AtomicInteger nextListId = new AtomicInteger(1);
+
+	@Override
+	public PersistentListModel[] getLists() {
+		return lists.values().toArray(new PersistentListModel[0]);
+	}
+
+	/**
+	 * Adds the list definition.
+	 * @param list The list to add.
+	 * @should assign a list id when the list does not have one
+	 * @should keep the list id when the list has one
+	 * @should replace the list with the same key
+	 */
+	@Override
+	public void addList(PersistentListModel list) {
+		if (list.getListId() == null) {
+			// Assign the list id to the new list, as the database would
+			list.setListId(nextListId.getAndIncrement());
+		} else {
+			// Make sure that the ids assigned later do not collide with this one
+			int listId;
+			do {
+				listId = nextListId.get();
+			} while (listId <= list.getListId() && !nextListId.compareAndSet(listId, list.getListId() + 1));
+		}
+
+		lists.put(list.getKey(), list);
+	}
+
+	/**
+	 * Removes the list definition with the specified key.
+	 * @param key The key of the list to remove.
+	 * @should remove the list with the key
+	 * @should not throw when the list does not exist
+	 */
+	@Override
+	public void removeList(String key) {
+		lists.remove(key);
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of latencies which does not allocate or lock when recording a value.  Operation latencies are
+ * recorded in nanoseconds and item dwell times in milliseconds.
+ * <p/>
+ * Values are counted in log-linear buckets: each power of two range is split into {@link #SUB_BUCKET_COUNT} buckets,
+ * so a percentile is reported within 12.5% of the recorded value.  Values of {@code 2^36} (about 68 seconds in nanoseconds
+ * or two years in milliseconds) or more are counted in the last bucket.  The buckets are only allocated once the first value is recorded so that
+ * operations that are never used do not take up memory.
+ */
+public class LatencyHistogram {
+	static final int SUB_BUCKET_BITS = 3;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int MAX_EXPONENT = 35;
+	static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	private volatile AtomicLongArray buckets;
+
+	/**
+	 * Records a latency.
+	 * @param latency The latency.  Negative values are recorded as zero.
+	 * @should count the value in the bucket for the value
+	 * @should record negative values as zero
+	 * @should update the count, sum and maximum
+	 */
+	public void record(long latency) {
+		long value = Math.max(latency, 0);
+
+		AtomicLongArray counts = buckets;
+		if (counts == null) {
+			counts = createBuckets();
+		}
+		counts.incrementAndGet(getBucketIndex(value));
+
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Gets a copy of the current histogram values.  Values that are recorded while the copy is being made may or may not
+	 * be included in it.
+	 * @return The histogram snapshot.
+	 * @should return an empty snapshot when no values have been recorded
+	 */
+	public LatencySnapshot getSnapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		AtomicLongArray current = buckets;
+		if (current != null) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = current.get(i);
+			}
+		}
+
+		return new LatencySnapshot(counts, count.get(), sum.get(), max.get());
+	}
+
+	static int getBucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+
+		int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Gets the highest value that is counted in the specified bucket.
+	 * @param index The bucket index.
+	 * @return The highest value in the bucket.
+	 */
+	static long getBucketLimit(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		if (index == BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	private synchronized AtomicLongArray createBuckets() {
+		if (buckets == null) {
+			buckets = new AtomicLongArray(BUCKET_COUNT);
+		}
+
+		return buckets;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * An immutable copy of the values of a {@link LatencyHistogram}.  The latencies are in the unit that they were recorded
+ * in.
+ */
+public class LatencySnapshot {
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long max;
+
+	LatencySnapshot(long[] counts, long count, long sum, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double)sum / count;
+	}
+
+	/**
+	 * Gets the latency that the specified percentage of the recorded latencies are less than or equal to.  The value is
+	 * the upper limit of the histogram bucket that contains the percentile, so it is never lower than the actual value.
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The latency at the percentile or zero if no latencies were recorded.
+	 * @should return the upper limit of the bucket containing the percentile
+	 * @should not return more than the maximum recorded value
+	 * @should return zero when no values were recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (long bucketCount : counts) {
+			total += bucketCount;
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long)Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(LatencyHistogram.getBucketLimit(i), max);
+			}
+		}
+
+		return max;
+	}
+
+	/**
+	 * Combines this snapshot with another snapshot.
+	 * @param other The other snapshot.
+	 * @return A new snapshot with the values of both snapshots.
+	 */
+	LatencySnapshot add(LatencySnapshot other) {
+		long[] combined = new long[counts.length];
+		for (int i = 0; i < combined.length; i++) {
+			combined[i] = counts[i] + other.counts[i];
+		}
+
+		return new LatencySnapshot(combined, count + other.count, sum + other.sum, Math.max(max, other.max));
+	}
+
+	public long getP50() {
+		return getValueAtPercentile(50);
+	}
+
+	public long getP90() {
+		return getValueAtPercentile(90);
+	}
+
+	public long getP99() {
+		return getValueAtPercentile(99);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * Records the metrics of a single list.  Implementations must be thread-safe and should not allocate or block while
+ * recording because the methods are called while the list lock is held.
+ */
+public interface ListMetrics {
+	enum Operation {
+		/**
+		 * Adding items to the list.
+		 */
+		ADD,
+		/**
+		 * Removing an item from the list, including getting and removing the next item.
+		 */
+		REMOVE,
+		/**
+		 * Getting the list items, including pages of items.
+		 */
+		GET_ITEMS,
+		/**
+		 * Any call that the list makes to its provider.
+		 */
+		PROVIDER,
+		/**
+		 * Notifying the list event listeners of a change.
+		 */
+		EVENTS
+	}
+
+	/**
+	 * Records that items were added to the list.
+	 * @param count The number of items added.
+	 */
+	void recordAdded(int count);
+
+	/**
+	 * Records that items were removed from the list.
+	 * @param count The number of items removed.
+	 */
+	void recordRemoved(int count);
+
+	/**
+	 * Records the current number of items in the list.
+	 * @param size The list size.
+	 */
+	void recordSize(int size);
+
+	/**
+	 * Records when the item that the list will return next was created.
+	 * @param createdOn The time that the next item was created, in milliseconds since the epoch, or
+	 * {@link org.openmrs.module.openhmis.plm.PersistentListItem#NO_DATE} if the list is empty or the item has no creation
+	 * date.
+	 */
+	void recordHead(long createdOn);
+
+	/**
+	 * Records how long an item was in the list before it was removed.
+	 * @param millis The item dwell time in milliseconds.
+	 */
+	void recordDwellTime(long millis);
+
+	/**
+	 * Records how long an operation took.
+	 * @param operation The operation.
+	 * @param nanos The operation latency in nanoseconds.
+	 */
+	void recordLatency(Operation operation, long nanos);
+}
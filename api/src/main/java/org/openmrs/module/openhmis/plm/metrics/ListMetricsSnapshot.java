@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.Date;
+
+/**
+ * An immutable copy of the metrics of a list.
+ */
+public class ListMetricsSnapshot {
+	private final String listKey;
+	private final int size;
+	private final long addedCount;
+	private final double addedRate;
+	private final long removedCount;
+	private final double removedRate;
+	private final LatencySnapshot[] latencies;
+	private final LatencySnapshot dwellTime;
+	private final long headAge;
+	private final Date headCreatedOn;
+
+	ListMetricsSnapshot(String listKey, int size, long addedCount, double addedRate, long removedCount,
+	                    double removedRate, LatencySnapshot[] latencies, LatencySnapshot dwellTime, long headAge,
+	                    Date headCreatedOn) {
+		this.listKey = listKey;
+		this.size = size;
+		this.addedCount = addedCount;
+		this.addedRate = addedRate;
+		this.removedCount = removedCount;
+		this.removedRate = removedRate;
+		this.latencies = latencies;
+		this.dwellTime = dwellTime;
+		this.headAge = headAge;
+		this.headCreatedOn = headCreatedOn;
+	}
+
+	public String getListKey() {
+		return listKey;
+	}
+
+	/**
+	 * Gets the number of items that were in the list when it last changed.
+	 * @return The list size.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of items that have been added to the list since the metrics were created.
+	 * @return The number of items added.
+	 */
+	public long getAddedCount() {
+		return addedCount;
+	}
+
+	/**
+	 * Gets the average number of items added per second over the last minute.
+	 * @return The add rate.
+	 */
+	public double getAddedRate() {
+		return addedRate;
+	}
+
+	/**
+	 * Gets the number of items that have been removed from the list since the metrics were created.
+	 * @return The number of items removed.
+	 */
+	public long getRemovedCount() {
+		return removedCount;
+	}
+
+	/**
+	 * Gets the average number of items removed per second over the last minute.
+	 * @return The remove rate.
+	 */
+	public double getRemovedRate() {
+		return removedRate;
+	}
+
+	public LatencySnapshot getLatency(ListMetrics.Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	/**
+	 * Gets how long, in milliseconds, the items removed from the list over the last hour had been in the list.
+	 * @return The item dwell times.
+	 */
+	public LatencySnapshot getDwellTime() {
+		return dwellTime;
+	}
+
+	/**
+	 * Gets how long, in milliseconds, the item that the list will return next has been in the list.
+	 * @return The age of the next item or zero if the list is empty.
+	 */
+	public long getHeadAge() {
+		return headAge;
+	}
+
+	/**
+	 * Gets when the item that the list will return next was created.  Unlike the head age this does not change while the
+	 * list is idle.
+	 * @return The creation date of the next item or {@code null} if the list is empty.
+	 */
+	public Date getHeadCreatedOn() {
+		return headCreatedOn == null ? null : new Date(headCreatedOn.getTime());
+	}
+}
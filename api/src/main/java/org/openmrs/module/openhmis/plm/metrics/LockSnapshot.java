@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * An immutable copy of the counters of a {@link ProfiledLock}.  All times are in nanoseconds.
+ */
+public class LockSnapshot {
+	private final boolean isProfilingEnabled;
+	private final long acquisitions;
+	private final long contendedAcquisitions;
+	private final long waitTime;
+	private final long memoryHoldTime;
+	private final long providerHoldTime;
+	private final LatencySnapshot waitTimes;
+	private final LatencySnapshot holdTimes;
+
+	LockSnapshot(boolean isProfilingEnabled, long acquisitions, long contendedAcquisitions, long waitTime,
+	             long memoryHoldTime, long providerHoldTime, LatencySnapshot waitTimes, LatencySnapshot holdTimes) {
+		this.isProfilingEnabled = isProfilingEnabled;
+		this.acquisitions = acquisitions;
+		this.contendedAcquisitions = contendedAcquisitions;
+		this.waitTime = waitTime;
+		this.memoryHoldTime = memoryHoldTime;
+		this.providerHoldTime = providerHoldTime;
+		this.waitTimes = waitTimes;
+		this.holdTimes = holdTimes;
+	}
+
+	public boolean getIsProfilingEnabled() {
+		return isProfilingEnabled;
+	}
+
+	/**
+	 * Gets the number of times that the lock was acquired while profiling was enabled.
+	 * @return The number of acquisitions.
+	 */
+	public long getAcquisitions() {
+		return acquisitions;
+	}
+
+	/**
+	 * Gets the number of acquisitions that had to wait for another thread to release the lock.
+	 * @return The number of contended acquisitions.
+	 */
+	public long getContendedAcquisitions() {
+		return contendedAcquisitions;
+	}
+
+	/**
+	 * Gets the total time that threads waited to acquire the lock.
+	 * @return The total wait time.
+	 */
+	public long getWaitTime() {
+		return waitTime;
+	}
+
+	/**
+	 * Gets the total time that the lock was held outside of provider calls.
+	 * @return The total in-memory hold time.
+	 */
+	public long getMemoryHoldTime() {
+		return memoryHoldTime;
+	}
+
+	/**
+	 * Gets the total time that the lock was held while waiting for provider calls.
+	 * @return The total provider hold time.
+	 */
+	public long getProviderHoldTime() {
+		return providerHoldTime;
+	}
+
+	/**
+	 * Gets the distribution of the time that each acquisition waited for the lock, including uncontended acquisitions.
+	 * @return The wait times.
+	 */
+	public LatencySnapshot getWaitTimes() {
+		return waitTimes;
+	}
+
+	/**
+	 * Gets the distribution of the time that the lock was held for each acquisition.
+	 * @return The hold times.
+	 */
+	public LatencySnapshot getHoldTimes() {
+		return holdTimes;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ListMetrics} which are kept in memory by the {@link MemoryMetricsRegistry}.  The item dwell times are kept for
+ * the last hour.
+ */
+public class MemoryListMetrics implements ListMetrics {
+	static final long DWELL_TIME_WINDOW = TimeUnit.HOURS.toMillis(1);
+	static final int DWELL_TIME_SLOTS = 6;
+
+	private final String listKey;
+	private final RateCounter added = new RateCounter();
+	private final RateCounter removed = new RateCounter();
+	private final LatencyHistogram[] latencies;
+	private final WindowedHistogram dwellTimes = new WindowedHistogram(DWELL_TIME_WINDOW, DWELL_TIME_SLOTS);
+	private volatile int size;
+	private volatile long headCreatedOn = PersistentListItem.NO_DATE;
+
+	public MemoryListMetrics(String listKey) {
+		this.listKey = listKey;
+
+		latencies = new LatencyHistogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	@Override
+	public void recordAdded(int count) {
+		added.record(count);
+	}
+
+	@Override
+	public void recordRemoved(int count) {
+		removed.record(count);
+	}
+
+	@Override
+	public void recordSize(int size) {
+		this.size = size;
+	}
+
+	@Override
+	public void recordHead(long createdOn) {
+		headCreatedOn = createdOn;
+	}
+
+	@Override
+	public void recordDwellTime(long millis) {
+		dwellTimes.record(millis);
+	}
+
+	@Override
+	public void recordLatency(Operation operation, long nanos) {
+		latencies[operation.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Gets a copy of the current metrics.
+	 * @return The metrics snapshot.
+	 * @should return the age of the next item
+	 * @should return a head age of zero when the list is empty
+	 * @should return when the next item was created
+	 */
+	public ListMetricsSnapshot getSnapshot() {
+		LatencySnapshot[] snapshots = new LatencySnapshot[latencies.length];
+		for (int i = 0; i < latencies.length; i++) {
+			snapshots[i] = latencies[i].getSnapshot();
+		}
+
+		long head = headCreatedOn;
+		long headAge = head == PersistentListItem.NO_DATE ? 0 : Math.max(getCurrentTimeMillis() - head, 0);
+
+		return new ListMetricsSnapshot(listKey, size, added.getTotal(), added.getRate(), removed.getTotal(),
+				removed.getRate(), snapshots, dwellTimes.getSnapshot(), headAge,
+				head == PersistentListItem.NO_DATE ? null : new Date(head));
+	}
+
+	/**
+	 * Gets the current time that the age of the next item is measured against.
+	 * @return The current time in milliseconds.
+	 */
+	protected long getCurrentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MetricsRegistry} which keeps the metrics in memory so that they can be read, or scraped by a monitoring
+ * system, through the snapshot methods.  This is the registry used by the list service unless another is configured.
+ */
+public class MemoryMetricsRegistry implements MetricsRegistry {
+	private final ConcurrentMap<String, MemoryListMetrics> lists = new ConcurrentHashMap<String, MemoryListMetrics>();
+	private final ConcurrentMap<String, MemoryProviderMetrics> providers =
+			new ConcurrentHashMap<String, MemoryProviderMetrics>();
+
+	/**
+	 * Gets the metrics for the specified list, creating them if needed.
+	 * @param listKey The list key.
+	 * @return The list metrics.
+	 * @should return the same metrics for the same list
+	 * @should return new metrics after the list metrics are removed
+	 */
+	@Override
+	public MemoryListMetrics getListMetrics(String listKey) {
+		MemoryListMetrics metrics = lists.get(listKey);
+		if (metrics == null) {
+			MemoryListMetrics newMetrics = new MemoryListMetrics(listKey);
+			metrics = lists.putIfAbsent(listKey, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+			}
+		}
+
+		return metrics;
+	}
+
+	@Override
+	public void removeListMetrics(String listKey) {
+		lists.remove(listKey);
+	}
+
+	/**
+	 * Gets the metrics for the specified list provider, creating them if needed.
+	 * @param providerName The provider name.
+	 * @return The provider metrics.
+	 * @should return the same metrics for the same provider
+	 */
+	@Override
+	public MemoryProviderMetrics getProviderMetrics(String providerName) {
+		MemoryProviderMetrics metrics = providers.get(providerName);
+		if (metrics == null) {
+			MemoryProviderMetrics newMetrics = new MemoryProviderMetrics(providerName);
+			metrics = providers.putIfAbsent(providerName, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+			}
+		}
+
+		return metrics;
+	}
+
+	/**
+	 * Gets a copy of the current metrics for the specified list.
+	 * @param listKey The list key.
+	 * @return The list metrics or {@code null} if there are no metrics for the list.
+	 */
+	public ListMetricsSnapshot getListSnapshot(String listKey) {
+		MemoryListMetrics metrics = lists.get(listKey);
+
+		return metrics == null ? null : metrics.getSnapshot();
+	}
+
+	/**
+	 * Gets a copy of the current metrics for every list.
+	 * @return The list metrics.
+	 * @should return the metrics for every list
+	 */
+	public ListMetricsSnapshot[] getListSnapshots() {
+		List<ListMetricsSnapshot> snapshots = new ArrayList<ListMetricsSnapshot>(lists.size());
+		for (MemoryListMetrics metrics : lists.values()) {
+			snapshots.add(metrics.getSnapshot());
+		}
+
+		return snapshots.toArray(new ListMetricsSnapshot[snapshots.size()]);
+	}
+
+	/**
+	 * Gets a copy of the current metrics for every list provider.
+	 * @return The provider metrics.
+	 */
+	public ProviderMetricsSnapshot[] getProviderSnapshots() {
+		List<ProviderMetricsSnapshot> snapshots = new ArrayList<ProviderMetricsSnapshot>(providers.size());
+		for (MemoryProviderMetrics metrics : providers.values()) {
+			snapshots.add(metrics.getSnapshot());
+		}
+
+		return snapshots.toArray(new ProviderMetricsSnapshot[snapshots.size()]);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * {@link ProviderMetrics} which are kept in memory by the {@link MemoryMetricsRegistry}.
+ */
+public class MemoryProviderMetrics implements ProviderMetrics {
+	private final String providerName;
+	private final LatencyHistogram[] latencies;
+
+	public MemoryProviderMetrics(String providerName) {
+		this.providerName = providerName;
+
+		latencies = new LatencyHistogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	@Override
+	public void recordLatency(Operation operation, long nanos) {
+		latencies[operation.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Gets a copy of the current metrics.
+	 * @return The metrics snapshot.
+	 */
+	public ProviderMetricsSnapshot getSnapshot() {
+		LatencySnapshot[] snapshots = new LatencySnapshot[latencies.length];
+		for (int i = 0; i < latencies.length; i++) {
+			snapshots[i] = latencies[i].getSnapshot();
+		}
+
+		return new ProviderMetricsSnapshot(providerName, snapshots);
+	}
+}
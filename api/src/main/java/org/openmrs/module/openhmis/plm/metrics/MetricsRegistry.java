@@ -0,0 +1,41 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * Creates and holds the metrics of the lists and list providers.  The {@link MemoryMetricsRegistry} keeps the metrics in
+ * memory; other implementations can forward them to a monitoring system.
+ */
+public interface MetricsRegistry {
+	/**
+	 * Gets the metrics for the specified list, creating them if needed.
+	 * @param listKey The list key.
+	 * @return The list metrics.
+	 */
+	ListMetrics getListMetrics(String listKey);
+
+	/**
+	 * Removes the metrics for the specified list.
+	 * @param listKey The list key.
+	 */
+	void removeListMetrics(String listKey);
+
+	/**
+	 * Gets the metrics for the specified list provider, creating them if needed.
+	 * @param providerName The provider name.
+	 * @return The provider metrics.
+	 */
+	ProviderMetrics getProviderMetrics(String providerName);
+}
@@ -0,0 +1,69 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * A {@link MetricsRegistry} which does not record anything.  This is also the source of the metrics used by lists and
+ * providers that have not been given a registry.
+ */
+public class NullMetricsRegistry implements MetricsRegistry {
+	public static final NullMetricsRegistry INSTANCE = new NullMetricsRegistry();
+	public static final ListMetrics LIST_METRICS = new NullMetrics();
+	public static final ProviderMetrics PROVIDER_METRICS = new NullMetrics();
+
+	@Override
+	public ListMetrics getListMetrics(String listKey) {
+		return LIST_METRICS;
+	}
+
+	@Override
+	public void removeListMetrics(String listKey) {
+	}
+
+	@Override
+	public ProviderMetrics getProviderMetrics(String providerName) {
+		return PROVIDER_METRICS;
+	}
+
+	private static class NullMetrics implements ListMetrics, ProviderMetrics {
+		@Override
+		public void recordAdded(int count) {
+		}
+
+		@Override
+		public void recordRemoved(int count) {
+		}
+
+		@Override
+		public void recordSize(int size) {
+		}
+
+		@Override
+		public void recordHead(long createdOn) {
+		}
+
+		@Override
+		public void recordDwellTime(long millis) {
+		}
+
+		@Override
+		public void recordLatency(ListMetrics.Operation operation, long nanos) {
+		}
+
+		@Override
+		public void recordLatency(ProviderMetrics.Operation operation, long nanos) {
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A reentrant lock which can count its acquisitions and measure how long threads wait for it and hold it.  The hold time
+ * is split into the time spent in provider calls, which the holder reports with {@link #recordProviderTime(long)}, and
+ * the remaining in-memory time.
+ * <p/>
+ * Profiling can be turned on and off at any time.  When it is off the lock only adds a volatile read to each acquisition.
+ * When it is on an uncontended acquisition is not timed, so the wait time only costs anything when there is contention,
+ * and only the outermost acquisition of a reentrant hold is counted.
+ */
+public class ProfiledLock {
+	private final ReentrantLock lock = new ReentrantLock();
+	private final AtomicLong acquisitions = new AtomicLong();
+	private final AtomicLong contendedAcquisitions = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong memoryHoldNanos = new AtomicLong();
+	private final AtomicLong providerHoldNanos = new AtomicLong();
+	private final LatencyHistogram waitTimes = new LatencyHistogram();
+	private final LatencyHistogram holdTimes = new LatencyHistogram();
+	private volatile boolean isProfilingEnabled;
+
+	// These are only accessed by the thread holding the lock
+	private boolean isProfiled;
+	private long acquiredAt;
+	private long providerNanos;
+
+	/**
+	 * Acquires the lock, waiting for it if it is held by another thread.
+	 * @should count the acquisition when profiling is enabled
+	 * @should not count the acquisition when profiling is disabled
+	 * @should only count the outermost acquisition of a reentrant hold
+	 * @should count the wait time of a contended acquisition
+	 */
+	public void lock() {
+		if (lock.isHeldByCurrentThread()) {
+			lock.lock();
+			return;
+		}
+
+		if (!isProfilingEnabled) {
+			lock.lock();
+			isProfiled = false;
+			return;
+		}
+
+		long wait = 0;
+		if (!lock.tryLock()) {
+			long start = System.nanoTime();
+			lock.lock();
+			wait = System.nanoTime() - start;
+
+			contendedAcquisitions.incrementAndGet();
+			waitNanos.addAndGet(wait);
+		}
+
+		acquisitions.incrementAndGet();
+		waitTimes.record(wait);
+
+		isProfiled = true;
+		providerNanos = 0;
+		acquiredAt = System.nanoTime();
+	}
+
+	/**
+	 * Releases the lock.
+	 * @should split the hold time into the memory and provider time
+	 */
+	public void unlock() {
+		if (isProfiled && lock.getHoldCount() == 1) {
+			long hold = System.nanoTime() - acquiredAt;
+			long provider = Math.min(providerNanos, hold);
+
+			providerHoldNanos.addAndGet(provider);
+			memoryHoldNanos.addAndGet(hold - provider);
+			holdTimes.record(hold);
+
+			isProfiled = false;
+		}
+
+		lock.unlock();
+	}
+
+	/**
+	 * Adds to the time that the current hold of the lock has spent in provider calls.  Calls made by threads that do not
+	 * hold the lock are ignored.
+	 * @param nanos The provider call time in nanoseconds.
+	 */
+	public void recordProviderTime(long nanos) {
+		if (lock.isHeldByCurrentThread() && isProfiled) {
+			providerNanos += nanos;
+		}
+	}
+
+	public boolean isHeldByCurrentThread() {
+		return lock.isHeldByCurrentThread();
+	}
+
+	public boolean getIsProfilingEnabled() {
+		return isProfilingEnabled;
+	}
+
+	/**
+	 * Turns the lock profiling on or off.  The counters are kept when profiling is turned off.
+	 * @param isProfilingEnabled {@code true} to profile the lock; otherwise, {@code false}.
+	 */
+	public void setIsProfilingEnabled(boolean isProfilingEnabled) {
+		this.isProfilingEnabled = isProfilingEnabled;
+	}
+
+	/**
+	 * Gets a copy of the current lock counters.
+	 * @return The lock snapshot.
+	 */
+	public LockSnapshot getSnapshot() {
+		return new LockSnapshot(isProfilingEnabled, acquisitions.get(), contendedAcquisitions.get(), waitNanos.get(),
+				memoryHoldNanos.get(), providerHoldNanos.get(), waitTimes.getSnapshot(), holdTimes.getSnapshot());
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * Records the metrics of a list provider.  Implementations must be thread-safe and should not allocate or block while
+ * recording.
+ */
+public interface ProviderMetrics {
+	enum Operation {
+		ADD,
+		REMOVE,
+		CLEAR,
+		/**
+		 * Committing a group of list operations in a single transaction.
+		 */
+		COMMIT,
+		/**
+		 * Reading list items, including pages of items and the items of every list.
+		 */
+		GET_ITEMS
+	}
+
+	/**
+	 * Records how long an operation took.
+	 * @param operation The operation.
+	 * @param nanos The operation latency in nanoseconds.
+	 */
+	void recordLatency(Operation operation, long nanos);
+}
@@ -0,0 +1,36 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+/**
+ * An immutable copy of the metrics of a list provider.
+ */
+public class ProviderMetricsSnapshot {
+	private final String providerName;
+	private final LatencySnapshot[] latencies;
+
+	ProviderMetricsSnapshot(String providerName, LatencySnapshot[] latencies) {
+		this.providerName = providerName;
+		this.latencies = latencies;
+	}
+
+	public String getProviderName() {
+		return providerName;
+	}
+
+	public LatencySnapshot getLatency(ProviderMetrics.Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+}
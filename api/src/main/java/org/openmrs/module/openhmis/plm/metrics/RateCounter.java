@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe counter which also tracks how quickly it has been incremented over the last minute.  The counts are kept
+ * in one slot per second so recording does not allocate or lock.  Each slot holds the second it counts in its upper 32
+ * bits and the count in its lower 32 bits, so a slot is reset for a new second in the same compare and set that adds
+ * to it and no increment is lost.  The count of a single second stops at 2^32 - 1.
+ */
+public class RateCounter {
+	static final int WINDOW_SECONDS = 60;
+
+	private static final int COUNT_BITS = 32;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLongArray slots = new AtomicLongArray(WINDOW_SECONDS);
+
+	/**
+	 * Adds to the counter.
+	 * @param amount The amount to add.
+	 * @should add the amount to the total
+	 * @should include the amount in the rate
+	 * @should not lose amounts recorded concurrently when a slot is reused
+	 */
+	public void record(long amount) {
+		total.addAndGet(amount);
+
+		long second = getCurrentSecond();
+		int slot = getSlot(second);
+		long epoch = second & COUNT_MASK;
+
+		while (true) {
+			long value = slots.get(slot);
+			int age = getAge(epoch, value);
+			if (age < 0) {
+				// The slot has already moved on to a later second, so this amount is older than the window
+				return;
+			}
+
+			long count = age == 0 ? value & COUNT_MASK : 0;
+			long updated = (epoch << COUNT_BITS) | Math.min(count + amount, COUNT_MASK);
+			if (slots.compareAndSet(slot, value, updated)) {
+				return;
+			}
+		}
+	}
+
+	public long getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * Gets the average number added per second over the last minute.
+	 * @return The rate per second.
+	 */
+	public double getRate() {
+		long epoch = getCurrentSecond() & COUNT_MASK;
+
+		long sum = 0;
+		for (int i = 0; i < WINDOW_SECONDS; i++) {
+			long value = slots.get(i);
+			int age = getAge(epoch, value);
+			if (age >= 0 && age < WINDOW_SECONDS) {
+				sum += value & COUNT_MASK;
+			}
+		}
+
+		return (double)sum / WINDOW_SECONDS;
+	}
+
+	/**
+	 * Gets the current time in whole seconds.  This is only used to compare times so it can have any origin.
+	 * @return The current second.
+	 */
+	protected long getCurrentSecond() {
+		return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+	}
+
+	private static int getAge(long epoch, long value) {
+		// The seconds wrap at 32 bits, so the difference is taken as a signed 32 bit number
+		return (int)(epoch - (value >>> COUNT_BITS));
+	}
+
+	private static int getSlot(long second) {
+		int slot = (int)(second % WINDOW_SECONDS);
+
+		return slot < 0 ? slot + WINDOW_SECONDS : slot;
+	}
+}
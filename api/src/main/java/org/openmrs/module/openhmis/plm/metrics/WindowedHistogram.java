@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe histogram of the values recorded over a rolling time window.  The window is split into a fixed number of
+ * slots, each holding a {@link LatencyHistogram}, so the memory used does not grow with the number of values recorded.
+ * A slot is replaced when it is reused for a later period, so the snapshot covers between the window length less one
+ * slot and the full window.  The period and histogram of a slot are replaced together in one compare and set, so a
+ * value recorded while a slot is being reused goes to the histogram of its own period.
+ */
+public class WindowedHistogram {
+	private final long slotMillis;
+	private final int slotCount;
+	private final AtomicReferenceArray<Slot> slots;
+
+	/**
+	 * Creates a new windowed histogram.
+	 * @param windowMillis The length of the window in milliseconds.
+	 * @param slotCount The number of slots that the window is split into.
+	 */
+	public WindowedHistogram(long windowMillis, int slotCount) {
+		if (slotCount < 1 || windowMillis < slotCount) {
+			throw new IllegalArgumentException("The window must have at least one slot of at least one millisecond.");
+		}
+
+		this.slotMillis = windowMillis / slotCount;
+		this.slotCount = slotCount;
+
+		slots = new AtomicReferenceArray<Slot>(slotCount);
+	}
+
+	/**
+	 * Records a value in the slot for the current time.
+	 * @param value The value.
+	 * @should include the value in the snapshot
+	 * @should not lose values recorded concurrently when a slot is reused
+	 */
+	public void record(long value) {
+		long period = getCurrentTimeMillis() / slotMillis;
+		int index = (int)(period % slotCount);
+
+		while (true) {
+			Slot slot = slots.get(index);
+			if (slot != null && slot.period == period) {
+				slot.histogram.record(value);
+				return;
+			}
+			if (slot != null && slot.period > period) {
+				// The slot has already moved on to a later period, so this value is older than the window
+				return;
+			}
+
+			slots.compareAndSet(index, slot, new Slot(period));
+		}
+	}
+
+	/**
+	 * Gets a copy of the values recorded within the window.
+	 * @return The histogram snapshot.
+	 * @should not include values that are older than the window
+	 */
+	public LatencySnapshot getSnapshot() {
+		long period = getCurrentTimeMillis() / slotMillis;
+
+		LatencySnapshot snapshot = new LatencyHistogram().getSnapshot();
+		for (int i = 0; i < slotCount; i++) {
+			Slot slot = slots.get(i);
+			if (slot != null && slot.period > period - slotCount && slot.period <= period) {
+				snapshot = snapshot.add(slot.histogram.getSnapshot());
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Gets the current time used to find the slot for a value.
+	 * @return The current time in milliseconds.
+	 */
+	protected long getCurrentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private static final class Slot {
+		private final long period;
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		private Slot(long period) {
+			this.period = period;
+		}
+	}
+}
@@ -16,16 +16,33 @@ package org.openmrs.module.openhmis.plm.model;
 
 import org.openmrs.User;
 import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.UuidKeyCodec;
 
 import java.util.Date;
 
+/**
+ * The stored form of a list item.  The creator is mapped as a plain user id column so that loading the items does not
+ * load the users that created them; items without a creator are stored with a null creator.
+ * <p/>
+ * When UUID key encoding is enabled, keys that are UUIDs are held as two longs by the {@link UuidKeyCodec}.  When
+ * {@link #setIsItemKeyBinary(boolean)} is set they are stored as 16 bytes in the {@code item_key_uuid} column rather than as text in the {@code item_key}
+ * column, whether or not they are encoded in memory.  Items are read from either column.
+ */
 public class PersistentListItemModel {
 	private int listId;
 	private Integer itemId;
 	private int itemOrder;
 	private String itemKey;
-	private User creator;
-	private Date dateCreated;
+	private long itemKeyMostSignificantBits;
+	private long itemKeyLeastSignificantBits;
+	private boolean isItemKeyEncoded;
+	private boolean isItemKeyBinary;
+	private int creatorId = PersistentListItem.NO_CREATOR;
+	private long dateCreated = PersistentListItem.NO_DATE;
+
+	PersistentListItemModel() {
+	}
 
 	public PersistentListItemModel(PersistentList list, String key, int itemOrder, User creator) {
 		this(list.getId(), key, itemOrder, creator, new Date());
@@ -40,18 +57,28 @@ public class PersistentListItemModel {
 	}
 
 	public PersistentListItemModel(int listId, String key, int itemOrder, User creator, Date dateCreated) {
+		this(listId, key, itemOrder, PersistentListItem.getUserId(creator),
+				dateCreated == null ? PersistentListItem.NO_DATE : dateCreated.getTime());
+	}
+
+	public PersistentListItemModel(PersistentList list, String key, int itemOrder, int creatorId, long dateCreated) {
+		this(list.getId(), key, itemOrder, creatorId, dateCreated);
+	}
+
+	public PersistentListItemModel(int listId, String key, int itemOrder, int creatorId, long dateCreated) {
 		this.listId = listId;
-		this.itemKey = key;
 		this.itemOrder = itemOrder;
-		this.creator = creator;
+		this.creatorId = creatorId;
 		this.dateCreated = dateCreated;
+
+		setItemKey(key);
 	}
 
-	public int getItemId() {
+	public Integer getItemId() {
 		return itemId;
 	}
 
-	public void setItemId(int itemId) {
+	public void setItemId(Integer itemId) {
 		this.itemId = itemId;
 	}
 
@@ -72,26 +99,128 @@ public class PersistentListItemModel {
 	}
 
 	public String getItemKey() {
-		return itemKey;
+		return isItemKeyEncoded ? UuidKeyCodec.toString(itemKeyMostSignificantBits, itemKeyLeastSignificantBits) :
+				itemKey;
 	}
 
 	public void setItemKey(String itemKey) {
-		this.itemKey = itemKey;
+		isItemKeyEncoded = UuidKeyCodec.shouldEncode(itemKey);
+		if (isItemKeyEncoded) {
+			this.itemKey = null;
+			this.itemKeyMostSignificantBits = UuidKeyCodec.getMostSignificantBits(itemKey);
+			this.itemKeyLeastSignificantBits = UuidKeyCodec.getLeastSignificantBits(itemKey);
+		} else {
+			this.itemKey = itemKey;
+		}
 	}
 
-	public User getCreator() {
-		return creator;
+	/**
+	 * Gets whether a UUID item key is stored as bytes rather than as text.
+	 * @return {@code true} if a UUID key is stored as bytes; otherwise, {@code false}.
+	 */
+	public boolean getIsItemKeyBinary() {
+		return isItemKeyBinary;
 	}
 
-	public void setCreator(User creator) {
-		this.creator = creator;
+	public void setIsItemKeyBinary(boolean isItemKeyBinary) {
+		this.isItemKeyBinary = isItemKeyBinary;
 	}
 
+	/**
+	 * Gets the key stored in the {@code item_key} column.
+	 * @return The item key or {@code null} if the key is stored as bytes.
+	 * @should return null when a uuid key is stored as bytes
+	 * @should return null when a uuid key is stored as bytes while uuid key encoding is disabled
+	 */
+	String getItemKeyText() {
+		return isItemKeyBinary && isItemKeyUuid() ? null : getItemKey();
+	}
+
+	void setItemKeyText(String itemKeyText) {
+		if (itemKeyText != null) {
+			setItemKey(itemKeyText);
+		}
+	}
+
+	/**
+	 * Gets the key stored in the {@code item_key_uuid} column.
+	 * @return The encoded item key or {@code null} if the key is stored as text.
+	 * @should return the encoded key when a uuid key is stored as bytes
+	 */
+	byte[] getItemKeyBytes() {
+		if (!isItemKeyBinary || !isItemKeyUuid()) {
+			return null;
+		}
+
+		return isItemKeyEncoded ? UuidKeyCodec.toBytes(itemKeyMostSignificantBits, itemKeyLeastSignificantBits) :
+				UuidKeyCodec.toBytes(itemKey);
+	}
+
+	void setItemKeyBytes(byte[] itemKeyBytes) {
+		if (itemKeyBytes != null) {
+			if (itemKeyBytes.length != UuidKeyCodec.ENCODED_LENGTH) {
+				throw new IllegalArgumentException("An encoded key must be " + UuidKeyCodec.ENCODED_LENGTH + " bytes.");
+			}
+
+			// Hold the key the same way as the keys of new items so that the loaded items compare like any other
+			isItemKeyEncoded = UuidKeyCodec.getIsEncodingEnabled();
+			if (isItemKeyEncoded) {
+				this.itemKey = null;
+				this.itemKeyMostSignificantBits = UuidKeyCodec.getLong(itemKeyBytes, 0);
+				this.itemKeyLeastSignificantBits = UuidKeyCodec.getLong(itemKeyBytes, 8);
+			} else {
+				this.itemKey = UuidKeyCodec.fromBytes(itemKeyBytes);
+			}
+			isItemKeyBinary = true;
+		}
+	}
+
+	private boolean isItemKeyUuid() {
+		return isItemKeyEncoded || UuidKeyCodec.isUuid(itemKey);
+	}
+
+	/**
+	 * Gets the user id of the user that created the item.
+	 * @return The creator user id or {@link PersistentListItem#NO_CREATOR} if the item has no creator.
+	 */
+	public int getCreatorId() {
+		return creatorId;
+	}
+
+	public void setCreatorId(int creatorId) {
+		this.creatorId = creatorId;
+	}
+
+	/**
+	 * Gets the user id stored in the {@code creator} column, which references the users table.
+	 * @return The creator user id or {@code null} if the item has no creator.
+	 * @should return null when the item has no creator
+	 */
+	Integer getStoredCreatorId() {
+		return creatorId == PersistentListItem.NO_CREATOR ? null : creatorId;
+	}
+
+	void setStoredCreatorId(Integer storedCreatorId) {
+		this.creatorId = storedCreatorId == null ? PersistentListItem.NO_CREATOR : storedCreatorId;
+	}
+
+	/**
+	 * Gets the date the item was created.  A new date is returned by each call.
+	 * @return The creation date or {@code null} if the item has no creation date.
+	 */
 	public Date getDateCreated() {
-		return dateCreated;
+		return dateCreated == PersistentListItem.NO_DATE ? null : new Date(dateCreated);
 	}
 
 	public void setDateCreated(Date dateCreated) {
-		this.dateCreated = dateCreated;
+		this.dateCreated = dateCreated == null ? PersistentListItem.NO_DATE : dateCreated.getTime();
+	}
+
+	/**
+	 * Gets the time the item was created, in milliseconds since the epoch.
+	 * @return The creation time or {@link PersistentListItem#NO_DATE} if the item has no creation date.
+	 */
+	public long getDateCreatedMillis() {
+		return dateCreated;
 	}
 }
@@ -14,6 +14,8 @@
 
 package org.openmrs.module.openhmis.plm.model;
 
+import org.openmrs.module.openhmis.plm.ListDurability;
+
 import java.util.Date;
 
 public class PersistentListModel {
@@ -22,6 +24,7 @@ public class PersistentListModel {
 	private String listProvider;
 	private String description;
 	private Date dateCreated;
+	private ListDurability durability = ListDurability.SYNCHRONOUS;
 
 	PersistentListModel() {
 	}
@@ -34,6 +37,13 @@ public class PersistentListModel {
 		this.dateCreated = dateCreated;
 	}
 
+	public PersistentListModel(Integer listId, String key, String listProvider, String description, Date dateCreated,
+	                           ListDurability durability) {
+		this(listId, key, listProvider, description, dateCreated);
+
+		setDurability(durability);
+	}
+
 	public String getListProvider() {
 		return listProvider;
 	}
@@ -66,6 +76,14 @@ public class PersistentListModel {
 		this.dateCreated = dateCreated;
 	}
 
+	public ListDurability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(ListDurability durability) {
+		this.durability = durability == null ? ListDurability.SYNCHRONOUS : durability;
+	}
+
 	public Integer getListId() {
 		return listId;
 	}
@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ListProvidersTest {
+	/**
+	 * @verifies stream the items when the provider is a StreamingListProvider
+	 * @see ListProviders#getItems(PersistentListProvider, PersistentList, ListItemModelHandler)
+	 */
+	@Test
+	public void getItems_shouldStreamTheItemsWhenTheProviderIsAStreamingListProvider() throws Exception {
+		TestPersistentListProvider provider = new TestPersistentListProvider(createModel(1, "a"), createModel(2, "b")) {
+			@Override
+			public PersistentListItemModel[] getItems(PersistentList list) {
+				fail("The items should be streamed.");
+				return null;
+			}
+		};
+		PersistentList list = new TestPersistentList("test", provider);
+		RecordingHandler handler = new RecordingHandler();
+
+		ListProviders.getItems(provider, list, handler);
+
+		assertEquals(2, handler.keys.size());
+		assertEquals("a", handler.keys.get(0));
+		assertEquals("b", handler.keys.get(1));
+	}
+
+	/**
+	 * @verifies pass the items from getItems to the handler when the provider cannot stream
+	 * @see ListProviders#getItems(PersistentListProvider, PersistentList, ListItemModelHandler)
+	 */
+	@Test
+	public void getItems_shouldPassTheItemsFromGetItemsToTheHandlerWhenTheProviderCannotStream() throws Exception {
+		PersistentListProvider provider = mock(PersistentListProvider.class);
+		PersistentList list = new TestPersistentList("test", provider);
+		when(provider.getItems(list)).thenReturn(new PersistentListItemModel[] { createModel(1, "a"), createModel(2, "b") });
+		RecordingHandler handler = new RecordingHandler();
+
+		ListProviders.getItems(provider, list, handler);
+
+		assertEquals(2, handler.keys.size());
+		assertEquals("a", handler.keys.get(0));
+		assertEquals("b", handler.keys.get(1));
+	}
+
+	/**
+	 * @verifies copy the range from getItems when the provider cannot page
+	 * @see ListProviders#getItems(PersistentListProvider, PersistentList, int, int)
+	 */
+	@Test
+	public void getItems_shouldCopyTheRangeFromGetItemsWhenTheProviderCannotPage() throws Exception {
+		PersistentListProvider provider = createUnpagedProvider();
+		PersistentList list = new TestPersistentList("test", provider);
+
+		PersistentListItemModel[] items = ListProviders.getItems(provider, list, 1, 5);
+
+		assertEquals(2, items.length);
+		assertEquals("b", items[0].getItemKey());
+		assertEquals("c", items[1].getItemKey());
+		assertEquals(0, ListProviders.getItems(provider, list, 5, 5).length);
+	}
+
+	/**
+	 * @verifies return the items after the specified item from getItems when the provider cannot page
+	 * @see ListProviders#getItemsAfter(PersistentListProvider, PersistentList, Integer, boolean, int)
+	 */
+	@Test
+	public void getItemsAfter_shouldReturnTheItemsAfterTheSpecifiedItemFromGetItemsWhenTheProviderCannotPage()
+			throws Exception {
+		PersistentListProvider provider = createUnpagedProvider();
+		PersistentList list = new TestPersistentList("test", provider);
+
+		PersistentListItemModel[] items = ListProviders.getItemsAfter(provider, list, null, false, 2);
+		assertEquals(2, items.length);
+		assertEquals("a", items[0].getItemKey());
+
+		items = ListProviders.getItemsAfter(provider, list, 1, false, 2);
+		assertEquals(2, items.length);
+		assertEquals("b", items[0].getItemKey());
+		assertEquals("c", items[1].getItemKey());
+	}
+
+	/**
+	 * @verifies return the items before the specified item id when the list is last in first out
+	 * @see ListProviders#getItemsAfter(PersistentListProvider, PersistentList, Integer, boolean, int)
+	 */
+	@Test
+	public void getItemsAfter_shouldReturnTheItemsBeforeTheSpecifiedItemIdWhenTheListIsLastInFirstOut()
+			throws Exception {
+		PersistentListProvider provider = mock(PersistentListProvider.class);
+		when(provider.getItems(any(PersistentList.class))).thenReturn(new PersistentListItemModel[] {
+				createModel(3, "c"), createModel(2, "b"), createModel(1, "a") });
+		PersistentList list = new TestPersistentList("test", provider);
+
+		PersistentListItemModel[] items = ListProviders.getItemsAfter(provider, list, 3, true, 5);
+		assertEquals(2, items.length);
+		assertEquals("b", items[0].getItemKey());
+		assertEquals("a", items[1].getItemKey());
+	}
+
+	private static PersistentListProvider createUnpagedProvider() {
+		PersistentListProvider provider = mock(PersistentListProvider.class);
+		when(provider.getItems(any(PersistentList.class))).thenReturn(new PersistentListItemModel[] {
+				createModel(1, "a"), createModel(2, "b"), createModel(3, "c") });
+
+		return provider;
+	}
+
+	private static PersistentListItemModel createModel(int id, String key) {
+		PersistentListItemModel model = new PersistentListItemModel(1, key, id, null);
+		model.setItemId(id);
+
+		return model;
+	}
+
+	private static class RecordingHandler implements ListItemModelHandler {
+		private final List<String> keys = new ArrayList<String>();
+
+		@Override
+		public void handle(PersistentListItemModel item) {
+			keys.add(item.getItemKey());
+		}
+	}
+}
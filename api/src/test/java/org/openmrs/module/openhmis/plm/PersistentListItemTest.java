@@ -0,0 +1,84 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.junit.Test;
+import org.openmrs.User;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PersistentListItemTest {
+	/**
+	 * @verifies return the key that was set
+	 * @see PersistentListItem#getKey()
+	 */
+	@Test
+	public void getKey_shouldReturnTheKeyThatWasSet() throws Exception {
+		String uuid = "0f3c9a2e-7b1d-4c5e-9f80-a1b2c3d4e5f6";
+		PersistentListItem item = new PersistentListItem(uuid, null, null);
+		assertEquals(uuid, item.getKey());
+
+		item.setKey("0F3C9A2E-7B1D-4C5E-9F80-A1B2C3D4E5F6");
+		assertEquals("0F3C9A2E-7B1D-4C5E-9F80-A1B2C3D4E5F6", item.getKey());
+
+		item.setKey(null);
+		assertNull(item.getKey());
+	}
+
+	/**
+	 * @verifies keep only the user id
+	 * @see PersistentListItem#setCreator(User)
+	 */
+	@Test
+	public void setCreator_shouldKeepOnlyTheUserId() throws Exception {
+		PersistentListItem item = new PersistentListItem("a", null, new Date(1000));
+
+		item.setCreator(new User(5));
+		assertEquals(5, item.getCreatorId());
+
+		item.setCreator(new User());
+		assertEquals(PersistentListItem.NO_CREATOR, item.getCreatorId());
+	}
+
+	/**
+	 * @verifies return null when the item has no creator
+	 * @see PersistentListItem#getCreator()
+	 */
+	@Test
+	public void getCreator_shouldReturnNullWhenTheItemHasNoCreator() throws Exception {
+		PersistentListItem item = new PersistentListItem("a", null, new Date(1000));
+
+		assertNull(item.getCreator());
+	}
+
+	/**
+	 * @verifies return null when the item has no creation date
+	 * @see PersistentListItem#getCreatedOn()
+	 */
+	@Test
+	public void getCreatedOn_shouldReturnNullWhenTheItemHasNoCreationDate() throws Exception {
+		PersistentListItem item = new PersistentListItem("a", null, null);
+
+		assertNull(item.getCreatedOn());
+		assertEquals(PersistentListItem.NO_DATE, item.getCreatedOnMillis());
+
+		item = new PersistentListItem("b", null, new Date(1000));
+		assertEquals(new Date(1000), item.getCreatedOn());
+		assertEquals(1000, item.getCreatedOnMillis());
+	}
+}
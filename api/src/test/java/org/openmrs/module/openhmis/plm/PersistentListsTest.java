@@ -0,0 +1,153 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+
+public class PersistentListsTest {
+	private PersistentListItem[] items;
+	private PersistentList list;
+
+	@Before
+	public void before() {
+		items = new PersistentListItem[] {
+				new PersistentListItem("a", null), new PersistentListItem("b", null), new PersistentListItem("c", null),
+				new PersistentListItem("d", null) };
+
+		list = mock(PersistentList.class);
+		when(list.getItems()).thenReturn(items);
+	}
+
+	/**
+	 * @verifies copy the range from getItems when the list is not queryable
+	 * @see PersistentLists#getItems(PersistentList, int, int)
+	 */
+	@Test
+	public void getItems_shouldCopyTheRangeFromGetItemsWhenTheListIsNotQueryable() throws Exception {
+		PersistentListItem[] range = PersistentLists.getItems(list, 1, 2);
+
+		assertEquals(2, range.length);
+		assertEquals("b", range[0].getKey());
+		assertEquals("c", range[1].getKey());
+		assertEquals(1, PersistentLists.getItems(list, 3, 5).length);
+		assertEquals(0, PersistentLists.getItems(list, 5, 5).length);
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when the offset or limit is negative
+	 * @see PersistentLists#getItems(PersistentList, int, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItems_shouldThrowIllegalArgumentExceptionWhenTheOffsetOrLimitIsNegative() throws Exception {
+		PersistentLists.getItems(list, -1, 2);
+	}
+
+	/**
+	 * @verifies continue after the cursor item when the list is not queryable
+	 * @see PersistentLists#getPage(PersistentList, String, int)
+	 */
+	@Test
+	public void getPage_shouldContinueAfterTheCursorItemWhenTheListIsNotQueryable() throws Exception {
+		PersistentListPage page = PersistentLists.getPage(list, null, 2);
+		assertEquals("a", page.getItems()[0].getKey());
+		assertEquals("b", page.getItems()[1].getKey());
+
+		// Removing an item before the cursor item does not move the next page
+		when(list.getItems()).thenReturn(new PersistentListItem[] { items[1], items[2], items[3] });
+		page = PersistentLists.getPage(list, page.getNextCursor(), 2);
+
+		assertEquals(2, page.getItems().length);
+		assertEquals("c", page.getItems()[0].getKey());
+		assertEquals("d", page.getItems()[1].getKey());
+		assertNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies continue at the cursor position when the cursor item has been removed
+	 * @see PersistentLists#getPage(PersistentList, String, int)
+	 */
+	@Test
+	public void getPage_shouldContinueAtTheCursorPositionWhenTheCursorItemHasBeenRemoved() throws Exception {
+		PersistentListPage page = PersistentLists.getPage(list, null, 2);
+
+		when(list.getItems()).thenReturn(new PersistentListItem[] { items[0], items[2], items[3] });
+		page = PersistentLists.getPage(list, page.getNextCursor(), 2);
+
+		assertEquals(2, page.getItems().length);
+		assertEquals("c", page.getItems()[0].getKey());
+		assertEquals("d", page.getItems()[1].getKey());
+	}
+
+	/**
+	 * @verifies stop visiting the items from getItems when the visitor returns false
+	 * @see PersistentLists#forEach(PersistentList, ListItemVisitor)
+	 */
+	@Test
+	public void forEach_shouldStopVisitingTheItemsFromGetItemsWhenTheVisitorReturnsFalse() throws Exception {
+		final List<String> visited = new ArrayList<String>();
+		boolean result = PersistentLists.forEach(list, new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				visited.add(item.getKey());
+				return !item.getKey().equals("b");
+			}
+		});
+
+		assertFalse(result);
+		assertEquals(Arrays.asList("a", "b"), visited);
+	}
+
+	/**
+	 * @verifies return the first matching item from getItems when the list is not queryable
+	 * @see PersistentLists#findFirst(PersistentList, ListItemFilter)
+	 */
+	@Test
+	public void findFirst_shouldReturnTheFirstMatchingItemFromGetItemsWhenTheListIsNotQueryable() throws Exception {
+		PersistentListItem item = PersistentLists.findFirst(list, new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return item.getKey().compareTo("b") > 0;
+			}
+		});
+
+		assertEquals("c", item.getKey());
+	}
+
+	/**
+	 * @verifies count the matching items from getItems when the list is not queryable
+	 * @see PersistentLists#count(PersistentList, ListItemFilter)
+	 */
+	@Test
+	public void count_shouldCountTheMatchingItemsFromGetItemsWhenTheListIsNotQueryable() throws Exception {
+		int count = PersistentLists.count(list, new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return item.getKey().compareTo("b") > 0;
+			}
+		});
+
+		assertEquals(2, count);
+	}
+}
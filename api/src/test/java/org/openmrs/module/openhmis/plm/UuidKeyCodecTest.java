@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UuidKeyCodecTest {
+	/**
+	 * @verifies return true for a lower case uuid
+	 * @see UuidKeyCodec#isUuid(String)
+	 */
+	@Test
+	public void isUuid_shouldReturnTrueForALowerCaseUuid() throws Exception {
+		assertTrue(UuidKeyCodec.isUuid("0f3c9a2e-7b1d-4c5e-9f80-a1b2c3d4e5f6"));
+		assertTrue(UuidKeyCodec.isUuid(UUID.randomUUID().toString()));
+	}
+
+	/**
+	 * @verifies return false for other keys
+	 * @see UuidKeyCodec#isUuid(String)
+	 */
+	@Test
+	public void isUuid_shouldReturnFalseForOtherKeys() throws Exception {
+		assertFalse(UuidKeyCodec.isUuid(null));
+		assertFalse(UuidKeyCodec.isUuid("patient-1"));
+		assertFalse(UuidKeyCodec.isUuid("0F3C9A2E-7B1D-4C5E-9F80-A1B2C3D4E5F6"));
+		assertFalse(UuidKeyCodec.isUuid("0f3c9a2e17b1d-4c5e-9f80-a1b2c3d4e5f6"));
+		assertFalse(UuidKeyCodec.isUuid("0f3c9a2e-7b1d-4c5e-9f80-a1b2c3d4e5fg"));
+	}
+
+	/**
+	 * @verifies return false when encoding is disabled
+	 * @see UuidKeyCodec#shouldEncode(String)
+	 */
+	@Test
+	public void shouldEncode_shouldReturnFalseWhenEncodingIsDisabled() throws Exception {
+		String uuid = UUID.randomUUID().toString();
+		assertFalse(UuidKeyCodec.shouldEncode(uuid));
+
+		UuidKeyCodec.setIsEncodingEnabled(true);
+		try {
+			assertTrue(UuidKeyCodec.shouldEncode(uuid));
+			assertFalse(UuidKeyCodec.shouldEncode("patient-1"));
+		} finally {
+			UuidKeyCodec.setIsEncodingEnabled(false);
+		}
+	}
+
+	/**
+	 * @verifies return the key that was encoded
+	 * @see UuidKeyCodec#toString(long, long)
+	 */
+	@Test
+	public void toString_shouldReturnTheKeyThatWasEncoded() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			UUID uuid = UUID.randomUUID();
+			String key = uuid.toString();
+
+			assertEquals(uuid.getMostSignificantBits(), UuidKeyCodec.getMostSignificantBits(key));
+			assertEquals(uuid.getLeastSignificantBits(), UuidKeyCodec.getLeastSignificantBits(key));
+			assertEquals(key, UuidKeyCodec.toString(UuidKeyCodec.getMostSignificantBits(key),
+					UuidKeyCodec.getLeastSignificantBits(key)));
+		}
+	}
+
+	/**
+	 * @verifies return the key that was encoded
+	 * @see UuidKeyCodec#fromBytes(byte[])
+	 */
+	@Test
+	public void fromBytes_shouldReturnTheKeyThatWasEncoded() throws Exception {
+		String key = "ffffffff-0000-4c5e-8000-a1b2c3d4e5f6";
+		byte[] bytes = UuidKeyCodec.toBytes(key);
+
+		assertEquals(UuidKeyCodec.ENCODED_LENGTH, bytes.length);
+		assertEquals((byte)0xFF, bytes[0]);
+		assertEquals((byte)0xF6, bytes[15]);
+		assertEquals(key, UuidKeyCodec.fromBytes(bytes));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the bytes are not an encoded key
+	 * @see UuidKeyCodec#fromBytes(byte[])
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void fromBytes_shouldThrowIllegalArgumentExceptionIfTheBytesAreNotAnEncodedKey() throws Exception {
+		UuidKeyCodec.fromBytes(new byte[8]);
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.ListItemOperation;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogFileListProviderTest {
+	private File directory;
+	private LogFileListProvider provider;
+	private TestPersistentList list;
+
+	@Before
+	public void before() throws Exception {
+		directory = File.createTempFile("plm-test", "");
+		directory.delete();
+		directory.mkdir();
+
+		provider = new LogFileListProvider(directory);
+
+		list = new TestPersistentList("test", provider);
+		list.setId(1);
+	}
+
+	@After
+	public void after() throws Exception {
+		provider.close();
+
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * @verifies store the item in the log
+	 * @see LogFileListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldStoreTheItemInTheLog() throws Exception {
+		Date dateCreated = new Date(1000);
+		provider.add(new PersistentListItemModel(1, "a", 0, new User(5), dateCreated));
+		provider.add(createItem("c", 1));
+		provider.add(createItem("b", 1));
+
+		reopen();
+
+		assertItems("a", "b", "c");
+		PersistentListItemModel item = provider.getItems(list)[0];
+		assertEquals(5, item.getCreatorId());
+		assertEquals(dateCreated, item.getDateCreated());
+		assertEquals(PersistentListItem.NO_CREATOR, provider.getItems(list)[1].getCreatorId());
+	}
+
+	/**
+	 * @verifies store the removal in the log
+	 * @see LogFileListProvider#remove(PersistentListItemModel)
+	 */
+	@Test
+	public void remove_shouldStoreTheRemovalInTheLog() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		provider.add(createItem("c", 2));
+
+		assertTrue(provider.remove(createItem("a", 0)));
+		assertFalse(provider.remove(createItem("x", 0)));
+		reopen();
+
+		assertItems("b", "c");
+	}
+
+	/**
+	 * @verifies store every operation in a single record
+	 * @see LogFileListProvider#commit(ListItemOperation[])
+	 */
+	@Test
+	public void commit_shouldStoreEveryOperationInASingleRecord() throws Exception {
+		provider.add(createItem("a", 0));
+		long size = provider.getLogSize();
+
+		provider.commit(new ListItemOperation[] {
+				ListItemOperation.clear(list),
+				ListItemOperation.add(createItem("b", 0)),
+				ListItemOperation.add(createItem("c", 1))
+		});
+		provider.close();
+
+		// Remove the last byte of the record so that none of the operations are read
+		File log = new File(directory, "items-0.log");
+		assertTrue(log.length() > size);
+		RandomAccessFile raf = new RandomAccessFile(log, "rw");
+		try {
+			raf.setLength(log.length() - 1);
+		} finally {
+			raf.close();
+		}
+
+		assertItems("a");
+		assertEquals(size, provider.getLogSize());
+	}
+
+	/**
+	 * @verifies ignore a partly written record at the end of the log
+	 * @see LogFileListProvider#getItems(org.openmrs.module.openhmis.plm.PersistentList)
+	 */
+	@Test
+	public void getItems_shouldIgnoreAPartlyWrittenRecordAtTheEndOfTheLog() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		provider.close();
+
+		File log = new File(directory, "items-0.log");
+		RandomAccessFile raf = new RandomAccessFile(log, "rw");
+		try {
+			raf.setLength(log.length() - 3);
+		} finally {
+			raf.close();
+		}
+
+		assertItems("a");
+
+		// The log is usable after the partial record has been truncated
+		provider.add(createItem("c", 1));
+		reopen();
+		assertItems("a", "c");
+	}
+
+	/**
+	 * @verifies replay the changes made while an incomplete snapshot was being written
+	 * @see LogFileListProvider#getItems(org.openmrs.module.openhmis.plm.PersistentList)
+	 */
+	@Test
+	public void getItems_shouldReplayTheChangesMadeWhileAnIncompleteSnapshotWasBeingWritten() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		provider.close();
+		File firstLog = new File(directory, "items-0.log");
+		byte[] firstLogContent = read(firstLog);
+
+		provider.compact();
+		provider.add(createItem("c", 2));
+		provider.close();
+
+		// Put the directory back as it was before the snapshot was completed
+		write(firstLog, firstLogContent);
+		File snapshot = new File(directory, "items-1.snapshot");
+		RandomAccessFile raf = new RandomAccessFile(snapshot, "rw");
+		try {
+			raf.setLength(snapshot.length() - 1);
+		} finally {
+			raf.close();
+		}
+
+		assertItems("a", "b", "c");
+		assertTrue(firstLog.exists());
+
+		// The generations before the next complete snapshot are deleted
+		provider.compact();
+		assertFalse(firstLog.exists());
+		reopen();
+		assertItems("a", "b", "c");
+	}
+
+	/**
+	 * @verifies keep the items when the provider is reopened
+	 * @see LogFileListProvider#compact()
+	 */
+	@Test
+	public void compact_shouldKeepTheItemsWhenTheProviderIsReopened() throws Exception {
+		TestPersistentList other = new TestPersistentList("other", provider);
+		other.setId(2);
+		for (int i = 0; i < 5; i++) {
+			provider.add(createItem(String.valueOf(i), i));
+		}
+		provider.add(new PersistentListItemModel(2, "x", 0, null));
+		provider.remove(createItem("0", 0));
+
+		provider.compact();
+		provider.add(createItem("5", 4));
+		reopen();
+
+		assertItems("1", "2", "3", "4", "5");
+		assertEquals(1, provider.getItems(other).length);
+	}
+
+	/**
+	 * @verifies delete the files of the previous generation
+	 * @see LogFileListProvider#compact()
+	 */
+	@Test
+	public void compact_shouldDeleteTheFilesOfThePreviousGeneration() throws Exception {
+		provider.add(createItem("a", 0));
+
+		provider.compact();
+
+		assertFalse(new File(directory, "items-0.log").exists());
+		assertTrue(new File(directory, "items-1.snapshot").exists());
+		assertTrue(new File(directory, "items-1.log").exists());
+		assertEquals(0, provider.getLogSize());
+	}
+
+	/**
+	 * @verifies compact the log in the background when it exceeds the compaction threshold
+	 * @see LogFileListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldCompactTheLogInTheBackgroundWhenItExceedsTheCompactionThreshold() throws Exception {
+		provider.setCompactionThreshold(100);
+		provider.setCompactionInterval(10);
+		for (int i = 0; i < 20; i++) {
+			provider.add(createItem(String.valueOf(i), i));
+		}
+		for (int i = 0; i < 15; i++) {
+			provider.remove(createItem(String.valueOf(i), 0));
+		}
+
+		File firstLog = new File(directory, "items-0.log");
+		long timeout = System.currentTimeMillis() + 5000;
+		while (firstLog.exists() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertFalse(firstLog.exists());
+		reopen();
+
+		assertItems("15", "16", "17", "18", "19");
+	}
+
+	/**
+	 * @verifies store the item with each fsync policy
+	 * @see LogFileListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldStoreTheItemWithEachFsyncPolicy() throws Exception {
+		for (FsyncPolicy policy : FsyncPolicy.values()) {
+			provider.close();
+			provider = new LogFileListProvider(directory);
+			provider.setFsyncPolicy(policy);
+			provider.setFsyncInterval(0);
+			provider.add(createItem(policy.name(), 0));
+		}
+
+		reopen();
+
+		assertItems("NEVER", "INTERVAL", "ALWAYS");
+	}
+
+	/**
+	 * @verifies force an idle log to the disk with the interval policy
+	 * @see LogFileListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldForceAnIdleLogToTheDiskWithTheIntervalPolicy() throws Exception {
+		provider.setFsyncPolicy(FsyncPolicy.INTERVAL);
+		provider.setFsyncInterval(60 * 60 * 1000);
+		provider.add(createItem("a", 0));
+
+		// The interval has not passed so the add does not force the log and nothing forces it later
+		assertTrue(provider.isLogDirty());
+
+		reopen();
+		provider.setFsyncPolicy(FsyncPolicy.INTERVAL);
+		provider.setFsyncInterval(20);
+		provider.add(createItem("b", 1));
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while (provider.isLogDirty() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertFalse(provider.isLogDirty());
+		assertItems("a", "b");
+	}
+
+	private void reopen() throws Exception {
+		provider.close();
+		provider = new LogFileListProvider(directory);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		byte[] content = new byte[(int)file.length()];
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			input.readFully(content);
+		} finally {
+			input.close();
+		}
+
+		return content;
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+	}
+
+	private void assertItems(String... keys) {
+		PersistentListItemModel[] items = provider.getItems(list);
+
+		assertEquals(keys.length, items.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(keys[i], items[i].getItemKey());
+			assertEquals(i, items[i].getItemOrder());
+		}
+	}
+
+	private PersistentListItemModel createItem(String key, int order) {
+		return new PersistentListItemModel(1, key, order, null);
+	}
+}
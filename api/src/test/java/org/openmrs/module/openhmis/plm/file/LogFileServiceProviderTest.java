@@ -0,0 +1,123 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.ListDurability;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LogFileServiceProviderTest {
+	private File directory;
+	private LogFileServiceProvider provider;
+
+	@Before
+	public void before() throws Exception {
+		directory = File.createTempFile("plm-test", "");
+		directory.delete();
+		directory.mkdir();
+
+		provider = new LogFileServiceProvider(directory);
+	}
+
+	@After
+	public void after() throws Exception {
+		provider.close();
+
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * @verifies return the lists added before the provider was reopened
+	 * @see LogFileServiceProvider#getLists()
+	 */
+	@Test
+	public void getLists_shouldReturnTheListsAddedBeforeTheProviderWasReopened() throws Exception {
+		Date dateCreated = new Date(1000);
+		provider.addList(new PersistentListModel(null, "first", PersistentQueue.class.getName(), "The first list",
+				dateCreated, ListDurability.MEMORY_ONLY));
+		provider.addList(createList("second"));
+
+		reopen();
+
+		PersistentListModel[] lists = provider.getLists();
+		assertEquals(2, lists.length);
+		assertEquals("first", lists[0].getKey());
+		assertEquals(1, (int)lists[0].getListId());
+		assertEquals(PersistentQueue.class.getName(), lists[0].getListProvider());
+		assertEquals("The first list", lists[0].getDescription());
+		assertEquals(dateCreated, lists[0].getDateCreated());
+		assertEquals(ListDurability.MEMORY_ONLY, lists[0].getDurability());
+		assertEquals("second", lists[1].getKey());
+		assertNull(lists[1].getDescription());
+	}
+
+	/**
+	 * @verifies not return removed lists
+	 * @see LogFileServiceProvider#getLists()
+	 */
+	@Test
+	public void getLists_shouldNotReturnRemovedLists() throws Exception {
+		provider.addList(createList("first"));
+		provider.addList(createList("second"));
+		provider.removeList("first");
+		provider.removeList("missing");
+
+		reopen();
+
+		assertEquals(1, provider.getLists().length);
+		assertEquals("second", provider.getLists()[0].getKey());
+	}
+
+	/**
+	 * @verifies assign a list id that has not been used
+	 * @see LogFileServiceProvider#addList(PersistentListModel)
+	 */
+	@Test
+	public void addList_shouldAssignAListIdThatHasNotBeenUsed() throws Exception {
+		provider.addList(createList("first"));
+		provider.addList(createList("second"));
+		provider.removeList("second");
+		reopen();
+
+		PersistentListModel list = createList("third");
+		provider.addList(list);
+
+		assertEquals(3, (int)list.getListId());
+	}
+
+	private void reopen() throws Exception {
+		provider.close();
+		provider = new LogFileServiceProvider(directory);
+	}
+
+	private PersistentListModel createList(String key) {
+		return new PersistentListModel(null, key, PersistentQueue.class.getName(), null, new Date());
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogFileTest {
+	private File file;
+	private List<String> records;
+	private LogFile.RecordReader reader;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("plm-test", ".log");
+		records = new ArrayList<String>();
+		reader = new LogFile.RecordReader() {
+			@Override
+			public void read(ByteBuffer record) throws IOException {
+				byte[] content = new byte[record.remaining()];
+				record.get(content);
+				records.add(new String(content, "UTF-8"));
+			}
+		};
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	/**
+	 * @verifies pass each complete record to the reader
+	 * @see LogFile#open(java.io.File, LogFile.RecordReader, FsyncPolicy, long)
+	 */
+	@Test
+	public void open_shouldPassEachCompleteRecordToTheReader() throws Exception {
+		write("a", "bb", "ccc");
+
+		LogFile.open(file, reader, FsyncPolicy.NEVER, 0).close();
+
+		assertEquals(3, records.size());
+		assertEquals("a", records.get(0));
+		assertEquals("ccc", records.get(2));
+	}
+
+	/**
+	 * @verifies truncate a partly written record at the end of the file
+	 * @see LogFile#open(java.io.File, LogFile.RecordReader, FsyncPolicy, long)
+	 */
+	@Test
+	public void open_shouldTruncateAPartlyWrittenRecordAtTheEndOfTheFile() throws Exception {
+		write("a", "bb");
+		long validSize = file.length();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(validSize + 6);
+		} finally {
+			raf.close();
+		}
+
+		LogFile logFile = LogFile.open(file, reader, FsyncPolicy.NEVER, 0);
+		try {
+			assertEquals(validSize, logFile.getSize());
+			assertEquals(validSize, file.length());
+		} finally {
+			logFile.close();
+		}
+		assertEquals(2, records.size());
+	}
+
+	/**
+	 * @verifies truncate a record with an invalid checksum and the records after it
+	 * @see LogFile#open(java.io.File, LogFile.RecordReader, FsyncPolicy, long)
+	 */
+	@Test
+	public void open_shouldTruncateARecordWithAnInvalidChecksumAndTheRecordsAfterIt() throws Exception {
+		write("a", "bb", "ccc");
+
+		// Change the content of the second record
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(9 + 8);
+			raf.write('x');
+		} finally {
+			raf.close();
+		}
+
+		LogFile.open(file, reader, FsyncPolicy.NEVER, 0).close();
+
+		assertEquals(1, records.size());
+		assertEquals(9, file.length());
+	}
+
+	/**
+	 * @verifies append a record that is read when the file is opened
+	 * @see LogFile#append(java.nio.ByteBuffer)
+	 */
+	@Test
+	public void append_shouldAppendARecordThatIsReadWhenTheFileIsOpened() throws Exception {
+		write("a");
+		write("b");
+
+		LogFile.read(file, reader);
+
+		assertEquals(2, records.size());
+		assertEquals("b", records.get(1));
+	}
+
+	private void write(String... contents) throws IOException {
+		LogFile logFile = LogFile.open(file, null, FsyncPolicy.ALWAYS, 0);
+		try {
+			for (String content : contents) {
+				logFile.append(ByteBuffer.wrap(content.getBytes("UTF-8")));
+			}
+		} finally {
+			logFile.close();
+		}
+	}
+}
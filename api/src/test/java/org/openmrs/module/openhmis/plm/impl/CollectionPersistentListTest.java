@@ -0,0 +1,109 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.QueryablePersistentList;
+
+import java.util.LinkedList;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs the list tests against a list that caches its items in a plain collection, which uses the default
+ * {@link PersistentListBase} range, page and traversal implementations.
+ */
+public class CollectionPersistentListTest extends PersistentListTestBase {
+	@Override
+	protected QueryablePersistentList createList(PersistentListProvider provider) {
+		CollectionPersistentList list = new CollectionPersistentList(provider);
+		list.initialize();
+
+		return list;
+	}
+
+	/**
+	 * @verifies not put the item keys in the cursor
+	 * @see PersistentListBase#readPage(String, int)
+	 */
+	@Test
+	public void readPage_shouldNotPutTheItemKeysInTheCursor() throws Exception {
+		String[] keys = new String[4];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = UUID.randomUUID().toString();
+			list.add(new PersistentListItem(keys[i], null));
+		}
+
+		PersistentListPage page = list.getPage(null, 2);
+		for (String key : keys) {
+			assertFalse(page.getNextCursor().contains(key));
+		}
+
+		page = list.getPage(page.getNextCursor(), 2);
+		assertEquals(2, page.getItems().length);
+		assertEquals(keys[2], page.getItems()[0].getKey());
+		assertEquals(keys[3], page.getItems()[1].getKey());
+	}
+
+	private static class CollectionPersistentList extends PersistentListBase<LinkedList<PersistentListItem>> {
+		public CollectionPersistentList(PersistentListProvider provider) {
+			super(1, "test", provider);
+		}
+
+		@Override
+		public PersistentListItem getNext() {
+			ensureInitialized();
+
+			syncLock.lock();
+			try {
+				return cachedItems.peekFirst();
+			} finally {
+				syncLock.unlock();
+			}
+		}
+
+		@Override
+		public PersistentListItem getNextAndRemove() {
+			PersistentListItem item = getNext();
+			if (item != null) {
+				remove(item);
+			}
+
+			return item;
+		}
+
+		@Override
+		protected LinkedList<PersistentListItem> initializeCache() {
+			return new LinkedList<PersistentListItem>();
+		}
+
+		@Override
+		protected int getItemIndex(PersistentListItem item) {
+			int index = cachedItems.indexOf(item);
+
+			return index < 0 ? cachedItems.size() : index;
+		}
+
+		@Override
+		protected PersistentListItem peekNext() {
+			return cachedItems.peekFirst();
+		}
+	}
+}
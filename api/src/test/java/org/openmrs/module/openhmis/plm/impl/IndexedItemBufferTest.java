@@ -0,0 +1,255 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedItemBufferTest {
+	private IndexedItemBuffer buffer;
+
+	@Before
+	public void before() {
+		buffer = new IndexedItemBuffer();
+	}
+
+	/**
+	 * @verifies add the item to the end of the buffer
+	 * @see IndexedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldAddTheItemToTheEndOfTheBuffer() throws Exception {
+		PersistentListItem item1 = createItem("1");
+		PersistentListItem item2 = createItem("2");
+
+		buffer.add(item1);
+		buffer.add(item2);
+
+		assertEquals(2, buffer.size());
+		assertEquals(item1, buffer.peekFirst());
+		assertEquals(item2, buffer.peekLast());
+	}
+
+	/**
+	 * @verifies grow the buffer when it is full
+	 * @see IndexedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldGrowTheBufferWhenItIsFull() throws Exception {
+		PersistentListItem[] items = new PersistentListItem[40];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = createItem(String.valueOf(i));
+			buffer.add(items[i]);
+
+			// Remove items from the front so that the buffer wraps before it grows
+			if (i % 4 == 0) {
+				assertEquals(items[i / 4], buffer.pollFirst());
+			}
+		}
+
+		assertEquals(30, buffer.size());
+		PersistentListItem[] result = buffer.toArray(new PersistentListItem[0]);
+		for (int i = 0; i < result.length; i++) {
+			assertEquals(items[i + 10], result[i]);
+			assertEquals(items[i + 10], buffer.get(i));
+		}
+	}
+
+	/**
+	 * @verifies return the item at the index
+	 * @see IndexedItemBuffer#get(int)
+	 */
+	@Test
+	public void get_shouldReturnTheItemAtTheIndex() throws Exception {
+		PersistentListItem item1 = createItem("1");
+		PersistentListItem item2 = createItem("2");
+		buffer.add(item1);
+		buffer.add(item2);
+
+		assertEquals(item1, buffer.get(0));
+		assertEquals(item2, buffer.get(1));
+	}
+
+	/**
+	 * @verifies throw IndexOutOfBoundsException when the index is out of range
+	 * @see IndexedItemBuffer#get(int)
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void get_shouldThrowIndexOutOfBoundsExceptionWhenTheIndexIsOutOfRange() throws Exception {
+		buffer.add(createItem("1"));
+
+		buffer.get(1);
+	}
+
+	/**
+	 * @verifies return the index of the item following the sequence
+	 * @see IndexedItemBuffer#indexAfter(long)
+	 */
+	@Test
+	public void indexAfter_shouldReturnTheIndexOfTheItemFollowingTheSequence() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		assertEquals(0, buffer.indexAfter(0));
+		assertEquals(3, buffer.indexAfter(buffer.getSequence(2)));
+	}
+
+	/**
+	 * @verifies return the index of the following item when the sequence item has been removed
+	 * @see IndexedItemBuffer#indexAfter(long)
+	 */
+	@Test
+	public void indexAfter_shouldReturnTheIndexOfTheFollowingItemWhenTheSequenceItemHasBeenRemoved() throws Exception {
+		PersistentListItem[] items = new PersistentListItem[5];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = createItem(String.valueOf(i));
+			buffer.add(items[i]);
+		}
+
+		long sequence = buffer.getSequence(2);
+		buffer.remove(items[2]);
+		buffer.pollFirst();
+
+		assertEquals(items[3], buffer.get(buffer.indexAfter(sequence)));
+	}
+
+	/**
+	 * @verifies return the size when no items follow the sequence
+	 * @see IndexedItemBuffer#indexAfter(long)
+	 */
+	@Test
+	public void indexAfter_shouldReturnTheSizeWhenNoItemsFollowTheSequence() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+
+		assertEquals(2, buffer.indexAfter(buffer.getSequence(1)));
+	}
+
+	/**
+	 * @verifies remove the first item
+	 * @see IndexedItemBuffer#pollFirst()
+	 */
+	@Test
+	public void pollFirst_shouldRemoveTheFirstItem() throws Exception {
+		PersistentListItem item1 = createItem("1");
+		PersistentListItem item2 = createItem("2");
+		buffer.add(item1);
+		buffer.add(item2);
+
+		assertEquals(item1, buffer.pollFirst());
+		assertEquals(item2, buffer.pollFirst());
+		assertNull(buffer.pollFirst());
+		assertTrue(buffer.isEmpty());
+	}
+
+	/**
+	 * @verifies remove the last item
+	 * @see IndexedItemBuffer#pollLast()
+	 */
+	@Test
+	public void pollLast_shouldRemoveTheLastItem() throws Exception {
+		PersistentListItem item1 = createItem("1");
+		PersistentListItem item2 = createItem("2");
+		buffer.add(item1);
+		buffer.add(item2);
+
+		assertEquals(item2, buffer.pollLast());
+		assertEquals(item1, buffer.pollLast());
+		assertNull(buffer.pollLast());
+	}
+
+	/**
+	 * @verifies remove the item and keep the order of the remaining items
+	 * @see IndexedItemBuffer#remove(Object)
+	 */
+	@Test
+	public void remove_shouldRemoveTheItemAndKeepTheOrderOfTheRemainingItems() throws Exception {
+		PersistentListItem[] items = new PersistentListItem[6];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = createItem(String.valueOf(i));
+			buffer.add(items[i]);
+		}
+
+		// Remove items from both halves of the buffer
+		assertTrue(buffer.remove(items[1]));
+		assertTrue(buffer.remove(items[4]));
+
+		assertEquals(4, buffer.size());
+		assertEquals(items[0], buffer.get(0));
+		assertEquals(items[2], buffer.get(1));
+		assertEquals(items[3], buffer.get(2));
+		assertEquals(items[5], buffer.get(3));
+		assertTrue(buffer.getSequence(0) < buffer.getSequence(1));
+		assertTrue(buffer.getSequence(2) < buffer.getSequence(3));
+	}
+
+	/**
+	 * @verifies return the items from the last item to the first
+	 * @see IndexedItemBuffer#reversed()
+	 */
+	@Test
+	public void reversed_shouldReturnTheItemsFromTheLastItemToTheFirst() throws Exception {
+		PersistentListItem[] items = new PersistentListItem[20];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = createItem(String.valueOf(i));
+			buffer.add(items[i]);
+
+			// Remove items from the front so that the buffer wraps
+			if (i % 3 == 0) {
+				buffer.pollFirst();
+			}
+		}
+
+		List<PersistentListItem> reversed = buffer.reversed();
+		assertEquals(buffer.size(), reversed.size());
+		for (int i = 0; i < reversed.size(); i++) {
+			assertSame(buffer.get(buffer.size() - 1 - i), reversed.get(i));
+		}
+		assertSame(items[19], reversed.get(0));
+	}
+
+	/**
+	 * @verifies reflect changes to the buffer
+	 * @see IndexedItemBuffer#reversed()
+	 */
+	@Test
+	public void reversed_shouldReflectChangesToTheBuffer() throws Exception {
+		List<PersistentListItem> reversed = buffer.reversed();
+		PersistentListItem item1 = createItem("1");
+		PersistentListItem item2 = createItem("2");
+
+		buffer.add(item1);
+		buffer.add(item2);
+		assertEquals(2, reversed.size());
+		assertSame(item2, reversed.get(0));
+
+		buffer.pollLast();
+		assertEquals(1, reversed.size());
+		assertSame(item1, reversed.get(0));
+	}
+
+	private PersistentListItem createItem(String key) {
+		return new PersistentListItem(key, null);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.UuidKeyCodec;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ItemKeySetTest {
+	@Before
+	public void before() {
+		UuidKeyCodec.setIsEncodingEnabled(true);
+	}
+
+	@After
+	public void after() {
+		UuidKeyCodec.setIsEncodingEnabled(false);
+	}
+
+	/**
+	 * @verifies find uuid keys and other keys
+	 * @see ItemKeySet#contains(Object)
+	 */
+	@Test
+	public void contains_shouldFindUuidKeysAndOtherKeys() throws Exception {
+		ItemKeySet keys = new ItemKeySet();
+		String uuid = UUID.randomUUID().toString();
+		keys.add(uuid);
+		keys.add("patient-1");
+
+		assertEquals(2, keys.size());
+		assertTrue(keys.contains(uuid));
+		assertTrue(keys.contains("patient-1"));
+		assertFalse(keys.contains(UUID.randomUUID().toString()));
+		assertFalse(keys.contains(uuid.toUpperCase()));
+		assertFalse(keys.contains(1));
+
+		Set<String> iterated = new HashSet<String>(keys);
+		assertTrue(iterated.contains(uuid));
+		assertTrue(iterated.contains("patient-1"));
+	}
+
+	/**
+	 * @verifies find uuid keys when encoding is disabled
+	 * @see ItemKeySet#contains(Object)
+	 */
+	@Test
+	public void contains_shouldFindUuidKeysWhenEncodingIsDisabled() throws Exception {
+		UuidKeyCodec.setIsEncodingEnabled(false);
+		ItemKeySet keys = new ItemKeySet();
+		String uuid = UUID.randomUUID().toString();
+		keys.add(uuid);
+
+		// Turning encoding on does not change how the keys of an existing set are stored
+		UuidKeyCodec.setIsEncodingEnabled(true);
+		assertTrue(keys.contains(uuid));
+		assertFalse(keys.add(uuid));
+		assertTrue(keys.remove(uuid));
+		assertEquals(0, keys.size());
+	}
+
+	/**
+	 * @verifies not add a key that is already in the set
+	 * @see ItemKeySet#add(String)
+	 */
+	@Test
+	public void add_shouldNotAddAKeyThatIsAlreadyInTheSet() throws Exception {
+		ItemKeySet keys = new ItemKeySet();
+		String uuid = UUID.randomUUID().toString();
+
+		assertTrue(keys.add(uuid));
+		assertFalse(keys.add(new String(uuid)));
+		assertTrue(keys.add("a"));
+		assertFalse(keys.add("a"));
+		assertEquals(2, keys.size());
+	}
+
+	/**
+	 * @verifies remove the key and keep the other keys
+	 * @see ItemKeySet#remove(Object)
+	 */
+	@Test
+	public void remove_shouldRemoveTheKeyAndKeepTheOtherKeys() throws Exception {
+		ItemKeySet keys = new ItemKeySet();
+		List<String> added = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			String key = UUID.randomUUID().toString();
+			added.add(key);
+			keys.add(key);
+		}
+
+		// Remove every other key so that entries have to be moved back into the emptied slots
+		for (int i = 0; i < added.size(); i += 2) {
+			assertTrue(keys.remove(added.get(i)));
+			assertFalse(keys.remove(added.get(i)));
+		}
+
+		assertEquals(500, keys.size());
+		for (int i = 0; i < added.size(); i++) {
+			assertEquals(i % 2 == 1, keys.contains(added.get(i)));
+		}
+	}
+}
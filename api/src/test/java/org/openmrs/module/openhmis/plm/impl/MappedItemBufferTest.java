@@ -0,0 +1,206 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedItemBufferTest {
+	private MappedItemBuffer buffer;
+
+	@Before
+	public void before() {
+		buffer = new MappedItemBuffer(null, 8, 16);
+	}
+
+	/**
+	 * @verifies add the item to the end of the buffer
+	 * @see MappedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldAddTheItemToTheEndOfTheBuffer() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+
+		assertEquals(2, buffer.size());
+		assertEquals("1", buffer.peekFirst().getKey());
+		assertEquals("2", buffer.peekLast().getKey());
+	}
+
+	/**
+	 * @verifies grow the file when it is full
+	 * @see MappedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldGrowTheFileWhenItIsFull() throws Exception {
+		for (int i = 0; i < 40; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+
+			// Remove items from the front so that the buffer wraps before it grows
+			if (i % 4 == 0) {
+				assertEquals(String.valueOf(i / 4), buffer.pollFirst().getKey());
+			}
+		}
+
+		assertEquals(30, buffer.size());
+		assertEquals(32, buffer.getCapacity());
+		PersistentListItem[] result = buffer.toArray(new PersistentListItem[0]);
+		for (int i = 0; i < result.length; i++) {
+			assertEquals(String.valueOf(i + 10), result[i].getKey());
+			assertEquals(i, buffer.indexOfKey(String.valueOf(i + 10)));
+		}
+	}
+
+	/**
+	 * @verifies keep keys that are longer than the key width
+	 * @see MappedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldKeepKeysThatAreLongerThanTheKeyWidth() throws Exception {
+		buffer.add(createItem("short"));
+		buffer.add(createItem("a much longer key"));
+		buffer.add(createItem("\u00e9\u00e9\u00e9\u00e9\u00e9"));
+
+		assertEquals("a much longer key", buffer.get(1).getKey());
+		assertEquals("\u00e9\u00e9\u00e9\u00e9\u00e9", buffer.get(2).getKey());
+		assertEquals(1, buffer.indexOfKey("a much longer key"));
+
+		buffer.removeAt(1);
+		assertEquals(-1, buffer.indexOfKey("a much longer key"));
+		assertEquals(1, buffer.indexOfKey("\u00e9\u00e9\u00e9\u00e9\u00e9"));
+	}
+
+	/**
+	 * @verifies return an item with the stored values
+	 * @see MappedItemBuffer#get(int)
+	 */
+	@Test
+	public void get_shouldReturnAnItemWithTheStoredValues() throws Exception {
+		Date createdOn = new Date(1000);
+		buffer.add(new PersistentListItem(7, "1", new User(3), createdOn));
+		buffer.add(new PersistentListItem("2", null, null));
+
+		PersistentListItem item = buffer.get(0);
+		assertEquals(7, (int)item.getId());
+		assertEquals("1", item.getKey());
+		assertEquals(3, item.getCreatorId());
+		assertEquals(createdOn, item.getCreatedOn());
+
+		item = buffer.get(1);
+		assertNull(item.getId());
+		assertEquals(PersistentListItem.NO_CREATOR, item.getCreatorId());
+		assertNull(item.getCreator());
+		assertNull(item.getCreatedOn());
+	}
+
+	/**
+	 * @verifies throw IndexOutOfBoundsException when the index is out of range
+	 * @see MappedItemBuffer#get(int)
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void get_shouldThrowIndexOutOfBoundsExceptionWhenTheIndexIsOutOfRange() throws Exception {
+		buffer.add(createItem("1"));
+
+		buffer.get(1);
+	}
+
+	/**
+	 * @verifies return the index of the following item when the sequence item has been removed
+	 * @see MappedItemBuffer#indexAfter(long)
+	 */
+	@Test
+	public void indexAfter_shouldReturnTheIndexOfTheFollowingItemWhenTheSequenceItemHasBeenRemoved() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+		buffer.add(createItem("3"));
+		long sequence = buffer.getSequence(1);
+
+		buffer.removeAt(1);
+
+		assertEquals(1, buffer.indexAfter(sequence));
+		assertEquals("3", buffer.get(buffer.indexAfter(sequence)).getKey());
+	}
+
+	/**
+	 * @verifies find the item by its key
+	 * @see MappedItemBuffer#indexOf(Object)
+	 */
+	@Test
+	public void indexOf_shouldFindTheItemByItsKey() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		assertEquals(42, buffer.indexOf(createItem("42")));
+		assertEquals(-1, buffer.indexOf(createItem("100")));
+		assertTrue(buffer.contains(createItem("99")));
+	}
+
+	/**
+	 * @verifies remove the item and keep the order of the remaining items
+	 * @see MappedItemBuffer#remove(Object)
+	 */
+	@Test
+	public void remove_shouldRemoveTheItemAndKeepTheOrderOfTheRemainingItems() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		// Remove items from both halves so that the records on either side are moved
+		assertTrue(buffer.remove(createItem("2")));
+		assertTrue(buffer.remove(createItem("7")));
+		assertFalse(buffer.remove(createItem("7")));
+
+		String[] expected = {"0", "1", "3", "4", "5", "6", "8", "9"};
+		assertEquals(expected.length, buffer.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], buffer.get(i).getKey());
+			assertEquals(i, buffer.indexOfKey(expected[i]));
+		}
+	}
+
+	/**
+	 * @verifies contain the keys of the items in the buffer
+	 * @see MappedItemBuffer#keys()
+	 */
+	@Test
+	public void keys_shouldContainTheKeysOfTheItemsInTheBuffer() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+
+		assertTrue(buffer.keys().contains("1"));
+		assertFalse(buffer.keys().contains("3"));
+
+		buffer.pollFirst();
+		assertFalse(buffer.keys().contains("1"));
+
+		buffer.clear();
+		assertFalse(buffer.keys().contains("2"));
+		assertEquals(0, buffer.keys().size());
+	}
+
+	private PersistentListItem createItem(String key) {
+		return new PersistentListItem(key, null);
+	}
+}
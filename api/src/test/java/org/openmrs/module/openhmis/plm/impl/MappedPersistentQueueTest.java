@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListException;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedPersistentQueueTest {
+	private MemoryListProvider provider;
+	private MappedPersistentQueue queue;
+
+	@Before
+	public void before() {
+		provider = new MemoryListProvider();
+		queue = new MappedPersistentQueue(1, "test", provider);
+	}
+
+	/**
+	 * @verifies find duplicate keys with the key index
+	 * @see MappedPersistentQueue#initializeKeys(ItemBuffer)
+	 */
+	@Test
+	public void initializeKeys_shouldFindDuplicateKeysWithTheKeyIndex() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		try {
+			queue.add(new PersistentListItem("1", null));
+			fail("The duplicate key should have been rejected.");
+		} catch (PersistentListException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+		}
+
+		// The key can be added again once the item has been removed
+		queue.getNextAndRemove();
+		queue.add(new PersistentListItem("1", null));
+		assertEquals(2, queue.getSize());
+	}
+
+	/**
+	 * @verifies return the items in first in first out order
+	 * @see MappedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldReturnTheItemsInFirstInFirstOutOrder() throws Exception {
+		for (int i = 0; i < 2000; i++) {
+			queue.add(new PersistentListItem(String.valueOf(i), null));
+		}
+
+		for (int i = 0; i < 2000; i++) {
+			assertEquals(String.valueOf(i), queue.getNextAndRemove().getKey());
+		}
+		assertNull(queue.getNextAndRemove());
+		assertEquals(0, provider.getItems(queue).length);
+	}
+
+	/**
+	 * @verifies remove the item with the same key
+	 * @see MappedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldRemoveTheItemWithTheSameKey() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null),
+				new PersistentListItem("3", null));
+
+		assertTrue(queue.remove(queue.getItems()[1]));
+
+		assertEquals(2, queue.getSize());
+		assertEquals("3", queue.getItems(1, 1)[0].getKey());
+		PersistentListItemModel[] stored = provider.getItems(queue);
+		assertEquals(2, stored.length);
+		assertEquals("3", stored[1].getItemKey());
+	}
+
+	/**
+	 * @verifies read the pages from the mapped items
+	 * @see MappedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldReadThePagesFromTheMappedItems() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			queue.add(new PersistentListItem(String.valueOf(i), null));
+		}
+
+		PersistentListPage page = queue.getPage(null, 2);
+		page = queue.getPage(page.getNextCursor(), 2);
+
+		assertEquals("2", page.getItems()[0].getKey());
+		assertEquals("3", page.getItems()[1].getKey());
+	}
+
+	/**
+	 * @verifies load the stored items when the list is initialized
+	 * @see MappedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldLoadTheStoredItemsWhenTheListIsInitialized() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		MappedPersistentQueue restarted = new MappedPersistentQueue(1, "test", provider);
+
+		assertEquals(2, restarted.getSize());
+		assertEquals("1", restarted.getNext().getKey());
+	}
+}
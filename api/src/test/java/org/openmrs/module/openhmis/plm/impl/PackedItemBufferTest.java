@@ -0,0 +1,230 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PackedItemBufferTest {
+	private PackedItemBuffer buffer;
+
+	@Before
+	public void before() {
+		buffer = new PackedItemBuffer(16);
+	}
+
+	/**
+	 * @verifies add the item to the end of the buffer
+	 * @see PackedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldAddTheItemToTheEndOfTheBuffer() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+
+		assertEquals(2, buffer.size());
+		assertEquals("1", buffer.peekFirst().getKey());
+		assertEquals("2", buffer.peekLast().getKey());
+		assertEquals("2", buffer.getKey(1));
+	}
+
+	/**
+	 * @verifies grow the arrays when they are full
+	 * @see PackedItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldGrowTheArraysWhenTheyAreFull() throws Exception {
+		for (int i = 0; i < 40; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+
+			// Remove items from the front so that the buffer wraps before it grows
+			if (i % 4 == 0) {
+				assertEquals(String.valueOf(i / 4), buffer.pollFirst().getKey());
+			}
+		}
+
+		assertEquals(30, buffer.size());
+		assertEquals(32, buffer.getCapacity());
+		PersistentListItem[] result = buffer.toArray(new PersistentListItem[0]);
+		for (int i = 0; i < result.length; i++) {
+			assertEquals(String.valueOf(i + 10), result[i].getKey());
+			assertEquals(i, buffer.indexOfKey(String.valueOf(i + 10)));
+		}
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when an item with the same key is in the buffer
+	 * @see PackedItemBuffer#add(PersistentListItem)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void add_shouldThrowIllegalArgumentExceptionWhenAnItemWithTheSameKeyIsInTheBuffer() throws Exception {
+		buffer.add(createItem("1"));
+
+		buffer.add(createItem("1"));
+	}
+
+	/**
+	 * @verifies return an item with the stored values
+	 * @see PackedItemBuffer#get(int)
+	 */
+	@Test
+	public void get_shouldReturnAnItemWithTheStoredValues() throws Exception {
+		Date createdOn = new Date(1000);
+		buffer.add(new PersistentListItem(7, "1", new User(3), createdOn));
+		buffer.add(new PersistentListItem("2", null, null));
+
+		PersistentListItem item = buffer.get(0);
+		assertEquals(7, (int)item.getId());
+		assertEquals("1", item.getKey());
+		assertEquals(3, item.getCreatorId());
+		assertEquals(createdOn, item.getCreatedOn());
+		assertEquals(3, buffer.getCreatorId(0));
+		assertEquals(1000, buffer.getCreatedOnMillis(0));
+
+		item = buffer.get(1);
+		assertNull(item.getId());
+		assertEquals(PersistentListItem.NO_CREATOR, item.getCreatorId());
+		assertNull(item.getCreatedOn());
+	}
+
+	/**
+	 * @verifies throw IndexOutOfBoundsException when the index is out of range
+	 * @see PackedItemBuffer#get(int)
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void get_shouldThrowIndexOutOfBoundsExceptionWhenTheIndexIsOutOfRange() throws Exception {
+		buffer.add(createItem("1"));
+
+		buffer.get(1);
+	}
+
+	/**
+	 * @verifies return the index of the following item when the sequence item has been removed
+	 * @see PackedItemBuffer#indexAfter(long)
+	 */
+	@Test
+	public void indexAfter_shouldReturnTheIndexOfTheFollowingItemWhenTheSequenceItemHasBeenRemoved() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+		buffer.add(createItem("3"));
+		long sequence = buffer.getSequence(1);
+
+		buffer.removeAt(1);
+
+		assertEquals(1, buffer.indexAfter(sequence));
+		assertEquals("3", buffer.get(buffer.indexAfter(sequence)).getKey());
+	}
+
+	/**
+	 * @verifies find the item by its key
+	 * @see PackedItemBuffer#indexOf(Object)
+	 */
+	@Test
+	public void indexOf_shouldFindTheItemByItsKey() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		assertEquals(42, buffer.indexOf(createItem("42")));
+		assertEquals(-1, buffer.indexOf(createItem("100")));
+		assertTrue(buffer.contains(createItem("99")));
+	}
+
+	/**
+	 * @verifies remove the item and keep the order of the remaining items
+	 * @see PackedItemBuffer#remove(Object)
+	 */
+	@Test
+	public void remove_shouldRemoveTheItemAndKeepTheOrderOfTheRemainingItems() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		// Remove items from both halves so that the items on either side are moved
+		assertTrue(buffer.remove(createItem("2")));
+		assertTrue(buffer.remove(createItem("7")));
+		assertFalse(buffer.remove(createItem("7")));
+
+		String[] expected = {"0", "1", "3", "4", "5", "6", "8", "9"};
+		assertEquals(expected.length, buffer.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], buffer.get(i).getKey());
+			assertEquals(i, buffer.indexOfKey(expected[i]));
+		}
+
+		// The removed keys can be added again
+		buffer.add(createItem("2"));
+		assertEquals(8, buffer.indexOfKey("2"));
+	}
+
+	/**
+	 * @verifies copy the items in list order when the ring wraps
+	 * @see PackedItemBuffer#copyTo(int, Object[], int, int)
+	 */
+	@Test
+	public void copyTo_shouldCopyTheItemsInListOrderWhenTheRingWraps() throws Exception {
+		for (int i = 0; i < 16; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+		for (int i = 0; i < 10; i++) {
+			buffer.pollFirst();
+		}
+		for (int i = 16; i < 20; i++) {
+			buffer.add(createItem(String.valueOf(i)));
+		}
+
+		PersistentListItem[] items = new PersistentListItem[6];
+		buffer.copyTo(2, items, 0, 6);
+
+		assertEquals(16, buffer.getCapacity());
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(String.valueOf(i + 12), items[i].getKey());
+		}
+	}
+
+	/**
+	 * @verifies contain the keys of the items in the buffer
+	 * @see PackedItemBuffer#keys()
+	 */
+	@Test
+	public void keys_shouldContainTheKeysOfTheItemsInTheBuffer() throws Exception {
+		buffer.add(createItem("1"));
+		buffer.add(createItem("2"));
+
+		assertTrue(buffer.keys().contains("1"));
+		assertFalse(buffer.keys().contains("3"));
+		assertEquals("1", buffer.keys().iterator().next());
+
+		buffer.pollFirst();
+		assertFalse(buffer.keys().contains("1"));
+
+		buffer.clear();
+		assertFalse(buffer.keys().contains("2"));
+		assertEquals(0, buffer.keys().size());
+	}
+
+	private PersistentListItem createItem(String key) {
+		return new PersistentListItem(key, null);
+	}
+}
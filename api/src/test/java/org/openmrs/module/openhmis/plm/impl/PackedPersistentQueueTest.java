@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListException;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackedPersistentQueueTest {
+	private MemoryListProvider provider;
+	private PackedPersistentQueue queue;
+
+	@Before
+	public void before() {
+		provider = new MemoryListProvider();
+		queue = new PackedPersistentQueue(1, "test", provider);
+		queue.setInitialCapacity(16);
+	}
+
+	/**
+	 * @verifies find duplicate keys with the key dictionary
+	 * @see PackedPersistentQueue#initializeKeys(ItemBuffer)
+	 */
+	@Test
+	public void initializeKeys_shouldFindDuplicateKeysWithTheKeyDictionary() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		try {
+			queue.add(new PersistentListItem("1", null));
+			fail("The duplicate key should have been rejected.");
+		} catch (PersistentListException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+		}
+		assertEquals(2, queue.getSize());
+
+		// The key can be added again once the item has been removed
+		queue.getNextAndRemove();
+		queue.add(new PersistentListItem("1", null));
+		assertEquals(2, queue.getSize());
+	}
+
+	/**
+	 * @verifies return the items in first in first out order
+	 * @see PackedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldReturnTheItemsInFirstInFirstOutOrder() throws Exception {
+		for (int i = 0; i < 2000; i++) {
+			queue.add(new PersistentListItem(String.valueOf(i), null));
+		}
+
+		for (int i = 0; i < 2000; i++) {
+			assertEquals(String.valueOf(i), queue.getNextAndRemove().getKey());
+		}
+		assertNull(queue.getNextAndRemove());
+		assertEquals(0, provider.getItems(queue).length);
+	}
+
+	/**
+	 * @verifies remove the item with the same key
+	 * @see PackedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldRemoveTheItemWithTheSameKey() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null),
+				new PersistentListItem("3", null));
+
+		assertTrue(queue.remove(queue.getItems()[1]));
+
+		assertEquals(2, queue.getSize());
+		assertEquals("3", queue.getItems(1, 1)[0].getKey());
+		PersistentListItemModel[] stored = provider.getItems(queue);
+		assertEquals(2, stored.length);
+		assertEquals("3", stored[1].getItemKey());
+	}
+
+	/**
+	 * @verifies load the stored items when the list is initialized
+	 * @see PackedPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldLoadTheStoredItemsWhenTheListIsInitialized() throws Exception {
+		queue.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		PackedPersistentQueue restarted = new PackedPersistentQueue(1, "test", provider);
+
+		assertEquals(2, restarted.getSize());
+		assertEquals("1", restarted.getNext().getKey());
+	}
+}
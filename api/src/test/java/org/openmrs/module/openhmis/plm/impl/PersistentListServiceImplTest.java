@@ -21,11 +21,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.openmrs.module.ModuleFactory;
 import org.openmrs.module.openhmis.plm.*;
+import org.openmrs.module.openhmis.plm.jmx.PersistentListMXBeanImpl;
+import org.openmrs.module.openhmis.plm.jmx.PersistentListServiceMXBeanImpl;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryServiceProvider;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 import org.openmrs.module.openhmis.plm.model.PersistentListModel;
 import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 
 import static org.mockito.Mockito.*;
@@ -34,13 +46,13 @@ import static org.mockito.Mockito.*;
 @PrepareForTest(ModuleFactory.class)
 public class PersistentListServiceImplTest {
 	protected PersistentListServiceProvider serviceProvider;
-	protected PersistentListProvider listProvider;
+	protected StreamingListProvider listProvider;
 	protected PersistentListService service;
 
 	@Before
 	public void before() {
 		serviceProvider = mock(PersistentListServiceProvider.class);
-		listProvider = mock(PersistentListProvider.class);
+		listProvider = mock(StreamingListProvider.class);
 
 		service= new PersistentListServiceImpl(serviceProvider, listProvider);
 	}
@@ -104,6 +116,179 @@ public class PersistentListServiceImplTest {
 		assertListModel(model3, list);
 	}
 
+	/**
+	 * @verifies not load the items of lazy lists
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldNotLoadTheItemsOfLazyLists() throws Exception {
+		PersistentListModel model = new PersistentListModel(1, "test1", PersistentQueue.class.getName(),
+				"Description 1", new Date());
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[] { model });
+
+		service.onStartup();
+
+		verify(listProvider, never()).getItems(any(PersistentList.class), any(ListItemModelHandler.class));
+
+		PersistentList list = service.getList(model.getKey());
+		Assert.assertNotNull(list);
+		Assert.assertEquals(0, list.getSize());
+
+		verify(listProvider, times(1)).getItems(eq(list), any(ListItemModelHandler.class));
+	}
+
+	/**
+	 * @verifies apply the uuid key encoding setting before loading lists
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldApplyTheUuidKeyEncodingSettingBeforeLoadingLists() throws Exception {
+		final boolean[] isEncodingEnabled = new boolean[1];
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider() {
+			@Override
+			public PersistentListModel[] getLists() {
+				isEncodingEnabled[0] = UuidKeyCodec.getIsEncodingEnabled();
+
+				return super.getLists();
+			}
+		}, listProvider);
+
+		impl.setIsUuidKeyEncodingEnabled(true);
+		try {
+			impl.onStartup();
+
+			Assert.assertTrue(isEncodingEnabled[0]);
+		} finally {
+			UuidKeyCodec.setIsEncodingEnabled(false);
+		}
+	}
+
+	/**
+	 * @verifies load the items of preloaded lists
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldLoadTheItemsOfPreloadedLists() throws Exception {
+		PersistentListModel model = new PersistentListModel(1, "test1", PersistentQueue.class.getName(),
+				"Description 1", new Date());
+		PersistentListModel model2 = new PersistentListModel(2, "test2", PersistentQueue.class.getName(),
+				"Description 2", new Date());
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[] { model, model2 });
+
+		PersistentListServiceImpl impl = (PersistentListServiceImpl)service;
+		impl.setPreloadListKeys(Arrays.asList(model2.getKey()));
+		service.onStartup();
+
+		verify(listProvider, times(1)).getItems(any(PersistentList.class), any(ListItemModelHandler.class));
+		verify(listProvider).getItems(eq(service.getList(model2.getKey())), any(ListItemModelHandler.class));
+	}
+
+	/**
+	 * @verifies load the items of all lists when preloading all lists
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldLoadTheItemsOfAllListsWhenPreloadingAllLists() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(3));
+
+		PersistentListServiceImpl impl = (PersistentListServiceImpl)service;
+		impl.setPreloadAllLists(true);
+		service.onStartup();
+
+		verify(listProvider, times(3)).getItems(any(PersistentList.class), any(ListItemModelHandler.class));
+		for (PersistentList list : service.getLists()) {
+			Assert.assertTrue(((PersistentQueue)list).getIsInitialized());
+		}
+	}
+
+	/**
+	 * @verifies load the items of all lists when using multiple startup threads
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldLoadTheItemsOfAllListsWhenUsingMultipleStartupThreads() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(10));
+
+		PersistentListServiceImpl impl = (PersistentListServiceImpl)service;
+		impl.setPreloadAllLists(true);
+		impl.setStartupThreadCount(4);
+		service.onStartup();
+
+		Assert.assertTrue(impl.getIsLoaded());
+		verify(listProvider, times(10)).getItems(any(PersistentList.class), any(ListItemModelHandler.class));
+		for (PersistentList list : service.getLists()) {
+			Assert.assertTrue(((PersistentQueue)list).getIsInitialized());
+		}
+	}
+
+	/**
+	 * @verifies throw PersistentListException when a list cannot be initialized in parallel
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test(expected = PersistentListException.class)
+	public void onStartup_shouldThrowPersistentListExceptionWhenAListCannotBeInitializedInParallel() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(2));
+		doThrow(new RuntimeException("Test")).when(listProvider)
+				.getItems(any(PersistentList.class), any(ListItemModelHandler.class));
+
+		PersistentListServiceImpl impl = (PersistentListServiceImpl)service;
+		impl.setPreloadAllLists(true);
+		impl.setStartupThreadCount(2);
+		service.onStartup();
+	}
+
+	/**
+	 * @verifies load the items of all lists in a single pass when the provider supports bulk loading
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldLoadTheItemsOfAllListsInASinglePassWhenTheProviderSupportsBulkLoading() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(3));
+		TestBulkListProvider bulkProvider = new TestBulkListProvider(
+				createItemModel(1, 1, "1"), createItemModel(2, 1, "2"), createItemModel(3, 3, "3"));
+
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(serviceProvider, bulkProvider);
+		impl.setPreloadAllLists(true);
+		impl.onStartup();
+
+		Assert.assertEquals(1, bulkProvider.bulkLoads);
+		Assert.assertEquals(0, bulkProvider.listLoads);
+
+		PersistentQueue list = (PersistentQueue)impl.getList("test1");
+		Assert.assertTrue(list.getIsInitialized());
+		Assert.assertEquals(2, list.getSize());
+		Assert.assertEquals("1", list.getItems()[0].getKey());
+		Assert.assertEquals("2", list.getItems()[1].getKey());
+
+		list = (PersistentQueue)impl.getList("test2");
+		Assert.assertTrue(list.getIsInitialized());
+		Assert.assertEquals(0, list.getSize());
+
+		list = (PersistentQueue)impl.getList("test3");
+		Assert.assertTrue(list.getIsInitialized());
+		Assert.assertEquals(1, list.getSize());
+		Assert.assertEquals("3", list.getItems()[0].getKey());
+
+		Assert.assertEquals(0, bulkProvider.listLoads);
+	}
+
+	/**
+	 * @verifies not bulk load when only some lists are preloaded
+	 * @see PersistentListServiceImpl#onStartup()
+	 */
+	@Test
+	public void onStartup_shouldNotBulkLoadWhenOnlySomeListsArePreloaded() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(3));
+		TestBulkListProvider bulkProvider = new TestBulkListProvider(createItemModel(1, 1, "1"));
+
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(serviceProvider, bulkProvider);
+		impl.setPreloadListKeys(Arrays.asList("test1"));
+		impl.onStartup();
+
+		Assert.assertEquals(0, bulkProvider.bulkLoads);
+		Assert.assertEquals(1, bulkProvider.listLoads);
+	}
+
 	/**
 	 * @verifies add a new list
 	 * @see PersistentListServiceImpl#createList(Class, String, String)
@@ -163,6 +348,43 @@ public class PersistentListServiceImplTest {
 		service.createList(TestPersistentList.class, key, null);
 	}
 
+	/**
+	 * @verifies record the list metrics in the service registry
+	 * @see PersistentListServiceImpl#createList(Class, String, String)
+	 */
+	@Test
+	public void createList_shouldRecordTheListMetricsInTheServiceRegistry() {
+		service = new PersistentListServiceImpl(new MemoryServiceProvider(), new TestPersistentListProvider());
+		service.onStartup();
+
+		PersistentList list = service.createList(PersistentQueue.class, "test", null);
+		list.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		MemoryMetricsRegistry registry = (MemoryMetricsRegistry)service.getMetricsRegistry();
+		Assert.assertNotNull(registry.getListSnapshot("test"));
+		Assert.assertEquals(2, registry.getListSnapshot("test").getSize());
+		Assert.assertEquals(2, registry.getListSnapshot("test").getAddedCount());
+	}
+
+	/**
+	 * @verifies register an MBean for the list
+	 * @see PersistentListServiceImpl#createList(Class, String, String)
+	 */
+	@Test
+	public void createList_shouldRegisterAnMBeanForTheList() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		((PersistentListServiceImpl)service).setMbeanServer(mbeanServer);
+		service.onStartup();
+
+		service.createList(PersistentQueue.class, "test", "desc");
+
+		Assert.assertTrue(mbeanServer.isRegistered(PersistentListServiceMXBeanImpl.OBJECT_NAME));
+		Assert.assertTrue(mbeanServer.isRegistered(PersistentListMXBeanImpl.createObjectName("test")));
+		Assert.assertEquals("desc", mbeanServer.getAttribute(PersistentListMXBeanImpl.createObjectName("test"),
+				"Description"));
+	}
+
 	/**
 	 * @verifies allow a key that is less than 251 characters
 	 * @see PersistentListServiceImpl#createList(Class, String, String)
@@ -251,6 +473,21 @@ public class PersistentListServiceImplTest {
 		Assert.assertEquals(desc, service.getList(key).getDescription());
 	}
 
+	/**
+	 * @verifies return the new list when the list is created
+	 * @see PersistentListServiceImpl#ensureList(Class, String, String)
+	 */
+	@Test
+	public void ensureList_shouldReturnTheNewListWhenTheListIsCreated() {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		service.onStartup();
+
+		PersistentList list = service.ensureList(TestPersistentList.class, "test", null);
+
+		Assert.assertNotNull(list);
+		Assert.assertEquals(service.getList("test"), list);
+	}
+
 	/**
 	 * @verifies return list by key
 	 * @see PersistentListServiceImpl#ensureList(Class, String, String)
@@ -638,6 +875,324 @@ public class PersistentListServiceImplTest {
 		impl.removeList("test");
 	}
 
+	/**
+	 * @verifies remove the list metrics from the service registry
+	 * @see PersistentListServiceImpl#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldRemoveTheListMetricsFromTheServiceRegistry() {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		service.onStartup();
+
+		service.createList(PersistentQueue.class, "test", null);
+		MemoryMetricsRegistry registry = (MemoryMetricsRegistry)service.getMetricsRegistry();
+		Assert.assertNotNull(registry.getListSnapshot("test"));
+
+		service.removeList("test");
+
+		Assert.assertNull(registry.getListSnapshot("test"));
+	}
+
+	/**
+	 * @verifies unregister the list MBean
+	 * @see PersistentListServiceImpl#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldUnregisterTheListMBean() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		((PersistentListServiceImpl)service).setMbeanServer(mbeanServer);
+		service.onStartup();
+
+		service.createList(PersistentQueue.class, "test", null);
+		service.removeList("test");
+
+		Assert.assertFalse(mbeanServer.isRegistered(PersistentListMXBeanImpl.createObjectName("test")));
+		Assert.assertTrue(mbeanServer.isRegistered(PersistentListServiceMXBeanImpl.OBJECT_NAME));
+	}
+
+	/**
+	 * @verifies clear the stored items of the list
+	 * @see PersistentListServiceImpl#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldClearTheStoredItemsOfTheList() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), memoryProvider);
+		impl.onStartup();
+
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null);
+		list.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+		Assert.assertEquals(2, memoryProvider.getItems(list).length);
+
+		impl.removeList("test");
+
+		Assert.assertEquals(0, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies not clear the items of a memory only list
+	 * @see PersistentListServiceImpl#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldNotClearTheItemsOfAMemoryOnlyList() throws Exception {
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), listProvider);
+		impl.onStartup();
+
+		impl.createList(PersistentQueue.class, "test", null, ListDurability.MEMORY_ONLY);
+		impl.removeList("test");
+
+		verify(listProvider, never()).clear(any(PersistentList.class));
+	}
+
+	/**
+	 * @verifies unregister the service and list MBeans
+	 * @see PersistentListServiceImpl#onShutdown()
+	 */
+	@Test
+	public void onShutdown_shouldUnregisterTheServiceAndListMBeans() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(2));
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		((PersistentListServiceImpl)service).setMbeanServer(mbeanServer);
+		service.onStartup();
+		int count = mbeanServer.getMBeanCount();
+
+		service.onShutdown();
+
+		Assert.assertEquals(count - 3, (int)mbeanServer.getMBeanCount());
+		Assert.assertFalse(mbeanServer.isRegistered(PersistentListServiceMXBeanImpl.OBJECT_NAME));
+		Assert.assertFalse(mbeanServer.isRegistered(PersistentListMXBeanImpl.createObjectName("test1")));
+	}
+
+	/**
+	 * @verifies store the queued changes when the list provider writes behind
+	 * @see PersistentListServiceImpl#onShutdown()
+	 */
+	@Test
+	public void onShutdown_shouldStoreTheQueuedChangesWhenTheListProviderWritesBehind() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		WriteBehindListProvider writeBehindProvider = new WriteBehindListProvider(memoryProvider);
+		writeBehindProvider.setFlushDelay(60000);
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), writeBehindProvider);
+		impl.onStartup();
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null);
+		list.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+		Assert.assertEquals(2, writeBehindProvider.getQueueDepth());
+
+		impl.onShutdown();
+
+		Assert.assertEquals(0, writeBehindProvider.getQueueDepth());
+		Assert.assertEquals(2, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies store the queued changes of group commit lists
+	 * @see PersistentListServiceImpl#onShutdown()
+	 */
+	@Test
+	public void onShutdown_shouldStoreTheQueuedChangesOfGroupCommitLists() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), memoryProvider);
+		WriteBehindListProvider writeBehindProvider = new WriteBehindListProvider(memoryProvider);
+		writeBehindProvider.setFlushDelay(60000);
+		impl.setWriteBehindProvider(writeBehindProvider);
+		impl.onStartup();
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null, ListDurability.GROUP_COMMIT);
+		list.add(new PersistentListItem("1", null));
+
+		impl.onShutdown();
+
+		Assert.assertEquals(0, writeBehindProvider.getQueueDepth());
+		Assert.assertEquals(1, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies close the providers that are closeable
+	 * @see PersistentListServiceImpl#onShutdown()
+	 */
+	@Test
+	public void onShutdown_shouldCloseTheProvidersThatAreCloseable() throws Exception {
+		ClosableListProvider closableProvider = new ClosableListProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new WriteBehindListProvider(closableProvider));
+		impl.onStartup();
+
+		impl.onShutdown();
+
+		Assert.assertTrue(closableProvider.isClosed);
+	}
+
+	/**
+	 * @verifies store the list durability
+	 * @see PersistentListServiceImpl#createList(Class, String, String, ListDurability)
+	 */
+	@Test
+	public void createList_shouldStoreTheListDurability() throws Exception {
+		MemoryServiceProvider memoryServiceProvider = new MemoryServiceProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(memoryServiceProvider, new MemoryListProvider());
+		impl.onStartup();
+
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null, ListDurability.MEMORY_ONLY);
+
+		Assert.assertEquals(ListDurability.MEMORY_ONLY, ((PersistentListBase<?>)list).getDurability());
+		Assert.assertEquals(ListDurability.MEMORY_ONLY, memoryServiceProvider.getLists()[0].getDurability());
+
+		// The durability is loaded with the list when the service is restarted
+		PersistentListServiceImpl restarted = new PersistentListServiceImpl(memoryServiceProvider,
+				new MemoryListProvider());
+		restarted.onStartup();
+		Assert.assertEquals(ListDurability.MEMORY_ONLY,
+				((PersistentListBase<?>)restarted.getList("test")).getDurability());
+	}
+
+	/**
+	 * @verifies not store the items of memory only lists
+	 * @see PersistentListServiceImpl#createList(Class, String, String, ListDurability)
+	 */
+	@Test
+	public void createList_shouldNotStoreTheItemsOfMemoryOnlyLists() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), memoryProvider);
+		impl.onStartup();
+
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null, ListDurability.MEMORY_ONLY);
+		list.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		Assert.assertEquals(2, list.getSize());
+		Assert.assertEquals(0, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies queue the changes of group commit lists
+	 * @see PersistentListServiceImpl#createList(Class, String, String, ListDurability)
+	 */
+	@Test
+	public void createList_shouldQueueTheChangesOfGroupCommitLists() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(), memoryProvider);
+		impl.onStartup();
+
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null, ListDurability.GROUP_COMMIT);
+		PersistentList syncList = impl.createList(PersistentQueue.class, "sync", null);
+
+		try {
+			Assert.assertSame(impl.getWriteBehindProvider(), list.getProvider());
+			Assert.assertSame(memoryProvider, syncList.getProvider());
+			Assert.assertSame(memoryProvider, impl.getWriteBehindProvider().getProvider());
+
+			impl.getWriteBehindProvider().setFlushDelay(60000);
+			list.add(new PersistentListItem("1", null));
+			Assert.assertEquals(1, list.getProvider().getItems(list).length);
+		} finally {
+			impl.onShutdown();
+		}
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when the durability is null
+	 * @see PersistentListServiceImpl#createList(Class, String, String, ListDurability)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void createList_shouldThrowIllegalArgumentExceptionWhenTheDurabilityIsNull() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		service.onStartup();
+
+		service.createList(PersistentQueue.class, "test", null, null);
+	}
+
+	/**
+	 * @verifies reload the list items from the provider
+	 * @see PersistentListServiceImpl#reloadList(String)
+	 */
+	@Test
+	public void reloadList_shouldReloadTheListItemsFromTheProvider() throws Exception {
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new TestPersistentListProvider(new PersistentListItemModel(1, "1", 0, null)));
+		impl.onStartup();
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null);
+		list.add(new PersistentListItem("2", null));
+
+		impl.reloadList("test");
+
+		Assert.assertEquals(1, list.getSize());
+		Assert.assertEquals("1", list.getNext().getKey());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when the list is not found
+	 * @see PersistentListServiceImpl#reloadList(String)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void reloadList_shouldThrowIllegalArgumentExceptionWhenTheListIsNotFound() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(new PersistentListModel[0]);
+		service.onStartup();
+
+		((PersistentListServiceImpl)service).reloadList("test");
+	}
+
+	/**
+	 * @verifies turn the lock profiling of every list on or off
+	 * @see PersistentListServiceImpl#setIsLockProfilingEnabled(boolean)
+	 */
+	@Test
+	public void setIsLockProfilingEnabled_shouldTurnTheLockProfilingOfEveryListOnOrOff() throws Exception {
+		when(serviceProvider.getLists()).thenReturn(createQueueModels(2));
+		PersistentListServiceImpl impl = (PersistentListServiceImpl)service;
+		impl.onStartup();
+
+		impl.setIsLockProfilingEnabled(true);
+
+		Assert.assertTrue(impl.getIsLockProfilingEnabled());
+		for (PersistentList list : impl.getLists()) {
+			Assert.assertTrue(((PersistentListBase<?>)list).getIsLockProfilingEnabled());
+		}
+
+		impl.getList("test1").add(new PersistentListItem("1", null));
+		Assert.assertTrue(((PersistentListBase<?>)impl.getList("test1")).getLockSnapshot().getAcquisitions() > 0);
+		impl.createList(PersistentQueue.class, "test3", null);
+		Assert.assertTrue(impl.getLockSnapshot().getAcquisitions() > 0);
+
+		impl.setIsLockProfilingEnabled(false);
+
+		Assert.assertFalse(impl.getIsLockProfilingEnabled());
+		for (PersistentList list : impl.getLists()) {
+			Assert.assertFalse(((PersistentListBase<?>)list).getIsLockProfilingEnabled());
+		}
+	}
+
+	/**
+	 * @verifies apply the lock profiling setting to new lists
+	 * @see PersistentListServiceImpl#setIsLockProfilingEnabled(boolean)
+	 */
+	@Test
+	public void setIsLockProfilingEnabled_shouldApplyTheLockProfilingSettingToNewLists() throws Exception {
+		PersistentListServiceImpl impl = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new TestPersistentListProvider());
+		impl.setIsLockProfilingEnabled(true);
+		impl.onStartup();
+
+		PersistentList list = impl.createList(PersistentQueue.class, "test", null);
+
+		Assert.assertTrue(((PersistentListBase<?>)list).getIsLockProfilingEnabled());
+	}
+
+	private PersistentListModel[] createQueueModels(int count) {
+		PersistentListModel[] models = new PersistentListModel[count];
+		for (int i = 0; i < count; i++) {
+			models[i] = new PersistentListModel(i + 1, "test" + (i + 1), PersistentQueue.class.getName(),
+					"Description " + (i + 1), new Date());
+		}
+
+		return models;
+	}
+
+	private PersistentListItemModel createItemModel(int id, int listId, String key) {
+		PersistentListItemModel model = new PersistentListItemModel(listId, key, 0, null);
+		model.setItemId(id);
+
+		return model;
+	}
+
 	private void assertListModel(PersistentListModel model, PersistentList list) {
 		Assert.assertEquals(model.getListId(), list.getId());
 		Assert.assertEquals(model.getKey(), list.getKey());
@@ -669,4 +1224,41 @@ public class PersistentListServiceImplTest {
 			removed++;
 		}
 	}
+
+	public class TestBulkListProvider extends TestPersistentListProvider implements BulkListProvider {
+		private final PersistentListItemModel[] items;
+		public int bulkLoads;
+		public int listLoads;
+
+		public TestBulkListProvider(PersistentListItemModel... items) {
+			super(items);
+
+			this.items = items;
+		}
+
+		@Override
+		public void getAllItems(ListItemModelHandler handler) {
+			bulkLoads++;
+
+			for (PersistentListItemModel item : items) {
+				handler.handle(item);
+			}
+		}
+
+		@Override
+		public void getItems(PersistentList list, ListItemModelHandler handler) {
+			listLoads++;
+
+			super.getItems(list, handler);
+		}
+	}
+
+	private static class ClosableListProvider extends MemoryListProvider implements Closeable {
+		private boolean isClosed;
+
+		@Override
+		public void close() throws IOException {
+			isClosed = true;
+		}
+	}
 }
@@ -19,19 +19,29 @@ import liquibase.util.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.module.openhmis.plm.*;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
+import org.openmrs.module.openhmis.plm.metrics.ListMetricsSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+import org.openmrs.module.openhmis.plm.metrics.MetricsAware;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.junit.matchers.JUnitMatchers.hasItems;
 
 public abstract class PersistentListTestBase {
 	protected PersistentListProvider provider;
-	protected PersistentList list;
+	protected QueryablePersistentList list;
 
-	protected abstract PersistentList createList(PersistentListProvider provider);
+	protected abstract QueryablePersistentList createList(PersistentListProvider provider);
 
 	@Before
 	public void before() {
@@ -319,6 +329,37 @@ public abstract class PersistentListTestBase {
 		assertNull(item);
 	}
 
+	/**
+	 * @verifies Remove the item from the provider
+	 * @see org.openmrs.module.openhmis.plm.PersistentList#getNextAndRemove()
+	 */
+	@Test
+	public void getNextAndRemove_shouldRemoveTheItemFromTheProvider() {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentList memoryList = createList(memoryProvider);
+		memoryList.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+
+		PersistentListItem item = memoryList.getNextAndRemove();
+
+		PersistentListItemModel[] models = memoryProvider.getItems(memoryList);
+		assertEquals(1, models.length);
+		assertFalse(item.getKey().equals(models[0].getItemKey()));
+	}
+
+	/**
+	 * @verifies Allow an item with the same key to be added after it is removed
+	 * @see org.openmrs.module.openhmis.plm.PersistentList#getNextAndRemove()
+	 */
+	@Test
+	public void getNextAndRemove_shouldAllowAnItemWithTheSameKeyToBeAddedAfterItIsRemoved() {
+		list.add(new PersistentListItem("1", null));
+
+		PersistentListItem item = list.getNextAndRemove();
+		list.add(item);
+
+		assertEquals(1, list.getSize());
+	}
+
 	/**
 	 * @verifies Fire the itemAdded event
 	 * @see org.openmrs.module.openhmis.plm.PersistentList#add(org.openmrs.module.openhmis.plm.PersistentListItem...)
@@ -551,6 +592,561 @@ public abstract class PersistentListTestBase {
 		Assert.assertEquals(0, listener2.cleared);
 	}
 
+	/**
+	 * @verifies Return the items in the range in list order
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getItems(int, int)
+	 */
+	@Test
+	public void getItems_shouldReturnTheItemsInTheRangeInListOrder() {
+		addItems(5);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListItem[] range = list.getItems(1, 3);
+		Assert.assertEquals(3, range.length);
+		Assert.assertEquals(items[1], range[0]);
+		Assert.assertEquals(items[2], range[1]);
+		Assert.assertEquals(items[3], range[2]);
+	}
+
+	/**
+	 * @verifies Return the remaining items when the range extends past the end of the list
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getItems(int, int)
+	 */
+	@Test
+	public void getItems_shouldReturnTheRemainingItemsWhenTheRangeExtendsPastTheEndOfTheList() {
+		addItems(5);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListItem[] range = list.getItems(3, 10);
+		Assert.assertEquals(2, range.length);
+		Assert.assertEquals(items[3], range[0]);
+		Assert.assertEquals(items[4], range[1]);
+	}
+
+	/**
+	 * @verifies Return an empty array when the offset is past the end of the list
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getItems(int, int)
+	 */
+	@Test
+	public void getItems_shouldReturnAnEmptyArrayWhenTheOffsetIsPastTheEndOfTheList() {
+		addItems(2);
+
+		PersistentListItem[] range = list.getItems(5, 10);
+		Assert.assertNotNull(range);
+		Assert.assertEquals(0, range.length);
+	}
+
+	/**
+	 * @verifies Throw IllegalArgumentException when the offset or limit is negative
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getItems(int, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItems_shouldThrowIllegalArgumentExceptionWhenTheOffsetOrLimitIsNegative() {
+		list.getItems(-1, 10);
+	}
+
+	/**
+	 * @verifies Return the first page when the cursor is null
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldReturnTheFirstPageWhenTheCursorIsNull() {
+		addItems(5);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListPage page = list.getPage(null, 2);
+		Assert.assertEquals(2, page.getItems().length);
+		Assert.assertEquals(items[0], page.getItems()[0]);
+		Assert.assertEquals(items[1], page.getItems()[1]);
+		Assert.assertNotNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies Return the items following the cursor
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldReturnTheItemsFollowingTheCursor() {
+		addItems(5);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListPage page = list.getPage(null, 2);
+		page = list.getPage(page.getNextCursor(), 2);
+
+		Assert.assertEquals(2, page.getItems().length);
+		Assert.assertEquals(items[2], page.getItems()[0]);
+		Assert.assertEquals(items[3], page.getItems()[1]);
+	}
+
+	/**
+	 * @verifies Return a null next cursor on the last page
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldReturnANullNextCursorOnTheLastPage() {
+		addItems(3);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListPage page = list.getPage(null, 2);
+		page = list.getPage(page.getNextCursor(), 2);
+
+		Assert.assertEquals(1, page.getItems().length);
+		Assert.assertEquals(items[2], page.getItems()[0]);
+		Assert.assertNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies Not skip or repeat items when items before the cursor are removed
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldNotSkipOrRepeatItemsWhenItemsBeforeTheCursorAreRemoved() {
+		addItems(6);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListPage page = list.getPage(null, 3);
+		list.remove(items[0]);
+		list.remove(items[1]);
+		page = list.getPage(page.getNextCursor(), 3);
+
+		Assert.assertEquals(3, page.getItems().length);
+		Assert.assertEquals(items[3], page.getItems()[0]);
+		Assert.assertEquals(items[4], page.getItems()[1]);
+		Assert.assertEquals(items[5], page.getItems()[2]);
+	}
+
+	/**
+	 * @verifies Throw IllegalArgumentException when the cursor is not valid
+	 * @see org.openmrs.module.openhmis.plm.QueryablePersistentList#getPage(String, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getPage_shouldThrowIllegalArgumentExceptionWhenTheCursorIsNotValid() {
+		addItems(3);
+
+		list.getPage("not a cursor", 2);
+	}
+
+	/**
+	 * @verifies record the list metrics in the registry
+	 * @see PersistentListBase#setMetricsRegistry(org.openmrs.module.openhmis.plm.metrics.MetricsRegistry)
+	 */
+	@Test
+	public void setMetricsRegistry_shouldRecordTheListMetricsInTheRegistry() {
+		addItems(2);
+
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+
+		ListMetricsSnapshot snapshot = registry.getListSnapshot(list.getKey());
+		Assert.assertNotNull(snapshot);
+		Assert.assertEquals(2, snapshot.getSize());
+		Assert.assertEquals(0, snapshot.getAddedCount());
+	}
+
+	/**
+	 * @verifies record the added items, list size and latency
+	 * @see PersistentListBase#add(PersistentListItem...)
+	 */
+	@Test
+	public void add_shouldRecordTheAddedItemsListSizeAndLatency() {
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+
+		list.add(new PersistentListItem("1", null), new PersistentListItem("2", null));
+		list.add(new PersistentListItem("3", null));
+
+		ListMetricsSnapshot snapshot = registry.getListSnapshot(list.getKey());
+		Assert.assertEquals(3, snapshot.getSize());
+		Assert.assertEquals(3, snapshot.getAddedCount());
+		Assert.assertEquals(2, snapshot.getLatency(ListMetrics.Operation.ADD).getCount());
+		Assert.assertEquals(3, snapshot.getLatency(ListMetrics.Operation.PROVIDER).getCount());
+	}
+
+	/**
+	 * @verifies record the removed item, list size and latency
+	 * @see PersistentListBase#remove(PersistentListItem)
+	 */
+	@Test
+	public void remove_shouldRecordTheRemovedItemListSizeAndLatency() {
+		addItems(3);
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+
+		list.remove(list.getItems()[1]);
+
+		ListMetricsSnapshot snapshot = registry.getListSnapshot(list.getKey());
+		Assert.assertEquals(2, snapshot.getSize());
+		Assert.assertEquals(1, snapshot.getRemovedCount());
+		Assert.assertEquals(1, snapshot.getLatency(ListMetrics.Operation.REMOVE).getCount());
+	}
+
+	/**
+	 * @verifies not report the removal of an absent item when the provider writes changes behind
+	 * @see PersistentListBase#remove(PersistentListItem)
+	 */
+	@Test
+	public void remove_shouldNotReportTheRemovalOfAnAbsentItemWhenTheProviderWritesChangesBehind() {
+		WriteBehindListProvider writeBehindProvider = new WriteBehindListProvider(new MemoryListProvider());
+		try {
+			list = createList(writeBehindProvider);
+			((PersistentListBase<?>)list).setDurability(ListDurability.GROUP_COMMIT);
+			final List<ListEvent> events = new ArrayList<ListEvent>();
+			list.addEventListener(new ListEventListenerAdapter() {
+				@Override
+				public void itemRemoved(ListEvent event) {
+					events.add(event);
+				}
+			});
+			addItems(2);
+
+			Assert.assertFalse(list.remove(new PersistentListItem("missing", null)));
+			Assert.assertEquals(0, events.size());
+			Assert.assertEquals(2, list.getSize());
+
+			Assert.assertTrue(list.remove(list.getItems()[0]));
+			Assert.assertEquals(1, events.size());
+			Assert.assertEquals(1, list.getSize());
+		} finally {
+			writeBehindProvider.shutdown();
+		}
+	}
+
+	/**
+	 * @verifies record the creation date of the next item
+	 * @see PersistentListBase#add(PersistentListItem...)
+	 */
+	@Test
+	public void add_shouldRecordTheCreationDateOfTheNextItem() {
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+
+		long now = System.currentTimeMillis();
+		list.add(new PersistentListItem("1", null, new Date(now - 20 * 60 * 1000)));
+		list.add(new PersistentListItem("2", null, new Date(now - 10 * 60 * 1000)));
+
+		long expected = System.currentTimeMillis() - list.getNext().getCreatedOn().getTime();
+		long headAge = registry.getListSnapshot(list.getKey()).getHeadAge();
+		Assert.assertTrue(headAge >= expected);
+		Assert.assertTrue(headAge < expected + 60 * 1000);
+	}
+
+	/**
+	 * @verifies record how long the removed item was in the list
+	 * @see PersistentListBase#remove(PersistentListItem)
+	 */
+	@Test
+	public void remove_shouldRecordHowLongTheRemovedItemWasInTheList() {
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+
+		PersistentListItem item = new PersistentListItem("1", null, new Date(System.currentTimeMillis() - 5 * 60 * 1000));
+		list.add(item);
+		list.remove(item);
+
+		ListMetricsSnapshot snapshot = registry.getListSnapshot(list.getKey());
+		Assert.assertEquals(1, snapshot.getDwellTime().getCount());
+		Assert.assertTrue(snapshot.getDwellTime().getMax() >= 5 * 60 * 1000);
+		Assert.assertTrue(snapshot.getDwellTime().getMax() < 6 * 60 * 1000);
+		Assert.assertEquals(0, snapshot.getHeadAge());
+	}
+
+	/**
+	 * @verifies replace the cached items with the items from the provider
+	 * @see PersistentListBase#reload()
+	 */
+	@Test
+	public void reload_shouldReplaceTheCachedItemsWithTheItemsFromTheProvider() {
+		// The test provider does not store the added items
+		addItems(2);
+		Assert.assertEquals(2, list.getSize());
+
+		((PersistentListBase<?>)list).reload();
+
+		Assert.assertEquals(0, list.getSize());
+		list.add(new PersistentListItem("0", null));
+		Assert.assertEquals(1, list.getSize());
+	}
+
+	/**
+	 * @verifies record the event dispatch time
+	 * @see PersistentListBase#fireListEvent(ListEvent)
+	 */
+	@Test
+	public void fireListEvent_shouldRecordTheEventDispatchTime() {
+		MemoryMetricsRegistry registry = new MemoryMetricsRegistry();
+		((MetricsAware)list).setMetricsRegistry(registry);
+		list.addEventListener(new TestListEventListener());
+		Assert.assertEquals(1, ((PersistentListBase<?>)list).getListenerCount());
+
+		addItems(2);
+		list.clear();
+
+		ListMetricsSnapshot snapshot = registry.getListSnapshot(list.getKey());
+		Assert.assertEquals(3, snapshot.getLatency(ListMetrics.Operation.EVENTS).getCount());
+	}
+
+	/**
+	 * @verifies split the lock hold time into the memory and provider time
+	 * @see PersistentListBase#getLockSnapshot()
+	 */
+	@Test
+	public void getLockSnapshot_shouldSplitTheLockHoldTimeIntoTheMemoryAndProviderTime() throws Exception {
+		list = createList(new TestPersistentListProvider() {
+			@Override
+			public void add(PersistentListItemModel item) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+
+				super.add(item);
+			}
+		});
+		PersistentListBase<?> listBase = (PersistentListBase<?>)list;
+		listBase.setIsLockProfilingEnabled(true);
+
+		list.add(new PersistentListItem("0", null));
+
+		LockSnapshot snapshot = listBase.getLockSnapshot();
+		Assert.assertTrue(snapshot.getIsProfilingEnabled());
+		Assert.assertTrue(snapshot.getAcquisitions() > 0);
+		Assert.assertEquals(0, snapshot.getContendedAcquisitions());
+		Assert.assertEquals(snapshot.getAcquisitions(), snapshot.getHoldTimes().getCount());
+		Assert.assertTrue(snapshot.getProviderHoldTime() >= TimeUnit.MILLISECONDS.toNanos(5));
+		Assert.assertTrue(snapshot.getMemoryHoldTime() >= 0);
+	}
+
+	/**
+	 * @verifies not record the lock when profiling is disabled
+	 * @see PersistentListBase#getLockSnapshot()
+	 */
+	@Test
+	public void getLockSnapshot_shouldNotRecordTheLockWhenProfilingIsDisabled() throws Exception {
+		PersistentListBase<?> listBase = (PersistentListBase<?>)list;
+		Assert.assertFalse(listBase.getIsLockProfilingEnabled());
+
+		addItems(2);
+		list.clear();
+
+		LockSnapshot snapshot = listBase.getLockSnapshot();
+		Assert.assertFalse(snapshot.getIsProfilingEnabled());
+		Assert.assertEquals(0, snapshot.getAcquisitions());
+		Assert.assertEquals(0, snapshot.getMemoryHoldTime());
+		Assert.assertEquals(0, snapshot.getProviderHoldTime());
+	}
+
+	/**
+	 * @verifies not add the items to the provider when the list is memory only
+	 * @see PersistentListBase#add(PersistentListItem...)
+	 */
+	@Test
+	public void add_shouldNotAddTheItemsToTheProviderWhenTheListIsMemoryOnly() throws Exception {
+		list = createList(new TestPersistentListProvider() {
+			@Override
+			public void add(PersistentListItemModel item) {
+				fail("The item should not be added to the provider.");
+			}
+
+			@Override
+			public boolean remove(PersistentListItemModel item) {
+				fail("The item should not be removed from the provider.");
+				return false;
+			}
+
+			@Override
+			public void clear(PersistentList list) {
+				fail("The provider should not be cleared.");
+			}
+		});
+		((PersistentListBase<?>)list).setDurability(ListDurability.MEMORY_ONLY);
+
+		addItems(3);
+		Assert.assertTrue(list.remove(list.getItems()[1]));
+		Assert.assertNotNull(list.getNextAndRemove());
+		Assert.assertEquals(1, list.getSize());
+		Assert.assertEquals(1, list.getItems(0, 10).length);
+		list.clear();
+
+		Assert.assertEquals(0, list.getSize());
+	}
+
+	/**
+	 * @verifies Visit the items in list order
+	 * @see QueryablePersistentList#forEach(ListItemVisitor)
+	 */
+	@Test
+	public void forEach_shouldVisitTheItemsInListOrder() throws Exception {
+		addItems(5);
+
+		final List<String> visited = new ArrayList<String>();
+		Assert.assertTrue(list.forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				visited.add(item.getKey());
+				return true;
+			}
+		}));
+
+		List<String> expected = new ArrayList<String>();
+		for (PersistentListItem item : list.getItems()) {
+			expected.add(item.getKey());
+		}
+		Assert.assertEquals(expected, visited);
+	}
+
+	/**
+	 * @verifies Stop visiting items when the visitor returns false
+	 * @see QueryablePersistentList#forEach(ListItemVisitor)
+	 */
+	@Test
+	public void forEach_shouldStopVisitingItemsWhenTheVisitorReturnsFalse() throws Exception {
+		addItems(5);
+
+		final int[] visited = new int[1];
+		Assert.assertFalse(list.forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				return ++visited[0] < 2;
+			}
+		}));
+
+		Assert.assertEquals(2, visited[0]);
+	}
+
+	/**
+	 * @verifies Return true when the list is empty
+	 * @see QueryablePersistentList#forEach(ListItemVisitor)
+	 */
+	@Test
+	public void forEach_shouldReturnTrueWhenTheListIsEmpty() throws Exception {
+		Assert.assertTrue(list.forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				fail("No items should be visited.");
+				return false;
+			}
+		}));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when the visitor is null
+	 * @see PersistentListBase#forEach(ListItemVisitor)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void forEach_shouldThrowIllegalArgumentExceptionWhenTheVisitorIsNull() throws Exception {
+		list.forEach(null);
+	}
+
+	/**
+	 * @verifies Return true when an item matches
+	 * @see QueryablePersistentList#anyMatch(ListItemFilter)
+	 */
+	@Test
+	public void anyMatch_shouldReturnTrueWhenAnItemMatches() throws Exception {
+		addItems(5);
+
+		Assert.assertTrue(list.anyMatch(new KeyFilter("3")));
+	}
+
+	/**
+	 * @verifies Stop checking items after the first match
+	 * @see QueryablePersistentList#anyMatch(ListItemFilter)
+	 */
+	@Test
+	public void anyMatch_shouldStopCheckingItemsAfterTheFirstMatch() throws Exception {
+		addItems(5);
+		final String firstKey = list.getItems()[0].getKey();
+
+		final int[] checked = new int[1];
+		Assert.assertTrue(list.anyMatch(new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				checked[0]++;
+				return item.getKey().equals(firstKey);
+			}
+		}));
+
+		Assert.assertEquals(1, checked[0]);
+	}
+
+	/**
+	 * @verifies Return false when no item matches
+	 * @see QueryablePersistentList#anyMatch(ListItemFilter)
+	 */
+	@Test
+	public void anyMatch_shouldReturnFalseWhenNoItemMatches() throws Exception {
+		addItems(5);
+
+		Assert.assertFalse(list.anyMatch(new KeyFilter("9")));
+	}
+
+	/**
+	 * @verifies Return the first matching item
+	 * @see QueryablePersistentList#findFirst(ListItemFilter)
+	 */
+	@Test
+	public void findFirst_shouldReturnTheFirstMatchingItem() throws Exception {
+		addItems(5);
+		PersistentListItem[] items = list.getItems();
+
+		PersistentListItem item = list.findFirst(new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return Integer.parseInt(item.getKey()) % 2 == 1;
+			}
+		});
+
+		PersistentListItem expected = Integer.parseInt(items[0].getKey()) % 2 == 1 ? items[0] : items[1];
+		Assert.assertEquals(expected.getKey(), item.getKey());
+	}
+
+	/**
+	 * @verifies Return null when no item matches
+	 * @see QueryablePersistentList#findFirst(ListItemFilter)
+	 */
+	@Test
+	public void findFirst_shouldReturnNullWhenNoItemMatches() throws Exception {
+		addItems(5);
+
+		Assert.assertNull(list.findFirst(new KeyFilter("9")));
+	}
+
+	/**
+	 * @verifies Return the number of matching items
+	 * @see QueryablePersistentList#count(ListItemFilter)
+	 */
+	@Test
+	public void count_shouldReturnTheNumberOfMatchingItems() throws Exception {
+		addItems(5);
+
+		Assert.assertEquals(3, list.count(new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return Integer.parseInt(item.getKey()) % 2 == 0;
+			}
+		}));
+	}
+
+	private void addItems(int count) {
+		for (int i = 0; i < count; i++) {
+			list.add(new PersistentListItem(String.valueOf(i), null));
+		}
+	}
+
+	private static class KeyFilter implements ListItemFilter {
+		private final String key;
+
+		public KeyFilter(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public boolean matches(PersistentListItem item) {
+			return key.equals(item.getKey());
+		}
+	}
+
 	private class TestListEventListener implements ListEventListener {
 		public int added;
 		public int removed;
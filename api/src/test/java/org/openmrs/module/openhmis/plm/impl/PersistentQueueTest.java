@@ -15,22 +15,55 @@
 package org.openmrs.module.openhmis.plm.impl;
 
 import org.junit.Test;
+import org.openmrs.module.openhmis.plm.ListDurability;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
 import org.openmrs.module.openhmis.plm.PersistentList;
 import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
 import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.QueryablePersistentList;
+import org.openmrs.module.openhmis.plm.StreamingListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
 
 public class PersistentQueueTest extends PersistentListTestBase {
 	@Override
-	protected PersistentList createList(PersistentListProvider provider) {
+	protected QueryablePersistentList createList(PersistentListProvider provider) {
 		PersistentQueue queue = new PersistentQueue(1, "test", provider);
 		queue.initialize();
 
 		return queue;
 	}
 
+	/**
+	 * @verifies not load the items from the provider when the list is memory only
+	 * @see PersistentListBase#initialize()
+	 */
+	@Test
+	public void initialize_shouldNotLoadTheItemsFromTheProviderWhenTheListIsMemoryOnly() throws Exception {
+		PersistentQueue queue = new PersistentQueue(1, "test",
+				new TestPersistentListProvider(new PersistentListItemModel(1, "1", 0, null)));
+		queue.setDurability(ListDurability.MEMORY_ONLY);
+
+		assertEquals(0, queue.getItems(0, 10).length);
+		assertTrue(queue.getIsInitialized());
+		assertEquals(0, queue.getSize());
+	}
+
 	/**
 	 * @verifies Return items in first in first out order
 	 * @see PersistentQueue#getNext()
@@ -105,5 +138,210 @@ public class PersistentQueueTest extends PersistentListTestBase {
 		assertNotNull(item);
 		assertEquals(item2, item);
 	}
-}
 
+	/**
+	 * @verifies load the items from the provider
+	 * @see PersistentListBase#initialize()
+	 */
+	@Test
+	public void initialize_shouldLoadTheItemsFromTheProvider() throws Exception {
+		PersistentQueue queue = new PersistentQueue(1, "test", new TestPersistentListProvider(
+				createItemModel(1, "1", 0),
+				createItemModel(2, "2", 1)));
+
+		assertFalse(queue.getIsInitialized());
+		queue.initialize();
+		assertTrue(queue.getIsInitialized());
+
+		PersistentListItem[] items = queue.getItems();
+		assertEquals(2, items.length);
+		assertEquals("1", items[0].getKey());
+		assertEquals("2", items[1].getKey());
+	}
+
+	/**
+	 * @verifies only load the items once
+	 * @see PersistentListBase#initialize()
+	 */
+	@Test
+	public void initialize_shouldOnlyLoadTheItemsOnce() throws Exception {
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		final PersistentQueue queue = new PersistentQueue(1, "test", new TestPersistentListProvider() {
+			@Override
+			public void getItems(PersistentList list, ListItemModelHandler handler) {
+				loads.incrementAndGet();
+
+				super.getItems(list, handler);
+			}
+		});
+
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					queue.getSize();
+				}
+			});
+			threads[i].start();
+		}
+
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		queue.initialize();
+
+		assertEquals(1, loads.get());
+	}
+
+	/**
+	 * @verifies load the items when the list has not been initialized
+	 * @see PersistentListBase#getSize()
+	 */
+	@Test
+	public void getSize_shouldLoadTheItemsWhenTheListHasNotBeenInitialized() throws Exception {
+		PersistentQueue queue = new PersistentQueue(1, "test", new TestPersistentListProvider(
+				createItemModel(1, "1", 0)));
+
+		assertFalse(queue.getIsInitialized());
+		assertEquals(1, queue.getSize());
+		assertTrue(queue.getIsInitialized());
+	}
+
+	/**
+	 * @verifies not load the items when the list has not been initialized
+	 * @see PersistentListBase#clear()
+	 */
+	@Test
+	public void clear_shouldNotLoadTheItemsWhenTheListHasNotBeenInitialized() throws Exception {
+		StreamingListProvider mockProvider = mock(StreamingListProvider.class);
+		PersistentQueue queue = new PersistentQueue(1, "test", mockProvider);
+
+		queue.clear();
+
+		verify(mockProvider).clear(queue);
+		verify(mockProvider, never()).getItems(eq(queue), any(ListItemModelHandler.class));
+		assertEquals(0, queue.getSize());
+	}
+
+	/**
+	 * @verifies read the range from the provider when the list has not been initialized
+	 * @see PersistentListBase#getItems(int, int)
+	 */
+	@Test
+	public void getItems_shouldReadTheRangeFromTheProviderWhenTheListHasNotBeenInitialized() throws Exception {
+		TestPersistentListProvider itemProvider = new TestPersistentListProvider(
+				createItemModel(1, "a", 0), createItemModel(2, "b", 1), createItemModel(3, "c", 2));
+		PersistentQueue queue = new PersistentQueue(1, "test", itemProvider);
+
+		PersistentListItem[] items = queue.getItems(1, 5);
+
+		assertFalse(queue.getIsInitialized());
+		assertEquals(2, items.length);
+		assertEquals("b", items[0].getKey());
+		assertEquals("c", items[1].getKey());
+	}
+
+	/**
+	 * @verifies read the pages from the provider when the list has not been initialized
+	 * @see PersistentListBase#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldReadThePagesFromTheProviderWhenTheListHasNotBeenInitialized() throws Exception {
+		TestPersistentListProvider itemProvider = new TestPersistentListProvider(
+				createItemModel(1, "a", 0), createItemModel(2, "b", 1), createItemModel(3, "c", 2));
+		PersistentQueue queue = new PersistentQueue(1, "test", itemProvider);
+
+		PersistentListPage page = queue.getPage(null, 2);
+		assertEquals(2, page.getItems().length);
+		assertEquals("a", page.getItems()[0].getKey());
+		assertEquals("b", page.getItems()[1].getKey());
+
+		// The provider cursor continues to be read from the provider after the list has been initialized
+		queue.initialize();
+		page = queue.getPage(page.getNextCursor(), 2);
+		assertEquals(1, page.getItems().length);
+		assertEquals("c", page.getItems()[0].getKey());
+		assertNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies not skip or repeat provider items when items are removed from the head between pages
+	 * @see PersistentListBase#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldNotSkipOrRepeatProviderItemsWhenItemsAreRemovedFromTheHeadBetweenPages() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentQueue writer = new PersistentQueue(1, "test", memoryProvider);
+		for (String key : new String[] { "a", "b", "c", "d", "e" }) {
+			writer.add(new PersistentListItem(key, null));
+		}
+		PersistentQueue queue = new PersistentQueue(1, "test", memoryProvider);
+
+		List<String> keys = new ArrayList<String>();
+		PersistentListPage page = queue.getPage(null, 2);
+		for (PersistentListItem item : page.getItems()) {
+			keys.add(item.getKey());
+		}
+
+		// Removing the head of the queue moves every remaining item up in the provider
+		assertEquals("a", queue.getNextAndRemove().getKey());
+		assertEquals("b", queue.getNextAndRemove().getKey());
+
+		while (page.getNextCursor() != null) {
+			page = queue.getPage(page.getNextCursor(), 2);
+			for (PersistentListItem item : page.getItems()) {
+				keys.add(item.getKey());
+			}
+		}
+
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), keys);
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when the limit is less than one
+	 * @see PersistentListBase#getPage(String, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getPage_shouldThrowIllegalArgumentExceptionWhenTheLimitIsLessThanOne() throws Exception {
+		list.getPage(null, 0);
+	}
+
+	/**
+	 * @verifies continue after the cursor item when it has been removed
+	 * @see PersistentQueue#readPage(String, int)
+	 */
+	@Test
+	public void readPage_shouldContinueAfterTheCursorItemWhenItHasBeenRemoved() throws Exception {
+		PersistentListItem item1 = new PersistentListItem("1", null);
+		PersistentListItem item2 = new PersistentListItem("2", null);
+		PersistentListItem item3 = new PersistentListItem("3", null);
+		list.add(item1, item2, item3);
+
+		PersistentListPage page = list.getPage(null, 2);
+		assertEquals(item1, list.getNextAndRemove());
+		assertEquals(item2, list.getNextAndRemove());
+		PersistentListItem item4 = new PersistentListItem("4", null);
+		list.add(item4);
+
+		page = list.getPage(page.getNextCursor(), 2);
+		assertEquals(2, page.getItems().length);
+		assertEquals(item3, page.getItems()[0]);
+		assertEquals(item4, page.getItems()[1]);
+	}
+
+	private PersistentListItemModel createItemModel(int id, String key, int order) {
+		PersistentListItemModel model = new PersistentListItemModel(1, key, order, null);
+		model.setItemId(id);
+
+		return model;
+	}
+}
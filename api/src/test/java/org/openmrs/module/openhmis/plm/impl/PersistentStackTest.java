@@ -15,17 +15,27 @@
 package org.openmrs.module.openhmis.plm.impl;
 
 import org.junit.Test;
-import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.ListItemVisitor;
 import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
 import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.QueryablePersistentList;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class PersistentStackTest extends PersistentListTestBase {
 
 	@Override
-	protected PersistentList createList(PersistentListProvider provider) {
+	protected QueryablePersistentList createList(PersistentListProvider provider) {
 		PersistentStack stack = new PersistentStack(1, "test", provider);
 		stack.initialize();
 
@@ -106,4 +116,199 @@ public class PersistentStackTest extends PersistentListTestBase {
 		assertNotNull(item);
 		assertEquals(item1, item);
 	}
+
+	/**
+	 * @verifies return the range in last in first out order
+	 * @see PersistentStack#readItems(int, int)
+	 */
+	@Test
+	public void readItems_shouldReturnTheRangeInLastInFirstOutOrder() throws Exception {
+		PersistentListItem[] added = new PersistentListItem[5];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = new PersistentListItem(String.valueOf(i), null);
+			list.add(added[i]);
+		}
+
+		PersistentListItem[] items = list.getItems(1, 3);
+		assertEquals(3, items.length);
+		assertEquals(added[3], items[0]);
+		assertEquals(added[2], items[1]);
+		assertEquals(added[1], items[2]);
+
+		assertEquals(1, list.getItems(4, 10).length);
+		assertEquals(0, list.getItems(5, 10).length);
+	}
+
+	/**
+	 * @verifies continue below the cursor item when it has been removed
+	 * @see PersistentStack#readPage(String, int)
+	 */
+	@Test
+	public void readPage_shouldContinueBelowTheCursorItemWhenItHasBeenRemoved() throws Exception {
+		PersistentListItem[] added = new PersistentListItem[5];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = new PersistentListItem(String.valueOf(i), null);
+			list.add(added[i]);
+		}
+
+		PersistentListPage page = list.getPage(null, 2);
+		assertEquals(added[4], page.getItems()[0]);
+		assertEquals(added[3], page.getItems()[1]);
+		assertTrue(list.remove(added[3]));
+
+		page = list.getPage(page.getNextCursor(), 2);
+		assertEquals(2, page.getItems().length);
+		assertEquals(added[2], page.getItems()[0]);
+		assertEquals(added[1], page.getItems()[1]);
+
+		page = list.getPage(page.getNextCursor(), 2);
+		assertEquals(1, page.getItems().length);
+		assertEquals(added[0], page.getItems()[0]);
+		assertNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies not include items pushed after the first page was read
+	 * @see PersistentStack#readPage(String, int)
+	 */
+	@Test
+	public void readPage_shouldNotIncludeItemsPushedAfterTheFirstPageWasRead() throws Exception {
+		PersistentListItem[] added = new PersistentListItem[4];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = new PersistentListItem(String.valueOf(i), null);
+			list.add(added[i]);
+		}
+
+		PersistentListPage page = list.getPage(null, 2);
+		list.add(new PersistentListItem("new", null));
+
+		page = list.getPage(page.getNextCursor(), 2);
+		assertEquals(2, page.getItems().length);
+		assertEquals(added[1], page.getItems()[0]);
+		assertEquals(added[0], page.getItems()[1]);
+		assertNull(page.getNextCursor());
+	}
+
+	/**
+	 * @verifies visit the items in last in first out order
+	 * @see PersistentStack#visitItems(ListItemVisitor)
+	 */
+	@Test
+	public void visitItems_shouldVisitTheItemsInLastInFirstOutOrder() throws Exception {
+		PersistentListItem[] added = new PersistentListItem[3];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = new PersistentListItem(String.valueOf(i), null);
+			list.add(added[i]);
+		}
+
+		final List<PersistentListItem> visited = new ArrayList<PersistentListItem>();
+		list.forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				visited.add(item);
+				return true;
+			}
+		});
+
+		assertEquals(Arrays.asList(added[2], added[1], added[0]), visited);
+	}
+
+	/**
+	 * @verifies not skip or repeat provider items when items are removed from the head between pages
+	 * @see PersistentListBase#getPage(String, int)
+	 */
+	@Test
+	public void getPage_shouldNotSkipOrRepeatProviderItemsWhenItemsAreRemovedFromTheHeadBetweenPages() throws Exception {
+		MemoryListProvider memoryProvider = new MemoryListProvider();
+		PersistentStack writer = new PersistentStack(1, "test", memoryProvider);
+		for (String key : new String[] { "a", "b", "c", "d", "e" }) {
+			writer.add(new PersistentListItem(key, null));
+		}
+		PersistentStack stack = new PersistentStack(1, "test", memoryProvider);
+
+		List<String> keys = new ArrayList<String>();
+		PersistentListPage page = stack.getPage(null, 2);
+		for (PersistentListItem item : page.getItems()) {
+			keys.add(item.getKey());
+		}
+
+		// Pushing an item moves every stored item down and popping moves them back up
+		writer.add(new PersistentListItem("f", null));
+		assertEquals("f", writer.getNextAndRemove().getKey());
+		assertEquals("e", writer.getNextAndRemove().getKey());
+
+		while (page.getNextCursor() != null) {
+			page = stack.getPage(page.getNextCursor(), 2);
+			for (PersistentListItem item : page.getItems()) {
+				keys.add(item.getKey());
+			}
+		}
+
+		assertEquals(Arrays.asList("e", "d", "c", "b", "a"), keys);
+	}
+
+	/**
+	 * @verifies store new items with the negated stack size as the item order
+	 * @see PersistentStack#getItemIndex(PersistentListItem)
+	 */
+	@Test
+	public void getItemIndex_shouldStoreNewItemsWithTheNegatedStackSizeAsTheItemOrder() throws Exception {
+		final List<Integer> orders = new ArrayList<Integer>();
+		MemoryListProvider memoryProvider = new MemoryListProvider() {
+			@Override
+			public void add(PersistentListItemModel item) {
+				orders.add(item.getItemOrder());
+				super.add(item);
+			}
+		};
+		PersistentStack stack = new PersistentStack(1, "test", memoryProvider);
+
+		stack.add(new PersistentListItem("1", null), new PersistentListItem("2", null),
+				new PersistentListItem("3", null));
+
+		assertEquals(Arrays.asList(0, -1, -2), orders);
+
+		// The provider returns the items with the most recently added item first
+		PersistentListItemModel[] stored = memoryProvider.getItems(stack);
+		assertEquals("3", stored[0].getItemKey());
+		assertEquals("2", stored[1].getItemKey());
+		assertEquals("1", stored[2].getItemKey());
+	}
+
+	/**
+	 * @verifies not search the cached items for the top of the stack
+	 * @see PersistentStack#getItemIndex(PersistentListItem)
+	 */
+	@Test
+	public void getItemIndex_shouldNotSearchTheCachedItemsForTheTopOfTheStack() throws Exception {
+		final List<Integer> orders = new ArrayList<Integer>();
+		MemoryListProvider memoryProvider = new MemoryListProvider() {
+			@Override
+			public boolean remove(PersistentListItemModel item) {
+				orders.add(item.getItemOrder());
+				return super.remove(item);
+			}
+		};
+		final int[] searches = new int[1];
+		PersistentStack stack = new PersistentStack(1, "test", memoryProvider) {
+			@Override
+			protected IndexedItemBuffer initializeCache() {
+				return new IndexedItemBuffer() {
+					@Override
+					public int indexOf(Object o) {
+						searches[0]++;
+						return super.indexOf(o);
+					}
+				};
+			}
+		};
+
+		stack.add(new PersistentListItem("1", null), new PersistentListItem("2", null),
+				new PersistentListItem("3", null));
+		assertEquals("3", stack.getNextAndRemove().getKey());
+		assertEquals("2", stack.getNextAndRemove().getKey());
+
+		assertEquals(0, searches[0]);
+		assertEquals(Arrays.asList(-2, -1), orders);
+	}
 }
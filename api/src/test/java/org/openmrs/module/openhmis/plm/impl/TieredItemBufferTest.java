@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TieredItemBufferTest {
+	private List<PersistentListItem> stored;
+	private int reads;
+	private TieredItemBuffer buffer;
+
+	@Before
+	public void before() {
+		stored = new ArrayList<PersistentListItem>();
+		buffer = new TieredItemBuffer(4, 2, new TieredItemBuffer.ColdItemReader() {
+			@Override
+			public PersistentListItem[] read(int offset, int limit) {
+				reads++;
+				int end = Math.min(stored.size(), offset + limit);
+
+				return stored.subList(offset, end).toArray(new PersistentListItem[end - offset]);
+			}
+		});
+	}
+
+	/**
+	 * @verifies add the item to the head until the head window is full
+	 * @see TieredItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldAddTheItemToTheHeadUntilTheHeadWindowIsFull() throws Exception {
+		add(5);
+
+		assertEquals(4, buffer.getHeadSize());
+		assertEquals(0, buffer.getColdCount());
+		assertEquals(1, buffer.getTailSize());
+		assertEquals("4", buffer.get(4).getKey());
+	}
+
+	/**
+	 * @verifies move the first tail item to the cold items when the tail window is full
+	 * @see TieredItemBuffer#add(PersistentListItem)
+	 */
+	@Test
+	public void add_shouldMoveTheFirstTailItemToTheColdItemsWhenTheTailWindowIsFull() throws Exception {
+		add(10);
+
+		assertEquals(10, buffer.size());
+		assertEquals(4, buffer.getHeadSize());
+		assertEquals(4, buffer.getColdCount());
+		assertEquals(2, buffer.getTailSize());
+		assertEquals("8", buffer.get(8).getKey());
+		assertFalse(buffer.containsKey("5"));
+		assertTrue(buffer.containsKey("9"));
+	}
+
+	/**
+	 * @verifies read the cold items when the head is empty
+	 * @see TieredItemBuffer#pollFirst()
+	 */
+	@Test
+	public void pollFirst_shouldReadTheColdItemsWhenTheHeadIsEmpty() throws Exception {
+		add(10);
+
+		for (int i = 0; i < 10; i++) {
+			PersistentListItem item = buffer.pollFirst();
+			assertEquals(String.valueOf(i), item.getKey());
+
+			// The provider removes the item as the list would
+			stored.remove(0);
+		}
+
+		assertEquals(0, buffer.size());
+		assertEquals(1, reads);
+	}
+
+	/**
+	 * @verifies read the cold items when the head is empty
+	 * @see TieredItemBuffer#peekFirst()
+	 */
+	@Test
+	public void peekFirst_shouldReadTheColdItemsWhenTheHeadIsEmpty() throws Exception {
+		add(10);
+		for (int i = 0; i < 4; i++) {
+			buffer.pollFirst();
+			stored.remove(0);
+		}
+
+		assertEquals("4", buffer.peekFirst().getKey());
+		assertEquals(4, buffer.getHeadSize());
+		assertEquals(0, buffer.getColdCount());
+	}
+
+	/**
+	 * @verifies replace the first cold items with the items
+	 * @see TieredItemBuffer#addPrefetched(PersistentListItem[])
+	 */
+	@Test
+	public void addPrefetched_shouldReplaceTheFirstColdItemsWithTheItems() throws Exception {
+		add(10);
+		buffer.pollFirst();
+		buffer.pollFirst();
+		int version = buffer.getColdVersion();
+
+		buffer.addPrefetched(new PersistentListItem[] { stored.get(4), stored.get(5) });
+
+		assertEquals(4, buffer.getHeadSize());
+		assertEquals(2, buffer.getColdCount());
+		assertEquals("5", buffer.get(3).getKey());
+		assertTrue(buffer.getColdVersion() != version);
+	}
+
+	private void add(int count) {
+		for (int i = 0; i < count; i++) {
+			PersistentListItem item = new PersistentListItem(String.valueOf(i), null);
+			stored.add(item);
+			buffer.add(item);
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.ListDurability;
+import org.openmrs.module.openhmis.plm.ListItemFilter;
+import org.openmrs.module.openhmis.plm.ListItemVisitor;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListPage;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TieredPersistentQueueTest {
+	private MemoryListProvider provider;
+	private List<Runnable> prefetches;
+	private TieredPersistentQueue queue;
+
+	@Before
+	public void before() {
+		provider = new MemoryListProvider();
+		for (int i = 0; i < 20; i++) {
+			provider.add(new PersistentListItemModel(1, String.valueOf(i), i, null));
+		}
+
+		prefetches = new ArrayList<Runnable>();
+		queue = new TieredPersistentQueue(1, "test", provider);
+		queue.setHeadWindow(4);
+		queue.setTailWindow(2);
+		queue.setPrefetchExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				prefetches.add(command);
+			}
+		});
+	}
+
+	/**
+	 * @verifies keep only the head and tail windows in memory
+	 * @see TieredPersistentQueue#initializeCache()
+	 */
+	@Test
+	public void initializeCache_shouldKeepOnlyTheHeadAndTailWindowsInMemory() throws Exception {
+		queue.initialize();
+
+		assertEquals(20, queue.getSize());
+		assertEquals(14, queue.getColdCount());
+
+		queue.add(new PersistentListItem("20", null));
+		assertEquals(21, queue.getSize());
+		assertEquals(15, queue.getColdCount());
+		assertEquals(21, provider.getItems(queue).length);
+	}
+
+	/**
+	 * @verifies return the items in first in first out order
+	 * @see TieredPersistentQueue#getNextAndRemove()
+	 */
+	@Test
+	public void getNextAndRemove_shouldReturnTheItemsInFirstInFirstOutOrder() throws Exception {
+		queue.add(new PersistentListItem("20", null));
+
+		for (int i = 0; i <= 20; i++) {
+			assertEquals(String.valueOf(i), queue.getNextAndRemove().getKey());
+
+			// Run every other prefetch so that the head is also read when it is empty
+			if (i % 2 == 0) {
+				runPrefetches();
+			} else {
+				prefetches.clear();
+			}
+		}
+
+		assertNull(queue.getNextAndRemove());
+		assertEquals(0, provider.getItems(queue).length);
+	}
+
+	/**
+	 * @verifies prefetch the next items when the head drains
+	 * @see TieredPersistentQueue#getNextAndRemove()
+	 */
+	@Test
+	public void getNextAndRemove_shouldPrefetchTheNextItemsWhenTheHeadDrains() throws Exception {
+		queue.getNextAndRemove();
+		assertEquals(0, prefetches.size());
+		queue.getNextAndRemove();
+		assertEquals(1, prefetches.size());
+
+		// Another head item is removed while the prefetch is waiting to read the provider
+		queue.getNextAndRemove();
+		runPrefetches();
+
+		assertEquals(11, queue.getColdCount());
+		assertEquals("3", queue.getNext().getKey());
+		PersistentListItem[] items = queue.getItems(0, 4);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(String.valueOf(i + 3), items[i].getKey());
+		}
+	}
+
+	/**
+	 * @verifies return the items in memory and in the provider in list order
+	 * @see TieredPersistentQueue#getItems()
+	 */
+	@Test
+	public void getItems_shouldReturnTheItemsInMemoryAndInTheProviderInListOrder() throws Exception {
+		PersistentListItem[] items = queue.getItems();
+
+		assertEquals(20, items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(String.valueOf(i), items[i].getKey());
+		}
+
+		items = queue.getItems(2, 5);
+		assertEquals("2", items[0].getKey());
+		assertEquals("6", items[4].getKey());
+	}
+
+	/**
+	 * @verifies visit the items in memory and in the provider in list order
+	 * @see TieredPersistentQueue#visitItems(ListItemVisitor)
+	 */
+	@Test
+	public void visitItems_shouldVisitTheItemsInMemoryAndInTheProviderInListOrder() throws Exception {
+		final List<String> keys = new ArrayList<String>();
+		assertTrue(queue.forEach(new ListItemVisitor() {
+			@Override
+			public boolean visit(PersistentListItem item) {
+				keys.add(item.getKey());
+				return true;
+			}
+		}));
+
+		assertEquals(20, keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(String.valueOf(i), keys.get(i));
+		}
+		assertEquals(1, queue.count(new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return item.getKey().equals("10");
+			}
+		}));
+	}
+
+	/**
+	 * @verifies not read the cold items when the visitor stops in the head
+	 * @see TieredPersistentQueue#visitItems(ListItemVisitor)
+	 */
+	@Test
+	public void visitItems_shouldNotReadTheColdItemsWhenTheVisitorStopsInTheHead() throws Exception {
+		final int[] reads = new int[1];
+		MemoryListProvider countingProvider = new MemoryListProvider() {
+			@Override
+			public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+				reads[0]++;
+				return super.getItems(list, offset, limit);
+			}
+		};
+		for (int i = 0; i < 20; i++) {
+			countingProvider.add(new PersistentListItemModel(1, String.valueOf(i), i, null));
+		}
+		queue = new TieredPersistentQueue(1, "test", countingProvider);
+		queue.setHeadWindow(4);
+		queue.setTailWindow(2);
+		queue.initialize();
+		reads[0] = 0;
+
+		PersistentListItem item = queue.findFirst(new ListItemFilter() {
+			@Override
+			public boolean matches(PersistentListItem item) {
+				return item.getKey().equals("2");
+			}
+		});
+
+		assertEquals("2", item.getKey());
+		assertEquals(0, reads[0]);
+	}
+
+	/**
+	 * @verifies remove an item that is only stored by the provider
+	 * @see TieredPersistentQueue#removeCachedItem(PersistentListItem, boolean)
+	 */
+	@Test
+	public void removeCachedItem_shouldRemoveAnItemThatIsOnlyStoredByTheProvider() throws Exception {
+		queue.initialize();
+
+		assertTrue(queue.remove(new PersistentListItem("10", null)));
+		assertFalse(queue.remove(new PersistentListItem("missing", null)));
+
+		assertEquals(19, queue.getSize());
+		assertEquals(13, queue.getColdCount());
+		assertEquals("11", queue.getItems(10, 1)[0].getKey());
+	}
+
+	/**
+	 * @verifies confirm the removal of a cold item with a write behind provider
+	 * @see TieredPersistentQueue#removeStoredItem(PersistentListItem)
+	 */
+	@Test
+	public void removeStoredItem_shouldConfirmTheRemovalOfAColdItemWithAWriteBehindProvider() throws Exception {
+		WriteBehindListProvider writeBehindProvider = new WriteBehindListProvider(provider);
+		try {
+			queue.setProvider(writeBehindProvider);
+			queue.setDurability(ListDurability.GROUP_COMMIT);
+			queue.initialize();
+
+			assertFalse(queue.remove(new PersistentListItem("missing", null)));
+			assertEquals(20, queue.getSize());
+			assertEquals(14, queue.getColdCount());
+
+			assertTrue(queue.remove(new PersistentListItem("10", null)));
+			assertEquals(19, queue.getSize());
+			assertEquals(13, queue.getColdCount());
+			assertEquals("11", queue.getItems(10, 1)[0].getKey());
+		} finally {
+			writeBehindProvider.shutdown();
+		}
+	}
+
+	/**
+	 * @verifies read the pages from the provider
+	 * @see TieredPersistentQueue#readPage(String, int)
+	 */
+	@Test
+	public void readPage_shouldReadThePagesFromTheProvider() throws Exception {
+		queue.initialize();
+
+		PersistentListPage page = queue.getPage(null, 8);
+		page = queue.getPage(page.getNextCursor(), 8);
+
+		assertEquals(8, page.getItems().length);
+		assertEquals("8", page.getItems()[0].getKey());
+	}
+
+	private void runPrefetches() {
+		while (!prefetches.isEmpty()) {
+			prefetches.remove(0).run();
+		}
+	}
+}
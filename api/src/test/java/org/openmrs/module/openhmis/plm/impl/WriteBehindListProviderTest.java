@@ -0,0 +1,271 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.GroupCommitListProvider;
+import org.openmrs.module.openhmis.plm.ListItemOperation;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindListProviderTest {
+	private RecordingListProvider memoryProvider;
+	private WriteBehindListProvider provider;
+	private TestPersistentList list;
+
+	@Before
+	public void before() {
+		memoryProvider = new RecordingListProvider();
+		provider = new WriteBehindListProvider(memoryProvider);
+		// Keep the flusher thread waiting so that the tests decide when the changes are stored
+		provider.setFlushDelay(60000);
+
+		list = new TestPersistentList("test", provider);
+		list.setId(1);
+	}
+
+	@After
+	public void after() {
+		provider.shutdown();
+	}
+
+	/**
+	 * @verifies store the item on the flusher thread
+	 * @see WriteBehindListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldStoreTheItemOnTheFlusherThread() throws Exception {
+		provider.setFlushDelay(0);
+
+		provider.add(createItem("a", 0));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (provider.getFlushedCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+
+		assertEquals(1, provider.getFlushedCount());
+		assertEquals(0, provider.getQueueDepth());
+		assertEquals(Collections.singletonList("plm-write-behind"), memoryProvider.threadNames);
+		assertEquals(1, provider.getFlushLag().getCount());
+	}
+
+	/**
+	 * @verifies flush the queue on the calling thread when the queue is full
+	 * @see WriteBehindListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldFlushTheQueueOnTheCallingThreadWhenTheQueueIsFull() throws Exception {
+		provider.setMaxQueueSize(2);
+
+		provider.add(createItem("a", 0));
+		assertEquals(1, provider.getQueueDepth());
+		assertEquals(0, memoryProvider.threadNames.size());
+
+		provider.add(createItem("b", 1));
+
+		assertEquals(0, provider.getQueueDepth());
+		String threadName = Thread.currentThread().getName();
+		assertEquals(threadName, memoryProvider.threadNames.get(0));
+		assertEquals(threadName, memoryProvider.threadNames.get(1));
+	}
+
+	/**
+	 * @verifies return the queued changes
+	 * @see WriteBehindListProvider#getItems(org.openmrs.module.openhmis.plm.PersistentList)
+	 */
+	@Test
+	public void getItems_shouldReturnTheQueuedChanges() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		assertEquals(2, provider.getQueueDepth());
+
+		assertItems("a", "b");
+		assertEquals(0, provider.getQueueDepth());
+	}
+
+	/**
+	 * @verifies return whether the provider removed the item
+	 * @see WriteBehindListProvider#removeNow(PersistentListItemModel)
+	 */
+	@Test
+	public void removeNow_shouldReturnWhetherTheProviderRemovedTheItem() throws Exception {
+		provider.add(createItem("a", 0));
+
+		assertFalse(provider.removeNow(createItem("b", 0)));
+		assertTrue(provider.removeNow(createItem("a", 0)));
+		assertEquals(0, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies store the changes in the order that they were queued
+	 * @see WriteBehindListProvider#flush()
+	 */
+	@Test
+	public void flush_shouldStoreTheChangesInTheOrderThatTheyWereQueued() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		provider.remove(createItem("a", 0));
+		provider.add(createItem("c", 1));
+		provider.clear(list);
+		provider.add(createItem("d", 0));
+
+		provider.flush();
+
+		assertEquals(0, provider.getQueueDepth());
+		assertEquals(6, provider.getFlushedCount());
+		assertEquals(1, memoryProvider.commitCount);
+		assertItems("d");
+	}
+
+	/**
+	 * @verifies retry each change when the group commit fails
+	 * @see WriteBehindListProvider#flush()
+	 */
+	@Test
+	public void flush_shouldRetryEachChangeWhenTheGroupCommitFails() throws Exception {
+		memoryProvider.failCommit = true;
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+
+		provider.flush();
+
+		assertEquals(1, memoryProvider.commitCount);
+		assertEquals(0, provider.getFailedCount());
+		assertItems("a", "b");
+	}
+
+	/**
+	 * @verifies store the queued changes
+	 * @see WriteBehindListProvider#shutdown()
+	 */
+	@Test
+	public void shutdown_shouldStoreTheQueuedChanges() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+
+		provider.shutdown();
+
+		assertEquals(0, provider.getQueueDepth());
+		assertEquals(2, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies store later changes immediately
+	 * @see WriteBehindListProvider#shutdown()
+	 */
+	@Test
+	public void shutdown_shouldStoreLaterChangesImmediately() throws Exception {
+		provider.shutdown();
+
+		provider.add(createItem("a", 0));
+
+		assertEquals(0, provider.getQueueDepth());
+		assertEquals(1, memoryProvider.getItems(list).length);
+	}
+
+	/**
+	 * @verifies store a change that is queued while the provider shuts down
+	 * @see WriteBehindListProvider#shutdown()
+	 */
+	@Test
+	public void shutdown_shouldStoreAChangeThatIsQueuedWhileTheProviderShutsDown() throws Exception {
+		final CountDownLatch adding = new CountDownLatch(1);
+		final CountDownLatch shutDown = new CountDownLatch(1);
+		LinkedBlockingQueue<WriteBehindListProvider.QueuedOperation> queue =
+				new LinkedBlockingQueue<WriteBehindListProvider.QueuedOperation>() {
+					@Override
+					public boolean add(WriteBehindListProvider.QueuedOperation operation) {
+						// Hold the change between the shutdown check and the queue until the shutdown has finished
+						adding.countDown();
+						try {
+							shutDown.await();
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						}
+
+						return super.add(operation);
+					}
+				};
+		provider = new WriteBehindListProvider(memoryProvider, queue);
+
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				provider.add(createItem("a", 0));
+			}
+		});
+		writer.start();
+
+		adding.await();
+		provider.shutdown();
+		shutDown.countDown();
+		writer.join();
+
+		assertEquals(0, provider.getQueueDepth());
+		assertEquals(1, memoryProvider.getItems(list).length);
+	}
+
+	private PersistentListItemModel createItem(String key, int itemOrder) {
+		return new PersistentListItemModel(list, key, itemOrder, null);
+	}
+
+	private void assertItems(String... keys) {
+		PersistentListItemModel[] items = provider.getItems(list);
+
+		assertEquals(keys.length, items.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(keys[i], items[i].getItemKey());
+		}
+	}
+
+	private static class RecordingListProvider extends MemoryListProvider implements GroupCommitListProvider {
+		public final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+		public volatile int commitCount;
+		public volatile boolean failCommit;
+
+		@Override
+		public void add(PersistentListItemModel item) {
+			threadNames.add(Thread.currentThread().getName());
+
+			super.add(item);
+		}
+
+		@Override
+		public void commit(ListItemOperation[] operations) {
+			commitCount++;
+			if (failCommit) {
+				throw new IllegalStateException("The commit failed.");
+			}
+
+			for (ListItemOperation operation : operations) {
+				operation.applyTo(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.memory.MemoryServiceProvider;
+import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
+
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PersistentListMXBeanImplTest {
+	/**
+	 * @verifies quote the list key
+	 * @see PersistentListMXBeanImpl#createObjectName(String)
+	 */
+	@Test
+	public void createObjectName_shouldQuoteTheListKey() throws Exception {
+		ObjectName name = PersistentListMXBeanImpl.createObjectName("ward:a,b=c");
+
+		assertEquals("PersistentList", name.getKeyProperty("type"));
+		assertEquals("ward:a,b=c", ObjectName.unquote(name.getKeyProperty("key")));
+	}
+
+	/**
+	 * @verifies not load the items of a lazy list
+	 * @see PersistentListMXBeanImpl#getSize()
+	 */
+	@Test
+	public void getSize_shouldNotLoadTheItemsOfALazyList() throws Exception {
+		PersistentListServiceImpl service = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new TestPersistentListProvider());
+		service.onStartup();
+		PersistentList list = service.createList(PersistentQueue.class, "test", null);
+
+		PersistentListMXBeanImpl mbean = new PersistentListMXBeanImpl(service, list);
+
+		assertEquals(-1, mbean.getSize());
+		assertFalse(mbean.getIsInitialized());
+		assertFalse(((PersistentQueue)list).getIsInitialized());
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.jmx;
+
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.impl.WriteBehindListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryServiceProvider;
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.ProviderMetrics;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+import org.openmrs.module.openhmis.plm.test.TestPersistentListProvider;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PersistentListServiceMXBeanImplTest {
+	/**
+	 * @verifies return the latency of each provider operation
+	 * @see PersistentListServiceMXBeanImpl#getProviderLatencies()
+	 */
+	@Test
+	public void getProviderLatencies_shouldReturnTheLatencyOfEachProviderOperation() throws Exception {
+		PersistentListServiceImpl service = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new TestPersistentListProvider() {
+					@Override
+					public String getName() {
+						return "test";
+					}
+				});
+		ProviderMetrics metrics = service.getMetricsRegistry().getProviderMetrics("test");
+		metrics.recordLatency(ProviderMetrics.Operation.ADD, 1000);
+		metrics.recordLatency(ProviderMetrics.Operation.ADD, 3000);
+		metrics.recordLatency(ProviderMetrics.Operation.CLEAR, 2000);
+
+		Map<String, LatencySnapshot> latencies = new PersistentListServiceMXBeanImpl(service).getProviderLatencies();
+
+		assertEquals(ProviderMetrics.Operation.values().length, latencies.size());
+		assertEquals(2, latencies.get("ADD").getCount());
+		assertEquals(3000, latencies.get("ADD").getMax());
+		assertEquals(1, latencies.get("CLEAR").getCount());
+		assertEquals(0, latencies.get("REMOVE").getCount());
+	}
+
+	/**
+	 * @verifies return the queue depth of a write behind list provider
+	 * @see PersistentListServiceMXBeanImpl#getWriteBehindQueueDepth()
+	 */
+	@Test
+	public void getWriteBehindQueueDepth_shouldReturnTheQueueDepthOfAWriteBehindListProvider() throws Exception {
+		WriteBehindListProvider provider = new WriteBehindListProvider(new MemoryListProvider());
+		provider.setFlushDelay(60000);
+		PersistentListServiceImpl service = new PersistentListServiceImpl(new MemoryServiceProvider(), provider);
+		TestPersistentList list = new TestPersistentList("test", provider);
+		list.setId(1);
+		provider.add(new PersistentListItemModel(list, "1", 0, null));
+
+		try {
+			PersistentListServiceMXBeanImpl mbean = new PersistentListServiceMXBeanImpl(service);
+			assertEquals(1, mbean.getWriteBehindQueueDepth());
+			assertEquals(0, mbean.getWriteBehindFlushLag().getCount());
+		} finally {
+			provider.shutdown();
+		}
+	}
+
+	/**
+	 * @verifies return -1 when the list provider does not write behind
+	 * @see PersistentListServiceMXBeanImpl#getWriteBehindQueueDepth()
+	 */
+	@Test
+	public void getWriteBehindQueueDepth_shouldReturn1WhenTheListProviderDoesNotWriteBehind() throws Exception {
+		PersistentListServiceImpl service = new PersistentListServiceImpl(new MemoryServiceProvider(),
+				new MemoryListProvider());
+
+		PersistentListServiceMXBeanImpl mbean = new PersistentListServiceMXBeanImpl(service);
+		assertEquals(-1, mbean.getWriteBehindQueueDepth());
+		assertNull(mbean.getWriteBehindFlushLag());
+	}
+}
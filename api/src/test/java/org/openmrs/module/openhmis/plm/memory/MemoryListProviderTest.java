@@ -0,0 +1,224 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.memory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.test.TestPersistentList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryListProviderTest {
+	private MemoryListProvider provider;
+	private TestPersistentList list;
+
+	@Before
+	public void before() {
+		provider = new MemoryListProvider();
+
+		list = new TestPersistentList("test", provider);
+		list.setId(1);
+	}
+
+	/**
+	 * @verifies add the item at the item order
+	 * @see MemoryListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldAddTheItemAtTheItemOrder() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("c", 1));
+		provider.add(createItem("b", 1));
+
+		assertItems("a", "b", "c");
+	}
+
+	/**
+	 * @verifies increment the order of the items at or after the item order
+	 * @see MemoryListProvider#add(PersistentListItemModel)
+	 */
+	@Test
+	public void add_shouldIncrementTheOrderOfTheItemsAtOrAfterTheItemOrder() throws Exception {
+		// Add items to the front, as a stack does, and to the middle
+		provider.add(createItem("c", 0));
+		provider.add(createItem("b", 0));
+		provider.add(createItem("a", 0));
+		provider.add(createItem("d", 3));
+		provider.add(createItem("x", 2));
+
+		assertItems("a", "b", "x", "c", "d");
+		PersistentListItemModel[] items = provider.getItems(list);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(i, items[i].getItemOrder());
+		}
+	}
+
+	/**
+	 * @verifies remove the item with the same key
+	 * @see MemoryListProvider#remove(PersistentListItemModel)
+	 */
+	@Test
+	public void remove_shouldRemoveTheItemWithTheSameKey() throws Exception {
+		provider.add(createItem("a", 0));
+		provider.add(createItem("b", 1));
+		provider.add(createItem("c", 2));
+
+		assertTrue(provider.remove(createItem("b", 1)));
+
+		assertItems("a", "c");
+	}
+
+	/**
+	 * @verifies decrement the order of the items after the item
+	 * @see MemoryListProvider#remove(PersistentListItemModel)
+	 */
+	@Test
+	public void remove_shouldDecrementTheOrderOfTheItemsAfterTheItem() throws Exception {
+		for (int i = 0; i < 6; i++) {
+			provider.add(createItem(String.valueOf(i), i));
+		}
+
+		// Remove items from the front, as a queue does, and from the back half
+		assertTrue(provider.remove(createItem("0", 0)));
+		assertTrue(provider.remove(createItem("1", 0)));
+		assertTrue(provider.remove(createItem("4", 2)));
+
+		assertItems("2", "3", "5");
+		PersistentListItemModel[] items = provider.getItems(list);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(i, items[i].getItemOrder());
+		}
+	}
+
+	/**
+	 * @verifies return false when the item is not in the list
+	 * @see MemoryListProvider#remove(PersistentListItemModel)
+	 */
+	@Test
+	public void remove_shouldReturnFalseWhenTheItemIsNotInTheList() throws Exception {
+		provider.add(createItem("a", 0));
+
+		assertFalse(provider.remove(createItem("b", 0)));
+	}
+
+	/**
+	 * @verifies return the items following the specified item in list order
+	 * @see MemoryListProvider#getItemsAfter(org.openmrs.module.openhmis.plm.PersistentList, Integer, boolean, int)
+	 */
+	@Test
+	public void getItemsAfter_shouldReturnTheItemsFollowingTheSpecifiedItemInListOrder() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			provider.add(createItem(String.valueOf(i), i));
+		}
+
+		PersistentListItemModel[] page = provider.getItemsAfter(list, null, false, 2);
+		assertEquals(2, page.length);
+		assertEquals("0", page[0].getItemKey());
+
+		page = provider.getItemsAfter(list, page[1].getItemId(), false, 2);
+		assertEquals(2, page.length);
+		assertEquals("2", page[0].getItemKey());
+		assertEquals("3", page[1].getItemKey());
+	}
+
+	/**
+	 * @verifies not skip items when items before the specified item are removed
+	 * @see MemoryListProvider#getItemsAfter(org.openmrs.module.openhmis.plm.PersistentList, Integer, boolean, int)
+	 */
+	@Test
+	public void getItemsAfter_shouldNotSkipItemsWhenItemsBeforeTheSpecifiedItemAreRemoved() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			provider.add(createItem(String.valueOf(i), i));
+		}
+
+		PersistentListItemModel[] page = provider.getItemsAfter(list, null, false, 2);
+		assertTrue(provider.remove(createItem("0", 0)));
+		assertTrue(provider.remove(createItem("1", 0)));
+
+		page = provider.getItemsAfter(list, page[1].getItemId(), false, 2);
+		assertEquals(2, page.length);
+		assertEquals("2", page[0].getItemKey());
+		assertEquals("3", page[1].getItemKey());
+	}
+
+	/**
+	 * @verifies return the items with lower ids when the list is last in first out
+	 * @see MemoryListProvider#getItemsAfter(org.openmrs.module.openhmis.plm.PersistentList, Integer, boolean, int)
+	 */
+	@Test
+	public void getItemsAfter_shouldReturnTheItemsWithLowerIdsWhenTheListIsLastInFirstOut() throws Exception {
+		// Each item is pushed onto the front of the list
+		for (int i = 0; i < 5; i++) {
+			provider.add(createItem(String.valueOf(i), 0));
+		}
+
+		PersistentListItemModel[] page = provider.getItemsAfter(list, null, true, 2);
+		assertEquals(2, page.length);
+		assertEquals("4", page[0].getItemKey());
+		assertEquals("3", page[1].getItemKey());
+
+		provider.add(createItem("5", 0));
+		page = provider.getItemsAfter(list, page[1].getItemId(), true, 2);
+		assertEquals(2, page.length);
+		assertEquals("2", page[0].getItemKey());
+		assertEquals("1", page[1].getItemKey());
+	}
+
+	/**
+	 * @verifies pass every item to the handler ordered by list id and item order
+	 * @see MemoryListProvider#getAllItems(org.openmrs.module.openhmis.plm.ListItemModelHandler)
+	 */
+	@Test
+	public void getAllItems_shouldPassEveryItemToTheHandlerOrderedByListIdAndItemOrder() throws Exception {
+		provider.add(new PersistentListItemModel(2, "x", 0, null));
+		provider.add(createItem("b", 0));
+		provider.add(createItem("a", 0));
+		provider.add(new PersistentListItemModel(10, "y", 0, null));
+
+		final List<String> keys = new ArrayList<String>();
+		provider.getAllItems(new ListItemModelHandler() {
+			@Override
+			public void handle(PersistentListItemModel item) {
+				keys.add(item.getListId() + ":" + item.getItemKey() + ":" + item.getItemOrder());
+			}
+		});
+
+		assertEquals(4, keys.size());
+		assertEquals("1:a:0", keys.get(0));
+		assertEquals("1:b:1", keys.get(1));
+		assertEquals("2:x:0", keys.get(2));
+		assertEquals("10:y:0", keys.get(3));
+	}
+
+	private void assertItems(String... keys) {
+		PersistentListItemModel[] items = provider.getItems(list);
+
+		assertEquals(keys.length, items.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(keys[i], items[i].getItemKey());
+		}
+	}
+
+	private PersistentListItemModel createItem(String key, int order) {
+		return new PersistentListItemModel(1, key, order, null);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.memory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class MemoryServiceProviderTest {
+	private MemoryServiceProvider provider;
+
+	@Before
+	public void before() {
+		provider = new MemoryServiceProvider();
+	}
+
+	/**
+	 * @verifies assign a list id when the list does not have one
+	 * @see MemoryServiceProvider#addList(PersistentListModel)
+	 */
+	@Test
+	public void addList_shouldAssignAListIdWhenTheListDoesNotHaveOne() throws Exception {
+		PersistentListModel first = createList(null, "first");
+		PersistentListModel second = createList(null, "second");
+
+		provider.addList(first);
+		provider.addList(second);
+
+		assertNotNull(first.getListId());
+		assertNotNull(second.getListId());
+		assertEquals(first.getListId() + 1, (int)second.getListId());
+	}
+
+	/**
+	 * @verifies keep the list id when the list has one
+	 * @see MemoryServiceProvider#addList(PersistentListModel)
+	 */
+	@Test
+	public void addList_shouldKeepTheListIdWhenTheListHasOne() throws Exception {
+		PersistentListModel list = createList(5, "test");
+		PersistentListModel next = createList(null, "next");
+
+		provider.addList(list);
+		provider.addList(next);
+
+		assertEquals(5, (int)list.getListId());
+		assertEquals(6, (int)next.getListId());
+	}
+
+	/**
+	 * @verifies replace the list with the same key
+	 * @see MemoryServiceProvider#addList(PersistentListModel)
+	 */
+	@Test
+	public void addList_shouldReplaceTheListWithTheSameKey() throws Exception {
+		provider.addList(createList(null, "test"));
+		PersistentListModel list = createList(null, "test");
+		provider.addList(list);
+
+		assertEquals(1, provider.getLists().length);
+		assertSame(list, provider.getLists()[0]);
+	}
+
+	/**
+	 * @verifies remove the list with the key
+	 * @see MemoryServiceProvider#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldRemoveTheListWithTheKey() throws Exception {
+		provider.addList(createList(null, "first"));
+		provider.addList(createList(null, "second"));
+
+		provider.removeList("first");
+
+		assertEquals(1, provider.getLists().length);
+		assertEquals("second", provider.getLists()[0].getKey());
+	}
+
+	/**
+	 * @verifies not throw when the list does not exist
+	 * @see MemoryServiceProvider#removeList(String)
+	 */
+	@Test
+	public void removeList_shouldNotThrowWhenTheListDoesNotExist() throws Exception {
+		provider.removeList("missing");
+
+		assertEquals(0, provider.getLists().length);
+	}
+
+	private PersistentListModel createList(Integer id, String key) {
+		return new PersistentListModel(id, key, PersistentQueue.class.getName(), null, new Date());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+	/**
+	 * @verifies count the value in the bucket for the value
+	 * @see LatencyHistogram#record(long)
+	 */
+	@Test
+	public void record_shouldCountTheValueInTheBucketForTheValue() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+
+		LatencySnapshot snapshot = histogram.getSnapshot();
+		int index = LatencyHistogram.getBucketIndex(1000);
+		assertTrue(LatencyHistogram.getBucketLimit(index) >= 1000);
+		assertTrue(LatencyHistogram.getBucketLimit(index - 1) < 1000);
+		assertEquals(1000, snapshot.getValueAtPercentile(100));
+	}
+
+	/**
+	 * @verifies record negative values as zero
+	 * @see LatencyHistogram#record(long)
+	 */
+	@Test
+	public void record_shouldRecordNegativeValuesAsZero() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+
+		LatencySnapshot snapshot = histogram.getSnapshot();
+		assertEquals(1, snapshot.getCount());
+		assertEquals(0, snapshot.getMax());
+		assertEquals(0, snapshot.getValueAtPercentile(50));
+	}
+
+	/**
+	 * @verifies update the count, sum and maximum
+	 * @see LatencyHistogram#record(long)
+	 */
+	@Test
+	public void record_shouldUpdateTheCountSumAndMaximum() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		histogram.record(300);
+		histogram.record(200);
+
+		LatencySnapshot snapshot = histogram.getSnapshot();
+		assertEquals(3, snapshot.getCount());
+		assertEquals(300, snapshot.getMax());
+		assertEquals(200, snapshot.getMean(), 0.001);
+	}
+
+	/**
+	 * @verifies return an empty snapshot when no values have been recorded
+	 * @see LatencyHistogram#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldReturnAnEmptySnapshotWhenNoValuesHaveBeenRecorded() throws Exception {
+		LatencySnapshot snapshot = new LatencyHistogram().getSnapshot();
+
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getMax());
+		assertEquals(0, snapshot.getMean(), 0);
+	}
+
+	/**
+	 * @verifies return the upper limit of the bucket containing the percentile
+	 * @see LatencySnapshot#getValueAtPercentile(double)
+	 */
+	@Test
+	public void getValueAtPercentile_shouldReturnTheUpperLimitOfTheBucketContainingThePercentile() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+
+		LatencySnapshot snapshot = histogram.getSnapshot();
+		long p50 = snapshot.getP50();
+		long p90 = snapshot.getP90();
+		assertEquals(LatencyHistogram.getBucketLimit(LatencyHistogram.getBucketIndex(50000)), p50);
+		assertTrue(p50 >= 50000 && p50 < 50000 * 1.125);
+		assertTrue(p90 >= 90000 && p90 < 90000 * 1.125);
+	}
+
+	/**
+	 * @verifies not return more than the maximum recorded value
+	 * @see LatencySnapshot#getValueAtPercentile(double)
+	 */
+	@Test
+	public void getValueAtPercentile_shouldNotReturnMoreThanTheMaximumRecordedValue() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1001);
+
+		assertEquals(1001, histogram.getSnapshot().getP99());
+
+		histogram.record(Long.MAX_VALUE / 2);
+
+		assertEquals(Long.MAX_VALUE / 2, histogram.getSnapshot().getP99());
+	}
+
+	/**
+	 * @verifies return zero when no values were recorded
+	 * @see LatencySnapshot#getValueAtPercentile(double)
+	 */
+	@Test
+	public void getValueAtPercentile_shouldReturnZeroWhenNoValuesWereRecorded() throws Exception {
+		assertEquals(0, new LatencyHistogram().getSnapshot().getValueAtPercentile(99));
+	}
+}
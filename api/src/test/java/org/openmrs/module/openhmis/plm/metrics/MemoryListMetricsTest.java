@@ -0,0 +1,85 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MemoryListMetricsTest {
+	/**
+	 * @verifies return the age of the next item
+	 * @see MemoryListMetrics#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldReturnTheAgeOfTheNextItem() throws Exception {
+		TestListMetrics metrics = new TestListMetrics();
+		metrics.time = 100000;
+		metrics.recordHead(40000);
+
+		assertEquals(60000, metrics.getSnapshot().getHeadAge());
+
+		metrics.time = 130000;
+		assertEquals(90000, metrics.getSnapshot().getHeadAge());
+	}
+
+	/**
+	 * @verifies return a head age of zero when the list is empty
+	 * @see MemoryListMetrics#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldReturnAHeadAgeOfZeroWhenTheListIsEmpty() throws Exception {
+		TestListMetrics metrics = new TestListMetrics();
+		metrics.time = 100000;
+
+		assertEquals(0, metrics.getSnapshot().getHeadAge());
+
+		metrics.recordHead(40000);
+		metrics.recordHead(PersistentListItem.NO_DATE);
+		assertEquals(0, metrics.getSnapshot().getHeadAge());
+	}
+
+	/**
+	 * @verifies return when the next item was created
+	 * @see MemoryListMetrics#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldReturnWhenTheNextItemWasCreated() throws Exception {
+		TestListMetrics metrics = new TestListMetrics();
+		metrics.time = 100000;
+		assertNull(metrics.getSnapshot().getHeadCreatedOn());
+
+		metrics.recordHead(40000);
+		metrics.time = 130000;
+		assertEquals(new Date(40000), metrics.getSnapshot().getHeadCreatedOn());
+	}
+
+	private static class TestListMetrics extends MemoryListMetrics {
+		public long time;
+
+		public TestListMetrics() {
+			super("test");
+		}
+
+		@Override
+		protected long getCurrentTimeMillis() {
+			return time;
+		}
+	}
+}
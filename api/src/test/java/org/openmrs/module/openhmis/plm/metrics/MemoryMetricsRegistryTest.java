@@ -0,0 +1,85 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MemoryMetricsRegistryTest {
+	private MemoryMetricsRegistry registry;
+
+	@Before
+	public void before() {
+		registry = new MemoryMetricsRegistry();
+	}
+
+	/**
+	 * @verifies return the same metrics for the same list
+	 * @see MemoryMetricsRegistry#getListMetrics(String)
+	 */
+	@Test
+	public void getListMetrics_shouldReturnTheSameMetricsForTheSameList() throws Exception {
+		assertSame(registry.getListMetrics("test"), registry.getListMetrics("test"));
+		assertNotSame(registry.getListMetrics("test"), registry.getListMetrics("other"));
+	}
+
+	/**
+	 * @verifies return new metrics after the list metrics are removed
+	 * @see MemoryMetricsRegistry#getListMetrics(String)
+	 */
+	@Test
+	public void getListMetrics_shouldReturnNewMetricsAfterTheListMetricsAreRemoved() throws Exception {
+		MemoryListMetrics metrics = registry.getListMetrics("test");
+		metrics.recordAdded(3);
+
+		registry.removeListMetrics("test");
+
+		MemoryListMetrics newMetrics = registry.getListMetrics("test");
+		assertNotSame(metrics, newMetrics);
+		assertEquals(0, newMetrics.getSnapshot().getAddedCount());
+	}
+
+	/**
+	 * @verifies return the same metrics for the same provider
+	 * @see MemoryMetricsRegistry#getProviderMetrics(String)
+	 */
+	@Test
+	public void getProviderMetrics_shouldReturnTheSameMetricsForTheSameProvider() throws Exception {
+		assertSame(registry.getProviderMetrics("database"), registry.getProviderMetrics("database"));
+	}
+
+	/**
+	 * @verifies return the metrics for every list
+	 * @see MemoryMetricsRegistry#getListSnapshots()
+	 */
+	@Test
+	public void getListSnapshots_shouldReturnTheMetricsForEveryList() throws Exception {
+		registry.getListMetrics("first").recordSize(1);
+		registry.getListMetrics("second").recordSize(2);
+
+		ListMetricsSnapshot[] snapshots = registry.getListSnapshots();
+
+		assertEquals(2, snapshots.length);
+		int total = 0;
+		for (ListMetricsSnapshot snapshot : snapshots) {
+			total += snapshot.getSize();
+		}
+		assertEquals(3, total);
+	}
+}
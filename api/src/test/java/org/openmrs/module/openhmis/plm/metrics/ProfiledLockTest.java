@@ -0,0 +1,152 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfiledLockTest {
+	/**
+	 * @verifies count the acquisition when profiling is enabled
+	 * @see ProfiledLock#lock()
+	 */
+	@Test
+	public void lock_shouldCountTheAcquisitionWhenProfilingIsEnabled() throws Exception {
+		ProfiledLock lock = new ProfiledLock();
+		lock.setIsProfilingEnabled(true);
+
+		lock.lock();
+		lock.unlock();
+		lock.lock();
+		lock.unlock();
+
+		LockSnapshot snapshot = lock.getSnapshot();
+		assertEquals(2, snapshot.getAcquisitions());
+		assertEquals(0, snapshot.getContendedAcquisitions());
+		assertEquals(0, snapshot.getWaitTime());
+		assertEquals(2, snapshot.getWaitTimes().getCount());
+		assertEquals(2, snapshot.getHoldTimes().getCount());
+	}
+
+	/**
+	 * @verifies not count the acquisition when profiling is disabled
+	 * @see ProfiledLock#lock()
+	 */
+	@Test
+	public void lock_shouldNotCountTheAcquisitionWhenProfilingIsDisabled() throws Exception {
+		ProfiledLock lock = new ProfiledLock();
+
+		lock.lock();
+		lock.recordProviderTime(1000);
+		lock.unlock();
+
+		// Turning profiling on while the lock is held does not profile the current hold
+		lock.lock();
+		lock.setIsProfilingEnabled(true);
+		lock.unlock();
+
+		LockSnapshot snapshot = lock.getSnapshot();
+		assertEquals(0, snapshot.getAcquisitions());
+		assertEquals(0, snapshot.getProviderHoldTime());
+		assertEquals(0, snapshot.getHoldTimes().getCount());
+	}
+
+	/**
+	 * @verifies only count the outermost acquisition of a reentrant hold
+	 * @see ProfiledLock#lock()
+	 */
+	@Test
+	public void lock_shouldOnlyCountTheOutermostAcquisitionOfAReentrantHold() throws Exception {
+		ProfiledLock lock = new ProfiledLock();
+		lock.setIsProfilingEnabled(true);
+
+		lock.lock();
+		lock.lock();
+		lock.recordProviderTime(1000);
+		lock.unlock();
+		assertTrue(lock.isHeldByCurrentThread());
+		assertEquals(0, lock.getSnapshot().getHoldTimes().getCount());
+		lock.unlock();
+
+		LockSnapshot snapshot = lock.getSnapshot();
+		assertEquals(1, snapshot.getAcquisitions());
+		assertEquals(1, snapshot.getHoldTimes().getCount());
+	}
+
+	/**
+	 * @verifies count the wait time of a contended acquisition
+	 * @see ProfiledLock#lock()
+	 */
+	@Test
+	public void lock_shouldCountTheWaitTimeOfAContendedAcquisition() throws Exception {
+		final ProfiledLock lock = new ProfiledLock();
+		lock.setIsProfilingEnabled(true);
+		final CountDownLatch locked = new CountDownLatch(1);
+
+		Thread holder = new Thread() {
+			@Override
+			public void run() {
+				lock.lock();
+				try {
+					locked.countDown();
+					Thread.sleep(20);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} finally {
+					lock.unlock();
+				}
+			}
+		};
+		holder.start();
+		locked.await();
+
+		lock.lock();
+		lock.unlock();
+		holder.join();
+
+		LockSnapshot snapshot = lock.getSnapshot();
+		assertEquals(2, snapshot.getAcquisitions());
+		assertEquals(1, snapshot.getContendedAcquisitions());
+		assertTrue(snapshot.getWaitTime() > 0);
+		assertTrue(snapshot.getWaitTimes().getMax() > 0);
+	}
+
+	/**
+	 * @verifies split the hold time into the memory and provider time
+	 * @see ProfiledLock#unlock()
+	 */
+	@Test
+	public void unlock_shouldSplitTheHoldTimeIntoTheMemoryAndProviderTime() throws Exception {
+		ProfiledLock lock = new ProfiledLock();
+		lock.setIsProfilingEnabled(true);
+
+		lock.lock();
+		Thread.sleep(5);
+		lock.recordProviderTime(TimeUnit.MILLISECONDS.toNanos(1));
+		lock.unlock();
+
+		// Provider time reported by a thread that does not hold the lock is ignored
+		lock.recordProviderTime(TimeUnit.MILLISECONDS.toNanos(1));
+
+		LockSnapshot snapshot = lock.getSnapshot();
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getProviderHoldTime());
+		assertTrue(snapshot.getMemoryHoldTime() >= TimeUnit.MILLISECONDS.toNanos(4));
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateCounterTest {
+	/**
+	 * @verifies add the amount to the total
+	 * @see RateCounter#record(long)
+	 */
+	@Test
+	public void record_shouldAddTheAmountToTheTotal() throws Exception {
+		RateCounter counter = new RateCounter();
+		counter.record(2);
+		counter.record(3);
+
+		assertEquals(5, counter.getTotal());
+	}
+
+	/**
+	 * @verifies include the amount in the rate
+	 * @see RateCounter#record(long)
+	 */
+	@Test
+	public void record_shouldIncludeTheAmountInTheRate() throws Exception {
+		TestRateCounter counter = new TestRateCounter();
+		counter.second = 100;
+		counter.record(30);
+		counter.second = 101;
+		counter.record(30);
+
+		assertEquals(1.0, counter.getRate(), 0.001);
+
+		// The amounts leave the rate once they are older than the window
+		counter.second = 160;
+		assertEquals(0.5, counter.getRate(), 0.001);
+		counter.second = 161;
+		assertEquals(0, counter.getRate(), 0.001);
+		assertEquals(60, counter.getTotal());
+	}
+
+	/**
+	 * @verifies not lose amounts recorded concurrently when a slot is reused
+	 * @see RateCounter#record(long)
+	 */
+	@Test
+	public void record_shouldNotLoseAmountsRecordedConcurrentlyWhenASlotIsReused() throws Exception {
+		final int threadCount = 8;
+		final int recordCount = 20000;
+		final int recordsPerSecond = 50;
+
+		// The second advances every few records so the threads keep crossing into seconds whose slot is being reused
+		final AtomicLong calls = new AtomicLong();
+		final AtomicLong endSecond = new AtomicLong(-1);
+		final RateCounter counter = new RateCounter() {
+			@Override
+			protected long getCurrentSecond() {
+				long second = endSecond.get();
+
+				return second >= 0 ? second : calls.getAndIncrement() / recordsPerSecond;
+			}
+		};
+
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < recordCount; j++) {
+						counter.record(1);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// Every record in the last window of seconds is counted in the rate
+		long lastSecond = (calls.get() - 1) / recordsPerSecond;
+		endSecond.set(lastSecond);
+		long expected = calls.get() - (lastSecond - RateCounter.WINDOW_SECONDS + 1) * recordsPerSecond;
+
+		assertEquals(threadCount * recordCount, counter.getTotal());
+		assertEquals((double)expected / RateCounter.WINDOW_SECONDS, counter.getRate(), 0.001);
+	}
+
+	private static class TestRateCounter extends RateCounter {
+		public long second;
+
+		@Override
+		protected long getCurrentSecond() {
+			return second;
+		}
+	}
+}
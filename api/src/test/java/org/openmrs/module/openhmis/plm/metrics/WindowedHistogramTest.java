@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class WindowedHistogramTest {
+	/**
+	 * @verifies include the value in the snapshot
+	 * @see WindowedHistogram#record(long)
+	 */
+	@Test
+	public void record_shouldIncludeTheValueInTheSnapshot() throws Exception {
+		TestWindowedHistogram histogram = new TestWindowedHistogram();
+		histogram.time = 1000;
+		histogram.record(5);
+		histogram.time = 25000;
+		histogram.record(7);
+
+		LatencySnapshot snapshot = histogram.getSnapshot();
+		assertEquals(2, snapshot.getCount());
+		assertEquals(7, snapshot.getMax());
+		assertEquals(6, snapshot.getMean(), 0.001);
+	}
+
+	/**
+	 * @verifies not lose values recorded concurrently when a slot is reused
+	 * @see WindowedHistogram#record(long)
+	 */
+	@Test
+	public void record_shouldNotLoseValuesRecordedConcurrentlyWhenASlotIsReused() throws Exception {
+		final int threadCount = 8;
+		final int recordCount = 20000;
+		final int recordsPerMillisecond = 50;
+
+		// The time advances every few records so the threads keep crossing into periods whose slot is being reused
+		final AtomicLong calls = new AtomicLong();
+		final AtomicLong endTime = new AtomicLong(-1);
+		final WindowedHistogram histogram = new WindowedHistogram(30, 3) {
+			@Override
+			protected long getCurrentTimeMillis() {
+				long time = endTime.get();
+
+				return time >= 0 ? time : calls.getAndIncrement() / recordsPerMillisecond;
+			}
+		};
+
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < recordCount; j++) {
+						histogram.record(1);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// Every value recorded in the periods of the last window is in the snapshot
+		long lastTime = (calls.get() - 1) / recordsPerMillisecond;
+		endTime.set(lastTime);
+		long firstTime = (lastTime / 10 - 2) * 10;
+
+		assertEquals(calls.get() - firstTime * recordsPerMillisecond, histogram.getSnapshot().getCount());
+	}
+
+	/**
+	 * @verifies not include values that are older than the window
+	 * @see WindowedHistogram#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldNotIncludeValuesThatAreOlderThanTheWindow() throws Exception {
+		TestWindowedHistogram histogram = new TestWindowedHistogram();
+		histogram.time = 1000;
+		histogram.record(5);
+		histogram.time = 25000;
+		histogram.record(7);
+
+		// The first slot leaves the window once a full window has passed
+		histogram.time = 60000;
+		assertEquals(1, histogram.getSnapshot().getCount());
+		assertEquals(7, histogram.getSnapshot().getMax());
+
+		// Reusing the first slot replaces its values
+		histogram.record(9);
+		assertEquals(2, histogram.getSnapshot().getCount());
+
+		histogram.time = 200000;
+		assertEquals(0, histogram.getSnapshot().getCount());
+	}
+
+	private static class TestWindowedHistogram extends WindowedHistogram {
+		public long time;
+
+		public TestWindowedHistogram() {
+			// A one minute window with three 20 second slots
+			super(60000, 3);
+		}
+
+		@Override
+		protected long getCurrentTimeMillis() {
+			return time;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.UuidKeyCodec;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentListItemModelTest {
+	private static final String UUID_KEY = "0f3c9a2e-7b1d-4c5e-9f80-a1b2c3d4e5f6";
+
+	@Before
+	public void before() {
+		UuidKeyCodec.setIsEncodingEnabled(true);
+	}
+
+	@After
+	public void after() {
+		UuidKeyCodec.setIsEncodingEnabled(false);
+	}
+
+	/**
+	 * @verifies return null when a uuid key is stored as bytes
+	 * @see PersistentListItemModel#getItemKeyText()
+	 */
+	@Test
+	public void getItemKeyText_shouldReturnNullWhenAUuidKeyIsStoredAsBytes() throws Exception {
+		PersistentListItemModel item = new PersistentListItemModel(1, UUID_KEY, 0, null, new Date());
+		assertEquals(UUID_KEY, item.getItemKeyText());
+
+		item.setIsItemKeyBinary(true);
+		assertNull(item.getItemKeyText());
+		assertEquals(UUID_KEY, item.getItemKey());
+
+		// Keys that are not UUIDs are always stored as text
+		item.setItemKey("patient-1");
+		assertEquals("patient-1", item.getItemKeyText());
+		assertNull(item.getItemKeyBytes());
+	}
+
+	/**
+	 * @verifies return null when the item has no creator
+	 * @see PersistentListItemModel#getStoredCreatorId()
+	 */
+	@Test
+	public void getStoredCreatorId_shouldReturnNullWhenTheItemHasNoCreator() throws Exception {
+		PersistentListItemModel item = new PersistentListItemModel(1, "a", 0, null, new Date());
+		assertEquals(PersistentListItem.NO_CREATOR, item.getCreatorId());
+		assertNull(item.getStoredCreatorId());
+
+		item.setCreatorId(5);
+		assertEquals(Integer.valueOf(5), item.getStoredCreatorId());
+
+		PersistentListItemModel loaded = new PersistentListItemModel();
+		loaded.setStoredCreatorId(null);
+		assertEquals(PersistentListItem.NO_CREATOR, loaded.getCreatorId());
+	}
+
+	/**
+	 * @verifies return null when a uuid key is stored as bytes while uuid key encoding is disabled
+	 * @see PersistentListItemModel#getItemKeyText()
+	 */
+	@Test
+	public void getItemKeyText_shouldReturnNullWhenAUuidKeyIsStoredAsBytesWhileUuidKeyEncodingIsDisabled()
+			throws Exception {
+		UuidKeyCodec.setIsEncodingEnabled(false);
+		PersistentListItemModel item = new PersistentListItemModel(1, UUID_KEY, 0, null, new Date());
+		item.setIsItemKeyBinary(true);
+
+		assertNull(item.getItemKeyText());
+		assertTrue(Arrays.equals(UuidKeyCodec.toBytes(UUID_KEY), item.getItemKeyBytes()));
+
+		// The stored bytes are read back as a string key like the keys of new items
+		PersistentListItemModel loaded = new PersistentListItemModel();
+		loaded.setItemKeyText(null);
+		loaded.setItemKeyBytes(item.getItemKeyBytes());
+		assertEquals(UUID_KEY, loaded.getItemKey());
+		assertNull(loaded.getItemKeyText());
+	}
+
+	/**
+	 * @verifies return the encoded key when a uuid key is stored as bytes
+	 * @see PersistentListItemModel#getItemKeyBytes()
+	 */
+	@Test
+	public void getItemKeyBytes_shouldReturnTheEncodedKeyWhenAUuidKeyIsStoredAsBytes() throws Exception {
+		PersistentListItemModel item = new PersistentListItemModel(1, UUID_KEY, 0, null, new Date());
+		assertNull(item.getItemKeyBytes());
+
+		item.setIsItemKeyBinary(true);
+		assertTrue(Arrays.equals(UuidKeyCodec.toBytes(UUID_KEY), item.getItemKeyBytes()));
+
+		PersistentListItemModel loaded = new PersistentListItemModel();
+		loaded.setItemKeyText(null);
+		loaded.setItemKeyBytes(item.getItemKeyBytes());
+		assertEquals(UUID_KEY, loaded.getItemKey());
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.stress;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks whether a concurrent history of {@link ListOperation}'s is linearizable: whether there is some order of the
+ * operations, consistent with the order in which they were invoked and returned, in which a {@link SequentialListModel}
+ * returns the same results.
+ * <p/>
+ * This is the Wing and Gong search with the memoization of already visited states described by Lowe.  The search is
+ * exponential in the worst case, so it is only intended for short histories.
+ */
+public class LinearizabilityChecker {
+	public static final int MAX_OPERATIONS = 63;
+
+	private LinearizabilityChecker() {
+	}
+
+	/**
+	 * Checks whether the history is linearizable.
+	 * @param history The completed operations.
+	 * @param initial The model of the list before any of the operations were invoked.
+	 * @return {@code true} if the history is linearizable; otherwise, {@code false}.
+	 */
+	public static boolean isLinearizable(List<ListOperation> history, SequentialListModel initial) {
+		if (history.size() > MAX_OPERATIONS) {
+			throw new IllegalArgumentException("The history can have at most " + MAX_OPERATIONS + " operations.");
+		}
+
+		ListOperation[] operations = history.toArray(new ListOperation[history.size()]);
+		long all = (1L << operations.length) - 1;
+
+		return search(operations, all, 0L, initial, new HashSet<String>());
+	}
+
+	private static boolean search(ListOperation[] operations, long all, long linearized, SequentialListModel model,
+	                              Set<String> visited) {
+		if (linearized == all) {
+			return true;
+		}
+		if (!visited.add(linearized + ":" + model.getState())) {
+			// This set of operations has already been tried with the same resulting list
+			return false;
+		}
+
+		// An operation can only come next if it was invoked before every remaining operation returned
+		long firstReturn = Long.MAX_VALUE;
+		for (int i = 0; i < operations.length; i++) {
+			if ((linearized & (1L << i)) == 0) {
+				firstReturn = Math.min(firstReturn, operations[i].getReturnedAt());
+			}
+		}
+
+		for (int i = 0; i < operations.length; i++) {
+			if ((linearized & (1L << i)) == 0 && operations[i].getInvokedAt() <= firstReturn) {
+				SequentialListModel next = model.copy();
+				if (next.apply(operations[i]) && search(operations, all, linearized | (1L << i), next, visited)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.stress;
+
+/**
+ * A single list operation in a recorded history, along with when it was invoked and when it returned.
+ */
+public class ListOperation {
+	public enum Type {
+		ADD,
+		GET_NEXT,
+		GET_NEXT_AND_REMOVE,
+		GET_SIZE
+	}
+
+	private final int thread;
+	private final Type type;
+	private final String key;
+	private Object result;
+	private long invokedAt;
+	private long returnedAt;
+
+	public ListOperation(int thread, Type type, String key) {
+		this.thread = thread;
+		this.type = type;
+		this.key = key;
+	}
+
+	public int getThread() {
+		return thread;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the key of the item that is added by an {@link Type#ADD} operation.
+	 * @return The item key.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Gets the key of the item returned by the operation, the list size for {@link Type#GET_SIZE}, or {@code null}.
+	 * @return The operation result.
+	 */
+	public Object getResult() {
+		return result;
+	}
+
+	public long getInvokedAt() {
+		return invokedAt;
+	}
+
+	public long getReturnedAt() {
+		return returnedAt;
+	}
+
+	public void invoked() {
+		invokedAt = System.nanoTime();
+	}
+
+	public void returned(Object result) {
+		this.returnedAt = System.nanoTime();
+		this.result = result;
+	}
+
+	@Override
+	public String toString() {
+		return "T" + thread + " " + type + (key == null ? "" : "(" + key + ")") + " -> " + result +
+				" [" + invokedAt + ", " + returnedAt + "]";
+	}
+}
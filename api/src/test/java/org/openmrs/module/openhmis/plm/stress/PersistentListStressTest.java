@@ -0,0 +1,352 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.stress;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.impl.PersistentListBase;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.impl.PersistentStack;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.test.TestPersistentServiceProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the persistent lists from many threads at once and checks that they behave like a single-threaded list.  By
+ * default the tests are small and use a fixed seed so that they run quickly and repeatably with the other unit tests.
+ * Larger runs are opted into with the {@code stress} build profile or the {@code plm.stress.rounds},
+ * {@code plm.stress.items}, and {@code plm.stress.threads} system properties.  Setting {@code plm.stress.seed} to
+ * {@code random} uses a new seed for each run, and a failing run can be repeated by setting it to the logged seed.
+ */
+public class PersistentListStressTest {
+	private static final Log log = LogFactory.getLog(PersistentListStressTest.class);
+
+	private static final int ROUNDS = Integer.getInteger("plm.stress.rounds", 20);
+	private static final int ITEMS = Integer.getInteger("plm.stress.items", 200);
+	private static final int THREADS = Integer.getInteger("plm.stress.threads", 4);
+	private static final long DEFAULT_SEED = 20120705L;
+	private static final long SEED = getSeed(System.getProperty("plm.stress.seed"));
+
+	// Kept small so that the linearizability search stays fast
+	private static final int HISTORY_THREADS = 3;
+	private static final int HISTORY_OPERATIONS = 4;
+
+	@Test
+	public void queue_shouldOnlyProduceLinearizableHistories() throws Exception {
+		checkLinearizable(false);
+	}
+
+	@Test
+	public void stack_shouldOnlyProduceLinearizableHistories() throws Exception {
+		checkLinearizable(true);
+	}
+
+	@Test
+	public void queue_shouldReturnEachItemExactlyOnceToConcurrentConsumers() throws Exception {
+		checkConservation(false);
+	}
+
+	@Test
+	public void stack_shouldReturnEachItemExactlyOnceToConcurrentConsumers() throws Exception {
+		checkConservation(true);
+	}
+
+	@Test
+	public void ensureList_shouldReturnTheSameListToConcurrentCallers() throws Exception {
+		final PersistentListServiceImpl service =
+				new PersistentListServiceImpl(new TestPersistentServiceProvider(), new MemoryListProvider());
+		service.onStartup();
+
+		final ConcurrentMap<String, PersistentList> created = new ConcurrentHashMap<String, PersistentList>();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CyclicBarrier start = new CyclicBarrier(THREADS);
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+
+						for (int i = 0; i < ITEMS && error.get() == null; i++) {
+							String key = "list-" + (i % 16);
+							PersistentList list = service.ensureList(PersistentQueue.class, key, null);
+							Assert.assertNotNull("ensureList returned null for " + key, list);
+
+							PersistentList existing = created.putIfAbsent(key, list);
+							Assert.assertSame("ensureList returned two lists for " + key,
+									existing == null ? list : existing, list);
+							Assert.assertSame(list, service.getList(key));
+
+							// Iterate the lists while they are being added
+							service.getLists();
+						}
+					} catch (Throwable ex) {
+						error.compareAndSet(null, ex);
+					}
+				}
+			}));
+		}
+
+		runAll(threads, error);
+
+		Assert.assertEquals(created.size(), service.getLists().length);
+	}
+
+	private void checkLinearizable(boolean lastInFirstOut) throws Exception {
+		log.info("Checking " + listType(lastInFirstOut) + " histories with seed " + SEED);
+		Random random = new Random(SEED);
+
+		for (int round = 0; round < ROUNDS; round++) {
+			PersistentList list = createList(lastInFirstOut, new MemoryListProvider());
+			int prefill = random.nextInt(3);
+			for (int i = 0; i < prefill; i++) {
+				list.add(new PersistentListItem("i" + i));
+			}
+			SequentialListModel initial = new SequentialListModel(lastInFirstOut, getKeys(list));
+
+			List<List<ListOperation>> plans = new ArrayList<List<ListOperation>>();
+			for (int t = 0; t < HISTORY_THREADS; t++) {
+				plans.add(createPlan(random, t, round));
+			}
+
+			runPlans(list, plans);
+
+			List<ListOperation> history = new ArrayList<ListOperation>();
+			for (List<ListOperation> plan : plans) {
+				history.addAll(plan);
+			}
+			if (!LinearizabilityChecker.isLinearizable(history, initial)) {
+				StringBuilder message = new StringBuilder();
+				message.append("The ").append(listType(lastInFirstOut)).append(" history for round ").append(round)
+						.append(" (seed ").append(SEED).append(", initial ").append(initial.getState())
+						.append(") is not linearizable:");
+				for (ListOperation operation : history) {
+					message.append("\n\t").append(operation);
+				}
+
+				Assert.fail(message.toString());
+			}
+		}
+	}
+
+	private List<ListOperation> createPlan(Random random, int thread, int round) {
+		List<ListOperation> plan = new ArrayList<ListOperation>();
+		ListOperation.Type[] types = ListOperation.Type.values();
+		for (int i = 0; i < HISTORY_OPERATIONS; i++) {
+			ListOperation.Type type = types[random.nextInt(types.length)];
+			String key = type == ListOperation.Type.ADD ? round + "-" + thread + "-" + i : null;
+
+			plan.add(new ListOperation(thread, type, key));
+		}
+
+		return plan;
+	}
+
+	private void runPlans(final PersistentList list, List<List<ListOperation>> plans) throws Exception {
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CyclicBarrier start = new CyclicBarrier(plans.size());
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (final List<ListOperation> plan : plans) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+
+						for (ListOperation operation : plan) {
+							execute(list, operation);
+						}
+					} catch (Throwable ex) {
+						error.compareAndSet(null, ex);
+					}
+				}
+			}));
+		}
+
+		runAll(threads, error);
+	}
+
+	private void execute(PersistentList list, ListOperation operation) {
+		PersistentListItem item;
+
+		operation.invoked();
+		switch (operation.getType()) {
+			case ADD:
+				list.add(new PersistentListItem(operation.getKey()));
+				operation.returned(null);
+				break;
+			case GET_NEXT:
+				item = list.getNext();
+				operation.returned(item == null ? null : item.getKey());
+				break;
+			case GET_NEXT_AND_REMOVE:
+				item = list.getNextAndRemove();
+				operation.returned(item == null ? null : item.getKey());
+				break;
+			case GET_SIZE:
+				operation.returned(list.getSize());
+				break;
+		}
+	}
+
+	private void checkConservation(boolean lastInFirstOut) throws Exception {
+		MemoryListProvider provider = new MemoryListProvider();
+		final PersistentList list = createList(lastInFirstOut, provider);
+
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CyclicBarrier start = new CyclicBarrier(THREADS * 2);
+		final CountDownLatch producing = new CountDownLatch(THREADS);
+		final List<List<String>> consumed = new ArrayList<List<String>>();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final int producer = t;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+
+						for (int i = 0; i < ITEMS && error.get() == null; i++) {
+							list.add(new PersistentListItem(producer + "-" + i));
+						}
+					} catch (Throwable ex) {
+						error.compareAndSet(null, ex);
+					} finally {
+						producing.countDown();
+					}
+				}
+			}));
+
+			final List<String> keys = new ArrayList<String>();
+			consumed.add(keys);
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+
+						while (error.get() == null) {
+							PersistentListItem item = list.getNextAndRemove();
+							if (item != null) {
+								keys.add(item.getKey());
+							} else if (producing.getCount() == 0 && list.getSize() == 0) {
+								break;
+							} else {
+								Thread.yield();
+							}
+						}
+					} catch (Throwable ex) {
+						error.compareAndSet(null, ex);
+					}
+				}
+			}));
+		}
+
+		long started = System.nanoTime();
+		runAll(threads, error);
+		long elapsed = System.nanoTime() - started;
+
+		Set<String> keys = new HashSet<String>();
+		for (List<String> consumerKeys : consumed) {
+			for (String key : consumerKeys) {
+				Assert.assertTrue("The item '" + key + "' was returned more than once.", keys.add(key));
+			}
+		}
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < ITEMS; i++) {
+				Assert.assertTrue("The item '" + t + "-" + i + "' was never returned.", keys.contains(t + "-" + i));
+			}
+		}
+		Assert.assertEquals(THREADS * ITEMS, keys.size());
+		Assert.assertEquals(0, list.getSize());
+		Assert.assertEquals(0, provider.getItems(list).length);
+
+		log.info(String.format("%d producers and %d consumers moved %d %s items in %d ms (%.0f ops/s)",
+				THREADS, THREADS, keys.size(), listType(lastInFirstOut), elapsed / 1000000,
+				keys.size() * 2 / (elapsed / 1000000000.0)));
+	}
+
+	private void runAll(List<Thread> threads, AtomicReference<Throwable> error) throws Exception {
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Throwable ex = error.get();
+		if (ex instanceof AssertionError) {
+			throw (AssertionError)ex;
+		} else if (ex != null) {
+			throw new AssertionError("A worker thread failed: " + ex);
+		}
+	}
+
+	private PersistentListBase<?> createList(boolean lastInFirstOut, PersistentListProvider provider) {
+		PersistentListBase<?> list;
+		if (lastInFirstOut) {
+			list = new PersistentStack(1, "stress", provider);
+		} else {
+			list = new PersistentQueue(1, "stress", provider);
+		}
+		list.initialize();
+
+		return list;
+	}
+
+	private List<String> getKeys(PersistentList list) {
+		List<String> keys = new ArrayList<String>();
+		for (PersistentListItem item : list.getItems()) {
+			keys.add(item.getKey());
+		}
+
+		return Collections.unmodifiableList(keys);
+	}
+
+	private String listType(boolean lastInFirstOut) {
+		return lastInFirstOut ? "stack" : "queue";
+	}
+
+	private static long getSeed(String value) {
+		if (value == null || value.length() == 0) {
+			return DEFAULT_SEED;
+		} else if ("random".equalsIgnoreCase(value)) {
+			return System.nanoTime();
+		} else {
+			return Long.parseLong(value);
+		}
+	}
+}
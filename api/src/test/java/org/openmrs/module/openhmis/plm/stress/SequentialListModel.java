@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.stress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single-threaded model of a queue or stack which defines the expected result of each {@link ListOperation}.
+ */
+public class SequentialListModel {
+	private final boolean lastInFirstOut;
+	private final List<String> items;
+
+	/**
+	 * Creates a new model.
+	 * @param lastInFirstOut {@code true} to model a stack; {@code false} to model a queue.
+	 * @param items The keys of the items in the list, with the next item first.
+	 */
+	public SequentialListModel(boolean lastInFirstOut, List<String> items) {
+		this.lastInFirstOut = lastInFirstOut;
+		this.items = new ArrayList<String>(items);
+	}
+
+	public SequentialListModel copy() {
+		return new SequentialListModel(lastInFirstOut, items);
+	}
+
+	/**
+	 * Applies the operation to the model.
+	 * @param operation The operation to apply.
+	 * @return {@code true} if the model produced the same result as the operation; otherwise, {@code false}.
+	 */
+	public boolean apply(ListOperation operation) {
+		Object expected;
+		switch (operation.getType()) {
+			case ADD:
+				if (lastInFirstOut) {
+					items.add(0, operation.getKey());
+				} else {
+					items.add(operation.getKey());
+				}
+				expected = null;
+				break;
+			case GET_NEXT:
+				expected = items.isEmpty() ? null : items.get(0);
+				break;
+			case GET_NEXT_AND_REMOVE:
+				expected = items.isEmpty() ? null : items.remove(0);
+				break;
+			case GET_SIZE:
+				expected = items.size();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown operation type " + operation.getType());
+		}
+
+		return expected == null ? operation.getResult() == null : expected.equals(operation.getResult());
+	}
+
+	/**
+	 * Gets a string which is equal for models with the same items.
+	 * @return The model state.
+	 */
+	public String getState() {
+		return items.toString();
+	}
+}
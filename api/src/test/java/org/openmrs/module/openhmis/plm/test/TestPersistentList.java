@@ -55,6 +55,10 @@ public class TestPersistentList implements PersistentList {
 		return id;
 	}
 
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
 	public String getDescription() {
 		return description;
 	}
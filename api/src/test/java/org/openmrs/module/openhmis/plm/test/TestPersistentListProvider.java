@@ -14,11 +14,22 @@
 
 package org.openmrs.module.openhmis.plm.test;
 
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.PagedListProvider;
 import org.openmrs.module.openhmis.plm.PersistentList;
-import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.StreamingListProvider;
 import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
 
-public class TestPersistentListProvider implements PersistentListProvider {
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestPersistentListProvider implements PagedListProvider, StreamingListProvider {
+	private final PersistentListItemModel[] items;
+
+	public TestPersistentListProvider(PersistentListItemModel... items) {
+		this.items = items;
+	}
 
 	@Override
 	public String getName() {
@@ -46,6 +57,37 @@ public class TestPersistentListProvider implements PersistentListProvider {
 
 	@Override
 	public PersistentListItemModel[] getItems(PersistentList list) {
-		return new PersistentListItemModel[0];
+		return items.clone();
+	}
+
+	@Override
+	public void getItems(PersistentList list, ListItemModelHandler handler) {
+		for (PersistentListItemModel item : items) {
+			handler.handle(item);
+		}
+	}
+
+	@Override
+	public PersistentListItemModel[] getItems(PersistentList list, int offset, int limit) {
+		int start = Math.min(offset, items.length);
+
+		return Arrays.copyOfRange(items, start, start + Math.min(limit, items.length - start));
+	}
+
+	@Override
+	public PersistentListItemModel[] getItemsAfter(PersistentList list, Integer itemId, boolean isLastInFirstOut,
+	                                               int limit) {
+		List<PersistentListItemModel> result = new ArrayList<PersistentListItemModel>();
+		for (PersistentListItemModel item : items) {
+			if (result.size() == limit) {
+				break;
+			}
+
+			if (itemId == null || (isLastInFirstOut ? item.getItemId() < itemId : item.getItemId() > itemId)) {
+				result.add(item);
+			}
+		}
+
+		return result.toArray(new PersistentListItemModel[result.size()]);
 	}
 }
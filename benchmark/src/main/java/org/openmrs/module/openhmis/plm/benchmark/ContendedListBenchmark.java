@@ -0,0 +1,24 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the {@link PersistentListBenchmark} operations from several threads at the same time against the same list.
+ */
+@Threads(4)
+public class ContendedListBenchmark extends PersistentListBenchmark {
+}
@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmrs.module.openhmis.plm.ListItemModelHandler;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link org.openmrs.module.openhmis.plm.db.DatabaseListProvider} operations against an embedded
+ * database.  Each item that is added is removed again, and each item that is removed is added first, outside of the
+ * measured operation so that the list stays at the size being measured.
+ * <p/>
+ * The {@link Throughput} benchmarks report operations per second and the {@link Latency} benchmarks report the latency
+ * distribution, including the p50 and p99 percentiles.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public abstract class DatabaseListProviderBenchmark {
+	@Benchmark
+	public void insertAtHead(DatabaseState database, InsertState insert) {
+		insert.item = insert.createItem(database, 0);
+
+		database.provider.add(insert.item);
+	}
+
+	@Benchmark
+	public void insertAtTail(DatabaseState database, InsertState insert) {
+		insert.item = insert.createItem(database, database.size);
+
+		database.provider.add(insert.item);
+	}
+
+	@Benchmark
+	public boolean removeFromMiddle(DatabaseState database, RemoveState remove) {
+		return database.provider.remove(remove.item);
+	}
+
+	@Benchmark
+	public void getItems(DatabaseState database, final Blackhole blackhole) {
+		database.provider.getItems(database.list, new ListItemModelHandler() {
+			@Override
+			public void handle(PersistentListItemModel item) {
+				blackhole.consume(item);
+			}
+		});
+	}
+
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public static class Throughput extends DatabaseListProviderBenchmark {
+	}
+
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public static class Latency extends DatabaseListProviderBenchmark {
+	}
+
+	/**
+	 * Removes the item added by the insert benchmarks after each invocation.
+	 */
+	@State(Scope.Thread)
+	public static class InsertState {
+		private int nextItem;
+
+		PersistentListItemModel item;
+
+		PersistentListItemModel createItem(DatabaseState database, int itemOrder) {
+			return new PersistentListItemModel(DatabaseState.LIST_ID, "insert-" + nextItem++, itemOrder,
+					database.creator);
+		}
+
+		@TearDown(Level.Invocation)
+		public void removeItem(DatabaseState database) {
+			if (item != null) {
+				database.provider.remove(item);
+				item = null;
+			}
+		}
+	}
+
+	/**
+	 * Adds an item to the middle of the list before each invocation for the remove benchmark to remove.
+	 */
+	@State(Scope.Thread)
+	public static class RemoveState {
+		private int nextItem;
+
+		PersistentListItemModel item;
+
+		@Setup(Level.Invocation)
+		public void addItem(DatabaseState database) {
+			item = new PersistentListItemModel(DatabaseState.LIST_ID, "remove-" + nextItem++, database.size / 2,
+					database.creator);
+
+			database.provider.add(item);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.db.DatabaseListProvider;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+
+/**
+ * An {@link EmbeddedDatabase} which holds a single list filled with the specified number of items.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState {
+	public static final int LIST_ID = 1;
+
+	@Param({"100", "10000", "100000"})
+	public int size;
+
+	public DatabaseListProvider provider;
+	public PersistentList list;
+	public User creator;
+
+	private EmbeddedDatabase database;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		// Each trial gets a new database
+		database = new EmbeddedDatabase(1);
+		database.addList(LIST_ID, "benchmark", PersistentQueue.class);
+		database.addItems(LIST_ID, "item-", size);
+
+		provider = new DatabaseListProvider(database.getSessionFactory());
+		list = new PersistentQueue(LIST_ID, "benchmark", provider);
+		creator = database.getCreator();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		database.close();
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import liquibase.ClassLoaderFileOpener;
+import liquibase.Liquibase;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.db.DatabaseListProvider;
+import org.openmrs.module.openhmis.plm.db.DatabaseServiceProvider;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded in-memory H2 database that is created from the module liquibase changelog, along with a hibernate session
+ * factory that is configured with the module mapping files.  The {@link DatabaseListProvider} and
+ * {@link DatabaseServiceProvider} created from the session factory run the same queries they run in OpenMRS.
+ */
+public class EmbeddedDatabase {
+	public static final int CREATOR_ID = 1;
+
+	private static final int INSERT_BATCH_SIZE = 10000;
+	private static final AtomicInteger databaseCount = new AtomicInteger();
+
+	private final String url;
+	private final Connection connection;
+	private final SessionFactory sessionFactory;
+
+	/**
+	 * Creates a new, empty, database.
+	 * @param connectionPoolSize The number of connections the session factory should keep open.
+	 * @throws Exception
+	 */
+	public EmbeddedDatabase(int connectionPoolSize) throws Exception {
+		// Each database gets a new name; the connection is kept open so that the database is not dropped
+		url = "jdbc:h2:mem:plm-benchmark-" + databaseCount.incrementAndGet() + ";MODE=MySQL";
+		connection = DriverManager.getConnection(url, "sa", "");
+
+		createSchema();
+
+		sessionFactory = new Configuration()
+				.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+				.setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+				.setProperty("hibernate.connection.url", url)
+				.setProperty("hibernate.connection.username", "sa")
+				.setProperty("hibernate.connection.password", "")
+				.setProperty("hibernate.connection.pool_size", String.valueOf(connectionPoolSize))
+				.addResource("BenchmarkUser.hbm.xml")
+				.addResource("PersistentListModel.hbm.xml")
+				.addResource("PersistentListItemModel.hbm.xml")
+				.buildSessionFactory();
+	}
+
+	public SessionFactory getSessionFactory() {
+		return sessionFactory;
+	}
+
+	/**
+	 * Creates a service provider that reads the list definitions from this database.  Each operation opens its own
+	 * session because there is no OpenMRS session to share.
+	 * @return The new service provider.
+	 */
+	public DatabaseServiceProvider createServiceProvider() {
+		return new DatabaseServiceProvider(sessionFactory) {
+			@Override
+			protected Session getSession() {
+				return sessionFactory.openSession();
+			}
+		};
+	}
+
+	/**
+	 * Gets the user that the items in this database can be created by.
+	 * @return The item creator.
+	 */
+	public User getCreator() {
+		return new User(CREATOR_ID);
+	}
+
+	/**
+	 * Adds a list definition directly to the database.
+	 * @param listId The list id.
+	 * @param key The list key.
+	 * @param listClass The list type.
+	 * @throws SQLException
+	 */
+	public void addList(int listId, String key, Class<?> listClass) throws SQLException {
+		PreparedStatement insert = connection.prepareStatement("INSERT INTO plm_list " +
+				"(id, list_key, list_provider, date_created) VALUES (?, ?, ?, CURRENT_TIMESTAMP)");
+		try {
+			insert.setInt(1, listId);
+			insert.setString(2, key);
+			insert.setString(3, listClass.getName());
+			insert.executeUpdate();
+		} finally {
+			insert.close();
+		}
+	}
+
+	/**
+	 * Adds items directly to the database in batches.  The item keys are the prefix followed by the item order.
+	 * @param listId The list to add the items to.
+	 * @param keyPrefix The item key prefix.
+	 * @param count The number of items to add.
+	 * @throws SQLException
+	 */
+	public void addItems(int listId, String keyPrefix, int count) throws SQLException {
+		connection.setAutoCommit(false);
+
+		PreparedStatement insert = connection.prepareStatement("INSERT INTO plm_list_item " +
+				"(list_id, item_key, item_order, creator, date_created) VALUES (?, ?, ?, ?, ?)");
+		try {
+			Timestamp now = new Timestamp(System.currentTimeMillis());
+			for (int i = 0; i < count; i++) {
+				insert.setInt(1, listId);
+				insert.setString(2, keyPrefix + i);
+				insert.setInt(3, i);
+				insert.setInt(4, CREATOR_ID);
+				insert.setTimestamp(5, now);
+				insert.addBatch();
+
+				if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+
+			connection.commit();
+		} finally {
+			insert.close();
+			connection.setAutoCommit(true);
+		}
+	}
+
+	public void close() throws SQLException {
+		sessionFactory.close();
+		connection.close();
+	}
+
+	private void createSchema() throws Exception {
+		// The changelog references the core OpenMRS users table so a minimal version of it must be created first
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute("CREATE TABLE users (user_id INT NOT NULL PRIMARY KEY)");
+			statement.execute("INSERT INTO users (user_id) VALUES (" + CREATOR_ID + ")");
+		} finally {
+			statement.close();
+		}
+
+		Liquibase liquibase = new Liquibase("liquibase.xml", new ClassLoaderFileOpener(), connection);
+		liquibase.update(null);
+	}
+}
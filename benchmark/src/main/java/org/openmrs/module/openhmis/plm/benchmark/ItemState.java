@@ -0,0 +1,37 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates new items for a single benchmark thread.  Each thread uses a different key prefix so that the item keys are
+ * unique across threads without the threads having to share a counter.
+ */
+@State(Scope.Thread)
+public class ItemState {
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final String prefix = "thread-" + threadCount.getAndIncrement() + "-";
+	private int nextItem;
+
+	public PersistentListItem createItem() {
+		return new PersistentListItem(prefix + nextItem++, null);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.impl.MappedPersistentQueue;
+import org.openmrs.module.openhmis.plm.impl.PackedPersistentQueue;
+import org.openmrs.module.openhmis.plm.impl.PersistentListBase;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.impl.PersistentStack;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+
+/**
+ * A list, shared by every benchmark thread, which is filled with the specified number of items before the benchmark is
+ * run.  The items are stored by a {@link MemoryListProvider} so that the benchmarks measure the list rather than a
+ * database.
+ */
+@State(Scope.Benchmark)
+public class ListState {
+	public static final int LIST_ID = 1;
+
+	@Param({"queue", "mapped-queue", "packed-queue", "stack"})
+	public String listType;
+
+	@Param({"10", "1000", "100000", "1000000"})
+	public int size;
+
+	public PersistentListBase<?> list;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		MemoryListProvider provider = new MemoryListProvider();
+
+		// Fill the provider directly and load the list from it; adding a million items through the list takes too long
+		for (int i = 0; i < size; i++) {
+			provider.add(new PersistentListItemModel(LIST_ID, "item-" + i, i, null));
+		}
+
+		list = createList(provider);
+		list.initialize();
+	}
+
+	private PersistentListBase<?> createList(PersistentListProvider provider) {
+		if ("queue".equals(listType)) {
+			return new PersistentQueue(LIST_ID, "benchmark", provider);
+		} else if ("mapped-queue".equals(listType)) {
+			return new MappedPersistentQueue(LIST_ID, "benchmark", provider);
+		} else if ("packed-queue".equals(listType)) {
+			return new PackedPersistentQueue(LIST_ID, "benchmark", provider);
+		} else if ("stack".equals(listType)) {
+			return new PersistentStack(LIST_ID, "benchmark", provider);
+		} else {
+			throw new IllegalArgumentException("Unknown list type '" + listType + "'.");
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded benchmarks for the {@link org.openmrs.module.openhmis.plm.PersistentList} operations.  The operations
+ * that change the list are paired with an operation that undoes the change so that the list stays at the size being
+ * measured.
+ * <p/>
+ * Run with {@code java -jar benchmark/target/benchmarks.jar}; a subset can be selected with the JMH options, for example
+ * {@code -p listType=queue -p size=1000}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class PersistentListBenchmark {
+	@Benchmark
+	public int getSize(ListState state) {
+		return state.list.getSize();
+	}
+
+	@Benchmark
+	public PersistentListItem getNext(ListState state) {
+		return state.list.getNext();
+	}
+
+	@Benchmark
+	public PersistentListItem[] getItems(ListState state) {
+		return state.list.getItems();
+	}
+
+	/**
+	 * Adds a new item to the list and then removes it.
+	 */
+	@Benchmark
+	public boolean addAndRemove(ListState state, ItemState items) {
+		PersistentListItem item = items.createItem();
+		state.list.add(item);
+
+		return state.list.remove(item);
+	}
+
+	/**
+	 * Removes the next item from the list and then adds it back.
+	 */
+	@Benchmark
+	public PersistentListItem getNextAndRemoveAndAdd(ListState state) {
+		PersistentListItem item = state.list.getNextAndRemove();
+		if (item != null) {
+			state.list.add(item);
+		}
+
+		return item;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl#onStartup()} takes to load
+ * the lists, until {@code getIsLoaded()} is {@code true}.  Each iteration starts a new service against the same seeded
+ * lists; the time spent in each phase of the startup is printed at the end of each trial (see {@link StartupState}).
+ * <p/>
+ * The full parameter matrix takes a long time to run, so select a subset with the JMH options, for example
+ * {@code StartupBenchmark -p provider=database -p lists=5000 -p items=10}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+	@Benchmark
+	public boolean loadLists(StartupState state) {
+		state.service.onStartup();
+
+		return state.service.getIsLoaded();
+	}
+}
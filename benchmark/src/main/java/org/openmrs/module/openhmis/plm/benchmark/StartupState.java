@@ -0,0 +1,171 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.PersistentListServiceProvider;
+import org.openmrs.module.openhmis.plm.db.DatabaseListProvider;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryServiceProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListItemModel;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.util.Date;
+
+/**
+ * The specified number of list definitions, each with the specified number of items, and a new
+ * {@link TimedListService} for each startup.  The time spent in each startup phase is summed over the measured startups
+ * and printed when the trial ends.
+ * <p/>
+ * The loading parameter selects how the service loads the lists: {@code lazy} only loads the list definitions,
+ * {@code preload} loads the items of every list one list at a time, {@code parallel} does so from
+ * {@link #PARALLEL_THREADS} threads and {@code bulk} reads the items of every list in a single pass.  Only the database
+ * provider supports bulk loading; the memory provider falls back to loading one list at a time.
+ */
+@State(Scope.Benchmark)
+public class StartupState {
+	public static final int PARALLEL_THREADS = 4;
+
+	@Param({"100", "1000", "5000"})
+	public int lists;
+
+	@Param({"0", "10", "100"})
+	public int items;
+
+	@Param({"memory", "database"})
+	public String provider;
+
+	@Param({"lazy", "preload", "parallel", "bulk"})
+	public String loading;
+
+	public TimedListService service;
+
+	private EmbeddedDatabase database;
+	private PersistentListServiceProvider serviceProvider;
+	private PersistentListProvider listProvider;
+	private final long[] phaseNanos = new long[TimedListService.Phase.values().length];
+	private int startups;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		if ("memory".equals(provider)) {
+			MemoryServiceProvider memoryServiceProvider = new MemoryServiceProvider();
+			MemoryListProvider memoryListProvider = new MemoryListProvider();
+			for (int listId = 1; listId <= lists; listId++) {
+				memoryServiceProvider.addList(new PersistentListModel(listId, getListKey(listId),
+						PersistentQueue.class.getName(), null, new Date()));
+
+				for (int i = 0; i < items; i++) {
+					memoryListProvider.add(new PersistentListItemModel(listId, "item-" + i, i, null));
+				}
+			}
+
+			serviceProvider = memoryServiceProvider;
+			listProvider = memoryListProvider;
+		} else if ("database".equals(provider)) {
+			database = new EmbeddedDatabase(PARALLEL_THREADS);
+			for (int listId = 1; listId <= lists; listId++) {
+				database.addList(listId, getListKey(listId), PersistentQueue.class);
+				database.addItems(listId, "item-", items);
+			}
+
+			serviceProvider = database.createServiceProvider();
+			listProvider = new DatabaseListProvider(database.getSessionFactory());
+		} else {
+			throw new IllegalArgumentException("Unknown provider '" + provider + "'.");
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void createService() {
+		service = new TimedListService(serviceProvider, listProvider);
+
+		if ("lazy".equals(loading)) {
+			service.setPreloadAllLists(false);
+		} else if ("preload".equals(loading)) {
+			service.setPreloadAllLists(true);
+			service.setBulkLoadLists(false);
+		} else if ("parallel".equals(loading)) {
+			service.setPreloadAllLists(true);
+			service.setBulkLoadLists(false);
+			service.setStartupThreadCount(PARALLEL_THREADS);
+		} else if ("bulk".equals(loading)) {
+			service.setPreloadAllLists(true);
+			service.setBulkLoadLists(true);
+		} else {
+			throw new IllegalArgumentException("Unknown loading '" + loading + "'.");
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void recordPhases(IterationParams params) {
+		if (!service.getIsLoaded()) {
+			throw new IllegalStateException("The service was not loaded.");
+		}
+
+		if (params.getType() == IterationType.MEASUREMENT) {
+			for (TimedListService.Phase phase : TimedListService.Phase.values()) {
+				phaseNanos[phase.ordinal()] += service.getNanos(phase);
+			}
+			startups++;
+		}
+
+		service.onShutdown();
+		service = null;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		printPhases();
+
+		if (database != null) {
+			database.close();
+		}
+	}
+
+	private void printPhases() {
+		if (startups == 0) {
+			return;
+		}
+
+		long total = 0;
+		for (long nanos : phaseNanos) {
+			total += nanos;
+		}
+
+		System.out.println();
+		System.out.println(String.format("Mean startup phases for %d lists with %d items (%s, %s) over %d startups:",
+				lists, items, provider, loading, startups));
+		for (TimedListService.Phase phase : TimedListService.Phase.values()) {
+			long nanos = phaseNanos[phase.ordinal()];
+			System.out.println(String.format("  %-22s %10.3f ms %5.1f%%", phase.getDescription(),
+					nanos / 1e6 / startups, total == 0 ? 0 : nanos * 100.0 / total));
+		}
+		System.out.println(String.format("  %-22s %10.3f ms", "total", total / 1e6 / startups));
+	}
+
+	private String getListKey(int listId) {
+		return "list-" + listId;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark;
+
+import org.openmrs.module.openhmis.plm.BulkListProvider;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.PersistentListServiceProvider;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.util.List;
+
+/**
+ * A {@link PersistentListServiceImpl} which records how long each phase of {@link #loadLists()} takes.
+ */
+public class TimedListService extends PersistentListServiceImpl {
+	public enum Phase {
+		/**
+		 * Reading the list definitions from the service provider.
+		 */
+		DEFINITIONS("read list definitions"),
+		/**
+		 * Loading the list classes with {@link Class#forName(String)}.
+		 */
+		CLASS_LOADING("load list classes"),
+		/**
+		 * Creating the list instances and loading them from their definition.
+		 */
+		INSTANTIATION("create lists"),
+		/**
+		 * Reading the preloaded list items from the list provider and adding them to the lists.
+		 */
+		ITEMS("load list items"),
+		/**
+		 * Everything else, such as initializing the lazy lists and adding the lists to the service.
+		 */
+		OTHER("other");
+
+		private final String description;
+
+		Phase(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	private final long[] phaseNanos = new long[Phase.values().length];
+	private int itemsDepth;
+
+	public TimedListService(PersistentListServiceProvider serviceProvider, PersistentListProvider listProvider) {
+		super(serviceProvider, listProvider);
+
+		this.serviceProvider = new TimedServiceProvider(serviceProvider);
+	}
+
+	/**
+	 * Gets the time spent in the specified phase the last time the lists were loaded.
+	 * @param phase The phase.
+	 * @return The nanoseconds spent in the phase.
+	 */
+	public long getNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	@Override
+	protected void loadLists() {
+		for (int i = 0; i < phaseNanos.length; i++) {
+			phaseNanos[i] = 0;
+		}
+
+		long start = System.nanoTime();
+		super.loadLists();
+
+		long other = System.nanoTime() - start;
+		for (Phase phase : Phase.values()) {
+			other -= phaseNanos[phase.ordinal()];
+		}
+		phaseNanos[Phase.OTHER.ordinal()] = other;
+	}
+
+	@Override
+	protected Class<?> loadListClass(PersistentListModel model) {
+		long start = System.nanoTime();
+		try {
+			return super.loadListClass(model);
+		} finally {
+			add(Phase.CLASS_LOADING, start);
+		}
+	}
+
+	@Override
+	protected PersistentList createList(PersistentListModel model) {
+		long start = System.nanoTime();
+		long classLoading = getNanos(Phase.CLASS_LOADING);
+		try {
+			return super.createList(model);
+		} finally {
+			// Class loading is timed separately
+			add(Phase.INSTANTIATION, start + getNanos(Phase.CLASS_LOADING) - classLoading);
+		}
+	}
+
+	@Override
+	protected void initializeLists(List<PersistentList> preloadLists) {
+		long start = startItems();
+		try {
+			super.initializeLists(preloadLists);
+		} finally {
+			endItems(start);
+		}
+	}
+
+	@Override
+	protected void bulkInitializeLists(BulkListProvider bulkProvider, List<PersistentList> preloadLists) {
+		long start = startItems();
+		try {
+			super.bulkInitializeLists(bulkProvider, preloadLists);
+		} finally {
+			endItems(start);
+		}
+	}
+
+	private long startItems() {
+		itemsDepth++;
+
+		return System.nanoTime();
+	}
+
+	private void endItems(long start) {
+		// The bulk initialization initializes any lists it cannot load itself, so only the outer call is timed
+		if (--itemsDepth == 0) {
+			add(Phase.ITEMS, start);
+		}
+	}
+
+	private void add(Phase phase, long start) {
+		phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+	}
+
+	/**
+	 * Times the list definition reads of the wrapped service provider.
+	 */
+	private class TimedServiceProvider implements PersistentListServiceProvider {
+		private final PersistentListServiceProvider provider;
+
+		public TimedServiceProvider(PersistentListServiceProvider provider) {
+			this.provider = provider;
+		}
+
+		@Override
+		public PersistentListModel[] getLists() {
+			long start = System.nanoTime();
+			try {
+				return provider.getLists();
+			} finally {
+				add(Phase.DEFINITIONS, start);
+			}
+		}
+
+		@Override
+		public void addList(PersistentListModel list) {
+			provider.addList(list);
+		}
+
+		@Override
+		public void removeList(String key) {
+			provider.removeList(key);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark.clinic;
+
+import java.util.Random;
+
+/**
+ * The arrival rate of patients over the clinic day.  Patients arrive at the base rate except for a burst shortly after
+ * the clinic opens, when the rate rises to the peak multiple of the base rate.
+ * <p/>
+ * Arrival times are generated as a non-homogeneous Poisson process by thinning: candidate arrivals are generated at the
+ * peak rate and each is kept with the probability of the actual rate at that time over the peak rate.
+ */
+public class ArrivalProfile {
+	private static final double PEAK_HOUR = 1.0;
+	private static final double PEAK_WIDTH = 0.75;
+
+	private final double patientsPerHour;
+	private final double peak;
+
+	public ArrivalProfile(double patientsPerHour, double peak) {
+		this.patientsPerHour = patientsPerHour;
+		this.peak = peak;
+	}
+
+	/**
+	 * Gets the arrival rate at the specified time.
+	 * @param hour The hours since the clinic opened.
+	 * @return The number of patients arriving per hour.
+	 */
+	public double getRate(double hour) {
+		double distance = (hour - PEAK_HOUR) / PEAK_WIDTH;
+
+		return patientsPerHour * (1 + (peak - 1) * Math.exp(-distance * distance));
+	}
+
+	/**
+	 * Gets the time of the next arrival.
+	 * @param random The random number source.
+	 * @param hour The hours since the clinic opened.
+	 * @return The hours since the clinic opened when the next patient arrives.
+	 */
+	public double getNextArrival(Random random, double hour) {
+		double maxRate = patientsPerHour * peak;
+		double next = hour;
+		do {
+			next += -Math.log(1 - random.nextDouble()) / maxRate;
+		} while (random.nextDouble() * maxRate > getRate(next));
+
+		return next;
+	}
+}
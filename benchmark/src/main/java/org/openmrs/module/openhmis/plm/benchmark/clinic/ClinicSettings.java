@@ -0,0 +1,195 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark.clinic;
+
+/**
+ * The settings for a {@link ClinicSimulator} run, parsed from {@code --name=value} command line arguments.
+ */
+public class ClinicSettings {
+	public static final String USAGE = "Usage: ClinicSimulator [--name=value ...]\n" +
+			"  --provider=memory|database  The list provider; database uses an embedded H2 database (memory)\n" +
+			"  --rooms=n                   The number of waiting room queues (40)\n" +
+			"  --clinicians=n              The maximum number of clinicians seeing patients from each room (3)\n" +
+			"  --patientsPerHour=n         The average arrivals per room and hour outside of the morning peak (8)\n" +
+			"  --morningPeak=n             How many times busier arrivals are at the morning peak (4)\n" +
+			"  --consultMinutes=n          The average consult time; each clinician is between half and 1.5 times it (12)\n" +
+			"  --pollers=n                 The number of UI threads polling the room lists (8)\n" +
+			"  --pollMillis=n              How often each UI thread polls, in real milliseconds (1000)\n" +
+			"  --clinicHours=n             The length of the simulated clinic day (8)\n" +
+			"  --duration=n                The number of real seconds the clinic day is compressed into (60)\n" +
+			"  --threads=n                 The number of threads running the simulation (16)\n" +
+			"  --report=n                  The number of seconds between progress reports (10)\n" +
+			"  --seed=n                    The random seed (42)";
+
+	private String provider = "memory";
+	private int rooms = 40;
+	private int clinicians = 3;
+	private double patientsPerHour = 8;
+	private double morningPeak = 4;
+	private double consultMinutes = 12;
+	private int pollers = 8;
+	private int pollMillis = 1000;
+	private int clinicHours = 8;
+	private int duration = 60;
+	private int threads = 16;
+	private int report = 10;
+	private long seed = 42;
+
+	/**
+	 * Parses the settings from the command line arguments.  Settings that are not specified keep their default value.
+	 * @param args The command line arguments.
+	 * @return The parsed settings.
+	 * @throws IllegalArgumentException if an argument is not a known setting or has an invalid value.
+	 */
+	public static ClinicSettings parse(String[] args) {
+		ClinicSettings settings = new ClinicSettings();
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Invalid argument '" + arg + "'.");
+			}
+
+			String name = arg.substring(2, separator);
+			String value = arg.substring(separator + 1);
+			try {
+				settings.set(name, value);
+			} catch (NumberFormatException ex) {
+				throw new IllegalArgumentException("Invalid value '" + value + "' for " + name + ".");
+			}
+		}
+
+		settings.validate();
+
+		return settings;
+	}
+
+	private void set(String name, String value) {
+		if ("provider".equals(name)) {
+			provider = value;
+		} else if ("rooms".equals(name)) {
+			rooms = Integer.parseInt(value);
+		} else if ("clinicians".equals(name)) {
+			clinicians = Integer.parseInt(value);
+		} else if ("patientsPerHour".equals(name)) {
+			patientsPerHour = Double.parseDouble(value);
+		} else if ("morningPeak".equals(name)) {
+			morningPeak = Double.parseDouble(value);
+		} else if ("consultMinutes".equals(name)) {
+			consultMinutes = Double.parseDouble(value);
+		} else if ("pollers".equals(name)) {
+			pollers = Integer.parseInt(value);
+		} else if ("pollMillis".equals(name)) {
+			pollMillis = Integer.parseInt(value);
+		} else if ("clinicHours".equals(name)) {
+			clinicHours = Integer.parseInt(value);
+		} else if ("duration".equals(name)) {
+			duration = Integer.parseInt(value);
+		} else if ("threads".equals(name)) {
+			threads = Integer.parseInt(value);
+		} else if ("report".equals(name)) {
+			report = Integer.parseInt(value);
+		} else if ("seed".equals(name)) {
+			seed = Long.parseLong(value);
+		} else {
+			throw new IllegalArgumentException("Unknown setting '" + name + "'.");
+		}
+	}
+
+	private void validate() {
+		if (!"memory".equals(provider) && !"database".equals(provider)) {
+			throw new IllegalArgumentException("The provider must be memory or database.");
+		}
+		if (rooms < 1 || clinicians < 1 || pollers < 0 || threads < 1) {
+			throw new IllegalArgumentException("There must be at least one room, clinician and thread.");
+		}
+		if (patientsPerHour <= 0 || morningPeak < 1 || consultMinutes <= 0) {
+			throw new IllegalArgumentException("The arrival rate and consult time must be positive and the morning " +
+					"peak must be at least 1.");
+		}
+		if (pollMillis < 1 || clinicHours < 1 || duration < 1 || report < 1) {
+			throw new IllegalArgumentException("The poll interval, clinic hours, duration and report interval must be " +
+					"positive.");
+		}
+	}
+
+	public String getProvider() {
+		return provider;
+	}
+
+	public int getRooms() {
+		return rooms;
+	}
+
+	public int getClinicians() {
+		return clinicians;
+	}
+
+	public double getPatientsPerHour() {
+		return patientsPerHour;
+	}
+
+	public double getMorningPeak() {
+		return morningPeak;
+	}
+
+	public double getConsultMinutes() {
+		return consultMinutes;
+	}
+
+	public int getPollers() {
+		return pollers;
+	}
+
+	public int getPollMillis() {
+		return pollMillis;
+	}
+
+	public int getClinicHours() {
+		return clinicHours;
+	}
+
+	public int getDuration() {
+		return duration;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getReport() {
+		return report;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the number of real nanoseconds that one simulated hour takes.
+	 * @return The length of a simulated hour.
+	 */
+	public double getNanosPerHour() {
+		return duration * 1e9 / clinicHours;
+	}
+
+	@Override
+	public String toString() {
+		return "provider=" + provider + ", rooms=" + rooms + ", clinicians=" + clinicians +
+				", patientsPerHour=" + patientsPerHour + ", morningPeak=" + morningPeak +
+				", consultMinutes=" + consultMinutes + ", pollers=" + pollers + ", pollMillis=" + pollMillis +
+				", clinicHours=" + clinicHours + ", duration=" + duration + "s, threads=" + threads + ", seed=" + seed;
+	}
+}
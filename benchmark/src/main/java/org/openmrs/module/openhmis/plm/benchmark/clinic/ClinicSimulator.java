@@ -0,0 +1,363 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark.clinic;
+
+import org.openmrs.User;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListItem;
+import org.openmrs.module.openhmis.plm.PersistentListProvider;
+import org.openmrs.module.openhmis.plm.benchmark.EmbeddedDatabase;
+import org.openmrs.module.openhmis.plm.db.DatabaseListProvider;
+import org.openmrs.module.openhmis.plm.impl.PersistentListServiceImpl;
+import org.openmrs.module.openhmis.plm.impl.PersistentQueue;
+import org.openmrs.module.openhmis.plm.memory.MemoryListProvider;
+import org.openmrs.module.openhmis.plm.memory.MemoryServiceProvider;
+import org.openmrs.module.openhmis.plm.model.PersistentListModel;
+
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a {@link PersistentListServiceImpl} the way a busy facility does and reports the latency and throughput of
+ * the list operations.
+ * <p/>
+ * Each waiting room is a {@link PersistentQueue}.  Patients arrive at each room at random, with a burst of arrivals in
+ * the morning (see {@link ArrivalProfile}), and are seen by the clinicians for that room, each of which takes a
+ * different average time per patient.  UI threads poll the items of random rooms at a fixed interval, as the patient
+ * queue pages do.  The clinic day is compressed into the configured duration so that a full day can be run in a minute.
+ * <p/>
+ * The lists can be stored in memory or in an embedded database, so that the capacity of a site can be estimated without
+ * a production database.  Run with {@code --help} for the settings.
+ */
+public class ClinicSimulator {
+	private static final double IDLE_MINUTES = 1;
+
+	private final ClinicSettings settings;
+	private final ArrivalProfile arrivals;
+	private final LatencyReport report = new LatencyReport();
+	private final AtomicInteger arrived = new AtomicInteger();
+	private final AtomicInteger seen = new AtomicInteger();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	private EmbeddedDatabase database;
+	private PersistentListServiceImpl service;
+	private PersistentList[] rooms;
+	private User creator;
+	private ScheduledExecutorService executor;
+	private volatile boolean running;
+	private long startNanos;
+
+	public ClinicSimulator(ClinicSettings settings) {
+		this.settings = settings;
+		this.arrivals = new ArrivalProfile(settings.getPatientsPerHour(), settings.getMorningPeak());
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 1 && "--help".equals(args[0])) {
+			System.out.println(ClinicSettings.USAGE);
+			return;
+		}
+
+		ClinicSettings settings;
+		try {
+			settings = ClinicSettings.parse(args);
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			System.err.println(ClinicSettings.USAGE);
+			System.exit(1);
+			return;
+		}
+
+		new ClinicSimulator(settings).run(System.out);
+	}
+
+	/**
+	 * Runs the simulation and prints the report.
+	 * @param out The stream to print the progress and report to.
+	 * @throws Exception if the lists could not be created or an operation failed during the simulation.
+	 */
+	public void run(PrintStream out) throws Exception {
+		out.println("Simulating a clinic day with " + settings);
+
+		setUp();
+		try {
+			simulate(out);
+		} finally {
+			tearDown();
+		}
+
+		Throwable ex = failure.get();
+		if (ex != null) {
+			throw new IllegalStateException("A simulated operation failed.", ex);
+		}
+	}
+
+	private void setUp() throws Exception {
+		PersistentListProvider listProvider;
+		if ("database".equals(settings.getProvider())) {
+			database = new EmbeddedDatabase(settings.getThreads());
+			listProvider = new DatabaseListProvider(database.getSessionFactory());
+			creator = database.getCreator();
+		} else {
+			listProvider = new MemoryListProvider();
+		}
+
+		// Define the rooms before the service starts so that it loads them as it would at a site
+		MemoryServiceProvider serviceProvider = new MemoryServiceProvider();
+		for (int room = 0; room < settings.getRooms(); room++) {
+			int listId = room + 1;
+			if (database != null) {
+				database.addList(listId, getRoomKey(room), PersistentQueue.class);
+			}
+
+			serviceProvider.addList(new PersistentListModel(listId, getRoomKey(room), PersistentQueue.class.getName(),
+					"Waiting room " + listId, new Date()));
+		}
+
+		service = new PersistentListServiceImpl(serviceProvider, listProvider);
+		service.setPreloadAllLists(true);
+		service.onStartup();
+
+		rooms = new PersistentList[settings.getRooms()];
+		for (int room = 0; room < rooms.length; room++) {
+			rooms[room] = service.getList(getRoomKey(room));
+		}
+
+		executor = Executors.newScheduledThreadPool(settings.getThreads());
+	}
+
+	private void tearDown() throws Exception {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (service != null) {
+			service.onShutdown();
+		}
+		if (database != null) {
+			database.close();
+		}
+	}
+
+	private void simulate(PrintStream out) throws Exception {
+		Random random = new Random(settings.getSeed());
+
+		running = true;
+		startNanos = System.nanoTime();
+		for (int room = 0; room < rooms.length; room++) {
+			new Arrivals(random.nextLong(), room).start(0);
+
+			int clinicians = 1 + random.nextInt(settings.getClinicians());
+			for (int i = 0; i < clinicians; i++) {
+				new Clinician(random.nextLong(), room).start(0);
+			}
+		}
+		for (int i = 0; i < settings.getPollers(); i++) {
+			// Spread the polling out over the poll interval
+			Poller poller = new Poller(random.nextLong());
+			poller.start((long)(random.nextDouble() * TimeUnit.MILLISECONDS.toNanos(settings.getPollMillis())));
+		}
+
+		long endNanos = startNanos + TimeUnit.SECONDS.toNanos(settings.getDuration());
+		long reportNanos = TimeUnit.SECONDS.toNanos(settings.getReport());
+		long lastReport = startNanos;
+		while (running && System.nanoTime() < endNanos) {
+			long nextReport = Math.min(lastReport + reportNanos, endNanos);
+			TimeUnit.NANOSECONDS.sleep(Math.max(0, nextReport - System.nanoTime()));
+
+			long now = System.nanoTime();
+			report.printInterval(out, (now - startNanos) / 1e9, (now - lastReport) / 1e9);
+			lastReport = now;
+		}
+
+		running = false;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+
+		long now = System.nanoTime();
+		report.printInterval(out, (now - startNanos) / 1e9, (now - lastReport) / 1e9);
+		double elapsedSeconds = (now - startNanos) / 1e9;
+
+		int waiting = 0;
+		int longest = 0;
+		for (PersistentList room : rooms) {
+			waiting += room.getSize();
+			longest = Math.max(longest, room.getSize());
+		}
+
+		out.println();
+		report.printSummary(out, elapsedSeconds);
+		out.println();
+		out.println(String.format("%d patients arrived, %d were seen and %d are still waiting (%d in the longest queue).",
+				arrived.get(), seen.get(), waiting, longest));
+	}
+
+	private String getRoomKey(int room) {
+		return "waiting-room-" + (room + 1);
+	}
+
+	private long toNanos(double hours) {
+		return (long)(hours * settings.getNanosPerHour());
+	}
+
+	private double toHours(long nanos) {
+		return nanos / settings.getNanosPerHour();
+	}
+
+	/**
+	 * Something in the clinic that repeatedly acts on the lists.  Each actor is scheduled for when it should next act, so
+	 * an actor only runs on one thread at a time.
+	 */
+	private abstract class Actor implements Runnable {
+		protected final Random random;
+		private long intended;
+
+		protected Actor(long seed) {
+			this.random = new Random(seed);
+		}
+
+		/**
+		 * Schedules the first action.
+		 * @param delayNanos The nanoseconds after the start of the simulation to first act.
+		 */
+		public void start(long delayNanos) {
+			schedule(startNanos + delayNanos);
+		}
+
+		@Override
+		public void run() {
+			if (!running) {
+				return;
+			}
+
+			try {
+				long next = act(intended);
+				if (next >= 0) {
+					schedule(next);
+				}
+			} catch (Throwable ex) {
+				failure.compareAndSet(null, ex);
+				running = false;
+			}
+		}
+
+		/**
+		 * Performs the action.
+		 * @param intended The {@link System#nanoTime()} when the action should have started.
+		 * @return The {@link System#nanoTime()} to act again or a negative number to stop.
+		 */
+		protected abstract long act(long intended);
+
+		private void schedule(long nanos) {
+			if (running) {
+				intended = nanos;
+				executor.schedule(this, nanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Adds the patients that arrive at a room until the clinic closes.
+	 */
+	private class Arrivals extends Actor {
+		private final int room;
+		private double hour;
+
+		public Arrivals(long seed, int room) {
+			super(seed);
+
+			this.room = room;
+		}
+
+		@Override
+		public void start(long delayNanos) {
+			hour = arrivals.getNextArrival(random, toHours(delayNanos));
+
+			super.start(toNanos(hour));
+		}
+
+		@Override
+		protected long act(long intended) {
+			PersistentListItem patient = new PersistentListItem(getRoomKey(room) + "-patient-" + arrived.incrementAndGet(),
+					creator);
+
+			long started = System.nanoTime();
+			rooms[room].add(patient);
+			report.record(LatencyReport.Operation.ADD, intended, started, System.nanoTime());
+
+			hour = arrivals.getNextArrival(random, hour);
+			if (hour >= settings.getClinicHours()) {
+				return -1;
+			}
+
+			return startNanos + toNanos(hour);
+		}
+	}
+
+	/**
+	 * Sees the next patient from a room, taking a random time around the clinician's average consult time.  The
+	 * clinician checks the room again every few minutes when there is no one waiting.
+	 */
+	private class Clinician extends Actor {
+		private final int room;
+		private final double consultHours;
+
+		public Clinician(long seed, int room) {
+			super(seed);
+
+			this.room = room;
+			this.consultHours = settings.getConsultMinutes() * (0.5 + random.nextDouble()) / 60;
+		}
+
+		@Override
+		protected long act(long intended) {
+			long started = System.nanoTime();
+			PersistentListItem patient = rooms[room].getNextAndRemove();
+			report.record(LatencyReport.Operation.GET_NEXT_AND_REMOVE, intended, started, System.nanoTime());
+
+			if (patient == null) {
+				return intended + toNanos(IDLE_MINUTES / 60);
+			}
+
+			seen.incrementAndGet();
+			return intended + toNanos(-Math.log(1 - random.nextDouble()) * consultHours);
+		}
+	}
+
+	/**
+	 * Loads the patients waiting in a random room, as a UI page that refreshes the queue does.
+	 */
+	private class Poller extends Actor {
+		public Poller(long seed) {
+			super(seed);
+		}
+
+		@Override
+		protected long act(long intended) {
+			PersistentList room = rooms[random.nextInt(rooms.length)];
+
+			long started = System.nanoTime();
+			room.getItems();
+			report.record(LatencyReport.Operation.GET_ITEMS, intended, started, System.nanoTime());
+
+			return intended + TimeUnit.MILLISECONDS.toNanos(settings.getPollMillis());
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.benchmark.clinic;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Records the latency of the simulated operations and prints the latency and throughput of each operation.
+ * <p/>
+ * Two latencies are recorded for each operation.  The service time is the time the list took to complete the operation.
+ * The response time is the time from when the operation should have started to when it completed, which includes any
+ * time it waited for a simulation thread.  Reporting the response time keeps a stalled list from hiding the operations
+ * that queued up behind the stall.
+ */
+public class LatencyReport {
+	public enum Operation {
+		ADD("add"),
+		GET_NEXT_AND_REMOVE("getNextAndRemove"),
+		GET_ITEMS("getItems");
+
+		private final String name;
+
+		Operation(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Map<Operation, Recorder> serviceRecorders = new EnumMap<Operation, Recorder>(Operation.class);
+	private final Map<Operation, Recorder> responseRecorders = new EnumMap<Operation, Recorder>(Operation.class);
+	private final Map<Operation, Histogram> serviceTimes = new EnumMap<Operation, Histogram>(Operation.class);
+	private final Map<Operation, Histogram> responseTimes = new EnumMap<Operation, Histogram>(Operation.class);
+
+	public LatencyReport() {
+		for (Operation operation : Operation.values()) {
+			serviceRecorders.put(operation, new Recorder(SIGNIFICANT_DIGITS));
+			responseRecorders.put(operation, new Recorder(SIGNIFICANT_DIGITS));
+			serviceTimes.put(operation, new Histogram(SIGNIFICANT_DIGITS));
+			responseTimes.put(operation, new Histogram(SIGNIFICANT_DIGITS));
+		}
+	}
+
+	/**
+	 * Records a completed operation.  This method can be called from any thread.
+	 * @param operation The operation.
+	 * @param intended The {@link System#nanoTime()} when the operation should have started.
+	 * @param started The {@link System#nanoTime()} when the operation started.
+	 * @param completed The {@link System#nanoTime()} when the operation completed.
+	 */
+	public void record(Operation operation, long intended, long started, long completed) {
+		serviceRecorders.get(operation).recordValue(completed - started);
+		responseRecorders.get(operation).recordValue(completed - Math.min(intended, started));
+	}
+
+	/**
+	 * Prints the throughput and response time of the operations recorded since the last interval and adds them to the
+	 * totals.  This method must only be called from one thread.
+	 * @param out The stream to print to.
+	 * @param elapsedSeconds The seconds since the simulation started.
+	 * @param intervalSeconds The seconds since the last interval.
+	 */
+	public void printInterval(PrintStream out, double elapsedSeconds, double intervalSeconds) {
+		StringBuilder line = new StringBuilder(String.format("%6.0fs", elapsedSeconds));
+		for (Operation operation : Operation.values()) {
+			Histogram service = serviceRecorders.get(operation).getIntervalHistogram();
+			Histogram response = responseRecorders.get(operation).getIntervalHistogram();
+			serviceTimes.get(operation).add(service);
+			responseTimes.get(operation).add(response);
+
+			line.append(String.format("  %s %8.0f/s p99 %9.1fus", operation.getName(),
+					response.getTotalCount() / intervalSeconds, toMicros(response.getValueAtPercentile(99))));
+		}
+
+		out.println(line);
+	}
+
+	/**
+	 * Prints the throughput and the latency percentiles of all of the recorded operations.  This method must only be
+	 * called from one thread, after the last interval has been printed.
+	 * @param out The stream to print to.
+	 * @param elapsedSeconds The seconds the simulation ran for.
+	 */
+	public void printSummary(PrintStream out, double elapsedSeconds) {
+		StringBuilder header = new StringBuilder(String.format("%-18s %-9s %10s %10s", "operation", "latency", "count",
+				"ops/s"));
+		for (double percentile : PERCENTILES) {
+			header.append(String.format(" %10s", "p" + formatPercentile(percentile)));
+		}
+		header.append(String.format(" %10s %10s", "max", "mean"));
+		out.println(header);
+
+		for (Operation operation : Operation.values()) {
+			printHistogram(out, operation, "service", serviceTimes.get(operation), elapsedSeconds);
+			printHistogram(out, operation, "response", responseTimes.get(operation), elapsedSeconds);
+		}
+		out.println("(latencies are in microseconds)");
+	}
+
+	public long getCount(Operation operation) {
+		return responseTimes.get(operation).getTotalCount();
+	}
+
+	private void printHistogram(PrintStream out, Operation operation, String latency, Histogram histogram,
+	                            double elapsedSeconds) {
+		StringBuilder line = new StringBuilder(String.format("%-18s %-9s %10d %10.0f", operation.getName(), latency,
+				histogram.getTotalCount(), histogram.getTotalCount() / elapsedSeconds));
+		for (double percentile : PERCENTILES) {
+			line.append(String.format(" %10.1f", toMicros(histogram.getValueAtPercentile(percentile))));
+		}
+		line.append(String.format(" %10.1f %10.1f", toMicros(histogram.getMaxValue()), histogram.getMean() / 1000));
+
+		out.println(line);
+	}
+
+	private static String formatPercentile(double percentile) {
+		return percentile == Math.floor(percentile) ? String.valueOf((int)percentile) : String.valueOf(percentile);
+	}
+
+	private static double toMicros(long nanos) {
+		return nanos / 1000.0;
+	}
+}
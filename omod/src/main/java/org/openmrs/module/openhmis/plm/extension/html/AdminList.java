@@ -14,6 +14,7 @@
 package org.openmrs.module.openhmis.plm.extension.html;
 
 import org.openmrs.module.Extension;
+import org.openmrs.module.openhmis.plm.web.controller.ListModuleManageController;
 import org.openmrs.module.web.extension.AdministrationSectionExt;
 
 import java.util.LinkedHashMap;
@@ -39,6 +40,13 @@ public class AdminList extends AdministrationSectionExt {
 		return "plm.title";
 	}
 	
+	/**
+	 * @see AdministrationSectionExt#getRequiredPrivilege()
+	 */
+	public String getRequiredPrivilege() {
+		return ListModuleManageController.MANAGE_LISTS_PRIVILEGE;
+	}
+	
 	/**
 	 * @see AdministrationSectionExt#getLinks()
 	 */
@@ -0,0 +1,227 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.openhmis.plm.web;
+
+import org.openhmis.commons.Utility;
+import org.openmrs.module.openhmis.plm.LazyInitializable;
+import org.openmrs.module.openhmis.plm.PersistentList;
+import org.openmrs.module.openhmis.plm.PersistentListService;
+import org.openmrs.module.openhmis.plm.impl.PersistentListBase;
+import org.openmrs.module.openhmis.plm.metrics.LatencySnapshot;
+import org.openmrs.module.openhmis.plm.metrics.ListMetrics;
+import org.openmrs.module.openhmis.plm.metrics.ListMetricsSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.LockSnapshot;
+import org.openmrs.module.openhmis.plm.metrics.MemoryMetricsRegistry;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the statistics of every list as JSON.  The statistics are read from the list caches and the in-memory metrics
+ * so writing them never queries the database; the items of lazy lists that have not been loaded are not counted.
+ * <p/>
+ * The time that the next item of each list was created is written rather than its age, along with the server time, so
+ * that a reader can age the item itself.  Dwell times are reported in whole seconds, latencies in whole microseconds and
+ * rates to two decimal places.
+ * <p/>
+ * The {@link #getVersion(PersistentListService) version} only changes when a list is created, loaded or changed, so
+ * that a reader polling with it does not download the statistics of idle lists again.  The rates and latencies are
+ * therefore those of the last change.
+ * <p/>
+ * The lock counters of a list are only written while its lock is being profiled.
+ */
+public class ListStatisticsWriter {
+	private static final Comparator<PersistentList> KEY_ORDER = new Comparator<PersistentList>() {
+		@Override
+		public int compare(PersistentList list1, PersistentList list2) {
+			return list1.getKey().compareTo(list2.getKey());
+		}
+	};
+
+	private ListStatisticsWriter() {
+	}
+
+	/**
+	 * Gets a version of the statistics of the lists in the specified service that changes whenever a list is created,
+	 * loaded or changed.  It is built from the size and the add and remove totals of each list, so getting it is much
+	 * cheaper than writing the statistics.
+	 * @param service The list service.
+	 * @return The statistics version.
+	 */
+	public static String getVersion(PersistentListService service) {
+		PersistentList[] lists = service.getLists();
+		Arrays.sort(lists, KEY_ORDER);
+
+		MemoryMetricsRegistry registry = Utility.as(MemoryMetricsRegistry.class, service.getMetricsRegistry());
+
+		long hash = lists.length;
+		for (PersistentList list : lists) {
+			LazyInitializable lazyList = Utility.as(LazyInitializable.class, list);
+			boolean isLoaded = lazyList == null || lazyList.getIsInitialized();
+
+			hash = hash * 31 + list.getKey().hashCode();
+			hash = hash * 31 + (isLoaded ? list.getSize() : -1);
+
+			ListMetricsSnapshot snapshot = registry == null ? null : registry.getListSnapshot(list.getKey());
+			if (snapshot != null) {
+				hash = hash * 31 + snapshot.getAddedCount();
+				hash = hash * 31 + snapshot.getRemovedCount();
+			}
+
+			PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+			if (listBase != null && listBase.getIsLockProfilingEnabled()) {
+				hash = hash * 31 + listBase.getLockSnapshot().getAcquisitions();
+			}
+		}
+
+		return Long.toHexString(hash);
+	}
+
+	/**
+	 * Writes the statistics of the lists in the specified service.
+	 * @param service The list service.
+	 * @return The statistics JSON.
+	 */
+	public static String write(PersistentListService service) {
+		PersistentList[] lists = service.getLists();
+		Arrays.sort(lists, KEY_ORDER);
+
+		MemoryMetricsRegistry registry = Utility.as(MemoryMetricsRegistry.class, service.getMetricsRegistry());
+
+		StringBuilder json = new StringBuilder(256 + lists.length * 256);
+		json.append("{\"time\":").append(System.currentTimeMillis());
+		json.append(",\"lists\":[");
+		for (int i = 0; i < lists.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+
+			ListMetricsSnapshot snapshot = registry == null ? null : registry.getListSnapshot(lists[i].getKey());
+			writeList(json, lists[i], snapshot);
+		}
+		json.append("]}");
+
+		return json.toString();
+	}
+
+	private static void writeList(StringBuilder json, PersistentList list, ListMetricsSnapshot snapshot) {
+		LazyInitializable lazyList = Utility.as(LazyInitializable.class, list);
+		boolean isLoaded = lazyList == null || lazyList.getIsInitialized();
+		PersistentListBase<?> listBase = Utility.as(PersistentListBase.class, list);
+
+		json.append('{');
+		appendString(json, "key", list.getKey()).append(',');
+		appendString(json, "type", list.getClass().getSimpleName()).append(',');
+		appendString(json, "durability", listBase == null ? null : listBase.getDurability().name()).append(',');
+		json.append("\"loaded\":").append(isLoaded).append(',');
+		json.append("\"size\":");
+		if (isLoaded) {
+			json.append(list.getSize());
+		} else {
+			json.append("null");
+		}
+
+		if (snapshot != null) {
+			Date headCreatedOn = snapshot.getHeadCreatedOn();
+			json.append(",\"headCreatedOn\":").append(headCreatedOn == null ? "null" : headCreatedOn.getTime());
+			json.append(",\"added\":").append(snapshot.getAddedCount());
+			json.append(",\"removed\":").append(snapshot.getRemovedCount());
+			json.append(",\"addedRate\":").append(formatRate(snapshot.getAddedRate()));
+			json.append(",\"removedRate\":").append(formatRate(snapshot.getRemovedRate()));
+
+			LatencySnapshot dwellTime = snapshot.getDwellTime();
+			json.append(",\"dwellTime\":{");
+			json.append("\"p50\":").append(TimeUnit.MILLISECONDS.toSeconds(dwellTime.getP50()));
+			json.append(",\"p90\":").append(TimeUnit.MILLISECONDS.toSeconds(dwellTime.getP90()));
+			json.append(",\"p99\":").append(TimeUnit.MILLISECONDS.toSeconds(dwellTime.getP99()));
+			json.append('}');
+
+			json.append(",\"latencyP99\":{");
+			ListMetrics.Operation[] operations = ListMetrics.Operation.values();
+			for (int i = 0; i < operations.length; i++) {
+				if (i > 0) {
+					json.append(',');
+				}
+
+				long p99 = snapshot.getLatency(operations[i]).getP99();
+				json.append('"').append(operations[i].name().toLowerCase(Locale.ENGLISH)).append("\":")
+						.append(TimeUnit.NANOSECONDS.toMicros(p99));
+			}
+			json.append('}');
+		}
+
+		if (listBase != null && listBase.getIsLockProfilingEnabled()) {
+			json.append(',');
+			writeLock(json, listBase.getLockSnapshot());
+		}
+		json.append('}');
+	}
+
+	private static void writeLock(StringBuilder json, LockSnapshot lock) {
+		json.append("\"lock\":{");
+		json.append("\"acquisitions\":").append(lock.getAcquisitions());
+		json.append(",\"contended\":").append(lock.getContendedAcquisitions());
+		json.append(",\"wait\":").append(TimeUnit.NANOSECONDS.toMicros(lock.getWaitTime()));
+		json.append(",\"waitP99\":").append(TimeUnit.NANOSECONDS.toMicros(lock.getWaitTimes().getP99()));
+		json.append(",\"memoryHold\":").append(TimeUnit.NANOSECONDS.toMicros(lock.getMemoryHoldTime()));
+		json.append(",\"providerHold\":").append(TimeUnit.NANOSECONDS.toMicros(lock.getProviderHoldTime()));
+		json.append('}');
+	}
+
+	private static String formatRate(double rate) {
+		return String.format(Locale.ENGLISH, "%.2f", rate);
+	}
+
+	private static StringBuilder appendString(StringBuilder json, String name, String value) {
+		json.append('"').append(name).append("\":");
+		if (value == null) {
+			return json.append("null");
+		}
+
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					json.append("\\\"");
+					break;
+				case '\\':
+					json.append("\\\\");
+					break;
+				case '\n':
+					json.append("\\n");
+					break;
+				case '\r':
+					json.append("\\r");
+					break;
+				case '\t':
+					json.append("\\t");
+					break;
+				default:
+					if (c < 0x20 || c == '<' || c == '>') {
+						// Escape control characters and markup so the JSON cannot break out of a page
+						json.append(String.format("\\u%04x", (int)c));
+					} else {
+						json.append(c);
+					}
+			}
+		}
+
+		return json.append('"');
+	}
+}
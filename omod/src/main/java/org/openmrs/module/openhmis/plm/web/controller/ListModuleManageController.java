@@ -16,16 +16,26 @@ package org.openmrs.module.openhmis.plm.web.controller;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.plm.PersistentListService;
+import org.openmrs.module.openhmis.plm.web.ListStatisticsWriter;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 /**
  * The main controller.
  */
 @Controller
 public class  ListModuleManageController {
+	/**
+	 * The privilege required to view the list statistics.
+	 */
+	public static final String MANAGE_LISTS_PRIVILEGE = "Manage Persistent Lists";
 	
 	protected final Log log = LogFactory.getLog(getClass());
 	
@@ -33,4 +43,35 @@ public class  ListModuleManageController {
 	public void manage(ModelMap model) {
 		model.addAttribute("user", Context.getAuthenticatedUser());
 	}
+
+	/**
+	 * Writes the statistics of every list as JSON.  The response carries the statistics version as its ETag so that the
+	 * manage page can poll with conditional requests and only download the statistics when a list has changed.  The
+	 * statistics include the list keys, so they are only written for users with the {@link #MANAGE_LISTS_PRIVILEGE}.
+	 */
+	@RequestMapping(value = "/module/plm/stats", method = RequestMethod.GET)
+	public void stats(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!Context.isAuthenticated()) {
+			response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+			return;
+		}
+		if (!Context.hasPrivilege(MANAGE_LISTS_PRIVILEGE)) {
+			response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		PersistentListService service = Context.getService(PersistentListService.class);
+		String etag = "\"" + ListStatisticsWriter.getVersion(service) + "\"";
+
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("ETag", etag);
+		if (etag.equals(request.getHeader("If-None-Match"))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.getWriter().write(ListStatisticsWriter.write(service));
+	}
 }
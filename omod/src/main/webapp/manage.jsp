@@ -5,4 +5,105 @@
 
 <p>Hello ${user.systemId}!</p>
 
+<h3>Lists</h3>
+<table id="plmListStatistics" cellpadding="3" cellspacing="0" border="1">
+	<thead>
+		<tr>
+			<th>Key</th>
+			<th>Type</th>
+			<th>Durability</th>
+			<th>Size</th>
+			<th>Longest wait (s)</th>
+			<th>Added/s</th>
+			<th>Removed/s</th>
+			<th>Wait p50 / p90 / p99 (s)</th>
+		</tr>
+	</thead>
+	<tbody></tbody>
+</table>
+<p id="plmListStatisticsStatus"></p>
+
+<script type="text/javascript">
+	// Polls the list statistics with conditional requests so the statistics are only downloaded when a list changes
+	(function() {
+		var url = "${pageContext.request.contextPath}/module/plm/stats.form";
+		var interval = 5000;
+		var etag = null;
+		var stats = null;
+		var loadedAt = 0;
+
+		function text(value) {
+			return value === null || value === undefined ? "-" : String(value);
+		}
+
+		function cell(row, value) {
+			var td = document.createElement("td");
+			td.appendChild(document.createTextNode(text(value)));
+			row.appendChild(td);
+		}
+
+		function age(list) {
+			if (list.headCreatedOn === null || list.headCreatedOn === undefined) {
+				return null;
+			}
+
+			// Age the next item from the server time so the age keeps growing while the statistics are not modified
+			var now = stats.time + (new Date().getTime() - loadedAt);
+			return Math.max(Math.floor((now - list.headCreatedOn) / 1000), 0);
+		}
+
+		function render() {
+			var body = document.getElementById("plmListStatistics").tBodies[0];
+			while (body.firstChild) {
+				body.removeChild(body.firstChild);
+			}
+
+			for (var i = 0; i < stats.lists.length; i++) {
+				var list = stats.lists[i];
+				var row = document.createElement("tr");
+				cell(row, list.key);
+				cell(row, list.type);
+				cell(row, list.durability);
+				cell(row, list.loaded ? list.size : "not loaded");
+				cell(row, age(list));
+				cell(row, list.addedRate);
+				cell(row, list.removedRate);
+				cell(row, list.dwellTime ? list.dwellTime.p50 + " / " + list.dwellTime.p90 + " / " + list.dwellTime.p99 : null);
+				body.appendChild(row);
+			}
+		}
+
+		function poll() {
+			var request = new XMLHttpRequest();
+			request.open("GET", url, true);
+			if (etag) {
+				request.setRequestHeader("If-None-Match", etag);
+			}
+			request.onreadystatechange = function() {
+				if (request.readyState !== 4) {
+					return;
+				}
+
+				var status = document.getElementById("plmListStatisticsStatus");
+				if (request.status === 200) {
+					etag = request.getResponseHeader("ETag");
+					stats = JSON.parse(request.responseText);
+					loadedAt = new Date().getTime();
+					render();
+					status.innerHTML = "Updated " + new Date().toLocaleTimeString();
+				} else if (request.status === 304) {
+					render();
+				} else {
+					status.innerHTML = "The list statistics could not be loaded.";
+				}
+
+				setTimeout(poll, interval);
+			};
+			request.send(null);
+		}
+
+		poll();
+	})();
+</script>
+
 <%@ include file="/WEB-INF/template/footer.jsp"%>
\ No newline at end of file